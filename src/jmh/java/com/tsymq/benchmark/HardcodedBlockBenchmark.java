@@ -0,0 +1,59 @@
+package com.tsymq.benchmark;
+
+import com.tsymq.config.BlockedSitesConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 硬编码屏蔽列表匹配基准测试
+ * 对比基线实现（每次创建集合 + 小写 + 逐条 contains）和当前的 Aho-Corasick 匹配器
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HardcodedBlockBenchmark {
+
+    private static final int URL_COUNT = 4096;
+    private static final long SEED = 20240602L;
+
+    private String[] urls;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 约 1% 的 URL 命中硬编码关键词
+        List<String> keywords = new ArrayList<>(BlockedSitesConfig.getHardcodedBlockedSites());
+        urls = UrlCorpus.urls(URL_COUNT, keywords, 0.01, SEED);
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (URL_COUNT - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public boolean legacyIsHardcodedBlocked() {
+        return LegacyMatchers.isHardcodedBlocked(urls[next()]);
+    }
+
+    @Benchmark
+    public boolean isHardcodedBlocked() {
+        return BlockedSitesConfig.isHardcodedBlocked(urls[next()]);
+    }
+}
@@ -0,0 +1,42 @@
+package com.tsymq.benchmark;
+
+import com.tsymq.config.BlockedSitesConfig;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 基线实现：保留规则引擎引入之前的匹配逻辑，用于和当前实现对比
+ * <ul>
+ *     <li>isBlocked / isWhiteWeb：对列表逐条做 String.contains</li>
+ *     <li>isHardcodedBlocked：每次调用重新创建关键词集合，URL 转小写后逐条 contains</li>
+ * </ul>
+ */
+final class LegacyMatchers {
+
+    private final Set<String> blockedWebsites;
+    private final Set<String> whiteWebsites;
+
+    LegacyMatchers(Set<String> blockedWebsites, Set<String> whiteWebsites) {
+        this.blockedWebsites = new HashSet<>(blockedWebsites);
+        this.whiteWebsites = new HashSet<>(whiteWebsites);
+    }
+
+    boolean isBlocked(String url) {
+        return blockedWebsites.stream().anyMatch(url::contains);
+    }
+
+    boolean isWhiteWeb(String title) {
+        return whiteWebsites.stream().anyMatch(title::contains);
+    }
+
+    static boolean isHardcodedBlocked(String url) {
+        if (url == null || url.isEmpty()) {
+            return false;
+        }
+
+        String lowerUrl = url.toLowerCase();
+        return BlockedSitesConfig.getHardcodedBlockedSites().stream()
+                .anyMatch(lowerUrl::contains);
+    }
+}
@@ -0,0 +1,69 @@
+package com.tsymq.benchmark;
+
+import com.tsymq.net.BufferPool;
+import com.tsymq.net.FakeHttpOrigin;
+import com.tsymq.net.FilteringProxy;
+import com.tsymq.rule.Verdict;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 过滤代理吞吐基准测试
+ * 从本地源站下载 payloadBytes 字节：direct 直接连接源站作为对照，tunnel 经过代理的 CONNECT 隧道。
+ * 每次操作都新建连接，结果包含建立连接和判定的开销；吞吐（字节/秒）= payloadBytes / 每次操作的耗时
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProxyThroughputBenchmark {
+
+    @Param({"16384", "1048576", "16777216"})
+    public int payloadBytes;
+
+    private FakeHttpOrigin origin;
+    private FilteringProxy proxy;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        origin = new FakeHttpOrigin();
+        proxy = new FilteringProxy(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                url -> url.contains("pornhub.com") ? Verdict.HARDCODED_BLOCKED : Verdict.ALLOW,
+                new BufferPool(16 * 1024, 512, true)).start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.out.println(proxy);
+        proxy.close();
+        origin.close();
+    }
+
+    @Benchmark
+    public long direct() throws IOException {
+        return FakeHttpOrigin.downloadDirect(origin.getPort(), payloadBytes);
+    }
+
+    @Benchmark
+    public long tunnel() throws IOException {
+        return FakeHttpOrigin.downloadThroughTunnel(proxy.getPort(), "127.0.0.1", origin.getPort(), payloadBytes);
+    }
+}
@@ -0,0 +1,108 @@
+package com.tsymq.benchmark;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 基准测试数据生成器
+ * 按固定种子生成域名列表、URL 和页面标题，结果可重复，运行时无需联网或读取外部文件
+ */
+final class UrlCorpus {
+
+    private static final String[] SYLLABLES = {
+            "ba", "ce", "di", "fo", "gu", "ha", "ji", "ko", "lu", "ma", "ne", "pi", "qu", "ro",
+            "sa", "te", "vi", "wo", "xe", "yu", "zo", "net", "web", "hub", "app", "cloud", "news", "video"
+    };
+    private static final String[] TLDS = {"com", "net", "org", "io", "cn", "co.uk", "jp", "tv"};
+    private static final String[] SUBDOMAINS = {"", "", "www.", "m.", "cdn.", "api.", "static."};
+    private static final String[] PATHS = {
+            "", "/", "/watch?v=", "/search?q=", "/article/", "/user/profile/", "/static/js/app.", "/feed#top"
+    };
+    private static final String[] TITLE_WORDS = {
+            "Java", "教程", "文档", "Spring", "Tutorial", "新闻", "视频", "Guide", "API", "首页", "Reference", "Docs"
+    };
+
+    private UrlCorpus() {
+    }
+
+    /**
+     * 生成不重复的域名
+     * @param count 域名数量
+     * @param seed 随机种子
+     * @return 域名列表
+     */
+    static List<String> domains(int count, long seed) {
+        Random random = new Random(seed);
+        Set<String> domains = new LinkedHashSet<>(count * 2);
+        while (domains.size() < count) {
+            domains.add(label(random) + "." + TLDS[random.nextInt(TLDS.length)]);
+        }
+        return new ArrayList<>(domains);
+    }
+
+    /**
+     * 生成访问 URL，其中 hitRatio 比例的 URL 指向屏蔽列表中的域名（可能带子域名）
+     * @param count URL 数量
+     * @param blocked 屏蔽域名列表
+     * @param hitRatio 命中比例
+     * @param seed 随机种子
+     * @return URL 数组
+     */
+    static String[] urls(int count, List<String> blocked, double hitRatio, long seed) {
+        Random random = new Random(seed);
+        String[] urls = new String[count];
+        for (int i = 0; i < count; i++) {
+            String host;
+            if (!blocked.isEmpty() && random.nextDouble() < hitRatio) {
+                host = SUBDOMAINS[random.nextInt(SUBDOMAINS.length)] + blocked.get(random.nextInt(blocked.size()));
+            } else {
+                // 与屏蔽列表使用不同的后缀，保证未命中
+                host = SUBDOMAINS[random.nextInt(SUBDOMAINS.length)] + label(random) + ".example";
+            }
+            String path = PATHS[random.nextInt(PATHS.length)];
+            if (path.endsWith("=") || path.endsWith("/") && path.length() > 1 || path.endsWith(".")) {
+                path += Long.toHexString(random.nextLong());
+            }
+            urls[i] = (random.nextInt(10) == 0 ? "http://" : "https://") + host + path;
+        }
+        return urls;
+    }
+
+    /**
+     * 生成页面标题
+     * @param count 标题数量
+     * @param seed 随机种子
+     * @return 标题数组
+     */
+    static String[] titles(int count, long seed) {
+        Random random = new Random(seed);
+        String[] titles = new String[count];
+        for (int i = 0; i < count; i++) {
+            StringBuilder sb = new StringBuilder();
+            int words = 2 + random.nextInt(5);
+            for (int w = 0; w < words; w++) {
+                if (w > 0) {
+                    sb.append(' ');
+                }
+                sb.append(random.nextInt(4) == 0 ? TITLE_WORDS[random.nextInt(TITLE_WORDS.length)] : label(random));
+            }
+            titles[i] = sb.toString();
+        }
+        return titles;
+    }
+
+    private static String label(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int parts = 2 + random.nextInt(3);
+        for (int i = 0; i < parts; i++) {
+            sb.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        if (random.nextInt(3) == 0) {
+            sb.append(random.nextInt(1000));
+        }
+        return sb.toString();
+    }
+}
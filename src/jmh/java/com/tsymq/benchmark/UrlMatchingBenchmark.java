@@ -0,0 +1,86 @@
+package com.tsymq.benchmark;
+
+import com.tsymq.rule.RuleSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户规则匹配基准测试
+ * 对比基线实现（{@link LegacyMatchers}）和当前的 {@link RuleSnapshot}（AppBlocker.isBlocked / isWhiteWeb 直接委托给它）
+ * 列表规模从 10 到 100 万，URL 中约 10% 命中屏蔽列表
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlMatchingBenchmark {
+
+    private static final int URL_COUNT = 4096;
+    private static final long SEED = 20240601L;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int listSize;
+
+    private LegacyMatchers legacy;
+    private RuleSnapshot snapshot;
+    private String[] urls;
+    private String[] titles;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<String> domains = UrlCorpus.domains(listSize, SEED);
+        Set<String> whiteRules = new LinkedHashSet<>();
+        for (String domain : domains) {
+            whiteRules.add(domain.substring(0, domain.indexOf('.')));
+        }
+        whiteRules.add("Tutorial");
+
+        legacy = new LegacyMatchers(new LinkedHashSet<>(domains), whiteRules);
+        snapshot = RuleSnapshot.of(domains, whiteRules);
+        urls = UrlCorpus.urls(URL_COUNT, domains, 0.1, SEED + 1);
+        titles = UrlCorpus.titles(URL_COUNT, SEED + 2);
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (URL_COUNT - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public boolean legacyIsBlocked() {
+        return legacy.isBlocked(urls[next()]);
+    }
+
+    @Benchmark
+    public boolean snapshotIsBlocked() {
+        return snapshot.isBlocked(urls[next()]);
+    }
+
+    @Benchmark
+    public boolean legacyIsWhiteWeb() {
+        return legacy.isWhiteWeb(titles[next()]);
+    }
+
+    @Benchmark
+    public boolean snapshotIsWhiteWeb() {
+        return snapshot.isWhite(titles[next()]);
+    }
+}
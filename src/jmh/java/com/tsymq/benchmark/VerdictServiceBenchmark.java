@@ -0,0 +1,70 @@
+package com.tsymq.benchmark;
+
+import com.tsymq.config.BlockedSitesConfig;
+import com.tsymq.net.VerdictClient;
+import com.tsymq.net.VerdictLoadGenerator;
+import com.tsymq.net.VerdictServer;
+import com.tsymq.rule.Verdict;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 本地判定服务往返延迟基准测试
+ * 单个查询和 16 个 URL 的批量查询各一次往返，SampleTime 模式给出延迟分位数（p99 等）；
+ * 固定速率的开环负载见 {@link VerdictLoadGenerator}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VerdictServiceBenchmark {
+
+    private static final int BATCH_SIZE = 16;
+
+    private VerdictServer server;
+    private VerdictClient client;
+    private List<String> urls;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        server = VerdictServer.loopback(0, tab -> BlockedSitesConfig.isHardcodedBlocked(tab.getUrl())
+                ? Verdict.HARDCODED_BLOCKED : Verdict.ALLOW, 64 * 1024).start();
+        client = VerdictClient.connect(server.getPort(), 5_000);
+        urls = VerdictLoadGenerator.sampleUrls(1024);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public Verdict singleQuery() throws IOException {
+        cursor = (cursor + 1) & (urls.size() - 1);
+        return client.query(urls.get(cursor));
+    }
+
+    @Benchmark
+    public List<Verdict> batchQuery() throws IOException {
+        cursor = (cursor + BATCH_SIZE) & (urls.size() - 1);
+        return client.queryBatch(urls.subList(cursor, Math.min(urls.size(), cursor + BATCH_SIZE)));
+    }
+}
@@ -2,38 +2,156 @@ package com.tsymq;
 
 import com.tsymq.browser.Browser;
 import com.tsymq.browser.BrowserFactory;
+import com.tsymq.browser.CdpBrowser;
 import com.tsymq.browser.EdgeBrowser;
+import com.tsymq.browser.NativeHostPresence;
+import com.tsymq.browser.TabSnapshot;
+import com.tsymq.command.CircuitBreaker;
+import com.tsymq.command.CircuitBreakerCommandRunner;
+import com.tsymq.command.CommandRunner;
+import com.tsymq.command.ScriptException;
 import com.tsymq.mode.ModeManager;
+import com.tsymq.mode.ModeState;
+import com.tsymq.monitor.ActionExecutor;
+import com.tsymq.monitor.AdaptivePollingPolicy;
+import com.tsymq.monitor.AdaptivePollingPolicy.Observation;
+import com.tsymq.monitor.BlockAction;
+import com.tsymq.monitor.IdleDetector;
+import com.tsymq.monitor.TabSweeper;
+import com.tsymq.net.DnsSinkhole;
+import com.tsymq.net.FilteringProxy;
+import com.tsymq.net.VerdictServer;
 import com.tsymq.config.BlockedSitesConfig;
 import com.tsymq.config.AppConfig;
+import com.tsymq.rule.BlocklistStore;
+import com.tsymq.rule.DomainSet;
+import com.tsymq.rule.HostsFileGenerator;
+import com.tsymq.rule.RuleFileWatcher;
+import com.tsymq.rule.RuleJournal;
+import com.tsymq.rule.RuleSnapshot;
+import com.tsymq.rule.Verdict;
+import com.tsymq.rule.VerdictCache;
 import javafx.scene.control.TextArea;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 
 public class AppBlocker {
 
-    private final Set<String> blockedWebsites = new HashSet<>();
-    private final Set<String> whiteWebsites = new HashSet<>();
+    // 用户屏蔽列表和白名单的编译快照：监控线程无锁读取，编辑时整体替换
+    private volatile RuleSnapshot rules = RuleSnapshot.empty();
+    // 串行化写操作，避免并发编辑丢失更新
+    private final Object rulesLock = new Object();
+    // URL判定缓存，键中包含规则代号和模式，规则编辑或模式切换后自动失效
+    private final VerdictCache verdictCache = new VerdictCache(AppConfig.VERDICT_CACHE_CAPACITY);
+    // 屏蔽列表的追加日志：编辑只追加一行，由后台线程批量写入，避免每次都重写整个文件
+    private final RuleJournal blockedJournal;
+    // 列表文件路径在构造时确定，监听线程上重新加载时使用同一路径
+    private final Path blockedWebsitesPath;
+    private final Path whiteWebsitesPath;
+    // 规则文件监听器，外部修改列表文件后自动重新加载
+    private RuleFileWatcher ruleFileWatcher;
     private ScheduledExecutorService scheduler;
+    // 自适应采样策略：无变化时退避，标签页切换或屏蔽后收紧，系统空闲时暂停
+    private final AdaptivePollingPolicy pollingPolicy = new AdaptivePollingPolicy(
+            AppConfig.MONITOR_MIN_INTERVAL_MS, AppConfig.MONITOR_MAX_INTERVAL_MS, AppConfig.MONITOR_INTERVAL_MS,
+            AppConfig.MONITOR_BACKOFF_FACTOR, AppConfig.MONITOR_IDLE_PAUSE_MS);
+    private final IdleDetector idleDetector;
+    // 屏蔽动作在单独的线程上按优先级执行，不占用采样线程
+    private final ActionExecutor actionExecutor = new ActionExecutor(AppConfig.ACTION_QUEUE_CAPACITY);
+    // 上一次采样的 URL 和开始时间（采样串行执行，只在采样链中读写）
+    private String lastSampledUrl;
+    private long lastSampleNanos;
+    // 上一次采样时的前台应用，探测失败且查询不到前台应用时据此判断是哪个浏览器无响应
+    private String lastFrontApp;
+    // 执行 AppleScript 的执行器，测试和基准中可替换为回放执行器
+    private final CommandRunner commandRunner;
+    // 浏览器适配器，各自通过自己的熔断器执行脚本
+    private final Map<String, Browser> browsers;
+    // 每个浏览器一个熔断器：无响应或拒绝自动化时快速失败，不拖住整个监控
+    private final Map<String, CircuitBreaker> circuitBreakers;
+    // 低频全量扫描所有浏览器的全部标签页
+    private final TabSweeper tabSweeper;
+    // 通过 DevTools 协议推送标签页变化的浏览器，连接期间不再轮询它的标签页
+    private final Map<String, CdpBrowser> pushBrowsers = new ConcurrentHashMap<>();
+    // 浏览器扩展的原生消息主机在线时，该浏览器的标签页由扩展在导航时上报，也不再轮询
+    private volatile NativeHostPresence nativeHosts = NativeHostPresence.system();
+    // 本机判定服务，供其他进程查询与这里一致的判定结果
+    private volatile VerdictServer verdictServer;
+    // 本机 DNS 存根解析器，在域名解析阶段拦截被屏蔽的网站
+    private volatile DnsSinkhole dnsSinkhole;
+    // 本机过滤代理，在代理层拦截被屏蔽的网站
+    private volatile FilteringProxy filteringProxy;
+    // hosts 格式屏蔽文件，模式切换时立即重新生成，规则变化定期检查
+    private volatile HostsFileGenerator hostsFile;
+    private final Consumer<ModeState> hostsFileModeListener = state -> requestHostsFileRegeneration();
+    // 监控输出，熔断状态变化时写入界面
+    private volatile Consumer<String> monitorLog = message -> { };
     
     // 添加模式管理器依赖
     private ModeManager modeManager;
 
     public AppBlocker() {
-        this.scheduler = Executors.newScheduledThreadPool(1);
+        this(CommandRunner.system());
+    }
+
+    /**
+     * @param commandRunner 脚本执行器，探测和关闭标签页都通过它执行
+     */
+    public AppBlocker(CommandRunner commandRunner) {
+        this(commandRunner, IdleDetector.system());
+    }
+
+    /**
+     * @param commandRunner 脚本执行器，探测和关闭标签页都通过它执行
+     * @param idleDetector 系统空闲检测，空闲时暂停采样
+     */
+    public AppBlocker(CommandRunner commandRunner, IdleDetector idleDetector) {
+        this.commandRunner = commandRunner;
+        this.idleDetector = idleDetector;
+        Map<String, CircuitBreaker> breakers = new LinkedHashMap<>();
+        this.browsers = BrowserFactory.createBrowsersWith(name -> {
+            CircuitBreaker breaker = new CircuitBreaker(name);
+            breaker.setStateListener(this::onCircuitStateChanged);
+            breakers.put(name, breaker);
+            return new CircuitBreakerCommandRunner(commandRunner, breaker);
+        });
+        this.circuitBreakers = Collections.unmodifiableMap(breakers);
+        this.tabSweeper = new TabSweeper(commandRunner, browsers.values(), this::classifyForSweep, actionExecutor,
+                AppConfig.TAB_SWEEP_INTERVAL_MS, AppConfig.TAB_SWEEP_TIME_BUDGET);
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        // 停止时丢弃尚未到期的下一次采样
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        this.scheduler = executor;
+        this.blockedWebsitesPath = Paths.get(AppConfig.BLOCKED_WEBSITES_FILE);
+        this.whiteWebsitesPath = Paths.get(AppConfig.WHITE_WEBSITES_FILE);
+        this.blockedJournal = new RuleJournal(blockedWebsitesPath, AppConfig.RULE_JOURNAL_COMPACT_BYTES);
     }
     
     /**
@@ -41,52 +159,475 @@ public class AppBlocker {
      * @param modeManager 模式管理器实例
      */
     public void setModeManager(ModeManager modeManager) {
+        if (this.modeManager != null) {
+            this.modeManager.removeModeChangeListener(hostsFileModeListener);
+        }
         this.modeManager = modeManager;
+        if (modeManager != null) {
+            modeManager.addModeChangeListener(hostsFileModeListener);
+        }
     }
 
     public void monitorActiveEdgeUrl(TextArea outputArea) {
-        Runnable monitor = () -> {
-            String activeAppName = getActiveAppName();
+        monitorLog = outputArea::appendText;
+        if (AppConfig.DEVTOOLS_ENABLED) {
+            attachDevTools(AppConfig.DEVTOOLS_BROWSER, URI.create(AppConfig.DEVTOOLS_ENDPOINT))
+                .exceptionally(e -> {
+                    System.err.println("DevTools unavailable, polling " + AppConfig.DEVTOOLS_BROWSER + ": " + e.getMessage());
+                    return null;
+                });
+        }
+        if (AppConfig.VERDICT_SERVICE_ENABLED) {
+            try {
+                startVerdictService(AppConfig.VERDICT_SERVICE_PORT);
+            } catch (IOException e) {
+                System.err.println("Verdict service unavailable on port " + AppConfig.VERDICT_SERVICE_PORT + ": " + e.getMessage());
+            }
+        }
+        if (AppConfig.DNS_SINKHOLE_ENABLED) {
+            try {
+                startDnsSinkhole(AppConfig.DNS_SINKHOLE_PORT, DnsSinkhole.parseUpstream(AppConfig.DNS_UPSTREAM));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("DNS sinkhole unavailable on port " + AppConfig.DNS_SINKHOLE_PORT + ": " + e.getMessage());
+            }
+        }
+        if (AppConfig.HOSTS_FILE_ENABLED) {
+            startHostsFile(Paths.get(AppConfig.HOSTS_FILE_TARGET));
+        }
+        if (AppConfig.PROXY_ENABLED) {
+            try {
+                startFilteringProxy(AppConfig.PROXY_PORT);
+            } catch (IOException e) {
+                System.err.println("Filtering proxy unavailable on port " + AppConfig.PROXY_PORT + ": " + e.getMessage());
+            }
+        }
+        scheduleSample(outputArea::appendText, 0);
+        scheduleSweep(outputArea::appendText, AppConfig.TAB_SWEEP_INTERVAL_MS);
+    }
 
-            // 使用浏览器工厂获取对应的浏览器适配器
-            Optional<Browser> browserOpt = BrowserFactory.getBrowser(activeAppName);
+    /**
+     * 启动本机判定服务，回复与 {@link #evaluate(TabSnapshot)} 一致，随学习模式和规则变化；
+     * 外部查询不经过判定缓存，避免挤掉前台标签页的缓存条目
+     * @param port 端口，0 表示自动分配
+     * @return 已启动的服务
+     * @throws IOException 端口被占用等
+     */
+    public VerdictServer startVerdictService(int port) throws IOException {
+        VerdictServer server = VerdictServer.loopback(port, this::evaluateUncached, AppConfig.VERDICT_SERVICE_MAX_LINE_BYTES);
+        verdictServer = server.start();
+        System.out.println("Verdict service listening on 127.0.0.1:" + server.getPort());
+        return server;
+    }
+
+    /**
+     * 启动本机 DNS 存根解析器，按 {@link #evaluate(String)} 的规则判定域名，随学习模式和规则变化；
+     * 全系统的解析请求不经过判定缓存
+     * @param port 端口，0 表示自动分配
+     * @param upstream 上游 DNS 服务器
+     * @return 已启动的解析器
+     * @throws IOException 端口被占用等
+     */
+    public DnsSinkhole startDnsSinkhole(int port, InetSocketAddress upstream) throws IOException {
+        DnsSinkhole sinkhole = DnsSinkhole.loopback(port, upstream, domain -> evaluateUncached("https://" + domain + "/"));
+        dnsSinkhole = sinkhole.start();
+        System.out.println("DNS sinkhole listening on 127.0.0.1:" + sinkhole.getPort() + ", upstream " + upstream);
+        return sinkhole;
+    }
+
+    /**
+     * 开始维护 hosts 格式屏蔽文件：立即生成一次，之后在模式切换时立即重新生成，并定期检查规则变化
+     * @param target 目标文件
+     * @return 生成器
+     */
+    public HostsFileGenerator startHostsFile(Path target) {
+        HostsFileGenerator generator = HostsFileGenerator.configured(target);
+        hostsFile = generator;
+        regenerateHostsFile();
+        try {
+            scheduler.scheduleWithFixedDelay(this::regenerateHostsFile, AppConfig.HOSTS_FILE_REFRESH_MS,
+                    AppConfig.HOSTS_FILE_REFRESH_MS, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 已停止
+        }
+        return generator;
+    }
 
-            if (browserOpt.isPresent()) {
-                Browser browser = browserOpt.get();
-                handleBrowserBlocking(browser, outputArea);
+    /**
+     * 按当前规则和模式重新生成 hosts 文件，内容未变化时不写文件
+     * @return 是否写入了文件
+     */
+    public boolean regenerateHostsFile() {
+        HostsFileGenerator generator = hostsFile;
+        if (generator == null) {
+            return false;
+        }
+        try {
+            boolean written = generator.generate(rules, shouldBlock());
+            if (written) {
+                System.out.println("Hosts file regenerated: " + generator);
             }
-            // 非支持的浏览器不做任何处理
-        };
+            return written;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Error generating hosts file " + generator.getTarget() + ": " + e.getMessage());
+            return false;
+        }
+    }
 
-        scheduler.scheduleWithFixedDelay(monitor, 0, AppConfig.MONITOR_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    private void requestHostsFileRegeneration() {
+        if (hostsFile == null) {
+            return;
+        }
+        try {
+            // 在调度线程上生成，不占用切换模式的线程
+            scheduler.execute(this::regenerateHostsFile);
+        } catch (RejectedExecutionException e) {
+            // 已停止
+        }
     }
 
     /**
-     * 处理浏览器屏蔽逻辑（适用于所有支持的浏览器）
-     * @param browser 浏览器适配器
-     * @param outputArea 输出区域
+     * 启动本机过滤代理，按 {@link #evaluate(String)} 的规则判定请求，随学习模式和规则变化；
+     * 代理的请求不经过判定缓存
+     * @param port 端口，0 表示自动分配
+     * @return 已启动的代理
+     * @throws IOException 端口被占用等
      */
-    private void handleBrowserBlocking(Browser browser, TextArea outputArea) {
-        String url = browser.getActiveTabUrl();
-        String title = browser.getActiveTabTitle();
+    public FilteringProxy startFilteringProxy(int port) throws IOException {
+        FilteringProxy proxy = FilteringProxy.loopback(port, this::evaluateUncached);
+        filteringProxy = proxy.start();
+        System.out.println("Filtering proxy listening on 127.0.0.1:" + proxy.getPort() + ", PAC " + proxy.getPacUrl());
+        return proxy;
+    }
+
+    /**
+     * 通过 DevTools 协议连接浏览器，之后该浏览器的标签页变化由浏览器推送并立即处理，不再轮询
+     * 连接断开后自动恢复轮询
+     * @param appName 浏览器应用名称
+     * @param endpoint 调试端口地址或浏览器级 WebSocket 地址
+     * @return 连接并订阅完成后的适配器
+     */
+    public CompletableFuture<CdpBrowser> attachDevTools(String appName, URI endpoint) {
+        Browser browser = browsers.get(appName);
+        if (browser == null) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Unsupported browser: " + appName));
+        }
+        CdpBrowser cdp = new CdpBrowser(browser, endpoint);
+        cdp.addTabListener(tab -> onPushedTab(cdp, tab));
+        return cdp.connect()
+            .thenApply(connected -> {
+                pushBrowsers.put(appName, cdp);
+                monitorLog.accept(appName + " 已通过 DevTools 连接，标签页变化实时处理\n");
+                cdp.getDisconnected().thenRun(() -> {
+                    if (pushBrowsers.remove(appName, cdp)) {
+                        monitorLog.accept(appName + " DevTools 连接已断开，恢复轮询\n");
+                    }
+                });
+                return cdp;
+            })
+            .whenComplete((connected, error) -> {
+                if (error != null) {
+                    cdp.close();
+                }
+            });
+    }
 
-        // 白名单检查（标题匹配）
-        if (isWhiteWeb(title)) {
+    /**
+     * 处理浏览器推送的标签页变化（在连接的接收线程上调用，只判定和提交动作）
+     */
+    private void onPushedTab(CdpBrowser browser, TabSnapshot tab) {
+        long eventNanos = System.nanoTime();
+        BlockAction.Priority priority = classifyForSweep(tab);
+        if (priority == null) {
             return;
         }
+        // 推送的标签页可以按 id 关闭，用户规则和硬编码规则都直接关闭
+        if (submitAction(BlockAction.forTab(priority, tab, () -> browser.closeTabs(List.of(tab))), eventNanos)) {
+            monitorLog.accept("close web " + tab.getUrl() + " (" + browser.getName() + ", DevTools)\n");
+        }
+    }
 
-        // 用户自定义屏蔽网站功能只在学习模式下生效
-        if (shouldBlock() && isBlocked(url)) {
-            browser.openNewTab();
+    private boolean isPushed(String appName) {
+        return pushBrowsers.containsKey(appName) || nativeHosts.isActive(appName);
+    }
+
+    /**
+     * 设置原生消息主机的在线标记（测试时指向临时目录）
+     * @param nativeHosts 在线标记
+     */
+    void setNativeHostPresence(NativeHostPresence nativeHosts) {
+        this.nativeHosts = nativeHosts;
+    }
+
+    /**
+     * 获取通过 DevTools 连接的浏览器
+     * @return 应用名称到适配器的映射
+     */
+    public Map<String, CdpBrowser> getPushBrowsers() {
+        return Collections.unmodifiableMap(pushBrowsers);
+    }
+
+    private void scheduleSweep(Consumer<String> log, long delayMillis) {
+        try {
+            scheduler.schedule(() -> runScheduledSweep(log), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 已停止
+        }
+    }
+
+    private void runScheduledSweep(Consumer<String> log) {
+        // 系统空闲时采样已暂停，扫描也跳过
+        if (pollingPolicy.isPaused()) {
+            scheduleSweep(log, tabSweeper.getNextDelayMillis());
             return;
         }
+        tabSweeper.sweep(log)
+            .whenComplete((closed, error) -> scheduleSweep(log, tabSweeper.getNextDelayMillis()));
+    }
+
+    /**
+     * 获取全量标签页扫描器（用于查看扫描统计）
+     * @return 扫描器
+     */
+    public TabSweeper getTabSweeper() {
+        return tabSweeper;
+    }
 
-        // 硬编码的色情网站屏蔽在所有模式下都生效
-        if (BlockedSitesConfig.isHardcodedBlocked(url)) {
-            browser.closeActiveTab();
-            outputArea.appendText("close web " + url + " (" + browser.getName() + ")\n");
+    private void onCircuitStateChanged(CircuitBreaker breaker) {
+        switch (breaker.getState()) {
+            case OPEN:
+                monitorLog.accept(breaker.getName() + " 无响应或拒绝自动化，暂停探测（熔断）\n");
+                break;
+            case HALF_OPEN:
+                monitorLog.accept(breaker.getName() + " 尝试恢复探测\n");
+                break;
+            default:
+                monitorLog.accept(breaker.getName() + " 已恢复探测\n");
+                break;
         }
     }
+
+    /**
+     * 获取各浏览器的熔断器（用于查看状态和统计）
+     * @return 应用名称到熔断器的只读映射
+     */
+    public Map<String, CircuitBreaker> getCircuitBreakers() {
+        return circuitBreakers;
+    }
+
+    /**
+     * 安排下一次采样：每次采样完成后才按策略给出的间隔安排下一次，探测不会重叠
+     */
+    private void scheduleSample(Consumer<String> log, long delayMillis) {
+        try {
+            scheduler.schedule(() -> runScheduledSample(log), delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // 已停止
+        }
+    }
+
+    private void runScheduledSample(Consumer<String> log) {
+        // 间隔退避到上限后才检查系统空闲，空闲期间不探测标签页
+        if (pollingPolicy.shouldCheckIdle() && pollingPolicy.checkIdle(idleDetector.getIdleMillis())) {
+            scheduleSample(log, pollingPolicy.getCurrentDelayMillis());
+            return;
+        }
+        sampleActiveTab(log)
+            .thenRun(() -> scheduleSample(log, pollingPolicy.getCurrentDelayMillis()));
+    }
+
+    /**
+     * 执行一次采样：探测前台标签页并按规则处理，结果计入采样策略
+     * 不依赖界面组件，测试中可以配合回放执行器直接驱动
+     * @param log 输出日志的回调
+     * @return 本次采样的结果，探测失败时视为不支持的应用
+     */
+    CompletableFuture<Observation> sampleActiveTab(Consumer<String> log) {
+        long sampleNanos = System.nanoTime();
+        // 一次脚本调用取回前台应用、URL 和标题
+        return probeFrontmostTab()
+            .thenApply(tab -> {
+                if (tab == null || !tab.hasTab()) {
+                    lastSampledUrl = null;
+                    return Observation.UNSUPPORTED;
+                }
+                // 使用同一执行器的浏览器适配器
+                Browser browser = browsers.get(tab.getAppName());
+                if (browser == null) {
+                    // 非支持的浏览器不做任何处理
+                    lastSampledUrl = null;
+                    return Observation.UNSUPPORTED;
+                }
+                boolean changed = !Objects.equals(tab.getUrl(), lastSampledUrl);
+                lastSampledUrl = tab.getUrl();
+                // 上一次采样时 URL 还未被屏蔽，以它的开始时间估算屏蔽耗时
+                long since = lastSampleNanos == 0 ? sampleNanos : lastSampleNanos;
+                if (handleBrowserBlocking(browser, tab, log, since)) {
+                    return Observation.BLOCKED;
+                }
+                return changed ? Observation.CHANGED : Observation.UNCHANGED;
+            })
+            .exceptionally(e -> {
+                System.err.println("Error probing active tab: " + e.getMessage());
+                return Observation.UNSUPPORTED;
+            })
+            .thenApply(observation -> {
+                lastSampleNanos = sampleNanos;
+                pollingPolicy.onSample(observation);
+                return observation;
+            });
+    }
+
+    /**
+     * 获取标签页采样策略（用于查看实际采样频率和平均屏蔽耗时）
+     * @return 采样策略
+     */
+    public AdaptivePollingPolicy getPollingPolicy() {
+        return pollingPolicy;
+    }
+
+    /**
+     * 处理浏览器屏蔽逻辑（适用于所有支持的浏览器）
+     * @param browser 浏览器适配器
+     * @param tab 活动标签页快照
+     * @param log 输出日志的回调
+     * @param sinceNanos 估算屏蔽耗时的起点
+     * @return 是否需要屏蔽（动作已提交或同一标签页的动作仍在等待执行）
+     */
+    private boolean handleBrowserBlocking(Browser browser, TabSnapshot tab, Consumer<String> log, long sinceNanos) {
+        String url = tab.getUrl();
+        Verdict verdict = evaluate(tab);
+
+        // 用户自定义屏蔽网站功能只在学习模式下生效
+        if (verdict == Verdict.USER_BLOCKED) {
+            submitAction(BlockAction.forTab(BlockAction.Priority.USER_RULE, tab, browser::openNewTab), sinceNanos);
+            return true;
+        }
+
+        // 硬编码的色情网站屏蔽在所有模式下都生效，优先执行；
+        // 动作可能排队一段时间后才执行，按采样时的窗口和标签页 id 关闭，而不是关闭届时的活动标签页
+        if (verdict == Verdict.HARDCODED_BLOCKED) {
+            if (submitAction(BlockAction.forTab(BlockAction.Priority.HARDCODED, tab,
+                    () -> browser.closeTabs(List.of(tab))), sinceNanos)) {
+                log.accept("close web " + url + " (" + browser.getName() + ")\n");
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean submitAction(BlockAction action, long sinceNanos) {
+        if (!actionExecutor.submit(action)) {
+            return false;
+        }
+        action.getCompletion().thenRun(() -> pollingPolicy.recordBlock(System.nanoTime() - sinceNanos));
+        return true;
+    }
+
+    /**
+     * 获取屏蔽动作执行器（用于查看队列深度和动作耗时）
+     * @return 动作执行器
+     */
+    public ActionExecutor getActionExecutor() {
+        return actionExecutor;
+    }
+
+    /**
+     * 判定URL在当前模式下的处理结果（不含白名单检查）
+     * @param url 待判定URL
+     * @return 判定结果
+     */
+    public Verdict evaluate(String url) {
+        return evaluate(rules, url);
+    }
+
+    /**
+     * 判定标签页在当前模式下的处理结果（含标题白名单检查），轮询和浏览器扩展使用同一套判定
+     * @param tab 标签页
+     * @return 判定结果
+     */
+    public Verdict evaluate(TabSnapshot tab) {
+        // 整个判断过程使用同一份快照，避免中途被编辑替换
+        RuleSnapshot snapshot = rules;
+        if (snapshot.isWhite(tab.getTitle())) {
+            return Verdict.ALLOW;
+        }
+        return evaluate(snapshot, tab.getUrl());
+    }
+
+    /**
+     * 与 {@link #evaluate(String)} 相同的判定，但不经过判定缓存
+     * DNS、代理和判定服务的查询量远大于前台标签页，共用 256 条的缓存会不断挤掉前台标签页的条目
+     */
+    private Verdict evaluateUncached(String url) {
+        if (url == null || url.isEmpty()) {
+            return Verdict.ALLOW;
+        }
+        return classify(rules, url, shouldBlock());
+    }
+
+    private Verdict evaluateUncached(TabSnapshot tab) {
+        RuleSnapshot snapshot = rules;
+        if (snapshot.isWhite(tab.getTitle()) || tab.getUrl().isEmpty()) {
+            return Verdict.ALLOW;
+        }
+        return classify(snapshot, tab.getUrl(), shouldBlock());
+    }
+
+    private Verdict evaluate(RuleSnapshot snapshot, String url) {
+        if (url == null || url.isEmpty()) {
+            return Verdict.ALLOW;
+        }
+        boolean focus = shouldBlock();
+        // 模式也是判定的输入之一，编入缓存代号中
+        long generation = (snapshot.getGeneration() << 1) | (focus ? 1L : 0L);
+        // 缓存键必须是匹配器检查的同一个字符串，关键词规则可能只出现在片段标识中
+        Verdict cached = verdictCache.get(url, generation);
+        if (cached != null) {
+            return cached;
+        }
+
+        Verdict verdict = classify(snapshot, url, focus);
+        verdictCache.put(url, generation, verdict);
+        return verdict;
+    }
+
+    private static Verdict classify(RuleSnapshot snapshot, String url, boolean focus) {
+        if (focus && snapshot.isBlocked(url)) {
+            return Verdict.USER_BLOCKED;
+        } else if (BlockedSitesConfig.isHardcodedBlocked(url)) {
+            return Verdict.HARDCODED_BLOCKED;
+        }
+        return Verdict.ALLOW;
+    }
+
+    /**
+     * 全量扫描时判断标签页是否需要关闭
+     * 不经过判定缓存，避免大量后台标签页挤掉前台标签页的缓存条目
+     * @param tab 标签页
+     * @return 关闭动作的优先级，不需要关闭时返回 null
+     */
+    private BlockAction.Priority classifyForSweep(TabSnapshot tab) {
+        RuleSnapshot snapshot = rules;
+        if (tab.getUrl().isEmpty() || snapshot.isWhite(tab.getTitle())) {
+            return null;
+        }
+        switch (classify(snapshot, tab.getUrl(), shouldBlock())) {
+            case HARDCODED_BLOCKED:
+                return BlockAction.Priority.HARDCODED;
+            case USER_BLOCKED:
+                return BlockAction.Priority.USER_RULE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * 获取URL判定缓存（用于统计命中率）
+     * @return 判定缓存
+     */
+    public VerdictCache getVerdictCache() {
+        return verdictCache;
+    }
     
     /**
      * 检查当前是否应该执行用户自定义网站屏蔽功能
@@ -113,6 +654,32 @@ public class AppBlocker {
     }
 
     public void stop() {
+        System.out.println("Tab sampling stats: " + pollingPolicy);
+        circuitBreakers.values().forEach(breaker -> System.out.println("Circuit breaker stats: " + breaker));
+        System.out.println("Block action stats: " + actionExecutor);
+        System.out.println("Tab sweep stats: " + tabSweeper);
+        pushBrowsers.values().forEach(CdpBrowser::close);
+        VerdictServer server = verdictServer;
+        if (server != null) {
+            System.out.println("Verdict service stats: " + server);
+            server.close();
+        }
+        DnsSinkhole sinkhole = dnsSinkhole;
+        if (sinkhole != null) {
+            System.out.println("DNS sinkhole stats: " + sinkhole);
+            sinkhole.close();
+        }
+        HostsFileGenerator generator = hostsFile;
+        if (generator != null) {
+            System.out.println("Hosts file stats: " + generator);
+        }
+        FilteringProxy proxy = filteringProxy;
+        if (proxy != null) {
+            System.out.println("Filtering proxy stats: " + proxy);
+            proxy.close();
+        }
+        stopWatchingRuleFiles();
+        blockedJournal.close();
         if (this.scheduler != null) {
             this.scheduler.shutdown();
             try {
@@ -124,6 +691,7 @@ public class AppBlocker {
                 scheduler.shutdownNow();
             }
         }
+        actionExecutor.close();
     }
 
     public boolean block(String itemToBlock) {
@@ -134,9 +702,52 @@ public class AppBlocker {
         return false;
     }
 
+    /**
+     * 批量添加屏蔽项，只生成一次新快照，日志也在同一次写入中落盘
+     * @param items 屏蔽项
+     * @return 实际新增的数量
+     */
+    public int blockAll(Collection<String> items) {
+        Set<String> added = new LinkedHashSet<>();
+        synchronized (rulesLock) {
+            for (String item : items) {
+                if (item != null && !item.trim().isEmpty() && !rules.getBlockedRules().contains(item)) {
+                    added.add(item);
+                }
+            }
+            if (added.isEmpty()) {
+                return 0;
+            }
+            Set<String> blocked = new LinkedHashSet<>(rules.getBlockedRules());
+            blocked.addAll(added);
+            rules = rules.withBlockedRules(blocked);
+            blockedJournal.recordAddAll(added);
+        }
+        return added.size();
+    }
+
+    /**
+     * 删除一条屏蔽项
+     * @param item 屏蔽项
+     * @return 是否删除成功
+     */
+    public boolean unblock(String item) {
+        synchronized (rulesLock) {
+            if (!rules.getBlockedRules().contains(item)) {
+                return false;
+            }
+            rules = rules.withoutBlockedRule(item);
+            blockedJournal.recordRemove(item);
+        }
+        return true;
+    }
+
     private boolean blockWebsite(String website) {
-        blockedWebsites.add(website);
-        saveBlockedWebsites();
+        synchronized (rulesLock) {
+            rules = rules.withBlockedRule(website);
+            // 在锁内提交，保证日志顺序与快照一致
+            blockedJournal.recordAdd(website);
+        }
         return true;
     }
 
@@ -144,71 +755,228 @@ public class AppBlocker {
      * 打开新的 Edge 标签页（保留向后兼容）
      */
     public void openNewEdgeTab() {
-        BrowserFactory.getBrowser(EdgeBrowser.APP_NAME)
+        Optional.ofNullable(browsers.get(EdgeBrowser.APP_NAME))
                 .ifPresent(Browser::openNewTab);
     }
 
-    private String getActiveAppName() {
-        String getActiveAppNameScript = "tell application \"System Events\" to name of first application process whose frontmost is true";
-        return CommandUtil.executeAppleScript(getActiveAppNameScript);
+    /**
+     * 异步探测前台应用及其活动标签页
+     * @return 标签页快照，前台不是支持的浏览器时只包含应用名，探测失败返回 null
+     */
+    CompletableFuture<TabSnapshot> probeFrontmostTab() {
+        // 已熔断、由 DevTools 推送或由扩展上报的浏览器不探测标签页，它在前台时脚本只返回应用名
+        List<CircuitBreaker> acquired = new ArrayList<>();
+        for (CircuitBreaker breaker : circuitBreakers.values()) {
+            if (!isPushed(breaker.getName()) && breaker.tryAcquire()) {
+                acquired.add(breaker);
+            }
+        }
+        String script = acquired.size() == circuitBreakers.size()
+            ? BrowserFactory.getFrontmostProbeScript()
+            : BrowserFactory.getFrontmostProbeScript(name -> acquired.contains(circuitBreakers.get(name)));
+        // 任何一个被探测的浏览器都可能在前台，取其中最长的超时时间
+        long timeoutMillis = acquired.stream()
+            .mapToLong(CircuitBreaker::getTimeoutMillis)
+            .max()
+            .orElse(AppConfig.SCRIPT_MAX_TIMEOUT_MS);
+        long start = System.nanoTime();
+        return commandRunner.runAppleScriptChecked(script, timeoutMillis)
+            .handle((output, error) -> {
+                if (error == null) {
+                    TabSnapshot tab = TabSnapshot.parse(output);
+                    return CompletableFuture.completedFuture(settleProbe(acquired, tab, tab.getAppName(), null, start));
+                }
+                // 整个脚本超时或出错时无法得知卡在哪个浏览器：单独查询一次前台应用（只访问 System Events），
+                // 查询也失败时才记到上一次在前台的应用
+                String suspect = lastFrontApp;
+                return commandRunner.runAppleScriptChecked(BrowserFactory.getFrontAppScript(),
+                        AppConfig.FRONT_APP_QUERY_TIMEOUT_MS)
+                    .handle((name, queryError) -> settleProbe(acquired, null,
+                        queryError == null && !name.trim().isEmpty() ? name.trim() : suspect, error, start));
+            })
+            .thenCompose(probe -> probe);
+    }
+
+    /**
+     * 把一次探测的结果记到前台浏览器的熔断器，其余获取到的熔断器只释放
+     * @param acquired 本次获取到的熔断器
+     * @param tab 探测结果，脚本失败时为 null
+     * @param frontApp 前台应用
+     * @param error 脚本的异常，成功时为 null
+     * @param start 开始时间
+     * @return 标签页快照
+     */
+    private TabSnapshot settleProbe(List<CircuitBreaker> acquired, TabSnapshot tab, String frontApp,
+                                    Throwable error, long start) {
+        // 脚本本身执行完成，但前台浏览器拒绝自动化授权或标签页脚本出错
+        Throwable failure = error;
+        if (tab != null && tab.getProbeError() != null) {
+            failure = new ScriptException(tab.getAppName() + " tab probe failed: " + tab.getProbeError(), false);
+        }
+        for (CircuitBreaker breaker : acquired) {
+            if (!breaker.getName().equals(frontApp)) {
+                breaker.release();
+            } else if (failure != null) {
+                breaker.onFailure(failure);
+            } else {
+                breaker.onSuccess(System.nanoTime() - start);
+            }
+        }
+        lastFrontApp = frontApp;
+        if (failure == null && tab.hasTab()) {
+            BrowserFactory.markTabProbed(tab.getAppName());
+        }
+        if (failure != null) {
+            throw failure instanceof CompletionException
+                ? (CompletionException) failure : new CompletionException(failure);
+        }
+        return tab;
     }
 
     /**
      * 关闭当前 Edge 标签页（保留向后兼容）
      */
     public void closeActiveEdgeTab() {
-        BrowserFactory.getBrowser(EdgeBrowser.APP_NAME)
+        Optional.ofNullable(browsers.get(EdgeBrowser.APP_NAME))
                 .ifPresent(Browser::closeActiveTab);
     }
 
     public boolean isBlocked(String url) {
-        return blockedWebsites.stream().anyMatch(url::contains);
+        return rules.isBlocked(url);
     }
 
     public boolean isWhiteWeb(String title) {
-        return whiteWebsites.stream().anyMatch(title::contains);
+        return rules.isWhite(title);
+    }
+
+    /**
+     * 获取当前生效的规则快照
+     * @return 规则快照
+     */
+    public RuleSnapshot getRuleSnapshot() {
+        return rules;
     }
 
+    /**
+     * 把日志压缩进屏蔽列表文件，并等待写入完成
+     */
     public void saveBlockedWebsites() {
+        blockedJournal.requestCompaction();
+        blockedJournal.flush();
+    }
+
+    /**
+     * 等待已提交的屏蔽列表编辑全部落盘
+     */
+    public void flushBlockedWebsites() {
+        blockedJournal.flush();
+    }
+
+    public void loadBlockedWebsites() {
         try {
-            Path path = Paths.get(AppConfig.BLOCKED_WEBSITES_FILE);
-            Files.createDirectories(path.getParent());
-            try (BufferedWriter writer = Files.newBufferedWriter(path)) {
-                for (String website : blockedWebsites) {
-                    writer.write(website);
-                    writer.newLine();
-                }
+            if (Files.exists(blockedWebsitesPath) || Files.exists(blockedJournal.getJournalFile())) {
+                // 读取列表文件并重放日志
+                publishBlockedRules(blockedJournal.load());
             }
         } catch (IOException e) {
-            System.err.println("Error saving blocked websites: " + e.getMessage());
+            System.err.println("Error loading blocked websites: " + e.getMessage());
         }
     }
 
-    public void loadBlockedWebsites() {
+    /**
+     * 屏蔽列表文件变化后重新加载
+     * 文件被外部修改时以修改后的文件为准，尚未压缩的日志被丢弃，见 {@link RuleJournal#reload()}
+     */
+    public void reloadBlockedWebsites() {
+        if (!Files.exists(blockedWebsitesPath)) {
+            // 编辑器保存时可能先删除再创建，等文件重新出现
+            return;
+        }
         try {
-            Path path = Paths.get(AppConfig.BLOCKED_WEBSITES_FILE);
-            if (Files.exists(path)) {
-                blockedWebsites.clear();
-                Files.lines(path)
-                    .filter(line -> !line.trim().isEmpty())
-                    .forEach(blockedWebsites::add);
-            }
+            publishBlockedRules(blockedJournal.reload());
         } catch (IOException e) {
-            System.err.println("Error loading blocked websites: " + e.getMessage());
+            System.err.println("Error reloading blocked websites: " + e.getMessage());
         }
     }
 
+    private void publishBlockedRules(Set<String> loaded) {
+        synchronized (rulesLock) {
+            if (loaded.equals(rules.getBlockedRules())) {
+                return;
+            }
+            rules = rules.withBlockedRules(loaded);
+        }
+        System.out.println("Loaded blocked websites: " + rules);
+    }
+
     public void loadwhiteWebsites() {
         try {
-            Path path = Paths.get(AppConfig.WHITE_WEBSITES_FILE);
-            if (Files.exists(path)) {
-                whiteWebsites.clear();
-                Files.lines(path)
-                    .filter(line -> !line.trim().isEmpty())
-                    .forEach(whiteWebsites::add);
+            if (Files.exists(whiteWebsitesPath)) {
+                Set<String> loaded = readRuleLines(whiteWebsitesPath);
+                synchronized (rulesLock) {
+                    if (loaded.equals(rules.getWhiteRules())) {
+                        return;
+                    }
+                    rules = rules.withWhiteRules(loaded);
+                }
             }
         } catch (IOException e) {
             System.err.println("Error loading white websites: " + e.getMessage());
         }
     }
+
+    /**
+     * 开始监听屏蔽列表和白名单文件
+     * 文件被外部修改（如部署脚本）后在监听线程上重新解析对应文件，并整体发布新的规则快照；
+     * 内容未变化（如日志压缩回写）时不替换快照，判定缓存保持有效
+     */
+    public void startWatchingRuleFiles() {
+        if (ruleFileWatcher != null) {
+            return;
+        }
+        try {
+            RuleFileWatcher watcher = new RuleFileWatcher(AppConfig.RULE_RELOAD_DEBOUNCE_MS);
+            watcher.watch(blockedWebsitesPath, this::reloadBlockedWebsites);
+            watcher.watch(whiteWebsitesPath, this::loadwhiteWebsites);
+            ruleFileWatcher = watcher;
+        } catch (IOException e) {
+            System.err.println("Error watching rule files: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 停止监听规则文件
+     */
+    public void stopWatchingRuleFiles() {
+        if (ruleFileWatcher != null) {
+            ruleFileWatcher.close();
+            ruleFileWatcher = null;
+        }
+    }
+
+    /**
+     * 加载 blocklists 目录下的大型屏蔽列表
+     * 源列表未变化时直接内存映射编译好的二进制文件，否则流式解析后重新生成，完成后整体发布到规则快照
+     */
+    public void loadImportedBlocklists() {
+        BlocklistStore store = new BlocklistStore(Paths.get(AppConfig.IMPORTED_BLOCKLISTS_DIR),
+                Paths.get(AppConfig.COMPILED_BLOCKLIST_FILE));
+        try {
+            DomainSet imported = store.load();
+            synchronized (rulesLock) {
+                rules = rules.withImportedDomains(imported);
+            }
+        } catch (IOException e) {
+            System.err.println("Error loading imported blocklists: " + e.getMessage());
+        }
+    }
+
+    private static Set<String> readRuleLines(Path path) throws IOException {
+        Set<String> lines = new LinkedHashSet<>();
+        try (Stream<String> stream = Files.lines(path)) {
+            stream.filter(line -> !line.trim().isEmpty())
+                .forEach(lines::add);
+        }
+        return lines;
+    }
 }
@@ -44,6 +44,8 @@ public class AppBlockerController {
         appBlocker.setModeManager(modeManager);
         appBlocker.loadBlockedWebsites();
         appBlocker.loadwhiteWebsites();
+        appBlocker.loadImportedBlocklists();
+        appBlocker.startWatchingRuleFiles();
 
         // 设置模式变更监听器
         modeManager.setModeChangeListener(this::onModeChanged);
@@ -159,5 +161,6 @@ public class AppBlockerController {
         if (modeManager != null) {
             modeManager.shutdown();
         }
+        CommandUtil.closeAppleScriptSession();
     }
 }
@@ -1,17 +1,55 @@
 package com.tsymq;
 
-import java.io.BufferedReader;
+import com.tsymq.command.CommandResult;
+import com.tsymq.command.ScriptException;
+import com.tsymq.command.ScriptSession;
+import com.tsymq.config.AppConfig;
+
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 系统命令执行工具类
  * 主要用于执行AppleScript命令以监控和控制浏览器
+ * AppleScript 优先交给常驻的解释器会话执行，会话不可用时退回到每次启动 osascript 进程
  */
 public class CommandUtil {
 
     private static final int COMMAND_TIMEOUT_SECONDS = 10;
+    // 会话连续失败达到该次数后停用，之后一直使用独立进程
+    private static final int MAX_SESSION_FAILURES = 3;
+
+    // 同时运行的外部命令上限
+    private static final int MAX_CONCURRENT_COMMANDS = 4;
+    // 排队等待常驻会话的 AppleScript 上限
+    private static final int MAX_PENDING_SCRIPTS = 8;
+
+    private static final Semaphore COMMAND_PERMITS = new Semaphore(MAX_CONCURRENT_COMMANDS);
+    // 每个命令占用两个读流线程，命令数受许可限制，因此线程数实际有上限；
+    // 线程池本身不设上限：许可在读流线程上的回调中释放，此时该线程还未空闲，固定上限会拒绝紧接着提交的新命令
+    private static final ExecutorService STREAM_EXECUTOR = new ThreadPoolExecutor(0, Integer.MAX_VALUE,
+            30, TimeUnit.SECONDS, new SynchronousQueue<>(), daemonThreads("command-stream"));
+    // 常驻会话一次只执行一个脚本，异步调用在这里排队
+    private static final ExecutorService SCRIPT_EXECUTOR = new ThreadPoolExecutor(1, 1,
+            0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(MAX_PENDING_SCRIPTS), daemonThreads("applescript"));
+
+    private static ScriptSession appleScriptSession;
+    private static boolean sessionInitialized;
+    private static int sessionFailures;
 
     /**
      * 执行系统命令并返回结果
@@ -20,41 +58,218 @@ public class CommandUtil {
      */
     public static String executeCommand(String[] command) {
         try {
-            ProcessBuilder processBuilder = new ProcessBuilder(command);
-            processBuilder.redirectErrorStream(true);
-            
-            Process process = processBuilder.start();
-            
-            // 设置超时
-            boolean finished = process.waitFor(COMMAND_TIMEOUT_SECONDS, TimeUnit.SECONDS);
-            if (!finished) {
-                process.destroyForcibly();
+            return executeAsync(command, TimeUnit.SECONDS.toMillis(COMMAND_TIMEOUT_SECONDS)).get().getOutput();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
                 System.err.println("Command timed out: " + String.join(" ", command));
-                return "";
+            } else {
+                System.err.println("Error executing command: " + String.join(" ", command) + " - " + e.getCause().getMessage());
             }
-            
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                }
-            }
-            
-            return output.toString().trim();
-            
-        } catch (IOException | InterruptedException e) {
+            return "";
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             System.err.println("Error executing command: " + String.join(" ", command) + " - " + e.getMessage());
             return "";
         }
     }
 
+    /**
+     * 异步执行系统命令
+     * 标准输出和标准错误在进程运行期间由两个线程同时读取，输出再多也不会因管道写满而阻塞；
+     * 超时或调用方取消 future 时强制结束进程。同时运行的命令数有上限，超出时直接返回失败的 future
+     * @param command 要执行的命令数组
+     * @param timeoutMillis 超时时间（毫秒）
+     * @return 执行结果；超时以 {@link TimeoutException} 失败，并发数超限以 {@link RejectedExecutionException} 失败
+     */
+    public static CompletableFuture<CommandResult> executeAsync(String[] command, long timeoutMillis) {
+        if (!COMMAND_PERMITS.tryAcquire()) {
+            return CompletableFuture.failedFuture(
+                    new RejectedExecutionException("Too many concurrent commands: " + String.join(" ", command)));
+        }
+        long start = System.nanoTime();
+        Process process;
+        try {
+            process = new ProcessBuilder(command).start();
+            process.getOutputStream().close();
+        } catch (IOException e) {
+            COMMAND_PERMITS.release();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<String> stdout;
+        CompletableFuture<String> stderr;
+        try {
+            stdout = CompletableFuture.supplyAsync(() -> drain(process.getInputStream()), STREAM_EXECUTOR);
+            stderr = CompletableFuture.supplyAsync(() -> drain(process.getErrorStream()), STREAM_EXECUTOR);
+        } catch (RejectedExecutionException e) {
+            // 线程池无法创建线程时；结束进程后已提交的读流任务会读到流结束
+            process.destroyForcibly();
+            COMMAND_PERMITS.release();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<CommandResult> result = new CompletableFuture<>();
+        process.onExit()
+                .thenCombine(stdout, (exited, out) -> out)
+                .thenCombine(stderr, (out, err) -> new CommandResult(process.exitValue(), out, err,
+                        System.nanoTime() - start))
+                .whenComplete((completed, error) -> {
+                    // 进程结束且两个流都读完后才释放许可
+                    COMMAND_PERMITS.release();
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(completed);
+                    }
+                });
+        result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((completed, error) -> {
+                    if (error != null) {
+                        process.destroyForcibly();
+                    }
+                });
+        return result;
+    }
+
+    private static String drain(InputStream in) {
+        try (InputStream stream = in) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            // 进程被强制结束时流会被关闭
+            return "";
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
     /**
      * 执行AppleScript并返回结果
      * @param script AppleScript代码字符串
      * @return 脚本执行输出
      */
     public static String executeAppleScript(String script) {
+        ScriptSession session = getAppleScriptSession();
+        if (session != null) {
+            try {
+                String output = session.execute(script, TimeUnit.SECONDS.toMillis(COMMAND_TIMEOUT_SECONDS)).trim();
+                onSessionResult(true);
+                return output;
+            } catch (IOException e) {
+                System.err.println("AppleScript session failed, falling back to osascript: " + e.getMessage());
+                onSessionResult(false);
+            }
+        }
         return executeCommand(new String[]{"osascript", "-e", script});
     }
+
+    /**
+     * 异步执行AppleScript
+     * 有常驻会话时在单独的线程上排队执行，否则以异步进程执行 osascript
+     * @param script AppleScript代码字符串
+     * @return 脚本输出；排队已满时以 {@link RejectedExecutionException} 失败
+     */
+    public static CompletableFuture<String> executeAppleScriptAsync(String script) {
+        if (getAppleScriptSession() == null) {
+            return executeAsync(new String[]{"osascript", "-e", script},
+                    TimeUnit.SECONDS.toMillis(COMMAND_TIMEOUT_SECONDS))
+                    .thenApply(CommandResult::getOutput);
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> executeAppleScript(script), SCRIPT_EXECUTOR);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 在指定时间内异步执行AppleScript，失败时 future 以异常结束而不是返回空字符串
+     * 脚本出错（如浏览器拒绝自动化授权）以 {@link ScriptException} 失败；超时以 {@link ScriptException}
+     * 或 {@link TimeoutException} 失败。脚本超时和出错都不计入常驻会话的失败次数
+     * @param script AppleScript代码字符串
+     * @param timeoutMillis 超时时间（毫秒）
+     * @return 脚本输出
+     */
+    public static CompletableFuture<String> executeAppleScriptChecked(String script, long timeoutMillis) {
+        ScriptSession session = getAppleScriptSession();
+        if (session == null) {
+            return executeAsync(new String[]{"osascript", "-e", script}, timeoutMillis)
+                    .thenApply(result -> {
+                        if (!result.isSuccess()) {
+                            throw new CompletionException(new ScriptException(result.getStderr().trim(), false));
+                        }
+                        return result.getStdout().trim();
+                    });
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    String output = session.executeChecked(script, timeoutMillis).trim();
+                    onSessionResult(true);
+                    return output;
+                } catch (ScriptException e) {
+                    throw new CompletionException(e);
+                } catch (IOException e) {
+                    onSessionResult(false);
+                    throw new CompletionException(e);
+                }
+            }, SCRIPT_EXECUTOR);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * 替换 AppleScript 会话（传入 null 表示始终使用独立进程）
+     * @param session 会话
+     */
+    public static synchronized void setAppleScriptSession(ScriptSession session) {
+        if (appleScriptSession != null && appleScriptSession != session) {
+            appleScriptSession.close();
+        }
+        appleScriptSession = session;
+        sessionInitialized = true;
+        sessionFailures = 0;
+    }
+
+    /**
+     * 关闭 AppleScript 会话（应用退出时调用）
+     */
+    public static synchronized void closeAppleScriptSession() {
+        if (appleScriptSession != null) {
+            appleScriptSession.close();
+            appleScriptSession = null;
+        }
+    }
+
+    private static synchronized ScriptSession getAppleScriptSession() {
+        if (!sessionInitialized) {
+            sessionInitialized = true;
+            if (AppConfig.APPLESCRIPT_SESSION_ENABLED
+                    && System.getProperty("os.name", "").toLowerCase().contains("mac")) {
+                try {
+                    appleScriptSession = ScriptSession.osascript();
+                } catch (IOException e) {
+                    System.err.println("AppleScript session unavailable: " + e.getMessage());
+                }
+            }
+        }
+        return appleScriptSession;
+    }
+
+    private static synchronized void onSessionResult(boolean success) {
+        if (success) {
+            sessionFailures = 0;
+        } else if (++sessionFailures >= MAX_SESSION_FAILURES && appleScriptSession != null) {
+            System.err.println("AppleScript session disabled after " + sessionFailures + " consecutive failures");
+            appleScriptSession.close();
+            appleScriptSession = null;
+        }
+    }
 }
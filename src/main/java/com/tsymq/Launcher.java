@@ -1,14 +1,55 @@
 package com.tsymq;
 
+import com.tsymq.browser.NativeHostPresence;
+import com.tsymq.browser.NativeMessagingHost;
+import com.tsymq.config.AppConfig;
+import com.tsymq.net.VerdictServiceEvaluator;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
 /**
  * JavaFX应用启动器
- * 
+ *
  * 这个类用于解决在fat jar环境中JavaFX应用启动的问题。
  * 当JavaFX运行时不在模块路径中时，需要通过这种方式启动应用。
+ * 由浏览器作为原生消息主机启动时不启动界面，只处理扩展的消息。
  */
 public class Launcher {
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
+        if (NativeMessagingHost.isLaunchedByBrowser(args)) {
+            runNativeHost();
+            return;
+        }
         // 启动JavaFX应用
         Main.main(args);
     }
-} 
\ No newline at end of file
+
+    /**
+     * 以原生消息主机方式运行，直到浏览器关闭连接
+     */
+    private static void runNativeHost() throws IOException {
+        // 标准输出是消息通道，日志改写到标准错误（浏览器会把它记入自己的日志）
+        OutputStream channel = new FileOutputStream(FileDescriptor.out);
+        System.setOut(System.err);
+
+        // 主机是单独的进程，模式状态不在进程间共享；应用在运行并开启判定服务时转发给它，否则只按规则文件和硬编码规则判定，
+        // 这时不标记在线，应用继续轮询该浏览器，学习模式下的用户规则仍由轮询屏蔽
+        AppBlocker appBlocker = new AppBlocker();
+        appBlocker.loadBlockedWebsites();
+        appBlocker.loadwhiteWebsites();
+        appBlocker.loadImportedBlocklists();
+        appBlocker.startWatchingRuleFiles();
+        VerdictServiceEvaluator evaluator = new VerdictServiceEvaluator(appBlocker::evaluate,
+                AppConfig.VERDICT_SERVICE_ENABLED, AppConfig.VERDICT_SERVICE_PORT, AppConfig.VERDICT_SERVICE_TIMEOUT_MS);
+        try {
+            new NativeMessagingHost(System.in, channel, evaluator, NativeHostPresence.system(),
+                    evaluator::isModeAware).run();
+        } finally {
+            evaluator.close();
+            appBlocker.stop();
+        }
+    }
+}
@@ -1,5 +1,11 @@
 package com.tsymq.browser;
 
+import com.tsymq.command.CommandRunner;
+import com.tsymq.command.CompiledScript;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 /**
  * 浏览器抽象接口
  * 定义所有支持的浏览器必须实现的通用方法
@@ -12,6 +18,14 @@ public interface Browser {
      */
     String getName();
 
+    /**
+     * 获取执行 AppleScript 的执行器
+     * @return 脚本执行器
+     */
+    default CommandRunner getCommandRunner() {
+        return CommandRunner.system();
+    }
+
     /**
      * 获取当前活动标签页的 URL
      * @return 当前标签页 URL，获取失败返回空字符串
@@ -24,6 +38,62 @@ public interface Browser {
      */
     String getActiveTabTitle();
 
+    /**
+     * 获取读取活动标签页信息的脚本（无参数）
+     * 脚本返回以 {@link TabSnapshot#FIELD_SEPARATOR} 分隔的窗口 id、标签页 id、URL、标题（不含应用名）
+     * @return 预编译脚本
+     */
+    CompiledScript getTabProbeScript();
+
+    /**
+     * 一次脚本调用取回活动标签页的全部信息
+     * @return 标签页快照，获取失败时只包含应用名
+     */
+    default TabSnapshot probeActiveTab() {
+        String output = getCommandRunner().runCompiled(getTabProbeScript(), List.of());
+        return TabSnapshot.parse(getName() + TabSnapshot.FIELD_SEPARATOR + output);
+    }
+
+    /**
+     * 获取列出所有窗口全部标签页的脚本（无参数）
+     * 每个标签页一条记录（窗口 id、标签页 id、URL、标题），记录之间用 {@link TabSnapshot#RECORD_SEPARATOR} 分隔
+     * @return 预编译脚本
+     */
+    CompiledScript getTabListScript();
+
+    /**
+     * 获取一次关闭多个标签页的脚本，参数由 {@link #getCloseTabsArguments(List)} 给出
+     * @return 预编译脚本
+     */
+    CompiledScript getCloseTabsScript();
+
+    /**
+     * 获取关闭标签页脚本的参数
+     * @param tabs 要关闭的标签页（来自 {@link #listTabsAsync()}）
+     * @return 参数列表，没有可关闭的标签页时为空
+     */
+    List<String> getCloseTabsArguments(List<TabSnapshot> tabs);
+
+    /**
+     * 一次脚本调用列出所有窗口的全部标签页
+     * @return 标签页列表，获取失败时为空列表
+     */
+    default CompletableFuture<List<TabSnapshot>> listTabsAsync() {
+        return getCommandRunner().runCompiledAsync(getTabListScript(), List.of())
+                .thenApply(output -> TabSnapshot.parseList(getName(), output));
+    }
+
+    /**
+     * 一次脚本调用关闭多个标签页
+     * @param tabs 要关闭的标签页
+     */
+    default void closeTabs(List<TabSnapshot> tabs) {
+        List<String> args = getCloseTabsArguments(tabs);
+        if (!args.isEmpty()) {
+            getCommandRunner().runCompiled(getCloseTabsScript(), args);
+        }
+    }
+
     /**
      * 关闭当前活动标签页
      */
@@ -1,9 +1,16 @@
 package com.tsymq.browser;
 
-import java.util.HashMap;
+import com.tsymq.command.CommandRunner;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 /**
  * 浏览器工厂类
@@ -11,20 +18,54 @@ import java.util.Set;
  */
 public class BrowserFactory {
 
-    private static final Map<String, Browser> BROWSERS = new HashMap<>();
+    private static final Map<String, Browser> BROWSERS = createBrowsers(CommandRunner.system());
+    private static volatile String frontmostProbeScript;
+    // 成功探测过标签页的浏览器（已确认安装），探测脚本改为执行它的预编译标签页脚本
+    private static final Set<String> PROBED_BROWSERS = ConcurrentHashMap.newKeySet();
+    private static final String FRONT_APP_SCRIPT =
+            "tell application \"System Events\" to return name of first application process whose frontmost is true";
+    private static final String RUNNING_APPS_SCRIPT =
+            "tell application \"System Events\" to set appNames to name of every application process whose background only is false\n"
+            + "set AppleScript's text item delimiters to linefeed\n"
+            + "return appNames as text";
+
+    /**
+     * 创建所有支持的浏览器适配器，脚本通过指定的执行器运行
+     * @param runner 脚本执行器
+     * @return 应用名称到浏览器适配器的只读映射
+     */
+    public static Map<String, Browser> createBrowsers(CommandRunner runner) {
+        return createBrowsersWith(name -> runner);
+    }
 
-    static {
+    /**
+     * 创建所有支持的浏览器适配器，每个浏览器使用各自的执行器（例如带各自熔断器的执行器）
+     * @param runnerForBrowser 根据浏览器应用名称给出执行器
+     * @return 应用名称到浏览器适配器的只读映射
+     */
+    public static Map<String, Browser> createBrowsersWith(Function<String, CommandRunner> runnerForBrowser) {
+        Map<String, Browser> browsers = new LinkedHashMap<>();
         // 注册所有支持的浏览器
         // Chromium 系浏览器
-        registerBrowser(new EdgeBrowser());
-        registerBrowser(new ChromeBrowser());
-        registerBrowser(new SunBrowser());
+        registerBrowser(browsers, new EdgeBrowser(runnerForBrowser.apply(EdgeBrowser.APP_NAME)));
+        registerBrowser(browsers, new ChromeBrowser(runnerForBrowser.apply(ChromeBrowser.APP_NAME)));
+        registerBrowser(browsers, new SunBrowser(runnerForBrowser.apply(SunBrowser.APP_NAME)));
         // 其他浏览器
-        registerBrowser(new SafariBrowser());
+        registerBrowser(browsers, new SafariBrowser(runnerForBrowser.apply(SafariBrowser.APP_NAME)));
+        return Collections.unmodifiableMap(browsers);
     }
 
-    private static void registerBrowser(Browser browser) {
-        BROWSERS.put(browser.getName(), browser);
+    /**
+     * 获取列出正在运行的前台应用的 AppleScript（每行一个应用名）
+     * 全量扫描只对正在运行的浏览器执行脚本，避免启动或查找未安装的浏览器
+     * @return AppleScript 代码
+     */
+    public static String getRunningAppsScript() {
+        return RUNNING_APPS_SCRIPT;
+    }
+
+    private static void registerBrowser(Map<String, Browser> browsers, Browser browser) {
+        browsers.put(browser.getName(), browser);
     }
 
     /**
@@ -52,4 +93,85 @@ public class BrowserFactory {
     public static Set<String> getSupportedBrowsers() {
         return BROWSERS.keySet();
     }
+
+    /**
+     * 获取探测前台应用及其活动标签页的 AppleScript（一次调用完成）
+     * 前台应用是支持的浏览器时返回 "应用名 + 分隔符 + 标签页信息"，否则只返回应用名
+     * 各浏览器的标签页脚本通过 run script 执行，未安装的浏览器不会在编译阶段被查找；
+     * 浏览器成功探测过一次后改为执行预编译文件，之后不再每次重新编译它的标签页脚本
+     * @return AppleScript 代码
+     */
+    public static String getFrontmostProbeScript() {
+        String script = frontmostProbeScript;
+        if (script == null) {
+            script = buildFrontmostProbeScript(name -> true);
+            frontmostProbeScript = script;
+        }
+        return script;
+    }
+
+    /**
+     * 记录浏览器成功返回了标签页信息，之后的探测脚本执行它的预编译标签页脚本
+     * @param appName 应用名称
+     */
+    public static void markTabProbed(String appName) {
+        if (BROWSERS.containsKey(appName) && PROBED_BROWSERS.add(appName)) {
+            frontmostProbeScript = null;
+        }
+    }
+
+    /**
+     * 获取只查询前台应用名称的 AppleScript
+     * 只访问 System Events，不会被卡住的浏览器拖住，用于探测脚本超时后确定前台应用
+     * @return AppleScript 代码
+     */
+    public static String getFrontAppScript() {
+        return FRONT_APP_SCRIPT;
+    }
+
+    /**
+     * 获取只探测部分浏览器标签页的脚本
+     * 未包含的浏览器在前台时只返回应用名，不会向它发送 Apple Event（用于跳过已熔断的浏览器）
+     * @param includeBrowser 判断是否探测该浏览器的标签页
+     * @return AppleScript 代码
+     */
+    public static String getFrontmostProbeScript(Predicate<String> includeBrowser) {
+        return buildFrontmostProbeScript(includeBrowser);
+    }
+
+    private static String buildFrontmostProbeScript(Predicate<String> includeBrowser) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("tell application \"System Events\" to set frontApp to name of first application process whose frontmost is true\n");
+        for (Browser browser : BROWSERS.values()) {
+            if (!includeBrowser.test(browser.getName())) {
+                continue;
+            }
+            // 没有窗口或标签页（-1719、-1728）时只返回应用名；拒绝自动化授权（-1743）等其他错误返回错误标记，计入熔断
+            sb.append("if frontApp is ").append(quote(browser.getName())).append(" then\n")
+                .append("  try\n")
+                .append("    return frontApp & ").append(TabSnapshot.APPLESCRIPT_SEPARATOR)
+                .append(" & (").append(tabProbeInvocation(browser)).append(")\n")
+                .append("  on error errorMessage number errorNumber\n")
+                .append("    if errorNumber is -1719 or errorNumber is -1728 then return frontApp\n")
+                .append("    return frontApp & ").append(TabSnapshot.APPLESCRIPT_SEPARATOR)
+                .append(" & ").append(quote(TabSnapshot.PROBE_ERROR_MARKER))
+                .append(" & ").append(TabSnapshot.APPLESCRIPT_SEPARATOR)
+                .append(" & (errorNumber as text) & \": \" & errorMessage\n")
+                .append("  end try\n")
+                .append("end if\n");
+        }
+        sb.append("return frontApp");
+        return sb.toString();
+    }
+
+    private static String tabProbeInvocation(Browser browser) {
+        // 未确认安装的浏览器内联源码，避免为它编译脚本时查找应用
+        return PROBED_BROWSERS.contains(browser.getName())
+                ? browser.getCommandRunner().invocationOf(browser.getTabProbeScript(), List.of())
+                : browser.getTabProbeScript().inline(List.of());
+    }
+
+    private static String quote(String text) {
+        return "\"" + text.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
 }
@@ -0,0 +1,290 @@
+package com.tsymq.browser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tsymq.command.CommandRunner;
+import com.tsymq.command.CompiledScript;
+import com.tsymq.config.AppConfig;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 通过 Chrome DevTools 协议连接 Chromium 系浏览器的适配器
+ * 浏览器需要以 --remote-debugging-port 启动。连接后订阅 Target 事件，标签页的 URL 和标题变化由浏览器推送，
+ * 关闭和新建标签页通过 Target.closeTarget / Target.createTarget 完成，不再执行 AppleScript。
+ * 未连接或连接断开时，所有操作退回到同一浏览器的 AppleScript 适配器
+ */
+public class CdpBrowser implements Browser, AutoCloseable {
+
+    // DevTools 标签页快照的窗口 id（协议中标签页不属于可寻址的窗口），标签页 id 为 targetId
+    public static final String CDP_WINDOW_ID = "cdp";
+
+    private final Browser fallback;
+    private final URI endpoint;
+    private final HttpClient client;
+    // targetId -> 标签页，只包含 page 类型的 target
+    private final Map<String, TabSnapshot> targets = new LinkedHashMap<>();
+    private final List<Consumer<TabSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    private volatile CdpConnection connection;
+    // 最近一次发生变化的标签页，作为活动标签页的近似（协议不提供窗口焦点）
+    private volatile String activeTargetId;
+    private volatile long events;
+
+    /**
+     * @param fallback 同一浏览器的 AppleScript 适配器
+     * @param endpoint 调试端口地址（http://host:port）或浏览器级 WebSocket 地址（ws://...）
+     */
+    public CdpBrowser(Browser fallback, URI endpoint) {
+        this.fallback = fallback;
+        this.endpoint = endpoint;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(AppConfig.DEVTOOLS_COMMAND_TIMEOUT_MS))
+                .build();
+    }
+
+    /**
+     * 连接浏览器并订阅标签页事件；已有的标签页会作为新建事件推送一次
+     * @return 订阅完成时完成
+     */
+    public CompletableFuture<Void> connect() {
+        CompletableFuture<URI> webSocketUrl = endpoint.getScheme().startsWith("ws")
+                ? CompletableFuture.completedFuture(endpoint)
+                : CdpConnection.discover(client, endpoint);
+        return webSocketUrl
+                .thenCompose(url -> CdpConnection.connect(client, url, this::onEvent))
+                .thenCompose(opened -> {
+                    connection = opened;
+                    opened.getClosed().thenRun(this::onDisconnected);
+                    return opened.send("Target.setDiscoverTargets", CdpConnection.params().put("discover", true));
+                })
+                .orTimeout(AppConfig.DEVTOOLS_COMMAND_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .thenRun(() -> System.out.println("DevTools connected to " + getName() + " at " + endpoint));
+    }
+
+    private void onEvent(String method, JsonNode params) {
+        events++;
+        switch (method) {
+            case "Target.targetCreated":
+            case "Target.targetInfoChanged":
+                JsonNode info = params.path("targetInfo");
+                if (!"page".equals(info.path("type").asText())) {
+                    return;
+                }
+                String targetId = info.path("targetId").asText();
+                TabSnapshot tab = new TabSnapshot(getName(), CDP_WINDOW_ID, targetId,
+                        info.path("url").asText(), info.path("title").asText());
+                synchronized (targets) {
+                    targets.put(targetId, tab);
+                }
+                activeTargetId = targetId;
+                for (Consumer<TabSnapshot> listener : listeners) {
+                    listener.accept(tab);
+                }
+                break;
+            case "Target.targetDestroyed":
+                synchronized (targets) {
+                    targets.remove(params.path("targetId").asText());
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void onDisconnected() {
+        synchronized (targets) {
+            targets.clear();
+        }
+        activeTargetId = null;
+        System.out.println("DevTools disconnected from " + getName());
+    }
+
+    /**
+     * 添加标签页变化监听器，在连接的接收线程上调用，不应在其中执行耗时操作
+     * @param listener 接收新建或变化的标签页
+     */
+    public void addTabListener(Consumer<TabSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * 是否已连接
+     * @return 连接是否可用
+     */
+    public boolean isConnected() {
+        CdpConnection current = connection;
+        return current != null && current.isOpen();
+    }
+
+    /**
+     * 连接断开时完成
+     * @return 断开通知，尚未连接时返回未完成的 future
+     */
+    public CompletableFuture<Void> getDisconnected() {
+        CdpConnection current = connection;
+        return current == null ? new CompletableFuture<>() : current.getClosed();
+    }
+
+    /**
+     * 关闭一个标签页
+     * @param targetId 标签页的 targetId
+     * @return 是否关闭成功
+     */
+    public CompletableFuture<Boolean> closeTarget(String targetId) {
+        return command("Target.closeTarget", CdpConnection.params().put("targetId", targetId))
+                .thenApply(result -> result.path("success").asBoolean(true));
+    }
+
+    private CompletableFuture<JsonNode> command(String method, ObjectNode params) {
+        CdpConnection current = connection;
+        if (current == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("DevTools not connected"));
+        }
+        return current.send(method, params).orTimeout(AppConfig.DEVTOOLS_COMMAND_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private TabSnapshot activeTab() {
+        String targetId = activeTargetId;
+        if (targetId == null) {
+            return null;
+        }
+        synchronized (targets) {
+            return targets.get(targetId);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return fallback.getName();
+    }
+
+    @Override
+    public CommandRunner getCommandRunner() {
+        return fallback.getCommandRunner();
+    }
+
+    @Override
+    public String getActiveTabUrl() {
+        TabSnapshot tab = isConnected() ? activeTab() : null;
+        return tab == null ? fallback.getActiveTabUrl() : tab.getUrl();
+    }
+
+    @Override
+    public String getActiveTabTitle() {
+        TabSnapshot tab = isConnected() ? activeTab() : null;
+        return tab == null ? fallback.getActiveTabTitle() : tab.getTitle();
+    }
+
+    @Override
+    public CompiledScript getTabProbeScript() {
+        return fallback.getTabProbeScript();
+    }
+
+    @Override
+    public TabSnapshot probeActiveTab() {
+        TabSnapshot tab = isConnected() ? activeTab() : null;
+        return tab == null ? fallback.probeActiveTab() : tab;
+    }
+
+    @Override
+    public CompiledScript getTabListScript() {
+        return fallback.getTabListScript();
+    }
+
+    @Override
+    public CompiledScript getCloseTabsScript() {
+        return fallback.getCloseTabsScript();
+    }
+
+    @Override
+    public List<String> getCloseTabsArguments(List<TabSnapshot> tabs) {
+        return fallback.getCloseTabsArguments(tabs);
+    }
+
+    @Override
+    public CompletableFuture<List<TabSnapshot>> listTabsAsync() {
+        if (!isConnected()) {
+            return fallback.listTabsAsync();
+        }
+        synchronized (targets) {
+            return CompletableFuture.completedFuture(new ArrayList<>(targets.values()));
+        }
+    }
+
+    @Override
+    public void closeTabs(List<TabSnapshot> tabs) {
+        List<TabSnapshot> scripted = new ArrayList<>();
+        List<CompletableFuture<Boolean>> closing = new ArrayList<>();
+        for (TabSnapshot tab : tabs) {
+            if (CDP_WINDOW_ID.equals(tab.getWindowId())) {
+                closing.add(closeTarget(tab.getTabId()).exceptionally(e -> {
+                    System.err.println("Error closing tab via DevTools: " + e.getMessage());
+                    return false;
+                }));
+            } else {
+                scripted.add(tab);
+            }
+        }
+        fallback.closeTabs(scripted);
+        CompletableFuture.allOf(closing.toArray(new CompletableFuture<?>[0])).join();
+    }
+
+    @Override
+    public void closeActiveTab() {
+        TabSnapshot tab = isConnected() ? activeTab() : null;
+        if (tab == null) {
+            fallback.closeActiveTab();
+        } else {
+            closeTabs(List.of(tab));
+        }
+    }
+
+    @Override
+    public void openNewTab() {
+        if (!isConnected()) {
+            fallback.openNewTab();
+            return;
+        }
+        command("Target.createTarget", CdpConnection.params().put("url", "about:blank"))
+                .exceptionally(e -> {
+                    System.err.println("Error opening tab via DevTools: " + e.getMessage());
+                    return null;
+                })
+                .join();
+    }
+
+    /**
+     * 已收到的事件数
+     * @return 事件数
+     */
+    public long getEvents() {
+        return events;
+    }
+
+    @Override
+    public void close() {
+        CdpConnection current = connection;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (targets) {
+            return String.format("CdpBrowser{%s, endpoint=%s, connected=%s, tabs=%d, events=%d}",
+                    getName(), endpoint, isConnected(), targets.size(), events);
+        }
+    }
+}
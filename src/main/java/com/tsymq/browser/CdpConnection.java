@@ -0,0 +1,217 @@
+package com.tsymq.browser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.WebSocket;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * Chrome DevTools 协议连接
+ * 通过 WebSocket 发送带 id 的命令并按 id 取回结果，没有 id 的消息作为事件交给事件处理器（在 WebSocket 的接收线程上调用）
+ */
+public class CdpConnection implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final BiConsumer<String, JsonNode> eventHandler;
+    private final Map<Long, CompletableFuture<JsonNode>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+    private final CompletableFuture<Void> closed = new CompletableFuture<>();
+    private WebSocket socket;
+    // WebSocket 同一时刻只允许一个未完成的发送，发送按顺序串在这里
+    private CompletableFuture<?> lastSend = CompletableFuture.completedFuture(null);
+
+    private CdpConnection(BiConsumer<String, JsonNode> eventHandler) {
+        this.eventHandler = eventHandler;
+    }
+
+    /**
+     * 从调试端口的 /json/version 读取浏览器级 WebSocket 地址
+     * @param client HTTP 客户端
+     * @param endpoint 调试端口地址（如 http://127.0.0.1:9222）
+     * @return WebSocket 地址
+     */
+    public static CompletableFuture<URI> discover(HttpClient client, URI endpoint) {
+        HttpRequest request = HttpRequest.newBuilder(endpoint.resolve("/json/version")).GET().build();
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    try {
+                        JsonNode url = MAPPER.readTree(response.body()).get("webSocketDebuggerUrl");
+                        if (response.statusCode() != 200 || url == null) {
+                            throw new IOException("No webSocketDebuggerUrl at " + endpoint);
+                        }
+                        return URI.create(url.asText());
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                });
+    }
+
+    /**
+     * 建立连接
+     * @param client HTTP 客户端
+     * @param webSocketUrl WebSocket 地址
+     * @param eventHandler 事件处理器（方法名、参数）
+     * @return 连接
+     */
+    public static CompletableFuture<CdpConnection> connect(HttpClient client, URI webSocketUrl,
+                                                           BiConsumer<String, JsonNode> eventHandler) {
+        CdpConnection connection = new CdpConnection(eventHandler);
+        return client.newWebSocketBuilder()
+                .buildAsync(webSocketUrl, connection.new Receiver())
+                .thenApply(socket -> {
+                    connection.socket = socket;
+                    return connection;
+                });
+    }
+
+    /**
+     * 发送命令
+     * @param method 方法名（如 Target.closeTarget）
+     * @param params 参数，没有参数时传 null
+     * @return 命令结果；协议返回错误或连接断开时以 {@link IOException} 失败
+     */
+    public CompletableFuture<JsonNode> send(String method, ObjectNode params) {
+        long id = nextId.incrementAndGet();
+        ObjectNode message = MAPPER.createObjectNode();
+        message.put("id", id);
+        message.put("method", method);
+        if (params != null) {
+            message.set("params", params);
+        }
+        CompletableFuture<JsonNode> result = new CompletableFuture<>();
+        pending.put(id, result);
+        if (closed.isDone()) {
+            fail(id, new IOException("DevTools connection closed"));
+            return result;
+        }
+        String text = message.toString();
+        synchronized (this) {
+            lastSend = lastSend.handle((ignored, error) -> null)
+                    .thenCompose(ignored -> socket.sendText(text, true))
+                    .whenComplete((ignored, error) -> {
+                        if (error != null) {
+                            fail(id, error);
+                        }
+                    });
+        }
+        return result;
+    }
+
+    /**
+     * 创建参数对象
+     * @return 空的参数对象
+     */
+    public static ObjectNode params() {
+        return MAPPER.createObjectNode();
+    }
+
+    private void fail(long id, Throwable error) {
+        CompletableFuture<JsonNode> future = pending.remove(id);
+        if (future != null) {
+            future.completeExceptionally(error);
+        }
+    }
+
+    private void dispatch(String text) {
+        JsonNode message;
+        try {
+            message = MAPPER.readTree(text);
+        } catch (IOException e) {
+            System.err.println("Invalid DevTools message: " + e.getMessage());
+            return;
+        }
+        JsonNode id = message.get("id");
+        if (id != null) {
+            CompletableFuture<JsonNode> future = pending.remove(id.asLong());
+            if (future == null) {
+                return;
+            }
+            JsonNode error = message.get("error");
+            if (error != null) {
+                future.completeExceptionally(new IOException("DevTools error: " + error.path("message").asText()));
+            } else {
+                future.complete(message.path("result"));
+            }
+        } else if (message.has("method")) {
+            try {
+                eventHandler.accept(message.get("method").asText(), message.path("params"));
+            } catch (RuntimeException e) {
+                System.err.println("Error handling DevTools event: " + e.getMessage());
+            }
+        }
+    }
+
+    private void onClosed(Throwable cause) {
+        if (closed.complete(null)) {
+            IOException error = new IOException("DevTools connection closed", cause);
+            pending.keySet().forEach(id -> fail(id, error));
+        }
+    }
+
+    /**
+     * 连接断开时完成（浏览器退出或主动关闭）
+     * @return 断开通知
+     */
+    public CompletableFuture<Void> getClosed() {
+        return closed;
+    }
+
+    public boolean isOpen() {
+        return !closed.isDone();
+    }
+
+    @Override
+    public void close() {
+        if (socket != null && isOpen()) {
+            socket.abort();
+        }
+        onClosed(null);
+    }
+
+    /**
+     * 接收消息，文本可能分多帧到达
+     */
+    private class Receiver implements WebSocket.Listener {
+
+        private final StringBuilder buffer = new StringBuilder();
+
+        @Override
+        public CompletionStage<?> onText(WebSocket webSocket, CharSequence data, boolean last) {
+            buffer.append(data);
+            if (last) {
+                String text = buffer.toString();
+                buffer.setLength(0);
+                dispatch(text);
+            }
+            webSocket.request(1);
+            return null;
+        }
+
+        @Override
+        public CompletionStage<?> onClose(WebSocket webSocket, int statusCode, String reason) {
+            // 对方已关闭，不再回复关闭帧，直接释放连接
+            webSocket.abort();
+            onClosed(null);
+            return null;
+        }
+
+        @Override
+        public void onError(WebSocket webSocket, Throwable error) {
+            onClosed(error);
+        }
+    }
+}
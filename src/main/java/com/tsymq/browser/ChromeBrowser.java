@@ -1,5 +1,7 @@
 package com.tsymq.browser;
 
+import com.tsymq.command.CommandRunner;
+
 /**
  * Google Chrome 浏览器适配器
  */
@@ -7,6 +9,13 @@ public class ChromeBrowser extends ChromiumBrowser {
 
     public static final String APP_NAME = "Google Chrome";
 
+    public ChromeBrowser() {
+    }
+
+    public ChromeBrowser(CommandRunner runner) {
+        super(runner);
+    }
+
     @Override
     public String getName() {
         return APP_NAME;
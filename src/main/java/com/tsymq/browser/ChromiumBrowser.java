@@ -1,35 +1,128 @@
 package com.tsymq.browser;
 
-import com.tsymq.CommandUtil;
+import com.tsymq.command.CommandRunner;
+import com.tsymq.command.CompiledScript;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Chromium 系浏览器抽象基类
  * 适用于 Chrome、Edge、SunBrowser、Brave、Vivaldi 等基于 Chromium 的浏览器
  * 这些浏览器共享相同的 AppleScript 语法
+ * 除探测脚本外，每个浏览器的脚本都是可预编译的 {@link CompiledScript}，可变内容通过参数传入
  */
 public abstract class ChromiumBrowser implements Browser {
 
+    // 脚本版本，修改下面任何一个脚本后递增，已缓存的编译文件随之失效
+    public static final int SCRIPT_VERSION = 1;
+
+    private final CommandRunner runner;
+    // 脚本在创建适配器时生成一次，之后只传参数
+    private final CompiledScript activeTabUrlScript;
+    private final CompiledScript activeTabTitleScript;
+    private final CompiledScript closeActiveTabScript;
+    private final CompiledScript openNewTabScript;
+    private final CompiledScript tabListScript;
+    private final CompiledScript closeTabsScript;
+    private final CompiledScript tabProbeScript;
+
+    protected ChromiumBrowser() {
+        this(CommandRunner.system());
+    }
+
+    protected ChromiumBrowser(CommandRunner runner) {
+        this.runner = runner;
+        String tell = "  tell application " + CompiledScript.quote(getName());
+        this.activeTabUrlScript = compiled("activeTabUrl", tell + " to get URL of active tab of front window");
+        this.activeTabTitleScript = compiled("activeTabTitle", tell + " to get title of active tab of front window");
+        this.closeActiveTabScript = compiled("closeActiveTab", tell + " to close active tab of front window");
+        this.openNewTabScript = compiled("openNewTab", tell + " to make new tab at end of tabs of front window");
+        String sep = " & " + TabSnapshot.APPLESCRIPT_SEPARATOR + " & ";
+        this.tabProbeScript = compiled("probeActiveTab", tell + " to tell front window to return (id as text)"
+                + sep + "(id of active tab as text)"
+                + sep + "URL of active tab"
+                + sep + "title of active tab");
+        this.tabListScript = compiled("listTabs", tell + "\n"
+                + "    set out to \"\"\n"
+                + "    repeat with w in windows\n"
+                + "      set wid to (id of w as text)\n"
+                + "      repeat with t in tabs of w\n"
+                + "        try\n"
+                + "          set out to out & wid" + sep + "(id of t as text)" + sep + "(URL of t)" + sep + "(title of t) & "
+                + TabSnapshot.APPLESCRIPT_RECORD_SEPARATOR + "\n"
+                + "        end try\n"
+                + "      end repeat\n"
+                + "    end repeat\n"
+                + "    return out\n"
+                + "  end tell");
+        // 参数依次为窗口 id、标签页 id
+        this.closeTabsScript = compiled("closeTabs", tell + "\n"
+                + "    repeat with i from 1 to (count of argv) by 2\n"
+                + "      try\n"
+                + "        close tab id ((item (i + 1) of argv) as integer) of window id ((item i of argv) as integer)\n"
+                + "      end try\n"
+                + "    end repeat\n"
+                + "  end tell");
+    }
+
+    private CompiledScript compiled(String action, String body) {
+        return new CompiledScript(getName() + "." + action, SCRIPT_VERSION, "on run argv\n" + body + "\nend run");
+    }
+
+    @Override
+    public CommandRunner getCommandRunner() {
+        return runner;
+    }
+
     @Override
     public String getActiveTabUrl() {
-        String command = "tell application \"" + getName() + "\" to get URL of active tab of front window";
-        return CommandUtil.executeAppleScript(command);
+        return runner.runCompiled(activeTabUrlScript, List.of());
     }
 
     @Override
     public String getActiveTabTitle() {
-        String command = "tell application \"" + getName() + "\" to get title of active tab of front window";
-        return CommandUtil.executeAppleScript(command);
+        return runner.runCompiled(activeTabTitleScript, List.of());
+    }
+
+    @Override
+    public CompiledScript getTabProbeScript() {
+        return tabProbeScript;
+    }
+
+    @Override
+    public CompiledScript getTabListScript() {
+        return tabListScript;
+    }
+
+    @Override
+    public CompiledScript getCloseTabsScript() {
+        return closeTabsScript;
+    }
+
+    @Override
+    public List<String> getCloseTabsArguments(List<TabSnapshot> tabs) {
+        List<String> args = new ArrayList<>();
+        for (TabSnapshot tab : tabs) {
+            if (isNumeric(tab.getWindowId()) && isNumeric(tab.getTabId())) {
+                args.add(tab.getWindowId());
+                args.add(tab.getTabId());
+            }
+        }
+        return args;
+    }
+
+    static boolean isNumeric(String text) {
+        return !text.isEmpty() && text.chars().allMatch(Character::isDigit);
     }
 
     @Override
     public void closeActiveTab() {
-        String command = "tell application \"" + getName() + "\" to close active tab of front window";
-        CommandUtil.executeAppleScript(command);
+        runner.runCompiled(closeActiveTabScript, List.of());
     }
 
     @Override
     public void openNewTab() {
-        String command = "tell application \"" + getName() + "\" to make new tab at end of tabs of front window";
-        CommandUtil.executeAppleScript(command);
+        runner.runCompiled(openNewTabScript, List.of());
     }
 }
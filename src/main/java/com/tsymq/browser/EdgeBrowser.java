@@ -1,5 +1,7 @@
 package com.tsymq.browser;
 
+import com.tsymq.command.CommandRunner;
+
 /**
  * Microsoft Edge 浏览器适配器
  */
@@ -7,6 +9,13 @@ public class EdgeBrowser extends ChromiumBrowser {
 
     public static final String APP_NAME = "Microsoft Edge";
 
+    public EdgeBrowser() {
+    }
+
+    public EdgeBrowser(CommandRunner runner) {
+        super(runner);
+    }
+
     @Override
     public String getName() {
         return APP_NAME;
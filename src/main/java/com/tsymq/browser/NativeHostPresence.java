@@ -0,0 +1,94 @@
+package com.tsymq.browser;
+
+import com.tsymq.config.AppConfig;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * 原生消息主机的在线标记
+ * 主机由浏览器启动，运行在单独的进程里；它的判定随学习模式变化时，收到扩展消息会刷新以浏览器命名的标记文件，
+ * 应用据此判断该浏览器的标签页已由扩展实时上报并按模式拦截，可以停止轮询。标记超过有效期未刷新视为离线
+ */
+public class NativeHostPresence {
+
+    private final Path directory;
+    private final long ttlMillis;
+
+    /**
+     * @param directory 标记文件所在目录
+     * @param ttlMillis 标记的有效期
+     */
+    public NativeHostPresence(Path directory, long ttlMillis) {
+        this.directory = directory;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * 使用配置目录下的标记
+     * @return 在线标记
+     */
+    public static NativeHostPresence system() {
+        return new NativeHostPresence(Paths.get(AppConfig.NATIVE_HOST_PRESENCE_DIR),
+                AppConfig.NATIVE_HOST_PRESENCE_TTL_MS);
+    }
+
+    /**
+     * 刷新浏览器的在线标记
+     * @param browser 浏览器应用名称
+     */
+    public void touch(String browser) {
+        Path file = fileOf(browser);
+        try {
+            Files.createDirectories(directory);
+            if (Files.exists(file)) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            } else {
+                Files.createFile(file);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to mark native host presence: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 清除浏览器的在线标记（扩展断开时）
+     * @param browser 浏览器应用名称
+     */
+    public void clear(String browser) {
+        try {
+            Files.deleteIfExists(fileOf(browser));
+        } catch (IOException e) {
+            System.err.println("Failed to clear native host presence: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 浏览器的扩展是否在线
+     * @param browser 浏览器应用名称
+     * @return 标记存在且未过期
+     */
+    public boolean isActive(String browser) {
+        try {
+            long modified = Files.getLastModifiedTime(fileOf(browser)).toMillis();
+            return System.currentTimeMillis() - modified <= ttlMillis;
+        } catch (NoSuchFileException e) {
+            return false;
+        } catch (IOException e) {
+            System.err.println("Failed to read native host presence: " + e.getMessage());
+            return false;
+        }
+    }
+
+    public long getTtlMillis() {
+        return ttlMillis;
+    }
+
+    private Path fileOf(String browser) {
+        return directory.resolve(browser.replaceAll("[^A-Za-z0-9.-]", "_"));
+    }
+}
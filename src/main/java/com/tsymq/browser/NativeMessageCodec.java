@@ -0,0 +1,124 @@
+package com.tsymq.browser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 浏览器原生消息（native messaging）的帧编解码
+ * 每条消息由 4 字节本机字节序的长度和 UTF-8 编码的 JSON 组成。
+ * 读写缓冲区在消息之间复用，只在遇到更长的消息时扩容；一个实例只用于一条连接，不是线程安全的
+ */
+public class NativeMessageCodec {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final int HEADER_BYTES = 4;
+    private static final int INITIAL_BUFFER_BYTES = 4096;
+
+    private final int maxMessageBytes;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+    private final FrameBuffer output = new FrameBuffer();
+    private byte[] input = new byte[INITIAL_BUFFER_BYTES];
+    private long reallocations;
+
+    /**
+     * @param maxMessageBytes 单条消息的最大字节数，超过时读写都会失败
+     */
+    public NativeMessageCodec(int maxMessageBytes) {
+        this.maxMessageBytes = maxMessageBytes;
+    }
+
+    /**
+     * 读取一条消息
+     * @param in 输入流
+     * @return 消息，输入在消息边界结束时返回 null
+     * @throws IOException 消息被截断、超长或不是合法的 JSON
+     */
+    public JsonNode read(InputStream in) throws IOException {
+        if (!readFully(in, header.array(), HEADER_BYTES, true)) {
+            return null;
+        }
+        int length = header.getInt(0);
+        if (length < 0 || length > maxMessageBytes) {
+            throw new IOException("Native message too large: " + Integer.toUnsignedString(length) + " bytes");
+        }
+        if (length > input.length) {
+            input = new byte[Math.max(length, input.length * 2)];
+            reallocations++;
+        }
+        readFully(in, input, length, false);
+        return MAPPER.readTree(input, 0, length);
+    }
+
+    /**
+     * 写入一条消息并刷新输出流
+     * @param out 输出流
+     * @param message 消息
+     * @throws IOException 消息超长或写入失败
+     */
+    public void write(OutputStream out, JsonNode message) throws IOException {
+        int capacity = output.capacity();
+        output.reset();
+        // 先占位长度，序列化后再回填
+        output.write(header.array(), 0, HEADER_BYTES);
+        MAPPER.writeValue(output, message);
+        if (output.capacity() != capacity) {
+            reallocations++;
+        }
+        int length = output.size() - HEADER_BYTES;
+        if (length > maxMessageBytes) {
+            throw new IOException("Native message too large: " + length + " bytes");
+        }
+        ByteBuffer.wrap(output.array()).order(ByteOrder.nativeOrder()).putInt(0, length);
+        out.write(output.array(), 0, output.size());
+        out.flush();
+    }
+
+    private static boolean readFully(InputStream in, byte[] buffer, int length, boolean allowEof) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int read = in.read(buffer, offset, length - offset);
+            if (read < 0) {
+                if (allowEof && offset == 0) {
+                    return false;
+                }
+                throw new EOFException("Native message truncated after " + offset + " of " + length + " bytes");
+            }
+            offset += read;
+        }
+        return true;
+    }
+
+    /**
+     * 缓冲区扩容次数（用于确认缓冲区被复用）
+     * @return 读写缓冲区累计扩容次数
+     */
+    public long getReallocations() {
+        return reallocations;
+    }
+
+    /**
+     * 可以直接访问底层数组的输出缓冲区
+     */
+    private static class FrameBuffer extends ByteArrayOutputStream {
+
+        FrameBuffer() {
+            super(INITIAL_BUFFER_BYTES);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
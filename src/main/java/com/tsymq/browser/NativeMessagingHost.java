@@ -0,0 +1,183 @@
+package com.tsymq.browser;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tsymq.config.AppConfig;
+import com.tsymq.rule.Verdict;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * 浏览器扩展的原生消息主机
+ * 伴随扩展在导航开始时发送标签页的 URL 和标题，主机按与轮询相同的规则判定后回复，扩展在页面渲染前拦截：
+ * <pre>
+ *   {"id": 1, "type": "tab", "tabId": "7", "url": "...", "title": "..."}
+ *     -> {"id": 1, "verdict": "HARDCODED_BLOCKED", "block": true}
+ *   {"type": "hello", "browser": "Google Chrome"} / {"type": "ping"} -> {"type": "pong"}
+ * </pre>
+ * 判定随学习模式变化时，收到消息会刷新该浏览器的在线标记，应用据此停止轮询它；
+ * 判定不区分模式时（例如连不上应用的判定服务）清除标记，由应用继续轮询。输入结束（扩展断开或浏览器退出）时清除标记
+ */
+public class NativeMessagingHost {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final InputStream in;
+    private final OutputStream out;
+    private final Function<TabSnapshot, Verdict> evaluator;
+    private final NativeHostPresence presence;
+    private final BooleanSupplier modeAware;
+    private final NativeMessageCodec codec = new NativeMessageCodec(AppConfig.NATIVE_MESSAGE_MAX_BYTES);
+
+    // 扩展在 hello 中声明的浏览器
+    private String browser;
+    // 上次刷新在线标记的时间，0 表示当前未标记
+    private long lastTouchMillis;
+    private long messages;
+    private long blocked;
+
+    /**
+     * 判定始终随学习模式变化的主机
+     * @param in 扩展发来的消息（浏览器启动主机时为标准输入）
+     * @param out 回复扩展的消息（浏览器启动主机时为标准输出）
+     * @param evaluator 标签页判定
+     * @param presence 在线标记
+     */
+    public NativeMessagingHost(InputStream in, OutputStream out, Function<TabSnapshot, Verdict> evaluator,
+                               NativeHostPresence presence) {
+        this(in, out, evaluator, presence, () -> true);
+    }
+
+    /**
+     * @param in 扩展发来的消息（浏览器启动主机时为标准输入）
+     * @param out 回复扩展的消息（浏览器启动主机时为标准输出）
+     * @param evaluator 标签页判定
+     * @param presence 在线标记
+     * @param modeAware 判定当前是否随学习模式变化，不变化时不标记在线
+     */
+    public NativeMessagingHost(InputStream in, OutputStream out, Function<TabSnapshot, Verdict> evaluator,
+                               NativeHostPresence presence, BooleanSupplier modeAware) {
+        this.in = in;
+        this.out = out;
+        this.evaluator = evaluator;
+        this.presence = presence;
+        this.modeAware = modeAware;
+    }
+
+    /**
+     * 是否由浏览器作为原生消息主机启动
+     * Chromium 系浏览器传入扩展的来源（chrome-extension://...），Firefox 传入主机清单路径和扩展 id
+     * @param args 启动参数
+     * @return 是否应该以主机方式运行
+     */
+    public static boolean isLaunchedByBrowser(String[] args) {
+        return args.length > 0 && (args[0].startsWith("chrome-extension://") || args[0].endsWith(".json"));
+    }
+
+    /**
+     * 处理消息直到输入结束
+     * @throws IOException 读写失败或消息帧损坏
+     */
+    public void run() throws IOException {
+        try {
+            while (true) {
+                JsonNode message;
+                try {
+                    message = codec.read(in);
+                } catch (JsonProcessingException e) {
+                    // 帧已完整读出，只是内容不是合法的 JSON，回复错误后继续
+                    codec.write(out, MAPPER.createObjectNode().put("error", "Invalid JSON"));
+                    continue;
+                }
+                if (message == null) {
+                    return;
+                }
+                codec.write(out, handle(message));
+            }
+        } finally {
+            if (browser != null) {
+                presence.clear(browser);
+            }
+        }
+    }
+
+    /**
+     * 处理一条消息
+     * @param message 扩展发来的消息
+     * @return 回复
+     */
+    ObjectNode handle(JsonNode message) {
+        messages++;
+        String type = message.path("type").asText();
+        if (message.hasNonNull("browser")) {
+            browser = message.get("browser").asText();
+        }
+        ObjectNode reply = reply(type, message);
+        // 判定之后再标记，判定过程中可能连上或断开判定服务
+        markPresent("hello".equals(type));
+        return reply;
+    }
+
+    private ObjectNode reply(String type, JsonNode message) {
+        ObjectNode reply = MAPPER.createObjectNode();
+        if (message.has("id")) {
+            reply.set("id", message.get("id"));
+        }
+        switch (type) {
+            case "tab":
+                String url = message.path("url").asText();
+                if (url.isEmpty()) {
+                    return reply.put("error", "Missing url");
+                }
+                TabSnapshot tab = new TabSnapshot(browser == null ? "" : browser, "",
+                        message.path("tabId").asText(), url, message.path("title").asText());
+                Verdict verdict = evaluator.apply(tab);
+                if (verdict.isBlocked()) {
+                    blocked++;
+                }
+                return reply.put("verdict", verdict.name()).put("block", verdict.isBlocked());
+            case "hello":
+            case "ping":
+                return reply.put("type", "pong");
+            default:
+                return reply.put("error", "Unknown message type: " + type);
+        }
+    }
+
+    private void markPresent(boolean force) {
+        if (browser == null) {
+            return;
+        }
+        if (!modeAware.getAsBoolean()) {
+            if (lastTouchMillis != 0) {
+                presence.clear(browser);
+                lastTouchMillis = 0;
+            }
+            return;
+        }
+        // 每条消息都刷新标记的开销不必要，有效期内刷新几次即可
+        long now = System.currentTimeMillis();
+        if (force || lastTouchMillis == 0 || now - lastTouchMillis >= presence.getTtlMillis() / 4) {
+            presence.touch(browser);
+            lastTouchMillis = now;
+        }
+    }
+
+    public long getMessages() {
+        return messages;
+    }
+
+    public long getBlocked() {
+        return blocked;
+    }
+
+    public NativeMessageCodec getCodec() {
+        return codec;
+    }
+}
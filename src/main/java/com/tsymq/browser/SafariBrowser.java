@@ -1,6 +1,11 @@
 package com.tsymq.browser;
 
-import com.tsymq.CommandUtil;
+import com.tsymq.command.CommandRunner;
+import com.tsymq.command.CompiledScript;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
 /**
  * Safari 浏览器适配器
@@ -9,34 +14,123 @@ import com.tsymq.CommandUtil;
 public class SafariBrowser implements Browser {
 
     public static final String APP_NAME = "Safari";
+    // 脚本版本，修改下面任何一个脚本后递增，已缓存的编译文件随之失效
+    public static final int SCRIPT_VERSION = 2;
+
+    private static final CompiledScript ACTIVE_TAB_URL_SCRIPT =
+            compiled("activeTabUrl", "  tell application \"Safari\" to get URL of current tab of front window");
+    private static final CompiledScript ACTIVE_TAB_TITLE_SCRIPT =
+            compiled("activeTabTitle", "  tell application \"Safari\" to get name of current tab of front window");
+    private static final CompiledScript CLOSE_ACTIVE_TAB_SCRIPT =
+            compiled("closeActiveTab", "  tell application \"Safari\" to close current tab of front window");
+    // Safari 需要先激活应用再创建新标签页
+    private static final CompiledScript OPEN_NEW_TAB_SCRIPT =
+            compiled("openNewTab", "  tell application \"Safari\" to tell front window to set current tab to (make new tab)");
+    // Safari 的标签页没有 id，使用标签页序号
+    private static final CompiledScript TAB_PROBE_SCRIPT = compiled("probeActiveTab",
+            "  tell application \"Safari\" to tell front window to return (id as text) & "
+            + TabSnapshot.APPLESCRIPT_SEPARATOR + " & (index of current tab as text) & "
+            + TabSnapshot.APPLESCRIPT_SEPARATOR + " & URL of current tab & "
+            + TabSnapshot.APPLESCRIPT_SEPARATOR + " & name of current tab");
+    private static final CompiledScript TAB_LIST_SCRIPT = compiled("listTabs", "  tell application \"Safari\"\n"
+            + "    set out to \"\"\n"
+            + "    repeat with w in windows\n"
+            + "      set wid to (id of w as text)\n"
+            + "      set i to 0\n"
+            + "      repeat with t in tabs of w\n"
+            + "        set i to i + 1\n"
+            + "        try\n"
+            + "          set out to out & wid & " + TabSnapshot.APPLESCRIPT_SEPARATOR + " & (i as text) & "
+            + TabSnapshot.APPLESCRIPT_SEPARATOR + " & (URL of t) & " + TabSnapshot.APPLESCRIPT_SEPARATOR
+            + " & (name of t) & " + TabSnapshot.APPLESCRIPT_RECORD_SEPARATOR + "\n"
+            + "        end try\n"
+            + "      end repeat\n"
+            + "    end repeat\n"
+            + "    return out\n"
+            + "  end tell");
+    // 参数依次为窗口 id、标签页序号、列出时的 URL；序号在列出之后可能因打开、关闭或移动标签页而改变，
+    // 关闭前确认该序号的标签页仍是同一个 URL，不是则跳过
+    private static final CompiledScript CLOSE_TABS_SCRIPT = compiled("closeTabs", "  tell application \"Safari\"\n"
+            + "    repeat with i from 1 to (count of argv) by 3\n"
+            + "      try\n"
+            + "        set t to tab ((item (i + 1) of argv) as integer) of window id ((item i of argv) as integer)\n"
+            + "        if (URL of t) is (item (i + 2) of argv) then close t\n"
+            + "      end try\n"
+            + "    end repeat\n"
+            + "  end tell");
+
+    private final CommandRunner runner;
+
+    public SafariBrowser() {
+        this(CommandRunner.system());
+    }
+
+    public SafariBrowser(CommandRunner runner) {
+        this.runner = runner;
+    }
+
+    private static CompiledScript compiled(String action, String body) {
+        return new CompiledScript(APP_NAME + "." + action, SCRIPT_VERSION, "on run argv\n" + body + "\nend run");
+    }
 
     @Override
     public String getName() {
         return APP_NAME;
     }
 
+    @Override
+    public CommandRunner getCommandRunner() {
+        return runner;
+    }
+
     @Override
     public String getActiveTabUrl() {
-        String command = "tell application \"Safari\" to get URL of current tab of front window";
-        return CommandUtil.executeAppleScript(command);
+        return runner.runCompiled(ACTIVE_TAB_URL_SCRIPT, List.of());
     }
 
     @Override
     public String getActiveTabTitle() {
-        String command = "tell application \"Safari\" to get name of current tab of front window";
-        return CommandUtil.executeAppleScript(command);
+        return runner.runCompiled(ACTIVE_TAB_TITLE_SCRIPT, List.of());
+    }
+
+    @Override
+    public CompiledScript getTabProbeScript() {
+        return TAB_PROBE_SCRIPT;
+    }
+
+    @Override
+    public CompiledScript getTabListScript() {
+        return TAB_LIST_SCRIPT;
+    }
+
+    @Override
+    public CompiledScript getCloseTabsScript() {
+        return CLOSE_TABS_SCRIPT;
+    }
+
+    @Override
+    public List<String> getCloseTabsArguments(List<TabSnapshot> tabs) {
+        // 按序号从大到小关闭，前面的序号不会因关闭而改变
+        List<String> args = new ArrayList<>();
+        tabs.stream()
+                .filter(tab -> ChromiumBrowser.isNumeric(tab.getWindowId()) && ChromiumBrowser.isNumeric(tab.getTabId()))
+                .sorted(Comparator.comparing(TabSnapshot::getWindowId)
+                        .thenComparing((TabSnapshot tab) -> Integer.parseInt(tab.getTabId()), Comparator.reverseOrder()))
+                .forEach(tab -> {
+                    args.add(tab.getWindowId());
+                    args.add(tab.getTabId());
+                    args.add(tab.getUrl());
+                });
+        return args;
     }
 
     @Override
     public void closeActiveTab() {
-        String command = "tell application \"Safari\" to close current tab of front window";
-        CommandUtil.executeAppleScript(command);
+        runner.runCompiled(CLOSE_ACTIVE_TAB_SCRIPT, List.of());
     }
 
     @Override
     public void openNewTab() {
-        // Safari 需要先激活应用再创建新标签页
-        String command = "tell application \"Safari\" to tell front window to set current tab to (make new tab)";
-        CommandUtil.executeAppleScript(command);
+        runner.runCompiled(OPEN_NEW_TAB_SCRIPT, List.of());
     }
 }
@@ -1,5 +1,7 @@
 package com.tsymq.browser;
 
+import com.tsymq.command.CommandRunner;
+
 /**
  * SunBrowser 浏览器适配器
  */
@@ -7,6 +9,13 @@ public class SunBrowser extends ChromiumBrowser {
 
     public static final String APP_NAME = "SunBrowser";
 
+    public SunBrowser() {
+    }
+
+    public SunBrowser(CommandRunner runner) {
+        super(runner);
+    }
+
     @Override
     public String getName() {
         return APP_NAME;
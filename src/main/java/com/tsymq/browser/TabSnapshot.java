@@ -0,0 +1,136 @@
+package com.tsymq.browser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 活动标签页快照
+ * 由一次脚本调用同时取回前台应用、窗口 id、标签页 id、URL 和标题，字段之间用 ASCII 单元分隔符（0x1F）分隔，
+ * 该字符不会出现在 URL 中，在标题中也几乎不会出现；标题放在最后，即使包含分隔符也能完整保留
+ */
+public final class TabSnapshot {
+
+    /** 字段分隔符（ASCII Unit Separator） */
+    public static final String FIELD_SEPARATOR = "\u001F";
+    /** 在 AppleScript 中表示分隔符的表达式 */
+    public static final String APPLESCRIPT_SEPARATOR = "(character id 31)";
+    /** 标签页列表中记录之间的分隔符（ASCII Record Separator） */
+    public static final String RECORD_SEPARATOR = "\u001E";
+    /** 在 AppleScript 中表示记录分隔符的表达式 */
+    public static final String APPLESCRIPT_RECORD_SEPARATOR = "(character id 30)";
+    /** 探测脚本出错时放在应用名之后的标记，其后是错误信息 */
+    public static final String PROBE_ERROR_MARKER = "!error";
+
+    private static final int FIELD_COUNT = 5;
+
+    private final String appName;
+    private final String windowId;
+    private final String tabId;
+    private final String url;
+    private final String title;
+    private final String probeError;
+
+    public TabSnapshot(String appName, String windowId, String tabId, String url, String title) {
+        this(appName, windowId, tabId, url, title, null);
+    }
+
+    private TabSnapshot(String appName, String windowId, String tabId, String url, String title, String probeError) {
+        this.appName = appName;
+        this.windowId = windowId;
+        this.tabId = tabId;
+        this.url = url;
+        this.title = title;
+        this.probeError = probeError;
+    }
+
+    /**
+     * 解析探测脚本的输出
+     * 输出只有应用名时（前台不是浏览器，或浏览器没有窗口）返回只含应用名的快照；
+     * 应用名之后是 {@link #PROBE_ERROR_MARKER} 时（浏览器拒绝自动化授权或脚本出错）返回带错误信息的快照
+     * @param output 脚本输出："应用名[分隔符窗口id分隔符标签页id分隔符URL分隔符标题]" 或 "应用名分隔符!error分隔符错误信息"
+     * @return 快照，输出为空时返回 null
+     */
+    public static TabSnapshot parse(String output) {
+        if (output == null || output.trim().isEmpty()) {
+            return null;
+        }
+        String[] fields = output.split(FIELD_SEPARATOR, FIELD_COUNT);
+        if (fields.length >= 2 && fields[1].trim().equals(PROBE_ERROR_MARKER)) {
+            String[] error = output.split(FIELD_SEPARATOR, 3);
+            String message = error.length == 3 ? error[2].trim() : "";
+            return new TabSnapshot(fields[0].trim(), "", "", "", "", message.isEmpty() ? PROBE_ERROR_MARKER : message);
+        }
+        if (fields.length < FIELD_COUNT) {
+            return new TabSnapshot(fields[0].trim(), "", "", "", "");
+        }
+        return new TabSnapshot(fields[0].trim(), fields[1].trim(), fields[2].trim(), fields[3].trim(), fields[4].trim());
+    }
+
+    /**
+     * 解析标签页列表脚本的输出
+     * @param appName 浏览器应用名称
+     * @param output 脚本输出：每条记录为 "窗口id分隔符标签页id分隔符URL分隔符标题"，记录之间用 {@link #RECORD_SEPARATOR} 分隔
+     * @return 标签页列表，字段不全的记录被忽略
+     */
+    public static List<TabSnapshot> parseList(String appName, String output) {
+        List<TabSnapshot> tabs = new ArrayList<>();
+        if (output == null || output.isEmpty()) {
+            return tabs;
+        }
+        for (String record : output.split(RECORD_SEPARATOR)) {
+            String[] fields = record.split(FIELD_SEPARATOR, FIELD_COUNT - 1);
+            if (fields.length == FIELD_COUNT - 1) {
+                tabs.add(new TabSnapshot(appName, fields[0].trim(), fields[1].trim(), fields[2].trim(), fields[3].trim()));
+            }
+        }
+        return tabs;
+    }
+
+    /**
+     * 是否取到了标签页信息
+     * @return 是否包含 URL 或标题
+     */
+    public boolean hasTab() {
+        return !url.isEmpty() || !title.isEmpty();
+    }
+
+    /**
+     * 探测脚本的错误信息
+     * @return 错误信息，探测成功时返回 null
+     */
+    public String getProbeError() {
+        return probeError;
+    }
+
+    public String getAppName() {
+        return appName;
+    }
+
+    public String getWindowId() {
+        return windowId;
+    }
+
+    public String getTabId() {
+        return tabId;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public String toString() {
+        return "TabSnapshot{" +
+                "app='" + appName + '\'' +
+                ", window=" + windowId +
+                ", tab=" + tabId +
+                ", url='" + url + '\'' +
+                ", title='" + title + '\'' +
+                (probeError == null ? "" : ", error='" + probeError + '\'') +
+                '}';
+    }
+}
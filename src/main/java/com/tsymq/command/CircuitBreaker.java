@@ -0,0 +1,294 @@
+package com.tsymq.command;
+
+import com.tsymq.config.AppConfig;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.LongSupplier;
+
+/**
+ * 单个浏览器的熔断器
+ * 连续超时或出错达到阈值后打开，打开期间直接拒绝调用；等待时间到后半开，只放行一次试探调用，
+ * 试探成功则关闭，失败则重新打开并把等待时间加倍。
+ * 每次调用的超时时间由成功调用的耗时分布得出（p99 × 倍数），样本不足时使用上限
+ */
+public class CircuitBreaker {
+
+    /**
+     * 熔断器状态
+     */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    // 样本数达到该值后才按耗时分布计算超时时间
+    private static final int MIN_TIMEOUT_SAMPLES = 20;
+
+    private final String name;
+    private final int failureThreshold;
+    private final long baseOpenMillis;
+    private final long maxOpenMillis;
+    private final double timeoutFactor;
+    private final long minTimeoutMillis;
+    private final long maxTimeoutMillis;
+    private final LongSupplier clock;
+    private final LatencyHistogram latencies = new LatencyHistogram(1000);
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openMillis;
+    private long openUntilNanos;
+    private boolean trialInFlight;
+    private Consumer<CircuitBreaker> stateListener = breaker -> { };
+
+    private long calls;
+    private long failures;
+    private long timeouts;
+    private long rejected;
+    private long opens;
+
+    /**
+     * 使用 {@link AppConfig} 中的默认参数
+     * @param name 名称（浏览器名）
+     */
+    public CircuitBreaker(String name) {
+        this(name, AppConfig.BREAKER_FAILURE_THRESHOLD, AppConfig.BREAKER_OPEN_MS, AppConfig.BREAKER_MAX_OPEN_MS,
+                AppConfig.SCRIPT_TIMEOUT_FACTOR, AppConfig.SCRIPT_MIN_TIMEOUT_MS, AppConfig.SCRIPT_MAX_TIMEOUT_MS);
+    }
+
+    /**
+     * @param name 名称（浏览器名）
+     * @param failureThreshold 连续失败多少次后打开
+     * @param baseOpenMillis 首次打开的等待时间
+     * @param maxOpenMillis 等待时间上限
+     * @param timeoutFactor 超时时间相对 p99 耗时的倍数
+     * @param minTimeoutMillis 超时时间下限
+     * @param maxTimeoutMillis 超时时间上限（样本不足时使用）
+     */
+    public CircuitBreaker(String name, int failureThreshold, long baseOpenMillis, long maxOpenMillis,
+                          double timeoutFactor, long minTimeoutMillis, long maxTimeoutMillis) {
+        this(name, failureThreshold, baseOpenMillis, maxOpenMillis, timeoutFactor, minTimeoutMillis,
+                maxTimeoutMillis, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, int failureThreshold, long baseOpenMillis, long maxOpenMillis,
+                   double timeoutFactor, long minTimeoutMillis, long maxTimeoutMillis, LongSupplier clock) {
+        if (failureThreshold < 1 || baseOpenMillis <= 0 || maxOpenMillis < baseOpenMillis
+                || minTimeoutMillis <= 0 || maxTimeoutMillis < minTimeoutMillis) {
+            throw new IllegalArgumentException("Invalid circuit breaker settings for " + name);
+        }
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.baseOpenMillis = baseOpenMillis;
+        this.maxOpenMillis = maxOpenMillis;
+        this.timeoutFactor = timeoutFactor;
+        this.minTimeoutMillis = minTimeoutMillis;
+        this.maxTimeoutMillis = maxTimeoutMillis;
+        this.clock = clock;
+        this.openMillis = baseOpenMillis;
+    }
+
+    /**
+     * 通过熔断器执行一次调用
+     * @param action 接收本次超时时间（毫秒）并发起调用
+     * @return 调用结果；熔断器打开时以 {@link RejectedExecutionException} 失败
+     */
+    public <T> CompletableFuture<T> call(LongFunction<CompletableFuture<T>> action) {
+        if (!tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException("Circuit open for " + name));
+        }
+        long start = clock.getAsLong();
+        CompletableFuture<T> future;
+        try {
+            future = action.apply(getTimeoutMillis());
+        } catch (RuntimeException e) {
+            onFailure(e);
+            return CompletableFuture.failedFuture(e);
+        }
+        return future.whenComplete((result, error) -> {
+            if (error == null) {
+                onSuccess(clock.getAsLong() - start);
+            } else {
+                onFailure(error);
+            }
+        });
+    }
+
+    /**
+     * 申请一次调用
+     * 关闭时总是允许；打开且等待时间已到时转为半开并允许一次试探调用
+     * 申请成功后必须调用 {@link #onSuccess}、{@link #onFailure} 或 {@link #release} 之一
+     * @return 是否允许调用
+     */
+    public boolean tryAcquire() {
+        State changed = null;
+        boolean allowed;
+        synchronized (this) {
+            if (state == State.OPEN && clock.getAsLong() - openUntilNanos >= 0) {
+                state = State.HALF_OPEN;
+                trialInFlight = false;
+                changed = state;
+            }
+            if (state == State.CLOSED) {
+                allowed = true;
+            } else if (state == State.HALF_OPEN && !trialInFlight) {
+                trialInFlight = true;
+                allowed = true;
+            } else {
+                rejected++;
+                allowed = false;
+            }
+            if (allowed) {
+                calls++;
+            }
+        }
+        notifyIfChanged(changed);
+        return allowed;
+    }
+
+    /**
+     * 记录一次成功调用
+     * @param latencyNanos 调用耗时（纳秒）
+     */
+    public void onSuccess(long latencyNanos) {
+        latencies.record(latencyNanos);
+        State changed = null;
+        synchronized (this) {
+            consecutiveFailures = 0;
+            trialInFlight = false;
+            if (state != State.CLOSED) {
+                state = State.CLOSED;
+                openMillis = baseOpenMillis;
+                changed = state;
+            }
+        }
+        notifyIfChanged(changed);
+    }
+
+    /**
+     * 记录一次失败调用（超时或出错）
+     * @param error 失败原因
+     */
+    public void onFailure(Throwable error) {
+        State changed = null;
+        synchronized (this) {
+            failures++;
+            if (isTimeout(error)) {
+                timeouts++;
+            }
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN) {
+                // 试探失败，等待时间加倍
+                openMillis = Math.min(maxOpenMillis, openMillis * 2);
+                changed = open();
+            } else if (state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+                changed = open();
+            }
+        }
+        notifyIfChanged(changed);
+    }
+
+    /**
+     * 放弃已申请的调用（未实际执行，不计入结果）
+     */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    private State open() {
+        state = State.OPEN;
+        trialInFlight = false;
+        openUntilNanos = clock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(openMillis);
+        opens++;
+        return state;
+    }
+
+    private void notifyIfChanged(State changed) {
+        if (changed == null) {
+            return;
+        }
+        System.out.println("Circuit breaker " + this);
+        stateListener.accept(this);
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof TimeoutException
+                || (cause instanceof ScriptException && ((ScriptException) cause).isTimeout());
+    }
+
+    /**
+     * 设置状态变化监听器
+     * @param listener 状态变化时调用（在触发变化的线程上）
+     */
+    public void setStateListener(Consumer<CircuitBreaker> listener) {
+        this.stateListener = listener == null ? breaker -> { } : listener;
+    }
+
+    /**
+     * 当前调用的超时时间：p99 耗时 × 倍数，限制在上下限之间
+     * @return 超时时间（毫秒）
+     */
+    public long getTimeoutMillis() {
+        if (latencies.getCount() < MIN_TIMEOUT_SAMPLES) {
+            return maxTimeoutMillis;
+        }
+        long timeout = (long) Math.ceil(latencies.percentileMillis(0.99) * timeoutFactor);
+        return Math.max(minTimeoutMillis, Math.min(maxTimeoutMillis, timeout));
+    }
+
+    /**
+     * 成功调用耗时的 p99
+     * @return p99 耗时（毫秒），没有样本时返回 0
+     */
+    public long getP99Millis() {
+        return latencies.percentileMillis(0.99);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 当前状态（打开且等待时间已到时，下一次申请才会转为半开）
+     * @return 状态
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getCalls() {
+        return calls;
+    }
+
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    public synchronized long getTimeouts() {
+        return timeouts;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    public synchronized long getOpens() {
+        return opens;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%s{state=%s, timeout=%dms, p99=%dms, calls=%d, failures=%d, timeouts=%d, rejected=%d, opens=%d}",
+                name, state, getTimeoutMillis(), getP99Millis(), calls, failures, timeouts, rejected, opens);
+    }
+}
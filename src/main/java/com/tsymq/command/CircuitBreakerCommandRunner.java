@@ -0,0 +1,55 @@
+package com.tsymq.command;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 带熔断的执行器
+ * 每次调用通过熔断器执行，超时时间由熔断器按耗时分布给出；浏览器无响应或拒绝自动化时快速失败，不再每次等待超时
+ */
+public class CircuitBreakerCommandRunner implements CommandRunner {
+
+    private final CommandRunner delegate;
+    private final CircuitBreaker breaker;
+
+    /**
+     * @param delegate 实际执行脚本的执行器
+     * @param breaker 熔断器
+     */
+    public CircuitBreakerCommandRunner(CommandRunner delegate, CircuitBreaker breaker) {
+        this.delegate = delegate;
+        this.breaker = breaker;
+    }
+
+    @Override
+    public String runAppleScript(String script) {
+        return runAppleScriptAsync(script).join();
+    }
+
+    @Override
+    public CompletableFuture<String> runAppleScriptAsync(String script) {
+        return runAppleScriptChecked(script, Long.MAX_VALUE)
+            .exceptionally(e -> {
+                System.err.println("AppleScript call to " + breaker.getName() + " failed: " + e.getMessage());
+                return "";
+            });
+    }
+
+    @Override
+    public CompletableFuture<String> runAppleScriptChecked(String script, long timeoutMillis) {
+        return breaker.call(timeout -> delegate.runAppleScriptChecked(script, Math.min(timeout, timeoutMillis)));
+    }
+
+    @Override
+    public String invocationOf(CompiledScript script, List<String> args) {
+        return delegate.invocationOf(script, args);
+    }
+
+    /**
+     * 获取熔断器
+     * @return 熔断器
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+}
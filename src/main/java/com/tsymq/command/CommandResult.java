@@ -0,0 +1,61 @@
+package com.tsymq.command;
+
+/**
+ * 命令执行结果
+ * 标准输出和标准错误分别收集
+ */
+public final class CommandResult {
+
+    private final int exitCode;
+    private final String stdout;
+    private final String stderr;
+    private final long elapsedNanos;
+
+    public CommandResult(int exitCode, String stdout, String stderr, long elapsedNanos) {
+        this.exitCode = exitCode;
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public int getExitCode() {
+        return exitCode;
+    }
+
+    public String getStdout() {
+        return stdout;
+    }
+
+    public String getStderr() {
+        return stderr;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public boolean isSuccess() {
+        return exitCode == 0;
+    }
+
+    /**
+     * 合并后的输出（标准输出在前，标准错误在后，去掉首尾空白）
+     * @return 输出文本
+     */
+    public String getOutput() {
+        String out = stdout.trim();
+        String err = stderr.trim();
+        if (err.isEmpty()) {
+            return out;
+        }
+        return out.isEmpty() ? err : out + "\n" + err;
+    }
+
+    @Override
+    public String toString() {
+        return "CommandResult{exitCode=" + exitCode
+                + ", stdout=" + stdout.length() + " chars"
+                + ", stderr=" + stderr.length() + " chars"
+                + ", elapsed=" + elapsedNanos / 1_000_000 + "ms}";
+    }
+}
@@ -0,0 +1,77 @@
+package com.tsymq.command;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 脚本执行器接口
+ * 浏览器适配器和监控流程通过它执行 AppleScript，可以替换为录制或回放实现，在非 macOS 环境下运行整条监控流程
+ */
+public interface CommandRunner {
+
+    /**
+     * 执行 AppleScript
+     * @param script AppleScript 代码
+     * @return 脚本输出，失败时返回空字符串
+     */
+    String runAppleScript(String script);
+
+    /**
+     * 异步执行 AppleScript（默认在调用线程上同步执行）
+     * @param script AppleScript 代码
+     * @return 脚本输出
+     */
+    default CompletableFuture<String> runAppleScriptAsync(String script) {
+        return CompletableFuture.completedFuture(runAppleScript(script));
+    }
+
+    /**
+     * 在指定时间内异步执行 AppleScript，超时或脚本出错时 future 以异常结束
+     * 默认实现只对 {@link #runAppleScriptAsync(String)} 加上超时
+     * @param script AppleScript 代码
+     * @param timeoutMillis 超时时间（毫秒）
+     * @return 脚本输出
+     */
+    default CompletableFuture<String> runAppleScriptChecked(String script, long timeoutMillis) {
+        return runAppleScriptAsync(script).orTimeout(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 获取执行预编译脚本的 AppleScript（默认内联源码，不使用编译缓存）
+     * @param script 脚本
+     * @param args 参数
+     * @return AppleScript 代码
+     */
+    default String invocationOf(CompiledScript script, List<String> args) {
+        return script.inline(args);
+    }
+
+    /**
+     * 执行预编译脚本
+     * @param script 脚本
+     * @param args 参数
+     * @return 脚本输出，失败时返回空字符串
+     */
+    default String runCompiled(CompiledScript script, List<String> args) {
+        return runAppleScript(invocationOf(script, args));
+    }
+
+    /**
+     * 异步执行预编译脚本
+     * @param script 脚本
+     * @param args 参数
+     * @return 脚本输出
+     */
+    default CompletableFuture<String> runCompiledAsync(CompiledScript script, List<String> args) {
+        return runAppleScriptAsync(invocationOf(script, args));
+    }
+
+    /**
+     * 获取真实的执行器（osascript 常驻会话或独立进程）
+     * @return 执行器
+     */
+    static CommandRunner system() {
+        return SystemCommandRunner.INSTANCE;
+    }
+}
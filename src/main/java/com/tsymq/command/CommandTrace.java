@@ -0,0 +1,50 @@
+package com.tsymq.command;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * 一次脚本调用的录制记录
+ * 录制文件每行一条 JSON 记录
+ */
+public final class CommandTrace {
+
+    private final String script;
+    private final String response;
+    private final long latencyNanos;
+    private final long offsetNanos;
+
+    /**
+     * @param script 执行的脚本
+     * @param response 脚本输出
+     * @param latencyNanos 执行耗时（纳秒）
+     * @param offsetNanos 相对录制开始的时间（纳秒）
+     */
+    @JsonCreator
+    public CommandTrace(
+            @JsonProperty("script") String script,
+            @JsonProperty("response") String response,
+            @JsonProperty("latencyNanos") long latencyNanos,
+            @JsonProperty("offsetNanos") long offsetNanos) {
+        this.script = script;
+        this.response = response;
+        this.latencyNanos = latencyNanos;
+        this.offsetNanos = offsetNanos;
+    }
+
+    public String getScript() {
+        return script;
+    }
+
+    public String getResponse() {
+        return response;
+    }
+
+    public long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    public long getOffsetNanos() {
+        return offsetNanos;
+    }
+}
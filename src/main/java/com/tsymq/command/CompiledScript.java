@@ -0,0 +1,100 @@
+package com.tsymq.command;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 可预编译的 AppleScript
+ * 源码是一个带参数的 run 处理器（on run argv），可变内容只通过参数传入，同一个脚本只需编译一次。
+ * 没有编译缓存时以 run script 内联源码执行，结果相同
+ */
+public final class CompiledScript {
+
+    static final String FILE_INVOCATION_PREFIX = "run script (POSIX file ";
+
+    private final String name;
+    private final int version;
+    private final String source;
+
+    /**
+     * @param name 脚本名称（浏览器名 + 动作），用作缓存文件名
+     * @param version 脚本版本，修改脚本后递增，缓存中的旧版本随之失效
+     * @param source AppleScript 源码
+     */
+    public CompiledScript(String name, int version, String source) {
+        this.name = name;
+        this.version = version;
+        this.source = source;
+    }
+
+    /**
+     * 以内联源码执行的脚本（每次执行都要重新编译）
+     * @param args 参数
+     * @return AppleScript 代码
+     */
+    public String inline(List<String> args) {
+        return "run script " + quote(source) + " with parameters " + toList(args);
+    }
+
+    /**
+     * 执行已编译脚本文件的脚本（只编译这一行调用本身）
+     * @param file 编译好的 .scpt 文件
+     * @param args 参数
+     * @return AppleScript 代码
+     */
+    public static String fileInvocation(Path file, List<String> args) {
+        return FILE_INVOCATION_PREFIX + quote(file.toAbsolutePath().toString()) + ") with parameters " + toList(args);
+    }
+
+    private static String toList(List<String> args) {
+        return args.stream().map(CompiledScript::quote).collect(Collectors.joining(", ", "{", "}"));
+    }
+
+    /**
+     * 转成 AppleScript 字符串字面量
+     * @param text 文本
+     * @return 带引号并转义的字面量
+     */
+    public static String quote(String text) {
+        return "\"" + text.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n") + "\"";
+    }
+
+    /**
+     * 缓存文件名前缀，同一脚本的所有版本共用
+     * @return 文件名前缀
+     */
+    String getFilePrefix() {
+        return name.replaceAll("[^A-Za-z0-9._-]", "_") + "@";
+    }
+
+    /**
+     * 缓存文件名：名称、版本和源码摘要，忘记递增版本时源码变化也会换一个文件
+     * @return 文件名
+     */
+    String getFileName() {
+        int hash = 0;
+        for (byte b : source.getBytes(StandardCharsets.UTF_8)) {
+            hash = 31 * hash + b;
+        }
+        return getFilePrefix() + "v" + version + "-" + String.format("%08x", hash) + ".scpt";
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    @Override
+    public String toString() {
+        return name + "@v" + version;
+    }
+}
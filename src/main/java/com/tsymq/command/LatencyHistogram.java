@@ -0,0 +1,97 @@
+package com.tsymq.command;
+
+/**
+ * 耗时直方图
+ * 桶的上界按约 25% 递增（1ms 到 1 分钟），分位数误差不超过一个桶宽；
+ * 样本数超过窗口大小时所有计数减半，旧样本的权重逐渐衰减，分位数能跟随浏览器响应速度的变化
+ */
+public class LatencyHistogram {
+
+    private static final long[] BUCKET_BOUNDS_MILLIS = buildBounds(60_000);
+
+    private final long[] counts = new long[BUCKET_BOUNDS_MILLIS.length];
+    private final long window;
+    private long total;
+
+    /**
+     * @param window 衰减窗口（样本数）
+     */
+    public LatencyHistogram(long window) {
+        if (window < 2) {
+            throw new IllegalArgumentException("window must be at least 2");
+        }
+        this.window = window;
+    }
+
+    private static long[] buildBounds(long maxMillis) {
+        long[] bounds = new long[64];
+        int size = 0;
+        long bound = 1;
+        while (bound < maxMillis) {
+            bounds[size++] = bound;
+            bound = Math.max(bound + 1, bound * 5 / 4);
+        }
+        bounds[size++] = maxMillis;
+        long[] result = new long[size];
+        System.arraycopy(bounds, 0, result, 0, size);
+        return result;
+    }
+
+    /**
+     * 记录一次耗时
+     * @param nanos 耗时（纳秒）
+     */
+    public synchronized void record(long nanos) {
+        long millis = Math.max(0, (nanos + 999_999) / 1_000_000);
+        counts[bucketOf(millis)]++;
+        if (++total >= window) {
+            total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] >>= 1;
+                total += counts[i];
+            }
+        }
+    }
+
+    private static int bucketOf(long millis) {
+        int low = 0;
+        int high = BUCKET_BOUNDS_MILLIS.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (BUCKET_BOUNDS_MILLIS[mid] >= millis) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 计算分位数
+     * @param quantile 分位（0 到 1）
+     * @return 分位数所在桶的上界（毫秒），没有样本时返回 0
+     */
+    public synchronized long percentileMillis(double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && counts[i] > 0) {
+                return BUCKET_BOUNDS_MILLIS[i];
+            }
+        }
+        return BUCKET_BOUNDS_MILLIS[BUCKET_BOUNDS_MILLIS.length - 1];
+    }
+
+    /**
+     * 当前计入的样本数（衰减后）
+     * @return 样本数
+     */
+    public synchronized long getCount() {
+        return total;
+    }
+}
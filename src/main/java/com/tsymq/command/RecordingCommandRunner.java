@@ -0,0 +1,105 @@
+package com.tsymq.command;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 录制执行器
+ * 把每次调用的脚本、输出和耗时追加写入录制文件（每行一条 JSON），实际执行交给被包装的执行器
+ */
+public class RecordingCommandRunner implements CommandRunner, AutoCloseable {
+
+    private final CommandRunner delegate;
+    private final BufferedWriter writer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final long startNanos = System.nanoTime();
+    private int recorded;
+
+    /**
+     * @param delegate 实际执行脚本的执行器
+     * @param traceFile 录制文件（追加写入）
+     * @throws IOException 无法打开录制文件时抛出
+     */
+    public RecordingCommandRunner(CommandRunner delegate, Path traceFile) throws IOException {
+        this.delegate = delegate;
+        Path parent = traceFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.writer = Files.newBufferedWriter(traceFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public String runAppleScript(String script) {
+        long start = System.nanoTime();
+        String response = delegate.runAppleScript(script);
+        record(script, response, start);
+        return response;
+    }
+
+    @Override
+    public CompletableFuture<String> runAppleScriptAsync(String script) {
+        long start = System.nanoTime();
+        return delegate.runAppleScriptAsync(script).thenApply(response -> {
+            record(script, response, start);
+            return response;
+        });
+    }
+
+    @Override
+    public CompletableFuture<String> runAppleScriptChecked(String script, long timeoutMillis) {
+        long start = System.nanoTime();
+        return delegate.runAppleScriptChecked(script, timeoutMillis).thenApply(response -> {
+            record(script, response, start);
+            return response;
+        });
+    }
+
+    private synchronized void record(String script, String response, long start) {
+        long end = System.nanoTime();
+        CommandTrace trace = new CommandTrace(script, response, end - start, start - startNanos);
+        try {
+            writer.write(objectMapper.writeValueAsString(trace));
+            writer.newLine();
+            recorded++;
+        } catch (IOException e) {
+            System.err.println("Error recording command trace: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 已录制的调用次数
+     * @return 调用次数
+     */
+    public synchronized int getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * 把缓冲区写入录制文件
+     */
+    public synchronized void flush() {
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("Error flushing command trace: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("Error closing command trace: " + e.getMessage());
+        }
+    }
+}
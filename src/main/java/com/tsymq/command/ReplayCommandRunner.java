@@ -0,0 +1,148 @@
+package com.tsymq.command;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 回放执行器
+ * 按录制文件返回脚本输出，并按原始耗时（可缩放）延迟返回，用于在非 macOS 环境下测试和压测监控流程
+ * 同一脚本的多条记录按录制顺序依次返回，用完后从头循环；没有录制过的脚本返回空字符串
+ */
+public class ReplayCommandRunner implements CommandRunner {
+
+    private final Map<String, Replies> replies = new HashMap<>();
+    private final double timeScale;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param traceFile 录制文件（每行一条 JSON 记录）
+     * @param timeScale 耗时缩放比例，1 为原始耗时，0 为不延迟
+     * @throws IOException 读取录制文件失败时抛出
+     */
+    public ReplayCommandRunner(Path traceFile, double timeScale) throws IOException {
+        this(readTraces(traceFile), timeScale);
+    }
+
+    /**
+     * @param traces 录制记录
+     * @param timeScale 耗时缩放比例，1 为原始耗时，0 为不延迟
+     */
+    public ReplayCommandRunner(List<CommandTrace> traces, double timeScale) {
+        if (timeScale < 0) {
+            throw new IllegalArgumentException("timeScale must not be negative");
+        }
+        this.timeScale = timeScale;
+        for (CommandTrace trace : traces) {
+            replies.computeIfAbsent(trace.getScript(), k -> new Replies()).traces.add(trace);
+        }
+    }
+
+    /**
+     * 读取录制文件
+     * @param traceFile 录制文件
+     * @return 录制记录
+     * @throws IOException 读取失败时抛出
+     */
+    public static List<CommandTrace> readTraces(Path traceFile) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<CommandTrace> traces = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(traceFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    traces.add(objectMapper.readValue(line, CommandTrace.class));
+                }
+            }
+        }
+        return traces;
+    }
+
+    @Override
+    public String runAppleScript(String script) {
+        CommandTrace trace = next(script);
+        if (trace == null) {
+            return "";
+        }
+        long delay = scaledLatency(trace);
+        long deadline = System.nanoTime() + delay;
+        while (delay > 0) {
+            LockSupport.parkNanos(delay);
+            delay = deadline - System.nanoTime();
+        }
+        return trace.getResponse();
+    }
+
+    @Override
+    public CompletableFuture<String> runAppleScriptAsync(String script) {
+        CommandTrace trace = next(script);
+        if (trace == null) {
+            return CompletableFuture.completedFuture("");
+        }
+        long delay = scaledLatency(trace);
+        if (delay <= 0) {
+            return CompletableFuture.completedFuture(trace.getResponse());
+        }
+        // 延迟完成而不占用调用线程，与真实的异步执行一致
+        return CompletableFuture.supplyAsync(trace::getResponse,
+                CompletableFuture.delayedExecutor(delay, TimeUnit.NANOSECONDS));
+    }
+
+    private CommandTrace next(String script) {
+        calls.incrementAndGet();
+        Replies entry = replies.get(script);
+        if (entry == null) {
+            misses.incrementAndGet();
+            System.err.println("No recorded response for script: " + script);
+            return null;
+        }
+        return entry.next();
+    }
+
+    private long scaledLatency(CommandTrace trace) {
+        return (long) (trace.getLatencyNanos() * timeScale);
+    }
+
+    /**
+     * 总调用次数
+     * @return 调用次数
+     */
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * 没有录制记录的调用次数
+     * @return 未命中次数
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * 同一脚本的录制记录，按顺序循环返回
+     */
+    private static final class Replies {
+        private final List<CommandTrace> traces = new ArrayList<>();
+        private int cursor;
+
+        synchronized CommandTrace next() {
+            CommandTrace trace = traces.get(cursor);
+            cursor = (cursor + 1) % traces.size();
+            return trace;
+        }
+    }
+}
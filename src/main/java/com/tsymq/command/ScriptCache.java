@@ -0,0 +1,145 @@
+package com.tsymq.command;
+
+import com.tsymq.config.AppConfig;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预编译脚本缓存
+ * 每个脚本第一次执行时编译成 .scpt 文件，之后通过 run script 执行文件，不再重新编译源码。
+ * 文件名包含脚本版本，版本变化时删除同名脚本的旧文件后重新编译；编译失败的脚本本进程内不再重试，改为内联执行
+ */
+public class ScriptCache {
+
+    private final Path directory;
+    private final ScriptCompiler compiler;
+    // 文件名 -> 编译结果（empty 表示编译失败）
+    private final Map<String, Optional<Path>> resolved = new ConcurrentHashMap<>();
+
+    private long compiles;
+    private long hits;
+    private long failures;
+
+    /**
+     * @param directory 缓存目录
+     * @param compiler 编译器
+     */
+    public ScriptCache(Path directory, ScriptCompiler compiler) {
+        this.directory = directory;
+        this.compiler = compiler;
+    }
+
+    /**
+     * 获取真实的缓存（osacompile 编译到配置目录），只在 macOS 上可用
+     * @return 缓存，不可用时返回 null
+     */
+    public static ScriptCache system() {
+        return SystemHolder.INSTANCE;
+    }
+
+    private static final class SystemHolder {
+        static final ScriptCache INSTANCE = AppConfig.SCRIPT_CACHE_ENABLED
+                && System.getProperty("os.name", "").toLowerCase().contains("mac")
+                ? new ScriptCache(Paths.get(AppConfig.SCRIPT_CACHE_DIR), ScriptCompiler.osacompile())
+                : null;
+    }
+
+    /**
+     * 获取执行脚本的 AppleScript：已编译时执行缓存文件，否则内联源码
+     * @param script 脚本
+     * @param args 参数
+     * @return AppleScript 代码
+     */
+    public String invocationOf(CompiledScript script, List<String> args) {
+        return resolve(script)
+                .map(file -> CompiledScript.fileInvocation(file, args))
+                .orElseGet(() -> script.inline(args));
+    }
+
+    /**
+     * 获取脚本的编译文件，缓存中没有时编译
+     * @param script 脚本
+     * @return 编译好的文件，编译失败时返回 empty
+     */
+    public Optional<Path> resolve(CompiledScript script) {
+        Optional<Path> file = resolved.get(script.getFileName());
+        if (file != null) {
+            synchronized (this) {
+                hits++;
+            }
+            return file;
+        }
+        return load(script);
+    }
+
+    private synchronized Optional<Path> load(CompiledScript script) {
+        String fileName = script.getFileName();
+        Optional<Path> file = resolved.get(fileName);
+        if (file != null) {
+            hits++;
+            return file;
+        }
+        Path target = directory.resolve(fileName);
+        try {
+            if (Files.isRegularFile(target)) {
+                // 上次运行编译好的文件
+                hits++;
+            } else {
+                Files.createDirectories(directory);
+                deleteStaleVersions(script, fileName);
+                Path temp = directory.resolve(fileName + ".tmp");
+                compiler.compile(script.getSource(), temp);
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                compiles++;
+                System.out.println("Compiled script " + script + " to " + target);
+            }
+            file = Optional.of(target);
+        } catch (IOException e) {
+            failures++;
+            System.err.println("Failed to compile script " + script + ", running it inline: " + e.getMessage());
+            file = Optional.empty();
+        }
+        resolved.put(fileName, file);
+        return file;
+    }
+
+    private void deleteStaleVersions(CompiledScript script, String fileName) throws IOException {
+        try (DirectoryStream<Path> stale = Files.newDirectoryStream(directory, script.getFilePrefix() + "*")) {
+            for (Path path : stale) {
+                if (!path.getFileName().toString().equals(fileName)) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public synchronized long getCompiles() {
+        return compiles;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getFailures() {
+        return failures;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("ScriptCache{dir=%s, compiles=%d, hits=%d, failures=%d}", directory, compiles, hits, failures);
+    }
+}
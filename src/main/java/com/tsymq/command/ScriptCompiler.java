@@ -0,0 +1,46 @@
+package com.tsymq.command;
+
+import com.tsymq.CommandUtil;
+import com.tsymq.config.AppConfig;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * AppleScript 编译器
+ */
+@FunctionalInterface
+public interface ScriptCompiler {
+
+    /**
+     * 把源码编译成脚本文件
+     * @param source AppleScript 源码
+     * @param output 输出文件
+     * @throws IOException 编译失败时抛出
+     */
+    void compile(String source, Path output) throws IOException;
+
+    /**
+     * 使用 osacompile 编译（仅 macOS 可用）
+     * @return 编译器
+     */
+    static ScriptCompiler osacompile() {
+        return (source, output) -> {
+            CommandResult result;
+            try {
+                result = CommandUtil.executeAsync(new String[]{"osacompile", "-o", output.toString(), "-e", source},
+                        AppConfig.SCRIPT_MAX_TIMEOUT_MS).get();
+            } catch (ExecutionException e) {
+                throw new IOException("osacompile failed: " + e.getCause().getMessage(), e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while compiling " + output);
+            }
+            if (!result.isSuccess()) {
+                throw new ScriptException(result.getStderr().trim(), false);
+            }
+        };
+    }
+}
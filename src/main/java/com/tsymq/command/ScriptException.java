@@ -0,0 +1,31 @@
+package com.tsymq.command;
+
+import java.io.IOException;
+
+/**
+ * 脚本执行失败
+ * 区分脚本超时和脚本本身出错（如浏览器拒绝自动化授权），两者都不代表解释器不可用
+ */
+public class ScriptException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean timeout;
+
+    /**
+     * @param message 错误信息
+     * @param timeout 是否因超时失败
+     */
+    public ScriptException(String message, boolean timeout) {
+        super(message);
+        this.timeout = timeout;
+    }
+
+    /**
+     * 是否因超时失败
+     * @return 是否超时
+     */
+    public boolean isTimeout() {
+        return timeout;
+    }
+}
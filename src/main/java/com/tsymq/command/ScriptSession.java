@@ -0,0 +1,259 @@
+package com.tsymq.command;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 常驻脚本解释器会话
+ * 保持一个解释器子进程常驻，通过标准输入逐行发送脚本、从标准输出逐行读取响应，避免每次执行都创建进程
+ *
+ * 行协议（脚本和结果都做 Base64 编码，内容中的换行不会破坏分隔）：
+ * <pre>
+ * 请求：&lt;id&gt; &lt;base64 脚本&gt;
+ * 响应：&lt;id&gt; &lt;OK|ERR&gt; &lt;base64 结果&gt;
+ * </pre>
+ * 解释器退出时自动重启并重试一次；请求超时时强制结束解释器，下次请求时重新启动
+ * 同一时刻只执行一个请求（调用方串行化）
+ */
+public class ScriptSession implements AutoCloseable {
+
+    private static final String HOST_SCRIPT_RESOURCE = "/osascript-session.js";
+    // 读线程在解释器退出时放入的标记（按引用比较）
+    private static final String EOF = new String("<eof>");
+
+    private final List<String> command;
+    private Process process;
+    private BufferedWriter stdin;
+    private BlockingQueue<String> responses;
+    private long nextId;
+    private boolean closed;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong starts = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * @param command 启动解释器的命令
+     */
+    public ScriptSession(List<String> command) {
+        this.command = new ArrayList<>(command);
+    }
+
+    /**
+     * 创建基于 osascript 的 AppleScript 会话（仅 macOS 可用）
+     * @return 会话（首次执行时才启动进程）
+     * @throws IOException 读取宿主脚本失败时抛出
+     */
+    public static ScriptSession osascript() throws IOException {
+        String host;
+        try (InputStream in = ScriptSession.class.getResourceAsStream(HOST_SCRIPT_RESOURCE)) {
+            if (in == null) {
+                throw new IOException("Missing resource " + HOST_SCRIPT_RESOURCE);
+            }
+            host = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        return new ScriptSession(List.of("osascript", "-l", "JavaScript", "-e", host));
+    }
+
+    /**
+     * 执行脚本
+     * @param script 脚本源码
+     * @param timeoutMillis 超时时间（毫秒）
+     * @return 脚本输出；脚本本身执行出错时返回空字符串
+     * @throws IOException 解释器无法启动、重启后仍然退出或请求超时时抛出
+     */
+    public synchronized String execute(String script, long timeoutMillis) throws IOException {
+        try {
+            return executeChecked(script, timeoutMillis);
+        } catch (ScriptException e) {
+            if (e.isTimeout()) {
+                throw e;
+            }
+            System.err.println("Script error: " + e.getMessage());
+            return "";
+        }
+    }
+
+    /**
+     * 执行脚本，脚本本身出错时抛出异常而不是返回空字符串
+     * @param script 脚本源码
+     * @param timeoutMillis 超时时间（毫秒）
+     * @return 脚本输出
+     * @throws ScriptException 脚本出错或超时时抛出
+     * @throws IOException 解释器无法启动或重启后仍然退出时抛出
+     */
+    public synchronized String executeChecked(String script, long timeoutMillis) throws IOException {
+        if (closed) {
+            throw new IOException("Script session is closed");
+        }
+        requests.incrementAndGet();
+        String request = " " + Base64.getEncoder().encodeToString(script.getBytes(StandardCharsets.UTF_8)) + "\n";
+        for (int attempt = 0; ; attempt++) {
+            ensureStarted();
+            long id = ++nextId;
+            try {
+                stdin.write(id + request);
+                stdin.flush();
+            } catch (IOException e) {
+                destroy();
+                if (attempt == 0) {
+                    continue;
+                }
+                throw e;
+            }
+
+            String response = awaitResponse(id, timeoutMillis);
+            if (response != null) {
+                return response;
+            }
+            // 解释器在处理过程中退出
+            destroy();
+            if (attempt > 0) {
+                throw new IOException("Interpreter exited while executing script");
+            }
+        }
+    }
+
+    /**
+     * 等待指定请求的响应
+     * @return 响应内容；解释器退出时返回 null
+     * @throws ScriptException 脚本出错或超时时抛出
+     */
+    private String awaitResponse(long id, long timeoutMillis) throws IOException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        String prefix = id + " ";
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            String line;
+            try {
+                line = remaining > 0 ? responses.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for script result");
+            }
+            if (line == null) {
+                timeouts.incrementAndGet();
+                destroy();
+                throw new ScriptException("Script timed out after " + timeoutMillis + "ms", true);
+            }
+            if (line == EOF) {
+                return null;
+            }
+            if (!line.startsWith(prefix)) {
+                // 之前超时请求的迟到响应
+                continue;
+            }
+            int statusEnd = line.indexOf(' ', prefix.length());
+            String status = statusEnd < 0 ? line.substring(prefix.length()) : line.substring(prefix.length(), statusEnd);
+            String payload = statusEnd < 0 ? "" : new String(
+                    Base64.getDecoder().decode(line.substring(statusEnd + 1)), StandardCharsets.UTF_8);
+            if ("OK".equals(status)) {
+                return payload;
+            }
+            throw new ScriptException(payload, false);
+        }
+    }
+
+    private void ensureStarted() throws IOException {
+        if (process != null && process.isAlive()) {
+            return;
+        }
+        destroy();
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        Process started = builder.start();
+        BlockingQueue<String> queue = new LinkedBlockingQueue<>();
+        Thread reader = new Thread(() -> readResponses(started, queue), "script-session-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        process = started;
+        responses = queue;
+        stdin = new BufferedWriter(new OutputStreamWriter(started.getOutputStream(), StandardCharsets.UTF_8));
+        if (starts.incrementAndGet() > 1) {
+            System.out.println("Restarted script interpreter (pid " + started.pid() + ")");
+        }
+    }
+
+    private static void readResponses(Process process, BlockingQueue<String> queue) {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                queue.add(line);
+            }
+        } catch (IOException e) {
+            // 进程被强制结束时读取会失败，按退出处理
+        } finally {
+            queue.add(EOF);
+        }
+    }
+
+    private void destroy() {
+        if (process != null) {
+            process.destroyForcibly();
+            process = null;
+            stdin = null;
+            responses = null;
+        }
+    }
+
+    /**
+     * 解释器进程是否存活
+     * @return 是否存活
+     */
+    public synchronized boolean isAlive() {
+        return process != null && process.isAlive();
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * 解释器被重启的次数（不含首次启动）
+     * @return 重启次数
+     */
+    public long getRestarts() {
+        return Math.max(0, starts.get() - 1);
+    }
+
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /**
+     * 关闭标准输入让解释器自行退出，超时则强制结束
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (process == null) {
+            return;
+        }
+        try {
+            stdin.close();
+            if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (IOException e) {
+            process.destroyForcibly();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+        process = null;
+    }
+}
@@ -0,0 +1,130 @@
+package com.tsymq.command;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * 模拟脚本编译和执行开销的执行器，用于在非 macOS 环境下比较内联执行和预编译执行
+ * 每次执行的开销 = 固定调度开销 + 收到的脚本文本长度 × 每字符编译开销（+ 执行编译文件时的加载开销）；
+ * 内联执行每次都要编译整段源码，执行编译文件时只编译一行调用。
+ * 它同时是 {@link ScriptCompiler}：编译时按源码长度计入开销，并把源码写入输出文件
+ */
+public class SimulatedCommandRunner implements CommandRunner, ScriptCompiler {
+
+    // 默认开销，量级参考 osascript 在常驻会话中的实测
+    public static final long DEFAULT_DISPATCH_NANOS = 1_000_000;
+    public static final long DEFAULT_COMPILE_NANOS_PER_CHAR = 20_000;
+    public static final long DEFAULT_LOAD_NANOS = 500_000;
+
+    private final Function<String, String> responder;
+    private final long dispatchNanos;
+    private final long compileNanosPerChar;
+    private final long loadNanos;
+    private final double timeScale;
+    private final ScriptCache cache;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong compiledChars = new AtomicLong();
+    private final AtomicLong simulatedNanos = new AtomicLong();
+
+    /**
+     * 使用默认开销、不实际等待
+     * @param responder 根据收到的脚本文本给出输出
+     * @param cacheDirectory 编译缓存目录，null 表示不使用缓存（每次内联执行）
+     */
+    public SimulatedCommandRunner(Function<String, String> responder, Path cacheDirectory) {
+        this(responder, cacheDirectory, DEFAULT_DISPATCH_NANOS, DEFAULT_COMPILE_NANOS_PER_CHAR, DEFAULT_LOAD_NANOS, 0);
+    }
+
+    /**
+     * @param responder 根据收到的脚本文本给出输出
+     * @param cacheDirectory 编译缓存目录，null 表示不使用缓存（每次内联执行）
+     * @param dispatchNanos 每次执行的固定开销
+     * @param compileNanosPerChar 每编译一个字符的开销
+     * @param loadNanos 加载一个编译文件的开销
+     * @param timeScale 实际等待时间相对模拟开销的比例，0 表示只累计不等待
+     */
+    public SimulatedCommandRunner(Function<String, String> responder, Path cacheDirectory, long dispatchNanos,
+                                  long compileNanosPerChar, long loadNanos, double timeScale) {
+        this.responder = responder;
+        this.dispatchNanos = dispatchNanos;
+        this.compileNanosPerChar = compileNanosPerChar;
+        this.loadNanos = loadNanos;
+        this.timeScale = timeScale;
+        this.cache = cacheDirectory == null ? null : new ScriptCache(cacheDirectory, this);
+    }
+
+    @Override
+    public String runAppleScript(String script) {
+        calls.incrementAndGet();
+        long cost = dispatchNanos + compileCost(script);
+        if (script.startsWith(CompiledScript.FILE_INVOCATION_PREFIX)) {
+            cost += loadNanos;
+        }
+        spend(cost);
+        return responder.apply(script);
+    }
+
+    @Override
+    public String invocationOf(CompiledScript script, List<String> args) {
+        return cache == null ? script.inline(args) : cache.invocationOf(script, args);
+    }
+
+    @Override
+    public void compile(String source, Path output) throws IOException {
+        spend(compileCost(source));
+        Files.write(output, source.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private long compileCost(String text) {
+        compiledChars.addAndGet(text.length());
+        return compileNanosPerChar * text.length();
+    }
+
+    private void spend(long nanos) {
+        simulatedNanos.addAndGet(nanos);
+        if (timeScale > 0) {
+            LockSupport.parkNanos((long) (nanos * timeScale));
+        }
+    }
+
+    /**
+     * 获取编译缓存
+     * @return 缓存，没有使用缓存时返回 null
+     */
+    public ScriptCache getCache() {
+        return cache;
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    /**
+     * 累计编译的字符数（执行和预编译）
+     * @return 字符数
+     */
+    public long getCompiledChars() {
+        return compiledChars.get();
+    }
+
+    /**
+     * 累计模拟开销
+     * @return 开销（毫秒）
+     */
+    public double getSimulatedMillis() {
+        return simulatedNanos.get() / 1e6;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SimulatedCommandRunner{calls=%d, compiledChars=%d, simulated=%.1fms, cache=%s}",
+                calls.get(), compiledChars.get(), getSimulatedMillis(), cache);
+    }
+}
@@ -0,0 +1,44 @@
+package com.tsymq.command;
+
+import com.tsymq.CommandUtil;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 真实的脚本执行器，委托给 {@link CommandUtil}
+ * 预编译脚本在 macOS 上通过 {@link ScriptCache#system()} 编译成文件后执行
+ */
+final class SystemCommandRunner implements CommandRunner {
+
+    static final SystemCommandRunner INSTANCE = new SystemCommandRunner();
+
+    private SystemCommandRunner() {
+    }
+
+    @Override
+    public String runAppleScript(String script) {
+        return CommandUtil.executeAppleScript(script);
+    }
+
+    @Override
+    public CompletableFuture<String> runAppleScriptAsync(String script) {
+        return CommandUtil.executeAppleScriptAsync(script);
+    }
+
+    @Override
+    public CompletableFuture<String> runAppleScriptChecked(String script, long timeoutMillis) {
+        return CommandUtil.executeAppleScriptChecked(script, timeoutMillis);
+    }
+
+    @Override
+    public String invocationOf(CompiledScript script, List<String> args) {
+        ScriptCache cache = ScriptCache.system();
+        return cache == null ? script.inline(args) : cache.invocationOf(script, args);
+    }
+
+    @Override
+    public String toString() {
+        return "SystemCommandRunner";
+    }
+}
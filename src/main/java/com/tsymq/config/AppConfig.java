@@ -14,6 +14,12 @@ public class AppConfig {
     public static final String USER_CONFIG_FILE = CONFIG_DIR + "/user_config.json";
     public static final String BLOCKED_WEBSITES_FILE = CONFIG_DIR + "/blocked_websites.txt";
     public static final String WHITE_WEBSITES_FILE = CONFIG_DIR + "/white_websites.txt";
+    // 导入的大型屏蔽列表目录（hosts 文件、域名列表、adblock 列表）
+    public static final String IMPORTED_BLOCKLISTS_DIR = CONFIG_DIR + "/blocklists";
+    // 导入列表编译后的二进制文件（源列表变化时自动重新生成）
+    public static final String COMPILED_BLOCKLIST_FILE = CONFIG_DIR + "/blocklists.bin";
+    // 浏览器适配器预编译的 AppleScript（.scpt）目录
+    public static final String SCRIPT_CACHE_DIR = CONFIG_DIR + "/scripts";
     
     // 时间相关常量
     public static final int MIN_FOCUS_DURATION_MINUTES = 15;
@@ -22,8 +28,79 @@ public class AppConfig {
     
     // UI更新间隔
     public static final int UI_UPDATE_INTERVAL_MS = 100000; // 100秒
-    public static final int MONITOR_INTERVAL_MS = 1500; // 1.5秒
+    public static final int MONITOR_INTERVAL_MS = 1500; // 1.5秒，标签页采样的初始间隔
+    public static final int MONITOR_MIN_INTERVAL_MS = 300; // 标签页切换或屏蔽后的采样间隔
+    public static final int MONITOR_MAX_INTERVAL_MS = 5000; // 长时间无变化时的采样间隔上限
+    public static final double MONITOR_BACKOFF_FACTOR = 1.5; // 每次无变化采样后间隔的放大倍数
+    public static final long MONITOR_IDLE_PAUSE_MS = 120_000; // 系统空闲2分钟后暂停采样
+    public static final long TAB_SWEEP_INTERVAL_MS = 60_000; // 全量扫描所有标签页的最短间隔
+    public static final double TAB_SWEEP_TIME_BUDGET = 0.02; // 全量扫描耗时占比上限（2%）
+
+    // 匹配相关
+    public static final int VERDICT_CACHE_CAPACITY = 256; // URL判定缓存条目数
+    public static final double BLOOM_FALSE_POSITIVE_RATE = 0.01; // 域名布隆过滤器目标误判率
+
+    // 规则日志超过该大小时压缩进列表文件
+    public static final long RULE_JOURNAL_COMPACT_BYTES = 64 * 1024;
+    // 规则文件变更的合并窗口，窗口内的连续写入只触发一次重新加载
+    public static final long RULE_RELOAD_DEBOUNCE_MS = 300;
     
+    // 命令执行相关
+    public static final boolean APPLESCRIPT_SESSION_ENABLED = true; // 使用常驻解释器执行AppleScript
+    public static final boolean SCRIPT_CACHE_ENABLED = true; // 浏览器脚本预编译为 .scpt 后执行
+    public static final int BREAKER_FAILURE_THRESHOLD = 3; // 浏览器连续超时或出错多少次后熔断
+    public static final long BREAKER_OPEN_MS = 5_000; // 熔断后首次试探前的等待时间
+    public static final long BREAKER_MAX_OPEN_MS = 120_000; // 试探失败后等待时间加倍的上限
+    public static final double SCRIPT_TIMEOUT_FACTOR = 3.0; // 脚本超时时间 = p99耗时 × 倍数
+    public static final long SCRIPT_MIN_TIMEOUT_MS = 500; // 脚本超时时间下限
+    public static final long SCRIPT_MAX_TIMEOUT_MS = 10_000; // 脚本超时时间上限（耗时样本不足时使用）
+    public static final long FRONT_APP_QUERY_TIMEOUT_MS = 1_000; // 探测脚本失败后单独查询前台应用的超时时间
+    public static final int ACTION_QUEUE_CAPACITY = 16; // 等待执行的屏蔽动作上限
+
+    // Chrome DevTools 协议（浏览器需要以 --remote-debugging-port 启动）
+    public static final boolean DEVTOOLS_ENABLED = false; // 通过 DevTools 协议接收标签页变化事件
+    public static final String DEVTOOLS_BROWSER = "Google Chrome"; // 连接的浏览器
+    public static final String DEVTOOLS_ENDPOINT = "http://127.0.0.1:9222"; // 调试端口地址
+    public static final long DEVTOOLS_COMMAND_TIMEOUT_MS = 2_000; // 连接和单个命令的超时时间
+
+    // 浏览器扩展的原生消息主机（由浏览器启动，在单独的进程中运行）
+    public static final String NATIVE_HOST_PRESENCE_DIR = CONFIG_DIR + "/native-host"; // 主机在线标记目录
+    public static final long NATIVE_HOST_PRESENCE_TTL_MS = 60_000; // 扩展超过这个时间没有消息时恢复轮询该浏览器
+    public static final int NATIVE_MESSAGE_MAX_BYTES = 1024 * 1024; // 单条消息上限（浏览器接收主机消息的上限为1MB）
+
+    // 本机 URL 判定服务（只监听 127.0.0.1）
+    public static final boolean VERDICT_SERVICE_ENABLED = false; // 供浏览器扩展和 shell 钩子查询判定结果，默认关闭，开启后监听本机端口
+    public static final int VERDICT_SERVICE_PORT = 47_390; // 监听端口
+    public static final int VERDICT_SERVICE_MAX_LINE_BYTES = 64 * 1024; // 单行请求上限（批量查询的一行包含多个URL）
+    public static final int VERDICT_SERVICE_TIMEOUT_MS = 200; // 客户端连接和等待回复的超时时间
+
+    // 本机 DNS 存根解析器（需要把系统 DNS 指向 127.0.0.1 的这个端口）
+    public static final boolean DNS_SINKHOLE_ENABLED = false; // 在域名解析阶段拦截被屏蔽的网站，覆盖所有应用
+    public static final int DNS_SINKHOLE_PORT = 53_530; // 监听端口（53 需要管理员权限，可用 pf 转发）
+    public static final String DNS_UPSTREAM = "1.1.1.1:53"; // 转发未屏蔽查询的上游服务器
+    public static final boolean DNS_BLOCK_WITH_NXDOMAIN = false; // 屏蔽时回答域名不存在，否则回答 0.0.0.0 / ::
+    public static final long DNS_BLOCKED_TTL_S = 5; // 屏蔽回答的TTL，较短以便模式切换后尽快恢复解析
+    public static final int DNS_CACHE_CAPACITY = 2048; // 上游回答缓存条目数
+    public static final long DNS_CACHE_MAX_TTL_S = 3600; // 缓存时间上限
+    public static final long DNS_NEGATIVE_TTL_S = 60; // 域名不存在或没有记录的回答的缓存时间
+    public static final long DNS_UPSTREAM_TIMEOUT_MS = 2_000; // 上游超过这个时间未回答时回复 SERVFAIL
+
+    // 本机过滤代理（浏览器通过 PAC 地址 http://127.0.0.1:端口/proxy.pac 选择）
+    public static final boolean PROXY_ENABLED = false; // 在代理层拦截被屏蔽的网站，不依赖标签页轮询
+    public static final int PROXY_PORT = 47_391; // 监听端口
+    public static final int PROXY_BACKLOG = 512; // 等待接受的连接队列长度
+    public static final int PROXY_BUFFER_BYTES = 16 * 1024; // 每个连接每个方向的转发缓冲区，也是请求头的上限
+    public static final int PROXY_POOL_MAX_IDLE = 512; // 缓冲区池最多保留的空闲缓冲区数
+    public static final int PROXY_RESOLVER_THREADS = 4; // 解析目标主机的线程数
+
+    // hosts 格式屏蔽文件（可由 dnsmasq addn-hosts 引用，或由有权限的脚本合并进 /etc/hosts）
+    public static final boolean HOSTS_FILE_ENABLED = false; // 随模式和规则变化重新生成
+    public static final String HOSTS_FILE_TARGET = CONFIG_DIR + "/hosts.blocklist"; // 生成的文件
+    public static final String HOSTS_FILE_ADDRESS = "0.0.0.0"; // 屏蔽域名解析到的地址
+    public static final boolean HOSTS_FILE_WWW_ALIASES = true; // 同时写入 www. 子域名（hosts 文件不匹配子域名）
+    public static final int HOSTS_FILE_BUFFER_BYTES = 1024 * 1024; // 写文件的缓冲区大小
+    public static final long HOSTS_FILE_REFRESH_MS = 10_000; // 检查规则变化的间隔（模式切换时立即生成）
+
     // 应用信息
     public static final String APP_NAME = "MyFocusme";
     public static final String APP_VERSION = "1.0.0";
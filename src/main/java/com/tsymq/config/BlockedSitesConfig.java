@@ -1,5 +1,7 @@
 package com.tsymq.config;
 
+import com.tsymq.rule.KeywordMatcher;
+
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -10,76 +12,89 @@ import java.util.Set;
  */
 public class BlockedSitesConfig {
 
+    /**
+     * 硬编码屏蔽关键词编译后的自动机，类加载时构建一次，之后所有查询共享
+     */
+    private static final KeywordMatcher HARDCODED_MATCHER = KeywordMatcher.compile(Arrays.asList(
+        //新加
+        "javdb",
+        "laowang",
+        "fansky",
+        "pixiv",
+        "south-plus",
+        "laoli.one",
+        "ctee.kr",
+        "puremedia",
+        "yeha_",
+
+
+        // 日本成人网站
+        "javbus",
+        "javlibrary",
+        "jable",
+        "missav",
+        "hanime1",
+        "2dfan",
+        "njav",
+        "avmoo",
+        "javmost",
+        "javfree",
+        "javhd",
+        "18comic",
+
+        // 国际知名色情网站
+        "pornhub",
+        "xvideos",
+        "xnxx",
+        "redtube",
+        "youporn",
+        "tube8",
+        "spankbang",
+        "xhamster",
+        "beeg",
+        "tnaflix",
+        "drtuber",
+        "slutload",
+
+        // 中文色情网站
+        "91porn",
+        "caoliu",
+        "1024",
+
+        // 直播色情网站
+        "chaturbate",
+        "myfreecams",
+        "camsoda",
+        "stripchat",
+        "bongacams",
+        "livejasmin",
+        "flirt4free",
+
+        // 特定关键词
+        "porn",
+        "xxx",
+        "erotic",
+        "hentai",
+        "pornsite",
+        "sexvideo",
+        "adultsite"
+    ), true);
+
     /**
      * 获取硬编码的色情网站屏蔽列表
      * 这些网站在所有模式下都会被屏蔽
      * @return 屏蔽网站集合
      */
     public static Set<String> getHardcodedBlockedSites() {
-        return new HashSet<>(Arrays.asList(
-            //新加
-            "javdb",
-            "laowang",
-            "fansky",
-            "pixiv",
-            "south-plus",
-            "laoli.one",
-            "ctee.kr",
-            "puremedia",
-            "yeha_",
-
-
-            // 日本成人网站
-            "javbus",
-            "javlibrary",
-            "jable",
-            "missav",
-            "hanime1",
-            "2dfan",
-            "njav",
-            "avmoo",
-            "javmost",
-            "javfree",
-            "javhd",
-            "18comic",
-
-            // 国际知名色情网站
-            "pornhub",
-            "xvideos",
-            "xnxx",
-            "redtube",
-            "youporn",
-            "tube8",
-            "spankbang",
-            "xhamster",
-            "beeg",
-            "tnaflix",
-            "drtuber",
-            "slutload",
-
-            // 中文色情网站
-            "91porn",
-            "caoliu",
-            "1024",
-
-            // 直播色情网站
-            "chaturbate",
-            "myfreecams",
-            "camsoda",
-            "stripchat",
-            "bongacams",
-            "livejasmin",
-            "flirt4free",
-
-            // 特定关键词
-            "porn",
-            "xxx",
-            "erotic",
-            "hentai",
-            "pornsite",
-            "sexvideo",
-            "adultsite"
-        ));
+        return new HashSet<>(HARDCODED_MATCHER.getKeywords());
+    }
+
+    /**
+     * 获取编译后的硬编码屏蔽匹配器
+     * @return 不可变的关键词匹配器
+     */
+    public static KeywordMatcher getHardcodedMatcher() {
+        return HARDCODED_MATCHER;
     }
 
     /**
@@ -92,9 +107,7 @@ public class BlockedSitesConfig {
             return false;
         }
 
-        String lowerUrl = url.toLowerCase();
-        return getHardcodedBlockedSites().stream()
-                .anyMatch(lowerUrl::contains);
+        return HARDCODED_MATCHER.matches(url);
     }
 
     /**
@@ -102,7 +115,7 @@ public class BlockedSitesConfig {
      * @return 屏蔽网站总数
      */
     public static int getBlockedSitesCount() {
-        return getHardcodedBlockedSites().size();
+        return HARDCODED_MATCHER.size();
     }
 
     /**
@@ -111,7 +124,7 @@ public class BlockedSitesConfig {
      * @return 更新后的屏蔽网站集合
      */
     public static Set<String> addRuntimeBlockedSites(Set<String> additionalSites) {
-        Set<String> allSites = getHardcodedBlockedSites();
+        Set<String> allSites = new HashSet<>(HARDCODED_MATCHER.getKeywords());
         if (additionalSites != null) {
             allSites.addAll(additionalSites);
         }
@@ -4,6 +4,8 @@ import com.tsymq.config.AppConfig;
 import com.tsymq.config.ConfigManager;
 import com.tsymq.utils.TimeUtils;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -20,6 +22,8 @@ public class ModeManager {
     
     private ModeState currentModeState;
     private Consumer<ModeState> modeChangeListener;
+    // 其他模块注册的模式变更监听器，与界面使用的监听器互不影响
+    private final List<Consumer<ModeState>> modeChangeSubscribers = new CopyOnWriteArrayList<>();
     private Consumer<Long> timeUpdateListener;
     
     public ModeManager() {
@@ -131,6 +135,9 @@ public class ModeManager {
         if (modeChangeListener != null) {
             modeChangeListener.accept(newState);
         }
+        for (Consumer<ModeState> subscriber : modeChangeSubscribers) {
+            subscriber.accept(newState);
+        }
     }
     
     /**
@@ -181,6 +188,22 @@ public class ModeManager {
         this.modeChangeListener = listener;
     }
     
+    /**
+     * 添加模式变更监听器，不替换 {@link #setModeChangeListener} 设置的监听器
+     * @param listener 监听器
+     */
+    public void addModeChangeListener(Consumer<ModeState> listener) {
+        modeChangeSubscribers.add(listener);
+    }
+
+    /**
+     * 移除 {@link #addModeChangeListener} 添加的监听器
+     * @param listener 监听器
+     */
+    public void removeModeChangeListener(Consumer<ModeState> listener) {
+        modeChangeSubscribers.remove(listener);
+    }
+
     /**
      * 设置时间更新监听器
      * @param listener 监听器
@@ -0,0 +1,228 @@
+package com.tsymq.monitor;
+
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 屏蔽动作执行器
+ * 采样线程只把动作放进有界队列，由单独的线程按优先级执行，执行慢的动作不会推迟下一次采样。
+ * 同一去重键的动作在排队或执行期间再次提交会被忽略；队列满时拒绝新动作（下一次采样会重新提交）
+ */
+public class ActionExecutor implements AutoCloseable {
+
+    private static final Comparator<BlockAction> ORDER = Comparator
+            .comparing(BlockAction::getPriority)
+            .thenComparingLong(action -> action.sequence);
+
+    private final int capacity;
+    private final PriorityQueue<BlockAction> queue = new PriorityQueue<>(ORDER);
+    // 排队中和执行中的动作的去重键
+    private final Set<String> pendingKeys = new HashSet<>();
+    private final Thread worker;
+    private boolean closed;
+    private int running;
+    private long nextSequence;
+
+    private long submitted;
+    private long executed;
+    private long deduplicated;
+    private long rejected;
+    private long failed;
+    private int maxDepth;
+    private long totalLatencyNanos;
+    private long maxLatencyNanos;
+
+    /**
+     * @param capacity 队列容量
+     */
+    public ActionExecutor(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.worker = new Thread(this::runLoop, "block-action");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * 提交一个动作
+     * @param action 屏蔽动作
+     * @return 是否入队；同一去重键的动作尚未执行完、队列已满或执行器已关闭时返回 false
+     */
+    public synchronized boolean submit(BlockAction action) {
+        if (closed) {
+            rejected++;
+            return false;
+        }
+        if (pendingKeys.contains(action.getKey())) {
+            deduplicated++;
+            return false;
+        }
+        if (queue.size() >= capacity) {
+            rejected++;
+            System.err.println("Block action queue full, dropping action for " + action.getKey());
+            return false;
+        }
+        action.sequence = nextSequence++;
+        action.enqueuedNanos = System.nanoTime();
+        pendingKeys.add(action.getKey());
+        queue.add(action);
+        submitted++;
+        maxDepth = Math.max(maxDepth, queue.size());
+        notifyAll();
+        return true;
+    }
+
+    private void runLoop() {
+        while (true) {
+            BlockAction action;
+            synchronized (this) {
+                while (queue.isEmpty() && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (closed) {
+                    return;
+                }
+                action = queue.poll();
+                running++;
+            }
+
+            boolean success = true;
+            try {
+                action.run();
+            } catch (RuntimeException e) {
+                success = false;
+                System.err.println("Block action failed: " + e.getMessage());
+            }
+
+            long latency = System.nanoTime() - action.enqueuedNanos;
+            synchronized (this) {
+                pendingKeys.remove(action.getKey());
+                if (success) {
+                    executed++;
+                } else {
+                    failed++;
+                }
+                totalLatencyNanos += latency;
+                maxLatencyNanos = Math.max(maxLatencyNanos, latency);
+            }
+            // 完成回调执行完后才算空闲
+            action.getCompletion().complete(null);
+            synchronized (this) {
+                running--;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 等待队列中的动作全部执行完
+     * @param timeoutMillis 最长等待时间（毫秒）
+     * @return 是否在超时前执行完
+     */
+    public synchronized boolean awaitIdle(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (!queue.isEmpty() || running > 0) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || closed) {
+                return false;
+            }
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 当前排队的动作数
+     * @return 队列深度
+     */
+    public synchronized int getDepth() {
+        return queue.size();
+    }
+
+    public synchronized int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public synchronized long getSubmitted() {
+        return submitted;
+    }
+
+    public synchronized long getExecuted() {
+        return executed;
+    }
+
+    public synchronized long getDeduplicated() {
+        return deduplicated;
+    }
+
+    public synchronized long getRejected() {
+        return rejected;
+    }
+
+    public synchronized long getFailed() {
+        return failed;
+    }
+
+    /**
+     * 动作从入队到执行完的平均耗时
+     * @return 平均耗时（毫秒），没有执行记录时返回 0
+     */
+    public synchronized double getAverageLatencyMillis() {
+        long completed = executed + failed;
+        return completed == 0 ? 0 : totalLatencyNanos / 1e6 / completed;
+    }
+
+    /**
+     * 动作从入队到执行完的最长耗时
+     * @return 最长耗时（毫秒）
+     */
+    public synchronized double getMaxLatencyMillis() {
+        return maxLatencyNanos / 1e6;
+    }
+
+    /**
+     * 关闭执行器，正在执行的动作会执行完，排队中的动作被丢弃
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            for (BlockAction action : queue) {
+                action.getCompletion().completeExceptionally(new CancellationException("Action executor closed"));
+            }
+            queue.clear();
+            pendingKeys.clear();
+            notifyAll();
+        }
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("ActionExecutor{depth=%d, maxDepth=%d, submitted=%d, executed=%d, deduplicated=%d, rejected=%d, failed=%d, avgLatency=%.1fms, maxLatency=%.1fms}",
+                queue.size(), maxDepth, submitted, executed, deduplicated, rejected, failed,
+                getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+}
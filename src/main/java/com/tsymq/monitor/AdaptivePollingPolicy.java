@@ -0,0 +1,177 @@
+package com.tsymq.monitor;
+
+/**
+ * 自适应采样策略
+ * 前台不是支持的浏览器或 URL 没有变化时逐步拉长采样间隔，标签页切换或执行屏蔽后立即回到最短间隔，
+ * 系统空闲时暂停采样，只按最长间隔检查是否恢复活动
+ */
+public class AdaptivePollingPolicy {
+
+    /**
+     * 一次采样的结果
+     */
+    public enum Observation {
+        /** 前台不是支持的浏览器，或探测失败 */
+        UNSUPPORTED,
+        /** URL 与上次相同 */
+        UNCHANGED,
+        /** URL 发生变化 */
+        CHANGED,
+        /** 执行了屏蔽动作 */
+        BLOCKED
+    }
+
+    private final long floorMillis;
+    private final long ceilingMillis;
+    private final double backoffFactor;
+    private final long idlePauseMillis;
+    private final long startNanos = System.nanoTime();
+
+    private long delayMillis;
+    private boolean paused;
+    private long samples;
+    private long pausedChecks;
+    private long blocks;
+    private long totalTimeToBlockNanos;
+
+    /**
+     * @param floorMillis 最短采样间隔
+     * @param ceilingMillis 最长采样间隔
+     * @param initialMillis 初始采样间隔
+     * @param backoffFactor 每次无变化采样后的间隔放大倍数
+     * @param idlePauseMillis 系统空闲超过该时长后暂停采样，0 表示不暂停
+     */
+    public AdaptivePollingPolicy(long floorMillis, long ceilingMillis, long initialMillis,
+                                 double backoffFactor, long idlePauseMillis) {
+        if (floorMillis <= 0 || ceilingMillis < floorMillis) {
+            throw new IllegalArgumentException("Invalid interval bounds: " + floorMillis + ".." + ceilingMillis);
+        }
+        if (backoffFactor < 1.0) {
+            throw new IllegalArgumentException("backoffFactor must be at least 1");
+        }
+        this.floorMillis = floorMillis;
+        this.ceilingMillis = ceilingMillis;
+        this.backoffFactor = backoffFactor;
+        this.idlePauseMillis = idlePauseMillis;
+        this.delayMillis = clamp(initialMillis);
+    }
+
+    /**
+     * 记录一次采样结果并计算下一次采样的间隔
+     * @param observation 采样结果
+     * @return 下一次采样前的等待时间（毫秒）
+     */
+    public synchronized long onSample(Observation observation) {
+        samples++;
+        paused = false;
+        switch (observation) {
+            case CHANGED:
+            case BLOCKED:
+                delayMillis = floorMillis;
+                break;
+            default:
+                delayMillis = clamp((long) Math.ceil(delayMillis * backoffFactor));
+                break;
+        }
+        return delayMillis;
+    }
+
+    /**
+     * 是否需要先检查系统空闲时间再采样
+     * 只有间隔已退避到上限或已经暂停时才检查，避免每次采样都额外执行命令
+     * @return 是否需要检查
+     */
+    public synchronized boolean shouldCheckIdle() {
+        return idlePauseMillis > 0 && (paused || delayMillis >= ceilingMillis);
+    }
+
+    /**
+     * 根据系统空闲时间决定是否暂停采样
+     * @param idleMillis 系统空闲时间（毫秒）
+     * @return 是否处于暂停状态；暂停时调用方跳过本次采样，按 {@link #getCurrentDelayMillis()} 后再检查
+     */
+    public synchronized boolean checkIdle(long idleMillis) {
+        boolean idle = idlePauseMillis > 0 && idleMillis >= idlePauseMillis;
+        if (idle) {
+            if (!paused) {
+                System.out.println("System idle for " + idleMillis / 1000 + "s, pausing tab sampling");
+            }
+            paused = true;
+            pausedChecks++;
+            delayMillis = ceilingMillis;
+        } else if (paused) {
+            // 恢复活动后尽快采样一次
+            paused = false;
+            delayMillis = floorMillis;
+        }
+        return paused;
+    }
+
+    /**
+     * 记录一次屏蔽动作的耗时
+     * @param nanos 从最后一次确认 URL 未被屏蔽的采样开始，到屏蔽动作完成的时间
+     */
+    public synchronized void recordBlock(long nanos) {
+        blocks++;
+        totalTimeToBlockNanos += nanos;
+    }
+
+    private long clamp(long millis) {
+        return Math.max(floorMillis, Math.min(ceilingMillis, millis));
+    }
+
+    /**
+     * 当前采样间隔
+     * @return 间隔（毫秒）
+     */
+    public synchronized long getCurrentDelayMillis() {
+        return delayMillis;
+    }
+
+    /**
+     * 是否因系统空闲暂停了采样
+     * @return 是否暂停
+     */
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * 已执行的采样次数
+     * @return 采样次数
+     */
+    public synchronized long getSamples() {
+        return samples;
+    }
+
+    /**
+     * 因系统空闲跳过的采样次数
+     * @return 跳过次数
+     */
+    public synchronized long getPausedChecks() {
+        return pausedChecks;
+    }
+
+    /**
+     * 实际采样频率（自创建以来的平均值）
+     * @return 每秒采样次数
+     */
+    public synchronized double getEffectiveRate() {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        return seconds <= 0 ? 0 : samples / seconds;
+    }
+
+    /**
+     * 平均屏蔽耗时
+     * @return 平均耗时（毫秒），没有屏蔽记录时返回 0
+     */
+    public synchronized double getAverageTimeToBlockMillis() {
+        return blocks == 0 ? 0 : totalTimeToBlockNanos / 1e6 / blocks;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("AdaptivePollingPolicy{delay=%dms, paused=%s, samples=%d, rate=%.2f/s, timeToBlock=%.0fms}",
+                delayMillis, paused, samples, getEffectiveRate(), getAverageTimeToBlockMillis());
+    }
+}
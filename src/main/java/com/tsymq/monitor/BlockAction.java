@@ -0,0 +1,73 @@
+package com.tsymq.monitor;
+
+import com.tsymq.browser.TabSnapshot;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 屏蔽动作（关闭标签页或打开新标签页）
+ * 以（浏览器、窗口、标签页、URL）作为去重键，同一标签页的动作在执行完之前不会重复入队
+ */
+public final class BlockAction {
+
+    /**
+     * 动作优先级，数值小的先执行
+     */
+    public enum Priority {
+        /** 硬编码的色情网站屏蔽 */
+        HARDCODED,
+        /** 用户自定义屏蔽规则 */
+        USER_RULE
+    }
+
+    private final Priority priority;
+    private final String key;
+    private final Runnable task;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    long sequence;
+    long enqueuedNanos;
+
+    /**
+     * @param priority 优先级
+     * @param key 去重键
+     * @param task 要执行的动作
+     */
+    public BlockAction(Priority priority, String key, Runnable task) {
+        this.priority = priority;
+        this.key = key;
+        this.task = task;
+    }
+
+    /**
+     * 针对标签页的动作，去重键由浏览器、窗口、标签页和 URL 组成
+     * @param priority 优先级
+     * @param tab 标签页快照
+     * @param task 要执行的动作
+     * @return 屏蔽动作
+     */
+    public static BlockAction forTab(Priority priority, TabSnapshot tab, Runnable task) {
+        String key = tab.getAppName() + TabSnapshot.FIELD_SEPARATOR + tab.getWindowId()
+                + TabSnapshot.FIELD_SEPARATOR + tab.getTabId() + TabSnapshot.FIELD_SEPARATOR + tab.getUrl();
+        return new BlockAction(priority, key, task);
+    }
+
+    void run() {
+        task.run();
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * 动作执行完（或被丢弃）时结束的 future
+     * @return 完成通知
+     */
+    public CompletableFuture<Void> getCompletion() {
+        return completion;
+    }
+}
@@ -0,0 +1,58 @@
+package com.tsymq.monitor;
+
+import com.tsymq.CommandUtil;
+
+/**
+ * 系统空闲时间检测
+ */
+public interface IdleDetector {
+
+    /**
+     * 获取距离最后一次键盘或鼠标输入的时间
+     * @return 空闲时间（毫秒），无法获取时返回 0
+     */
+    long getIdleMillis();
+
+    /**
+     * 读取 macOS IOHIDSystem 的 HIDIdleTime（纳秒），其他系统始终返回 0
+     * @return 空闲检测器
+     */
+    static IdleDetector system() {
+        if (!System.getProperty("os.name", "").toLowerCase().contains("mac")) {
+            return () -> 0L;
+        }
+        return () -> parseHidIdleTime(CommandUtil.executeCommand(new String[]{"ioreg", "-c", "IOHIDSystem", "-d", "4"}));
+    }
+
+    /**
+     * 从 ioreg 输出中解析 HIDIdleTime
+     * @param output ioreg 输出
+     * @return 空闲时间（毫秒），找不到时返回 0
+     */
+    static long parseHidIdleTime(String output) {
+        int index = output.indexOf("\"HIDIdleTime\"");
+        if (index < 0) {
+            return 0L;
+        }
+        int equals = output.indexOf('=', index);
+        if (equals < 0) {
+            return 0L;
+        }
+        int start = equals + 1;
+        while (start < output.length() && output.charAt(start) == ' ') {
+            start++;
+        }
+        int end = start;
+        while (end < output.length() && Character.isDigit(output.charAt(end))) {
+            end++;
+        }
+        if (end == start) {
+            return 0L;
+        }
+        try {
+            return Long.parseLong(output.substring(start, end)) / 1_000_000L;
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.tsymq.monitor;
+
+import com.tsymq.browser.Browser;
+import com.tsymq.browser.BrowserFactory;
+import com.tsymq.browser.TabSnapshot;
+import com.tsymq.command.CommandRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 全量标签页扫描
+ * 低频列出每个正在运行的浏览器所有窗口的全部标签页（每个浏览器一次脚本调用，各浏览器并行），
+ * 命中屏蔽规则的标签页按浏览器合并成一个关闭动作交给 {@link ActionExecutor}。
+ * 扫描间隔不低于配置值，并且按耗时占比预算拉长：上一次扫描耗时 / 预算
+ */
+public class TabSweeper {
+
+    private final CommandRunner runner;
+    private final Collection<Browser> browsers;
+    private final Function<TabSnapshot, BlockAction.Priority> classifier;
+    private final ActionExecutor actions;
+    private final long intervalMillis;
+    private final double timeBudget;
+
+    private long sweeps;
+    private long tabsScanned;
+    private long tabsClosed;
+    private long lastDurationNanos;
+
+    /**
+     * @param runner 执行查询运行中应用脚本的执行器
+     * @param browsers 支持的浏览器
+     * @param classifier 判断标签页是否需要关闭，返回动作优先级，不需要关闭时返回 null
+     * @param actions 屏蔽动作执行器
+     * @param intervalMillis 最短扫描间隔（毫秒）
+     * @param timeBudget 扫描耗时占比上限（0 到 1）
+     */
+    public TabSweeper(CommandRunner runner, Collection<Browser> browsers,
+                      Function<TabSnapshot, BlockAction.Priority> classifier, ActionExecutor actions,
+                      long intervalMillis, double timeBudget) {
+        if (intervalMillis <= 0 || timeBudget <= 0 || timeBudget > 1) {
+            throw new IllegalArgumentException("Invalid sweep settings: interval=" + intervalMillis + ", budget=" + timeBudget);
+        }
+        this.runner = runner;
+        this.browsers = browsers;
+        this.classifier = classifier;
+        this.actions = actions;
+        this.intervalMillis = intervalMillis;
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * 执行一次全量扫描
+     * @param log 输出日志的回调
+     * @return 提交关闭的标签页数
+     */
+    public CompletableFuture<Integer> sweep(Consumer<String> log) {
+        long start = System.nanoTime();
+        return runner.runAppleScriptAsync(BrowserFactory.getRunningAppsScript())
+            .thenCompose(output -> {
+                Set<String> running = new HashSet<>(Arrays.asList(output.split("\\R")));
+                List<CompletableFuture<Integer>> results = browsers.stream()
+                    .filter(browser -> running.contains(browser.getName()))
+                    .map(browser -> sweepBrowser(browser, log))
+                    .collect(Collectors.toList());
+                return CompletableFuture.allOf(results.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(done -> results.stream().mapToInt(CompletableFuture::join).sum());
+            })
+            .whenComplete((closed, error) -> {
+                synchronized (this) {
+                    sweeps++;
+                    lastDurationNanos = System.nanoTime() - start;
+                }
+                if (error != null) {
+                    System.err.println("Error sweeping tabs: " + error.getMessage());
+                }
+            });
+    }
+
+    private CompletableFuture<Integer> sweepBrowser(Browser browser, Consumer<String> log) {
+        return browser.listTabsAsync()
+            .thenApply(tabs -> {
+                List<TabSnapshot> matched = new ArrayList<>();
+                BlockAction.Priority priority = null;
+                for (TabSnapshot tab : tabs) {
+                    BlockAction.Priority tabPriority = classifier.apply(tab);
+                    if (tabPriority != null) {
+                        matched.add(tab);
+                        if (priority == null || tabPriority.compareTo(priority) < 0) {
+                            priority = tabPriority;
+                        }
+                    }
+                }
+                synchronized (this) {
+                    tabsScanned += tabs.size();
+                }
+                if (matched.isEmpty()) {
+                    return 0;
+                }
+                // 同一浏览器的命中标签页合并成一次关闭，上一次扫描的关闭还没执行完时不再提交
+                BlockAction action = new BlockAction(priority, "sweep" + TabSnapshot.FIELD_SEPARATOR + browser.getName(),
+                        () -> browser.closeTabs(matched));
+                if (!actions.submit(action)) {
+                    return 0;
+                }
+                synchronized (this) {
+                    tabsClosed += matched.size();
+                }
+                log.accept("sweep closed " + matched.size() + " tabs (" + browser.getName() + ")\n");
+                return matched.size();
+            })
+            .exceptionally(e -> {
+                System.err.println("Error listing tabs of " + browser.getName() + ": " + e.getMessage());
+                return 0;
+            });
+    }
+
+    /**
+     * 下一次扫描前的等待时间：不低于最短间隔，且扫描耗时不超过预算占比
+     * @return 等待时间（毫秒）
+     */
+    public synchronized long getNextDelayMillis() {
+        long budgetMillis = (long) Math.ceil(lastDurationNanos / 1e6 / timeBudget);
+        return Math.max(intervalMillis, budgetMillis);
+    }
+
+    public synchronized long getSweeps() {
+        return sweeps;
+    }
+
+    public synchronized long getTabsScanned() {
+        return tabsScanned;
+    }
+
+    public synchronized long getTabsClosed() {
+        return tabsClosed;
+    }
+
+    /**
+     * 上一次扫描的耗时
+     * @return 耗时（毫秒）
+     */
+    public synchronized double getLastDurationMillis() {
+        return lastDurationNanos / 1e6;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("TabSweeper{sweeps=%d, scanned=%d, closed=%d, lastDuration=%.1fms, nextDelay=%dms}",
+                sweeps, tabsScanned, tabsClosed, getLastDurationMillis(), getNextDelayMillis());
+    }
+}
@@ -0,0 +1,93 @@
+package com.tsymq.net;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 固定大小的 ByteBuffer 池
+ * 网络服务按包或按连接借出缓冲区，用完归还，避免每个请求分配（直接内存的分配和回收尤其昂贵）。
+ * 池中最多保留指定数量的空闲缓冲区，超出的归还直接丢弃；线程安全
+ */
+public class BufferPool {
+
+    private final int bufferBytes;
+    private final int maxIdle;
+    private final boolean direct;
+    private final ConcurrentLinkedQueue<ByteBuffer> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong allocations = new AtomicLong();
+
+    /**
+     * @param bufferBytes 每个缓冲区的容量
+     * @param maxIdle 最多保留的空闲缓冲区数
+     * @param direct 是否使用直接内存
+     */
+    public BufferPool(int bufferBytes, int maxIdle, boolean direct) {
+        this.bufferBytes = bufferBytes;
+        this.maxIdle = maxIdle;
+        this.direct = direct;
+    }
+
+    /**
+     * 借出一个已清空的缓冲区
+     * @return 缓冲区
+     */
+    public ByteBuffer acquire() {
+        acquisitions.incrementAndGet();
+        ByteBuffer buffer = idle.poll();
+        if (buffer != null) {
+            idleCount.decrementAndGet();
+            return buffer.clear();
+        }
+        allocations.incrementAndGet();
+        return direct ? ByteBuffer.allocateDirect(bufferBytes) : ByteBuffer.allocate(bufferBytes);
+    }
+
+    /**
+     * 归还缓冲区，归还后调用方不能再使用它
+     * @param buffer 借出的缓冲区
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer.capacity() != bufferBytes || buffer.isDirect() != direct) {
+            throw new IllegalArgumentException("Buffer does not belong to this pool");
+        }
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(buffer);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    public int getBufferBytes() {
+        return bufferBytes;
+    }
+
+    /**
+     * 累计借出次数
+     * @return 借出次数
+     */
+    public long getAcquisitions() {
+        return acquisitions.get();
+    }
+
+    /**
+     * 累计新分配的缓冲区数，远小于借出次数说明缓冲区被复用
+     * @return 分配次数
+     */
+    public long getAllocations() {
+        return allocations.get();
+    }
+
+    public int getIdle() {
+        return idleCount.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BufferPool{bytes=%d, direct=%s, acquisitions=%d, allocations=%d, idle=%d}",
+                bufferBytes, direct, acquisitions.get(), allocations.get(), idleCount.get());
+    }
+}
@@ -0,0 +1,291 @@
+package com.tsymq.net;
+
+import java.nio.ByteBuffer;
+
+/**
+ * DNS 报文（RFC 1035）的读取和改写
+ * 全部使用绝对位置直接读写 ByteBuffer，不复制报文；报文范围为 [0, limit)。
+ * 报文不合法时抛出 {@link IllegalArgumentException}
+ */
+final class DnsMessage {
+
+    static final int HEADER_BYTES = 12;
+    static final int TYPE_A = 1;
+    static final int TYPE_AAAA = 28;
+    static final int TYPE_OPT = 41;
+    static final int CLASS_IN = 1;
+    static final int RCODE_FORMERR = 1;
+    static final int RCODE_SERVFAIL = 2;
+    static final int RCODE_NXDOMAIN = 3;
+
+    private static final int MAX_NAME_BYTES = 255;
+    private static final int MAX_POINTER_JUMPS = 16;
+
+    private DnsMessage() {
+    }
+
+    /**
+     * 问题部分
+     */
+    static final class Question {
+        final String name;
+        final int type;
+        final int qclass;
+        // 问题部分结束后的位置
+        final int end;
+
+        Question(String name, int type, int qclass, int end) {
+            this.name = name;
+            this.type = type;
+            this.qclass = qclass;
+            this.end = end;
+        }
+
+        /**
+         * 缓存键：名字、类型和类别都相同的查询共享回答
+         */
+        String key() {
+            return name + '/' + type + '/' + qclass;
+        }
+    }
+
+    static int id(ByteBuffer message) {
+        return message.getShort(0) & 0xFFFF;
+    }
+
+    static void setId(ByteBuffer message, int id) {
+        message.putShort(0, (short) id);
+    }
+
+    static boolean isResponse(ByteBuffer message) {
+        return (message.get(2) & 0x80) != 0;
+    }
+
+    static boolean isTruncated(ByteBuffer message) {
+        return (message.get(2) & 0x02) != 0;
+    }
+
+    static int rcode(ByteBuffer message) {
+        return message.get(3) & 0x0F;
+    }
+
+    static int questionCount(ByteBuffer message) {
+        return message.getShort(4) & 0xFFFF;
+    }
+
+    static int answerCount(ByteBuffer message) {
+        return message.getShort(6) & 0xFFFF;
+    }
+
+    /**
+     * 读取第一个问题
+     * @param message 报文
+     * @return 问题，名字统一为小写且不带结尾的点
+     */
+    static Question readQuestion(ByteBuffer message) {
+        requireHeader(message);
+        if (questionCount(message) == 0) {
+            throw new IllegalArgumentException("No question");
+        }
+        StringBuilder name = new StringBuilder();
+        int offset = readName(message, HEADER_BYTES, name);
+        require(message, offset + 4);
+        int type = message.getShort(offset) & 0xFFFF;
+        int qclass = message.getShort(offset + 2) & 0xFFFF;
+        return new Question(name.toString(), type, qclass, offset + 4);
+    }
+
+    /**
+     * 读取域名
+     * @param message 报文
+     * @param offset 域名开始的位置
+     * @param name 追加小写的点分域名
+     * @return 域名在原位置结束后的位置（遇到压缩指针时为指针之后）
+     */
+    private static int readName(ByteBuffer message, int offset, StringBuilder name) {
+        int end = -1;
+        int jumps = 0;
+        int position = offset;
+        while (true) {
+            require(message, position + 1);
+            int length = message.get(position) & 0xFF;
+            if ((length & 0xC0) == 0xC0) {
+                require(message, position + 2);
+                if (end < 0) {
+                    end = position + 2;
+                }
+                if (++jumps > MAX_POINTER_JUMPS) {
+                    throw new IllegalArgumentException("Compression loop");
+                }
+                position = ((length & 0x3F) << 8) | (message.get(position + 1) & 0xFF);
+                continue;
+            }
+            if ((length & 0xC0) != 0) {
+                throw new IllegalArgumentException("Unsupported label type");
+            }
+            position++;
+            if (length == 0) {
+                return end < 0 ? position : end;
+            }
+            require(message, position + length);
+            if (name.length() > 0) {
+                name.append('.');
+            }
+            for (int i = 0; i < length; i++) {
+                char c = (char) (message.get(position + i) & 0xFF);
+                name.append(c >= 'A' && c <= 'Z' ? (char) (c + 32) : c);
+            }
+            if (name.length() > MAX_NAME_BYTES) {
+                throw new IllegalArgumentException("Name too long");
+            }
+            position += length;
+        }
+    }
+
+    private static int skipName(ByteBuffer message, int offset) {
+        int position = offset;
+        while (true) {
+            require(message, position + 1);
+            int length = message.get(position) & 0xFF;
+            if ((length & 0xC0) == 0xC0) {
+                return position + 2;
+            }
+            if ((length & 0xC0) != 0) {
+                throw new IllegalArgumentException("Unsupported label type");
+            }
+            position += 1 + length;
+            if (length == 0) {
+                return position;
+            }
+        }
+    }
+
+    /**
+     * 访问回答、授权和附加部分中每条记录的 TTL 字段（跳过 EDNS 的 OPT 记录）
+     */
+    interface TtlVisitor {
+        void visit(int ttlOffset);
+    }
+
+    static void forEachTtl(ByteBuffer message, TtlVisitor visitor) {
+        requireHeader(message);
+        int offset = HEADER_BYTES;
+        for (int i = questionCount(message); i > 0; i--) {
+            offset = skipName(message, offset) + 4;
+        }
+        int records = answerCount(message) + (message.getShort(8) & 0xFFFF) + (message.getShort(10) & 0xFFFF);
+        for (int i = 0; i < records; i++) {
+            offset = skipName(message, offset);
+            require(message, offset + 10);
+            int type = message.getShort(offset) & 0xFFFF;
+            int dataLength = message.getShort(offset + 8) & 0xFFFF;
+            if (type != TYPE_OPT) {
+                visitor.visit(offset + 4);
+            }
+            offset += 10 + dataLength;
+            require(message, offset);
+        }
+    }
+
+    /**
+     * 所有记录中最小的 TTL
+     * @param message 回答报文
+     * @return 最小 TTL（秒），没有记录时返回 -1
+     */
+    static long minTtl(ByteBuffer message) {
+        long[] min = {-1};
+        forEachTtl(message, offset -> {
+            long ttl = message.getInt(offset) & 0xFFFFFFFFL;
+            if (min[0] < 0 || ttl < min[0]) {
+                min[0] = ttl;
+            }
+        });
+        return min[0];
+    }
+
+    /**
+     * 把所有记录的 TTL 减去已缓存的时间（缓存命中时使用）
+     * @param message 回答报文
+     * @param elapsedSeconds 已缓存的秒数
+     */
+    static void decrementTtls(ByteBuffer message, long elapsedSeconds) {
+        if (elapsedSeconds <= 0) {
+            return;
+        }
+        forEachTtl(message, offset -> {
+            long ttl = message.getInt(offset) & 0xFFFFFFFFL;
+            message.putInt(offset, (int) Math.max(0, ttl - elapsedSeconds));
+        });
+    }
+
+    /**
+     * 把查询就地改写为只带问题部分的回答
+     * @param message 查询报文
+     * @param question 已读取的问题
+     * @param rcode 回答码
+     */
+    static void toResponse(ByteBuffer message, Question question, int rcode) {
+        // 保留 opcode 和 RD，置 QR 和 RA
+        message.put(2, (byte) (0x80 | (message.get(2) & 0x79)));
+        message.put(3, (byte) (0x80 | rcode));
+        message.putShort(4, (short) 1);
+        message.putShort(6, (short) 0);
+        message.putShort(8, (short) 0);
+        message.putShort(10, (short) 0);
+        message.limit(question.end).position(0);
+    }
+
+    /**
+     * 把查询就地改写为只有报头的错误回答（问题部分无法解析时）
+     * @param message 查询报文
+     * @param rcode 回答码
+     */
+    static void toErrorResponse(ByteBuffer message, int rcode) {
+        requireHeader(message);
+        message.put(2, (byte) (0x80 | (message.get(2) & 0x79)));
+        message.put(3, (byte) (0x80 | rcode));
+        for (int offset = 4; offset < HEADER_BYTES; offset += 2) {
+            message.putShort(offset, (short) 0);
+        }
+        message.limit(HEADER_BYTES).position(0);
+    }
+
+    /**
+     * 把查询就地改写为屏蔽回答：A 查询回答 0.0.0.0，AAAA 查询回答 ::，其他类型没有记录
+     * @param message 查询报文（容量至少能容纳一条 AAAA 记录）
+     * @param question 已读取的问题
+     * @param ttlSeconds 回答的 TTL
+     */
+    static void toNullAddressResponse(ByteBuffer message, Question question, long ttlSeconds) {
+        toResponse(message, question, 0);
+        int addressBytes = question.qclass != CLASS_IN ? 0
+                : question.type == TYPE_A ? 4
+                : question.type == TYPE_AAAA ? 16 : 0;
+        if (addressBytes == 0) {
+            return;
+        }
+        int offset = question.end;
+        message.limit(message.capacity());
+        // 名字指向问题中的域名（偏移 12）
+        message.putShort(offset, (short) (0xC000 | HEADER_BYTES));
+        message.putShort(offset + 2, (short) question.type);
+        message.putShort(offset + 4, (short) CLASS_IN);
+        message.putInt(offset + 6, (int) ttlSeconds);
+        message.putShort(offset + 10, (short) addressBytes);
+        for (int i = 0; i < addressBytes; i++) {
+            message.put(offset + 12 + i, (byte) 0);
+        }
+        message.putShort(6, (short) 1);
+        message.limit(offset + 12 + addressBytes).position(0);
+    }
+
+    private static void requireHeader(ByteBuffer message) {
+        require(message, HEADER_BYTES);
+    }
+
+    private static void require(ByteBuffer message, int end) {
+        if (end > message.limit()) {
+            throw new IllegalArgumentException("Truncated DNS message");
+        }
+    }
+}
@@ -0,0 +1,450 @@
+package com.tsymq.net;
+
+import com.tsymq.config.AppConfig;
+import com.tsymq.rule.Verdict;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * 本机 DNS 存根解析器
+ * 单线程 NIO 选择器，在 UDP 端口上接收查询：被屏蔽的域名直接回答（0.0.0.0 / :: 或 NXDOMAIN），
+ * 其他查询换一个随机报文 ID 转发给上游，回答按 TTL 缓存。
+ * 每次查询都先判定再查缓存，学习模式切换和规则修改立即生效。
+ * 报文在池化的缓冲区上就地解析和改写，只有写入缓存时才复制
+ */
+public class DnsSinkhole implements AutoCloseable {
+
+    // 覆盖 EDNS 常用的报文大小
+    static final int PACKET_BYTES = 4096;
+    private static final int MAX_PENDING = 4096;
+    // 选择器的最长等待时间，按这个间隔检查上游超时
+    private static final long TICK_MILLIS = 100;
+
+    private final Function<String, Verdict> evaluator;
+    private final boolean nxdomain;
+    private final BufferPool pool;
+    private final LongSupplier nanoClock;
+    private final long timeoutNanos;
+    private final Selector selector;
+    private final DatagramChannel listener;
+    private final DatagramChannel upstream;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // 以下两个表只在选择器线程中访问
+    // 等待上游回答的查询，按转发顺序排列，键为转发时使用的报文 ID
+    private final Map<Integer, Pending> pending = new LinkedHashMap<>();
+    private final Map<String, CachedAnswer> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedAnswer> eldest) {
+            return size() > AppConfig.DNS_CACHE_CAPACITY;
+        }
+    };
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong forwarded = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+
+    /**
+     * 绑定地址，调用 {@link #start()} 后开始服务
+     * @param address 监听地址（端口为 0 时自动分配）
+     * @param upstreamAddress 上游 DNS 服务器
+     * @param evaluator 按域名（小写、不带结尾的点）判定是否屏蔽
+     * @param nxdomain 屏蔽时回答 NXDOMAIN，否则回答空地址
+     * @param pool 报文缓冲区池，缓冲区容量至少为 {@link #PACKET_BYTES}
+     * @param nanoClock 计算缓存过期和上游超时的时钟
+     * @throws IOException 端口被占用等
+     */
+    public DnsSinkhole(InetSocketAddress address, InetSocketAddress upstreamAddress, Function<String, Verdict> evaluator,
+                       boolean nxdomain, BufferPool pool, LongSupplier nanoClock) throws IOException {
+        if (pool.getBufferBytes() < PACKET_BYTES) {
+            throw new IllegalArgumentException("Buffers must hold " + PACKET_BYTES + " bytes");
+        }
+        this.evaluator = evaluator;
+        this.nxdomain = nxdomain;
+        this.pool = pool;
+        this.nanoClock = nanoClock;
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(AppConfig.DNS_UPSTREAM_TIMEOUT_MS);
+        this.selector = Selector.open();
+        this.listener = DatagramChannel.open();
+        this.upstream = DatagramChannel.open();
+        try {
+            listener.bind(address);
+            listener.configureBlocking(false);
+            listener.register(selector, SelectionKey.OP_READ);
+            upstream.connect(upstreamAddress);
+            upstream.configureBlocking(false);
+            upstream.register(selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            listener.close();
+            upstream.close();
+            selector.close();
+            throw e;
+        }
+        this.thread = new Thread(this::selectLoop, "dns-sinkhole");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * 在 127.0.0.1 上监听，使用配置中的屏蔽方式
+     * @param port 端口，0 表示自动分配
+     * @param upstreamAddress 上游 DNS 服务器
+     * @param evaluator 按域名判定
+     * @return 未启动的解析器
+     */
+    public static DnsSinkhole loopback(int port, InetSocketAddress upstreamAddress, Function<String, Verdict> evaluator)
+            throws IOException {
+        return new DnsSinkhole(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), upstreamAddress, evaluator,
+                AppConfig.DNS_BLOCK_WITH_NXDOMAIN, new BufferPool(PACKET_BYTES, 64, true), System::nanoTime);
+    }
+
+    /**
+     * 解析“主机:端口”形式的上游地址，省略端口时使用 53
+     * @param hostAndPort 上游地址
+     * @return 套接字地址
+     */
+    public static InetSocketAddress parseUpstream(String hostAndPort) {
+        int colon = hostAndPort.lastIndexOf(':');
+        if (colon > 0 && hostAndPort.indexOf(':') == colon) {
+            return new InetSocketAddress(hostAndPort.substring(0, colon),
+                    Integer.parseInt(hostAndPort.substring(colon + 1)));
+        }
+        return new InetSocketAddress(hostAndPort, 53);
+    }
+
+    public DnsSinkhole start() {
+        thread.start();
+        return this;
+    }
+
+    public int getPort() {
+        return listener.socket().getLocalPort();
+    }
+
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select(TICK_MILLIS);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid() || !key.isReadable()) {
+                        continue;
+                    }
+                    if (key.channel() == listener) {
+                        receiveQueries();
+                    } else {
+                        receiveAnswers();
+                    }
+                }
+                expirePending();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.err.println("DNS sinkhole stopped: " + e.getMessage());
+            }
+        }
+    }
+
+    private void receiveQueries() throws IOException {
+        while (true) {
+            ByteBuffer packet = pool.acquire();
+            try {
+                SocketAddress client = listener.receive(packet);
+                if (client == null) {
+                    return;
+                }
+                packet.flip();
+                handleQuery(packet, client);
+            } finally {
+                pool.release(packet);
+            }
+        }
+    }
+
+    private void handleQuery(ByteBuffer packet, SocketAddress client) throws IOException {
+        if (packet.remaining() < DnsMessage.HEADER_BYTES || DnsMessage.isResponse(packet)) {
+            return;
+        }
+        queries.incrementAndGet();
+        DnsMessage.Question question;
+        try {
+            question = DnsMessage.readQuestion(packet);
+        } catch (IllegalArgumentException e) {
+            DnsMessage.toErrorResponse(packet, DnsMessage.RCODE_FORMERR);
+            listener.send(packet, client);
+            return;
+        }
+
+        if (isBlocked(question.name)) {
+            blocked.incrementAndGet();
+            if (nxdomain) {
+                DnsMessage.toResponse(packet, question, DnsMessage.RCODE_NXDOMAIN);
+            } else {
+                DnsMessage.toNullAddressResponse(packet, question, AppConfig.DNS_BLOCKED_TTL_S);
+            }
+            listener.send(packet, client);
+            return;
+        }
+
+        int clientId = DnsMessage.id(packet);
+        long now = nanoClock.getAsLong();
+        CachedAnswer cached = cache.get(question.key());
+        if (cached != null && now < cached.expiresNanos) {
+            cacheHits.incrementAndGet();
+            packet.clear();
+            packet.put(cached.message).flip();
+            DnsMessage.setId(packet, clientId);
+            DnsMessage.decrementTtls(packet, TimeUnit.NANOSECONDS.toSeconds(now - cached.storedNanos));
+            listener.send(packet, client);
+            return;
+        }
+        if (cached != null) {
+            cache.remove(question.key());
+        }
+
+        if (pending.size() >= MAX_PENDING) {
+            DnsMessage.toResponse(packet, question, DnsMessage.RCODE_SERVFAIL);
+            listener.send(packet, client);
+            return;
+        }
+        int upstreamId;
+        do {
+            upstreamId = ThreadLocalRandom.current().nextInt(0x10000);
+        } while (pending.containsKey(upstreamId));
+        byte[] query = new byte[question.end];
+        packet.duplicate().position(0).get(query);
+        pending.put(upstreamId, new Pending(client, clientId, question.key(), query, now));
+        DnsMessage.setId(packet, upstreamId);
+        forwarded.incrementAndGet();
+        upstream.write(packet);
+    }
+
+    private boolean isBlocked(String domain) {
+        if (domain.isEmpty()) {
+            return false;
+        }
+        try {
+            return evaluator.apply(domain).isBlocked();
+        } catch (RuntimeException e) {
+            System.err.println("Error evaluating " + domain + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void receiveAnswers() throws IOException {
+        while (true) {
+            ByteBuffer packet = pool.acquire();
+            try {
+                int read;
+                try {
+                    read = upstream.read(packet);
+                } catch (PortUnreachableException e) {
+                    // 上游端口不可达，等待的查询会因超时回答 SERVFAIL
+                    continue;
+                }
+                if (read <= 0) {
+                    return;
+                }
+                packet.flip();
+                handleAnswer(packet);
+            } finally {
+                pool.release(packet);
+            }
+        }
+    }
+
+    private void handleAnswer(ByteBuffer packet) throws IOException {
+        if (packet.remaining() < DnsMessage.HEADER_BYTES || !DnsMessage.isResponse(packet)) {
+            return;
+        }
+        Pending query = pending.get(DnsMessage.id(packet));
+        if (query == null) {
+            return;
+        }
+        DnsMessage.Question question;
+        try {
+            question = DnsMessage.readQuestion(packet);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        if (!question.key().equals(query.key)) {
+            // ID 碰上但问题不同，不是这次查询的回答
+            return;
+        }
+        pending.remove(DnsMessage.id(packet));
+        DnsMessage.setId(packet, query.clientId);
+        cacheAnswer(packet, query.key);
+        listener.send(packet, query.client);
+    }
+
+    private void cacheAnswer(ByteBuffer packet, String key) {
+        int rcode = DnsMessage.rcode(packet);
+        if (DnsMessage.isTruncated(packet) || (rcode != 0 && rcode != DnsMessage.RCODE_NXDOMAIN)) {
+            return;
+        }
+        long ttl;
+        try {
+            ttl = rcode == DnsMessage.RCODE_NXDOMAIN || DnsMessage.answerCount(packet) == 0
+                    ? AppConfig.DNS_NEGATIVE_TTL_S
+                    : Math.min(DnsMessage.minTtl(packet), AppConfig.DNS_CACHE_MAX_TTL_S);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        if (ttl <= 0) {
+            return;
+        }
+        byte[] message = new byte[packet.remaining()];
+        packet.duplicate().get(message);
+        long now = nanoClock.getAsLong();
+        cache.put(key, new CachedAnswer(message, now, now + TimeUnit.SECONDS.toNanos(ttl)));
+    }
+
+    /**
+     * 上游超时未回答的查询回答 SERVFAIL
+     */
+    private void expirePending() throws IOException {
+        if (pending.isEmpty()) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        Iterator<Pending> iterator = pending.values().iterator();
+        while (iterator.hasNext()) {
+            Pending query = iterator.next();
+            if (now - query.sentNanos < timeoutNanos) {
+                // 按转发顺序排列，后面的都还没有超时
+                return;
+            }
+            iterator.remove();
+            timeouts.incrementAndGet();
+            ByteBuffer packet = pool.acquire();
+            try {
+                packet.put(query.query).flip();
+                DnsMessage.setId(packet, query.clientId);
+                DnsMessage.toResponse(packet, DnsMessage.readQuestion(packet), DnsMessage.RCODE_SERVFAIL);
+                listener.send(packet, query.client);
+            } finally {
+                pool.release(packet);
+            }
+        }
+    }
+
+    /**
+     * 已转发、等待上游回答的查询
+     */
+    private static class Pending {
+        final SocketAddress client;
+        final int clientId;
+        final String key;
+        // 查询的报头和问题部分，超时时据此回答 SERVFAIL
+        final byte[] query;
+        final long sentNanos;
+
+        Pending(SocketAddress client, int clientId, String key, byte[] query, long sentNanos) {
+            this.client = client;
+            this.clientId = clientId;
+            this.key = key;
+            this.query = query;
+            this.sentNanos = sentNanos;
+        }
+    }
+
+    /**
+     * 缓存的上游回答，命中时按已缓存的时间减少 TTL
+     */
+    private static class CachedAnswer {
+        final byte[] message;
+        final long storedNanos;
+        final long expiresNanos;
+
+        CachedAnswer(byte[] message, long storedNanos, long expiresNanos) {
+            this.message = message;
+            this.storedNanos = storedNanos;
+            this.expiresNanos = expiresNanos;
+        }
+    }
+
+    /**
+     * 累计收到的查询数
+     * @return 查询数
+     */
+    public long getQueries() {
+        return queries.get();
+    }
+
+    /**
+     * 累计直接回答的屏蔽查询数
+     * @return 屏蔽数
+     */
+    public long getBlocked() {
+        return blocked.get();
+    }
+
+    /**
+     * 累计转发给上游的查询数
+     * @return 转发数
+     */
+    public long getForwarded() {
+        return forwarded.get();
+    }
+
+    /**
+     * 累计由缓存回答的查询数
+     * @return 缓存命中数
+     */
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /**
+     * 累计上游超时的查询数
+     * @return 超时数
+     */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            selector.close();
+            listener.close();
+            upstream.close();
+        } catch (IOException e) {
+            System.err.println("Error closing DNS sinkhole: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DnsSinkhole{port=%d, queries=%d, blocked=%d, forwarded=%d, cacheHits=%d, timeouts=%d, pool=%s}",
+                getPort(), queries.get(), blocked.get(), forwarded.get(), cacheHits.get(), timeouts.get(), pool);
+    }
+}
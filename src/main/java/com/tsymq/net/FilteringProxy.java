@@ -0,0 +1,640 @@
+package com.tsymq.net;
+
+import com.tsymq.config.AppConfig;
+import com.tsymq.rule.Verdict;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 本机过滤代理
+ * 单线程 NIO 选择器实现的 HTTP 正向代理：CONNECT 请求按目标主机判定，普通 HTTP 请求按请求中的完整 URL 判定，
+ * 被屏蔽的请求回复 403，其他请求连接目标后在两个通道间双向转发。
+ * 浏览器通过 {@link #PAC_PATH} 提供的 PAC 脚本选择这个代理。
+ * <p>
+ * 每个连接从缓冲区池借两个直接缓冲区（每个方向一个），数据从一个通道读入后原样写到另一个通道，不经过堆内存；
+ * 写不完时暂停读取来源通道，直到对方取走数据。域名解析在单独的线程中进行，不阻塞选择器线程
+ */
+public class FilteringProxy implements AutoCloseable {
+
+    public static final String PAC_PATH = "/proxy.pac";
+
+    private final Function<String, Verdict> evaluator;
+    private final BufferPool pool;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private final ExecutorService resolver;
+    // 解析完成后交回选择器线程执行的任务
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private volatile boolean running = true;
+
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong relayedBytes = new AtomicLong();
+
+    /**
+     * 绑定地址，调用 {@link #start()} 后开始服务
+     * @param address 监听地址（端口为 0 时自动分配）
+     * @param evaluator 按 URL 判定，CONNECT 请求的 URL 为 https://主机/
+     * @param pool 转发缓冲区池，请求头必须能放进一个缓冲区
+     * @throws IOException 端口被占用等
+     */
+    public FilteringProxy(InetSocketAddress address, Function<String, Verdict> evaluator, BufferPool pool)
+            throws IOException {
+        this.evaluator = evaluator;
+        this.pool = pool;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        try {
+            server.bind(address, AppConfig.PROXY_BACKLOG);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        this.thread = new Thread(this::selectLoop, "filtering-proxy");
+        thread.setDaemon(true);
+        this.resolver = Executors.newFixedThreadPool(AppConfig.PROXY_RESOLVER_THREADS, runnable -> {
+            Thread resolverThread = new Thread(runnable, "filtering-proxy-resolver");
+            resolverThread.setDaemon(true);
+            return resolverThread;
+        });
+    }
+
+    /**
+     * 在 127.0.0.1 上监听，使用配置中的缓冲区大小
+     * @param port 端口，0 表示自动分配
+     * @param evaluator 按 URL 判定
+     * @return 未启动的代理
+     */
+    public static FilteringProxy loopback(int port, Function<String, Verdict> evaluator) throws IOException {
+        return new FilteringProxy(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), evaluator,
+                new BufferPool(AppConfig.PROXY_BUFFER_BYTES, AppConfig.PROXY_POOL_MAX_IDLE, true));
+    }
+
+    /**
+     * 生成 PAC 脚本：本机地址直连，其他请求都经过代理
+     * @param port 代理端口
+     * @return PAC 脚本
+     */
+    public static String pacScript(int port) {
+        return "function FindProxyForURL(url, host) {\n"
+                + "    if (isPlainHostName(host) || host == \"localhost\" || host == \"127.0.0.1\" || host == \"[::1]\") {\n"
+                + "        return \"DIRECT\";\n"
+                + "    }\n"
+                + "    return \"PROXY 127.0.0.1:" + port + "\";\n"
+                + "}\n";
+    }
+
+    public FilteringProxy start() {
+        thread.start();
+        return this;
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * 系统代理设置中填写的自动配置地址
+     * @return PAC 地址
+     */
+    public String getPacUrl() {
+        return "http://127.0.0.1:" + getPort() + PAC_PATH;
+    }
+
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select();
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Tunnel tunnel = (Tunnel) key.attachment();
+                        try {
+                            tunnel.onReady(key);
+                        } catch (IOException e) {
+                            tunnel.close();
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.err.println("Filtering proxy stopped: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = server.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            Tunnel tunnel = new Tunnel(channel);
+            tunnel.clientKey = channel.register(selector, SelectionKey.OP_READ, tunnel);
+            connections.incrementAndGet();
+            active.incrementAndGet();
+        }
+    }
+
+    /**
+     * 请求的目标
+     */
+    private static class Target {
+        final String host;
+        final int port;
+
+        Target(String host, int port) {
+            this.host = host;
+            this.port = port;
+        }
+
+        /**
+         * 解析“主机[:端口]”，IPv6 地址带方括号
+         */
+        static Target parse(String authority, int defaultPort) {
+            String hostPort = authority.substring(authority.lastIndexOf('@') + 1);
+            String host;
+            String port = null;
+            if (hostPort.startsWith("[")) {
+                int close = hostPort.indexOf(']');
+                if (close < 0) {
+                    throw new IllegalArgumentException("Bad authority: " + authority);
+                }
+                host = hostPort.substring(1, close);
+                if (hostPort.startsWith(":", close + 1)) {
+                    port = hostPort.substring(close + 2);
+                }
+            } else {
+                int colon = hostPort.indexOf(':');
+                host = colon < 0 ? hostPort : hostPort.substring(0, colon);
+                port = colon < 0 ? null : hostPort.substring(colon + 1);
+            }
+            if (host.isEmpty()) {
+                throw new IllegalArgumentException("Missing host: " + authority);
+            }
+            int portNumber = port == null || port.isEmpty() ? defaultPort : Integer.parseInt(port);
+            if (portNumber <= 0 || portNumber > 0xFFFF) {
+                throw new IllegalArgumentException("Bad port: " + authority);
+            }
+            return new Target(host.toLowerCase(Locale.ROOT), portNumber);
+        }
+    }
+
+    /**
+     * 单向的数据流：从来源通道读入缓冲区，再写到目标通道
+     * 缓冲区处于写入状态，[0, position) 为待发送的数据
+     */
+    private class Flow {
+        final ByteBuffer buffer = pool.acquire();
+        SocketChannel source;
+        SocketChannel sink;
+        // 来源已关闭写方向
+        boolean eof;
+        // 已把关闭传递给目标
+        boolean shut;
+
+        void read() throws IOException {
+            if (eof || !buffer.hasRemaining()) {
+                return;
+            }
+            if (source.read(buffer) < 0) {
+                eof = true;
+            }
+        }
+
+        void flush() throws IOException {
+            if (sink == null) {
+                return;
+            }
+            if (buffer.position() > 0) {
+                buffer.flip();
+                relayedBytes.addAndGet(sink.write(buffer));
+                buffer.compact();
+            }
+            if (eof && !shut && buffer.position() == 0) {
+                sink.shutdownOutput();
+                shut = true;
+            }
+        }
+
+        boolean wantsRead() {
+            return !eof && buffer.hasRemaining();
+        }
+
+        boolean hasPending() {
+            return buffer.position() > 0;
+        }
+    }
+
+    /**
+     * 一个客户端连接及其对应的目标连接
+     */
+    private class Tunnel {
+
+        final SocketChannel client;
+        SelectionKey clientKey;
+        SocketChannel upstream;
+        SelectionKey upstreamKey;
+        // 客户端到目标；目标连接建立前存放请求头
+        final Flow up = new Flow();
+        // 目标到客户端；目标连接建立前存放代理自己的回复
+        final Flow down = new Flow();
+        // 已读完请求头
+        boolean headParsed;
+        // 回复代理自己的响应后关闭
+        boolean closing;
+        boolean closed;
+        // CONNECT 请求，连接建立后回复 200
+        boolean connectRequest;
+
+        Tunnel(SocketChannel client) {
+            this.client = client;
+            up.source = client;
+            down.sink = client;
+        }
+
+        void onReady(SelectionKey key) throws IOException {
+            if (key == upstreamKey && key.isConnectable()) {
+                try {
+                    if (!upstream.finishConnect()) {
+                        return;
+                    }
+                } catch (IOException e) {
+                    onConnectFailed(e);
+                    return;
+                }
+                onConnected();
+                return;
+            }
+            if (key.isReadable()) {
+                if (key == clientKey) {
+                    up.read();
+                    if (!headParsed) {
+                        parseHead();
+                    }
+                } else {
+                    down.read();
+                }
+            }
+            pump();
+        }
+
+        /**
+         * 在两个方向上发送缓冲区中的数据，并按缓冲区状态调整关注的事件
+         */
+        void pump() throws IOException {
+            if (closed) {
+                return;
+            }
+            up.flush();
+            down.flush();
+            if (closing) {
+                if (!down.hasPending()) {
+                    close();
+                } else {
+                    clientKey.interestOps(SelectionKey.OP_WRITE);
+                }
+                return;
+            }
+            if (up.shut && down.shut) {
+                close();
+                return;
+            }
+            if (!headParsed) {
+                clientKey.interestOps(up.wantsRead() ? SelectionKey.OP_READ : 0);
+                if (up.eof) {
+                    close();
+                }
+                return;
+            }
+            if (upstreamKey == null || upstreamKey.interestOps() == SelectionKey.OP_CONNECT) {
+                // 正在解析或连接目标
+                return;
+            }
+            clientKey.interestOps((up.wantsRead() ? SelectionKey.OP_READ : 0)
+                    | (down.hasPending() ? SelectionKey.OP_WRITE : 0));
+            upstreamKey.interestOps((down.wantsRead() ? SelectionKey.OP_READ : 0)
+                    | (up.hasPending() ? SelectionKey.OP_WRITE : 0));
+        }
+
+        /**
+         * 请求头读完后判定并连接目标；请求头之后已读到的数据留在缓冲区中，连接后转发
+         */
+        private void parseHead() throws IOException {
+            ByteBuffer buffer = up.buffer;
+            int headEnd = indexOfHeadEnd(buffer);
+            if (headEnd < 0) {
+                if (!buffer.hasRemaining()) {
+                    respond(431, "Request Header Fields Too Large", "text/plain", "Request header too large\n");
+                }
+                return;
+            }
+            headParsed = true;
+            byte[] head = new byte[headEnd];
+            buffer.duplicate().position(0).get(head);
+            String[] lines = new String(head, StandardCharsets.ISO_8859_1).split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3) {
+                respond(400, "Bad Request", "text/plain", "Malformed request line\n");
+                return;
+            }
+            String method = requestLine[0];
+            String target = requestLine[1];
+            String version = requestLine[2];
+
+            Target destination;
+            String url;
+            String forwardedHead = null;
+            try {
+                if (method.equals("CONNECT")) {
+                    destination = Target.parse(target, 443);
+                    url = "https://" + destination.host + "/";
+                    connectRequest = true;
+                } else if (target.regionMatches(true, 0, "http://", 0, 7)) {
+                    int pathStart = target.indexOf('/', 7);
+                    int queryStart = target.indexOf('?', 7);
+                    int authorityEnd = pathStart < 0 ? queryStart
+                            : queryStart < 0 ? pathStart : Math.min(pathStart, queryStart);
+                    String authority = authorityEnd < 0 ? target.substring(7) : target.substring(7, authorityEnd);
+                    String path = authorityEnd < 0 ? "/" : target.substring(authorityEnd);
+                    destination = Target.parse(authority, 80);
+                    url = target;
+                    forwardedHead = originFormHead(method, path.startsWith("?") ? "/" + path : path, version, lines);
+                } else if (method.equals("GET") && target.equals(PAC_PATH)) {
+                    respond(200, "OK", "application/x-ns-proxy-autoconfig", pacScript(getPort()));
+                    return;
+                } else {
+                    respond(400, "Bad Request", "text/plain", "Only proxy requests are accepted\n");
+                    return;
+                }
+            } catch (IllegalArgumentException e) {
+                respond(400, "Bad Request", "text/plain", e.getMessage() + "\n");
+                return;
+            }
+
+            if (isBlocked(url)) {
+                blocked.incrementAndGet();
+                respond(403, "Forbidden", "text/plain", "Blocked by " + AppConfig.APP_NAME + ": " + destination.host + "\n");
+                return;
+            }
+
+            // 去掉请求头，CONNECT 请求不转发请求头，普通请求转发改写后的请求头
+            int rest = buffer.position() - headEnd - 4;
+            byte[] body = new byte[rest];
+            buffer.duplicate().position(headEnd + 4).get(body);
+            buffer.clear();
+            if (forwardedHead != null) {
+                byte[] bytes = forwardedHead.getBytes(StandardCharsets.ISO_8859_1);
+                if (bytes.length + body.length > buffer.capacity()) {
+                    respond(431, "Request Header Fields Too Large", "text/plain", "Request header too large\n");
+                    return;
+                }
+                buffer.put(bytes);
+            }
+            buffer.put(body);
+            clientKey.interestOps(0);
+            resolve(destination);
+        }
+
+        private void resolve(Target destination) {
+            try {
+                resolver.execute(() -> {
+                    InetSocketAddress address = new InetSocketAddress(destination.host, destination.port);
+                    tasks.add(() -> connect(address));
+                    selector.wakeup();
+                });
+            } catch (RejectedExecutionException e) {
+                close();
+            }
+        }
+
+        private void connect(InetSocketAddress address) {
+            if (closed) {
+                return;
+            }
+            try {
+                if (address.isUnresolved()) {
+                    respond(502, "Bad Gateway", "text/plain", "Unknown host: " + address.getHostString() + "\n");
+                    return;
+                }
+                upstream = SocketChannel.open();
+                upstream.configureBlocking(false);
+                upstream.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                up.sink = upstream;
+                down.source = upstream;
+                boolean connected = upstream.connect(address);
+                upstreamKey = upstream.register(selector, connected ? 0 : SelectionKey.OP_CONNECT, this);
+                if (connected) {
+                    onConnected();
+                }
+            } catch (IOException e) {
+                onConnectFailed(e);
+            }
+        }
+
+        private void onConnected() throws IOException {
+            if (connectRequest) {
+                down.buffer.put("HTTP/1.1 200 Connection Established\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            }
+            upstreamKey.interestOps(SelectionKey.OP_READ);
+            pump();
+        }
+
+        void onConnectFailed(IOException e) {
+            if (upstream != null) {
+                if (upstreamKey != null) {
+                    upstreamKey.cancel();
+                }
+                try {
+                    upstream.close();
+                } catch (IOException ignored) {
+                    // 忽略
+                }
+                upstream = null;
+                upstreamKey = null;
+                up.sink = null;
+            }
+            try {
+                respond(502, "Bad Gateway", "text/plain", "Cannot connect: " + e.getMessage() + "\n");
+            } catch (IOException ex) {
+                close();
+            }
+        }
+
+        /**
+         * 回复代理自己的响应并在发送后关闭连接
+         */
+        private void respond(int status, String reason, String contentType, String body) throws IOException {
+            byte[] content = body.getBytes(StandardCharsets.UTF_8);
+            String head = "HTTP/1.1 " + status + " " + reason + "\r\n"
+                    + "Content-Type: " + contentType + "\r\n"
+                    + "Content-Length: " + content.length + "\r\n"
+                    + "Connection: close\r\n\r\n";
+            down.buffer.clear();
+            down.buffer.put(head.getBytes(StandardCharsets.ISO_8859_1));
+            down.buffer.put(content, 0, Math.min(content.length, down.buffer.remaining()));
+            headParsed = true;
+            closing = true;
+            pump();
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            active.decrementAndGet();
+            closeQuietly(clientKey, client);
+            if (upstream != null) {
+                closeQuietly(upstreamKey, upstream);
+            }
+            pool.release(up.buffer);
+            pool.release(down.buffer);
+        }
+
+        private void closeQuietly(SelectionKey key, SocketChannel channel) {
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+    }
+
+    private boolean isBlocked(String url) {
+        try {
+            return evaluator.apply(url).isBlocked();
+        } catch (RuntimeException e) {
+            System.err.println("Error evaluating " + url + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 请求头结束（\r\n\r\n）的位置
+     * @return 第一个 \r 的位置，未找到时返回 -1
+     */
+    private static int indexOfHeadEnd(ByteBuffer buffer) {
+        for (int i = 0; i + 3 < buffer.position(); i++) {
+            if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n' && buffer.get(i + 2) == '\r' && buffer.get(i + 3) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 把代理形式的请求改写为发给目标的请求：请求行使用路径，去掉逐跳首部，
+     * 并要求目标在响应后关闭连接，同一连接上的下一个请求（可能是另一个主机）由浏览器重新发起并重新判定
+     */
+    private static String originFormHead(String method, String path, String version, String[] lines) {
+        StringBuilder head = new StringBuilder(method).append(' ').append(path).append(' ').append(version).append("\r\n");
+        for (int i = 1; i < lines.length; i++) {
+            String name = lines[i].substring(0, Math.max(0, lines[i].indexOf(':'))).trim().toLowerCase(Locale.ROOT);
+            if (name.equals("connection") || name.equals("proxy-connection") || name.equals("keep-alive")
+                    || name.equals("proxy-authorization")) {
+                continue;
+            }
+            head.append(lines[i]).append("\r\n");
+        }
+        return head.append("Connection: close\r\n\r\n").toString();
+    }
+
+    /**
+     * 累计接受的连接数
+     * @return 连接数
+     */
+    public long getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * 当前打开的客户端连接数
+     * @return 连接数
+     */
+    public int getActiveConnections() {
+        return active.get();
+    }
+
+    /**
+     * 累计回复 403 的请求数
+     * @return 屏蔽数
+     */
+    public long getBlocked() {
+        return blocked.get();
+    }
+
+    /**
+     * 累计转发的字节数（两个方向合计，包括代理自己的回复）
+     * @return 字节数
+     */
+    public long getRelayedBytes() {
+        return relayedBytes.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        resolver.shutdownNow();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+            server.close();
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println("Error closing filtering proxy: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FilteringProxy{port=%d, connections=%d, active=%d, blocked=%d, relayedBytes=%d, pool=%s}",
+                getPort(), connections.get(), active.get(), blocked.get(), relayedBytes.get(), pool);
+    }
+}
@@ -0,0 +1,172 @@
+package com.tsymq.net;
+
+import com.tsymq.rule.Verdict;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本地 URL 判定服务的客户端
+ * 保持一条连接；{@link #sendQuery} 只写入缓冲区，配合 {@link #flush()} 和 {@link #readVerdict()} 可以流水线发送。
+ * 不是线程安全的
+ */
+public class VerdictClient implements AutoCloseable {
+
+    private final Socket socket;
+    private final OutputStream out;
+    private final BufferedReader in;
+
+    private VerdictClient(Socket socket) throws IOException {
+        this.socket = socket;
+        this.out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+        this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8), 16 * 1024);
+    }
+
+    /**
+     * 连接本机的判定服务
+     * @param port 端口
+     * @param timeoutMillis 连接和读取的超时时间
+     * @return 客户端
+     * @throws IOException 服务未运行等
+     */
+    public static VerdictClient connect(int port, int timeoutMillis) throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), timeoutMillis);
+            socket.setSoTimeout(timeoutMillis);
+            return new VerdictClient(socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    public Verdict query(String url) throws IOException {
+        return query(url, "");
+    }
+
+    /**
+     * 查询一个 URL，标题命中白名单时放行
+     * @param url URL
+     * @param title 页面标题，可以为空
+     * @return 判定结果
+     */
+    public Verdict query(String url, String title) throws IOException {
+        sendQuery(url, title);
+        flush();
+        return readVerdict();
+    }
+
+    /**
+     * 批量查询
+     * @param urls URL 列表
+     * @return 与请求顺序一致的判定结果
+     */
+    public List<Verdict> queryBatch(List<String> urls) throws IOException {
+        sendBatch(urls);
+        flush();
+        return readBatch(urls.size());
+    }
+
+    /**
+     * 写入一个批量查询但不发送
+     * @param urls URL 列表
+     */
+    public void sendBatch(List<String> urls) throws IOException {
+        StringBuilder line = new StringBuilder("B");
+        for (String url : urls) {
+            line.append(' ').append(clean(url).replace(" ", "%20"));
+        }
+        writeLine(line);
+    }
+
+    /**
+     * 读取下一个批量查询的回复
+     * @param size 批量查询中的 URL 数
+     * @return 判定结果
+     */
+    public List<Verdict> readBatch(int size) throws IOException {
+        String reply = readReply();
+        List<Verdict> verdicts = new ArrayList<>(size);
+        try {
+            if (!reply.isEmpty()) {
+                for (String name : reply.split(" ")) {
+                    verdicts.add(Verdict.valueOf(name));
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unexpected reply: " + reply);
+        }
+        if (verdicts.size() != size) {
+            throw new IOException("Expected " + size + " verdicts, got: " + reply);
+        }
+        return verdicts;
+    }
+
+    /**
+     * 写入一个查询但不发送
+     * @param url URL
+     * @param title 页面标题，可以为空
+     */
+    public void sendQuery(String url, String title) throws IOException {
+        StringBuilder line = new StringBuilder(url.length() + title.length() + 4);
+        line.append("Q ").append(clean(url).replace(" ", "%20"));
+        if (!title.isEmpty()) {
+            line.append(' ').append(clean(title));
+        }
+        writeLine(line);
+    }
+
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * 读取下一个查询的回复
+     * @return 判定结果
+     */
+    public Verdict readVerdict() throws IOException {
+        String reply = readReply();
+        try {
+            return Verdict.valueOf(reply);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unexpected reply: " + reply);
+        }
+    }
+
+    private String readReply() throws IOException {
+        String reply = in.readLine();
+        if (reply == null) {
+            throw new EOFException("Verdict service closed the connection");
+        }
+        if (reply.startsWith("ERR")) {
+            throw new IOException("Verdict service error: " + reply);
+        }
+        return reply;
+    }
+
+    private void writeLine(CharSequence line) throws IOException {
+        out.write(line.toString().getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+    }
+
+    private static String clean(String text) {
+        return text.replace('\r', ' ').replace('\n', ' ');
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
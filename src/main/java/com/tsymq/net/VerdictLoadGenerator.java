@@ -0,0 +1,178 @@
+package com.tsymq.net;
+
+import com.tsymq.config.AppConfig;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 判定服务的负载生成器
+ * 按固定速率在一条保持的连接上流水线发送查询（开环：发送不等待回复），同时按顺序读取回复。
+ * 延迟从请求的计划发送时间算起，服务变慢导致的发送推迟也计入延迟。
+ * 用法：java -cp ... com.tsymq.net.VerdictLoadGenerator [端口] [每秒请求数] [秒数] [每个请求的 URL 数]
+ */
+public class VerdictLoadGenerator {
+
+    private VerdictLoadGenerator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : AppConfig.VERDICT_SERVICE_PORT;
+        int rate = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 10;
+        int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        System.out.println(run(port, sampleUrls(1024), rate, TimeUnit.SECONDS.toMillis(seconds), batchSize));
+    }
+
+    /**
+     * 生成测试 URL，约 1% 命中硬编码规则
+     * @param count URL 数
+     * @return URL 列表
+     */
+    public static List<String> sampleUrls(int count) {
+        List<String> urls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            urls.add(i % 100 == 0
+                    ? "https://www.pornhub.com/view/" + i
+                    : "https://site" + (i % 97) + ".example.com/articles/" + i + "?ref=load");
+        }
+        return urls;
+    }
+
+    /**
+     * 运行负载
+     * @param port 服务端口
+     * @param urls 轮流查询的 URL
+     * @param requestsPerSecond 每秒请求数
+     * @param durationMillis 持续时间
+     * @param batchSize 每个请求的 URL 数，1 表示单个查询
+     * @return 延迟统计
+     */
+    public static Report run(int port, List<String> urls, int requestsPerSecond, long durationMillis, int batchSize)
+            throws IOException {
+        int total = (int) (requestsPerSecond * durationMillis / 1000);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / requestsPerSecond;
+        long[] latencies = new long[total];
+        byte[][] requests = encodeRequests(urls, batchSize);
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.configureBlocking(false);
+            ByteBuffer output = ByteBuffer.allocate(64 * 1024);
+            ByteBuffer input = ByteBuffer.allocate(64 * 1024);
+            long start = System.nanoTime();
+            long deadline = start + TimeUnit.MILLISECONDS.toNanos(durationMillis) + TimeUnit.SECONDS.toNanos(10);
+            int sent = 0;
+            int received = 0;
+            // 单线程完成发送和接收，避免在核数少的机器上与服务线程争抢 CPU
+            while (received < total) {
+                long now = System.nanoTime();
+                if (now > deadline) {
+                    throw new IOException("Timed out after " + received + " of " + total + " replies");
+                }
+                while (sent < total && start + sent * intervalNanos <= now
+                        && output.remaining() >= requests[sent % requests.length].length) {
+                    output.put(requests[sent % requests.length]);
+                    sent++;
+                }
+                output.flip();
+                channel.write(output);
+                output.compact();
+
+                int read = channel.read(input);
+                if (read < 0) {
+                    throw new IOException("Verdict service closed the connection");
+                }
+                long receivedAt = System.nanoTime();
+                input.flip();
+                while (input.hasRemaining()) {
+                    if (input.get() == '\n') {
+                        latencies[received] = receivedAt - (start + received * intervalNanos);
+                        received++;
+                    }
+                }
+                input.clear();
+                if (read == 0 && output.position() == 0) {
+                    // 没有待发送和待读取的数据时短暂让出 CPU
+                    long wait = sent < total ? start + sent * intervalNanos - System.nanoTime() : 20_000;
+                    LockSupport.parkNanos(Math.max(1_000, Math.min(wait, 20_000)));
+                }
+            }
+            return new Report(latencies, batchSize, System.nanoTime() - start);
+        }
+    }
+
+    private static byte[][] encodeRequests(List<String> urls, int batchSize) {
+        byte[][] requests = new byte[urls.size()][];
+        int cursor = 0;
+        for (int i = 0; i < requests.length; i++) {
+            StringBuilder line = new StringBuilder(batchSize == 1 ? "Q" : "B");
+            for (int j = 0; j < batchSize; j++) {
+                line.append(' ').append(urls.get(cursor));
+                cursor = (cursor + 1) % urls.size();
+            }
+            requests[i] = line.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+        }
+        return requests;
+    }
+
+    /**
+     * 负载结果
+     */
+    public static class Report {
+
+        private final long[] sortedNanos;
+        private final int batchSize;
+        private final long elapsedNanos;
+
+        Report(long[] latencies, int batchSize, long elapsedNanos) {
+            this.sortedNanos = latencies.clone();
+            Arrays.sort(sortedNanos);
+            this.batchSize = batchSize;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public int getRequests() {
+            return sortedNanos.length;
+        }
+
+        /**
+         * 延迟分位数
+         * @param quantile 分位（如 0.99）
+         * @return 延迟（微秒）
+         */
+        public double percentileMicros(double quantile) {
+            if (sortedNanos.length == 0) {
+                return 0;
+            }
+            int index = (int) Math.min(sortedNanos.length - 1, Math.ceil(quantile * sortedNanos.length) - 1);
+            return sortedNanos[Math.max(0, index)] / 1_000.0;
+        }
+
+        /**
+         * 实际吞吐
+         * @return 每秒判定的 URL 数
+         */
+        public double getQueriesPerSecond() {
+            return elapsedNanos == 0 ? 0 : (double) sortedNanos.length * batchSize * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("requests=%d, batch=%d, throughput=%.0f queries/s, "
+                            + "p50=%.1fus, p99=%.1fus, p99.9=%.1fus, max=%.1fus",
+                    getRequests(), batchSize, getQueriesPerSecond(), percentileMicros(0.5), percentileMicros(0.99),
+                    percentileMicros(0.999), percentileMicros(1.0));
+        }
+    }
+}
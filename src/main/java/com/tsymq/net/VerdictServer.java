@@ -0,0 +1,350 @@
+package com.tsymq.net;
+
+import com.tsymq.browser.TabSnapshot;
+import com.tsymq.rule.Verdict;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 本地 URL 判定服务
+ * 单线程 NIO 选择器，供浏览器扩展、shell 钩子等本机工具查询“这个 URL 现在是否被屏蔽”，结果与轮询使用的判定一致。
+ * 协议按行（\n 结尾，可带 \r）：
+ * <pre>
+ *   Q &lt;url&gt;[ &lt;title&gt;]      -> ALLOW | USER_BLOCKED | HARDCODED_BLOCKED
+ *   B &lt;url&gt; &lt;url&gt; ...     -> 以空格分隔的判定结果，顺序与请求一致
+ *   PING                  -> PONG
+ * </pre>
+ * 连接保持打开，客户端可以连续发送多行（流水线），回复按请求顺序写回；无法识别的请求回复 ERR。
+ * 回复积压超过上限时暂停读取该连接，直到客户端取走回复
+ */
+public class VerdictServer implements AutoCloseable {
+
+    private static final byte[][] VERDICT_BYTES = new byte[Verdict.values().length][];
+    private static final byte[] PONG = "PONG\n".getBytes(StandardCharsets.US_ASCII);
+    private static final int INITIAL_OUTPUT_BYTES = 16 * 1024;
+    // 回复积压超过这个字节数时暂停读取
+    private static final int OUTPUT_HIGH_WATER = 64 * 1024;
+
+    static {
+        for (Verdict verdict : Verdict.values()) {
+            VERDICT_BYTES[verdict.ordinal()] = verdict.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final Function<TabSnapshot, Verdict> evaluator;
+    private final int maxLineBytes;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    private final AtomicLong connections = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+
+    /**
+     * 绑定地址，调用 {@link #start()} 后开始服务
+     * @param address 监听地址（端口为 0 时自动分配）
+     * @param evaluator 判定，查询只带 URL 时标题为空
+     * @param maxLineBytes 单行请求的最大字节数
+     * @throws IOException 端口被占用等
+     */
+    public VerdictServer(InetSocketAddress address, Function<TabSnapshot, Verdict> evaluator, int maxLineBytes)
+            throws IOException {
+        this.evaluator = evaluator;
+        this.maxLineBytes = maxLineBytes;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        try {
+            server.bind(address);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        this.thread = new Thread(this::selectLoop, "verdict-server");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * 在 127.0.0.1 上监听
+     * @param port 端口，0 表示自动分配
+     * @param evaluator 判定
+     * @param maxLineBytes 单行请求的最大字节数
+     * @return 未启动的服务
+     */
+    public static VerdictServer loopback(int port, Function<TabSnapshot, Verdict> evaluator, int maxLineBytes)
+            throws IOException {
+        return new VerdictServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), evaluator, maxLineBytes);
+    }
+
+    public VerdictServer start() {
+        thread.start();
+        return this;
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    private void selectLoop() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            connection.onReady(key);
+                        } catch (IOException e) {
+                            connection.close(key);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.err.println("Verdict server stopped: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+        connections.incrementAndGet();
+    }
+
+    /**
+     * 一个客户端连接：读缓冲区保存未处理完的请求行，写缓冲区保存未发出的回复
+     */
+    private class Connection {
+
+        private final SocketChannel channel;
+        private final ByteBuffer input = ByteBuffer.allocate(maxLineBytes);
+        private ByteBuffer output = ByteBuffer.allocate(INITIAL_OUTPUT_BYTES);
+        // 请求行过长，回复错误后关闭
+        private boolean closing;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        void onReady(SelectionKey key) throws IOException {
+            if (key.isReadable() && !closing) {
+                if (channel.read(input) < 0) {
+                    close(key);
+                    return;
+                }
+            }
+            // 因回复积压暂停处理时，回复发完后继续处理已读入的请求
+            boolean paused;
+            do {
+                paused = processLines();
+                flush(key);
+            } while (paused && output.position() == 0 && key.isValid());
+        }
+
+        /**
+         * 处理读缓冲区中完整的请求行
+         * @return 是否因回复积压而留下了未处理的请求行
+         */
+        private boolean processLines() {
+            input.flip();
+            byte[] array = input.array();
+            int start = input.position();
+            boolean paused = false;
+            for (int i = start; i < input.limit(); i++) {
+                if (output.position() >= OUTPUT_HIGH_WATER) {
+                    paused = true;
+                    break;
+                }
+                if (array[i] == '\n') {
+                    int end = i > start && array[i - 1] == '\r' ? i - 1 : i;
+                    respond(new String(array, start, end - start, StandardCharsets.UTF_8));
+                    start = i + 1;
+                }
+            }
+            input.position(start);
+            input.compact();
+            if (!paused && !input.hasRemaining() && !closing) {
+                // 缓冲区已满仍没有换行
+                write("ERR line too long\n".getBytes(StandardCharsets.US_ASCII));
+                input.clear();
+                closing = true;
+            }
+            return paused;
+        }
+
+        private void respond(String line) {
+            requests.incrementAndGet();
+            if (line.startsWith("Q ")) {
+                int space = line.indexOf(' ', 2);
+                String url = space < 0 ? line.substring(2) : line.substring(2, space);
+                String title = space < 0 ? "" : line.substring(space + 1);
+                if (url.isEmpty()) {
+                    write("ERR missing url\n".getBytes(StandardCharsets.US_ASCII));
+                    return;
+                }
+                writeVerdict(url, title);
+                write((byte) '\n');
+            } else if (line.startsWith("B ") || line.equals("B")) {
+                boolean first = true;
+                int from = 2;
+                while (from < line.length()) {
+                    int space = line.indexOf(' ', from);
+                    int to = space < 0 ? line.length() : space;
+                    if (to > from) {
+                        if (!first) {
+                            write((byte) ' ');
+                        }
+                        writeVerdict(line.substring(from, to), "");
+                        first = false;
+                    }
+                    from = to + 1;
+                }
+                write((byte) '\n');
+            } else if (line.equals("PING")) {
+                write(PONG);
+            } else {
+                write("ERR unknown request\n".getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+
+        private void writeVerdict(String url, String title) {
+            queries.incrementAndGet();
+            Verdict verdict;
+            try {
+                verdict = evaluator.apply(new TabSnapshot("", "", "", url, title));
+            } catch (RuntimeException e) {
+                System.err.println("Error evaluating " + url + ": " + e.getMessage());
+                verdict = Verdict.ALLOW;
+            }
+            write(VERDICT_BYTES[verdict.ordinal()]);
+        }
+
+        private void write(byte[] bytes) {
+            ensureOutput(bytes.length);
+            output.put(bytes);
+        }
+
+        private void write(byte b) {
+            ensureOutput(1);
+            output.put(b);
+        }
+
+        private void ensureOutput(int bytes) {
+            if (output.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(output.capacity() * 2, output.position() + bytes));
+                output.flip();
+                larger.put(output);
+                output = larger;
+            }
+        }
+
+        private void flush(SelectionKey key) throws IOException {
+            output.flip();
+            channel.write(output);
+            output.compact();
+            if (closing && output.position() == 0) {
+                close(key);
+                return;
+            }
+            int interest = 0;
+            if (!closing && output.position() < OUTPUT_HIGH_WATER) {
+                interest |= SelectionKey.OP_READ;
+            }
+            if (output.position() > 0) {
+                interest |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(interest);
+        }
+
+        void close(SelectionKey key) {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+    }
+
+    /**
+     * 累计接受的连接数
+     * @return 连接数
+     */
+    public long getConnections() {
+        return connections.get();
+    }
+
+    /**
+     * 累计处理的请求行数
+     * @return 请求数
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * 累计判定的 URL 数（批量请求中的每个 URL 都计入）
+     * @return 判定数
+     */
+    public long getQueries() {
+        return queries.get();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            for (SelectionKey key : selector.keys()) {
+                key.channel().close();
+            }
+            selector.close();
+            server.close();
+        } catch (IOException | ClosedSelectorException e) {
+            System.err.println("Error closing verdict server: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("VerdictServer{port=%d, connections=%d, requests=%d, queries=%d}",
+                getPort(), connections.get(), requests.get(), queries.get());
+    }
+}
@@ -0,0 +1,79 @@
+package com.tsymq.net;
+
+import com.tsymq.browser.TabSnapshot;
+import com.tsymq.rule.Verdict;
+
+import java.io.IOException;
+import java.util.function.Function;
+
+/**
+ * 优先查询应用判定服务的标签页判定
+ * 服务不可用或未开启时使用本地判定，并隔一段时间再尝试连接。
+ * 模式状态只在应用进程里，只有连上服务时判定才随学习模式变化。不是线程安全的
+ */
+public class VerdictServiceEvaluator implements Function<TabSnapshot, Verdict>, AutoCloseable {
+
+    private static final long RETRY_INTERVAL_MS = 5_000;
+
+    private final Function<TabSnapshot, Verdict> local;
+    private final boolean enabled;
+    private final int port;
+    private final int timeoutMillis;
+    private VerdictClient client;
+    private long lastAttemptMillis = -RETRY_INTERVAL_MS;
+
+    /**
+     * @param local 本地判定（不区分模式）
+     * @param enabled 是否查询判定服务
+     * @param port 判定服务端口
+     * @param timeoutMillis 连接和等待回复的超时时间
+     */
+    public VerdictServiceEvaluator(Function<TabSnapshot, Verdict> local, boolean enabled, int port, int timeoutMillis) {
+        this.local = local;
+        this.enabled = enabled;
+        this.port = port;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public Verdict apply(TabSnapshot tab) {
+        if (isModeAware()) {
+            try {
+                return client.query(tab.getUrl(), tab.getTitle());
+            } catch (IOException e) {
+                System.err.println("Verdict service failed, evaluating locally: " + e.getMessage());
+                close();
+            }
+        }
+        return local.apply(tab);
+    }
+
+    /**
+     * 判定是否随学习模式变化，即是否连着应用的判定服务；未连接且到了重试时间时先尝试连接
+     * @return 是否连着判定服务
+     */
+    public boolean isModeAware() {
+        long now = System.currentTimeMillis();
+        if (enabled && client == null && now - lastAttemptMillis >= RETRY_INTERVAL_MS) {
+            lastAttemptMillis = now;
+            try {
+                client = VerdictClient.connect(port, timeoutMillis);
+            } catch (IOException e) {
+                client = null;
+            }
+        }
+        return client != null;
+    }
+
+    @Override
+    public void close() {
+        if (client != null) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+            client = null;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.tsymq.rule;
+
+import java.util.Locale;
+
+/**
+ * 单条屏蔽规则
+ * 规则分为两类：
+ * - DOMAIN：按主机名后缀精确匹配，例如 "x.com" 匹配 x.com 和 m.x.com，但不匹配 netflix.com
+ * - KEYWORD：在完整URL中做子串匹配（原有语义）
+ * 可以用 "domain:" / "keyword:" 前缀显式指定类型，否则根据内容自动识别
+ */
+public final class BlockRule {
+
+    public static final String DOMAIN_PREFIX = "domain:";
+    public static final String KEYWORD_PREFIX = "keyword:";
+
+    /**
+     * 规则类型
+     */
+    public enum Type {
+        DOMAIN,
+        KEYWORD
+    }
+
+    private final Type type;
+    private final String pattern;
+
+    private BlockRule(Type type, String pattern) {
+        this.type = type;
+        this.pattern = pattern;
+    }
+
+    /**
+     * 解析一行规则文本
+     * @param raw 规则文本（blocked_websites.txt 中的一行或用户输入）
+     * @return 解析后的规则，空白文本返回 null
+     */
+    public static BlockRule parse(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        String text = raw.trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+
+        if (text.regionMatches(true, 0, KEYWORD_PREFIX, 0, KEYWORD_PREFIX.length())) {
+            String keyword = text.substring(KEYWORD_PREFIX.length());
+            return keyword.isEmpty() ? null : new BlockRule(Type.KEYWORD, keyword);
+        }
+        if (text.regionMatches(true, 0, DOMAIN_PREFIX, 0, DOMAIN_PREFIX.length())) {
+            String domain = toDomain(text.substring(DOMAIN_PREFIX.length()));
+            return domain == null ? null : new BlockRule(Type.DOMAIN, domain);
+        }
+
+        String domain = toDomain(text);
+        if (domain != null) {
+            return new BlockRule(Type.DOMAIN, domain);
+        }
+        return new BlockRule(Type.KEYWORD, raw);
+    }
+
+    /**
+     * 尝试把规则文本规范化为域名（去掉协议、末尾斜杠以及 "*." 通配前缀）
+     * @param text 规则文本
+     * @return 小写域名，不是域名形式时返回 null
+     */
+    static String toDomain(String text) {
+        String candidate = text.trim();
+        int scheme = candidate.indexOf("://");
+        if (scheme >= 0) {
+            candidate = candidate.substring(scheme + 3);
+        }
+        while (candidate.endsWith("/")) {
+            candidate = candidate.substring(0, candidate.length() - 1);
+        }
+        if (candidate.startsWith("*.")) {
+            candidate = candidate.substring(2);
+        } else if (candidate.startsWith(".")) {
+            candidate = candidate.substring(1);
+        }
+        if (candidate.endsWith(".")) {
+            candidate = candidate.substring(0, candidate.length() - 1);
+        }
+        return UrlHosts.isDomainName(candidate) ? candidate.toLowerCase(Locale.ROOT) : null;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    @Override
+    public String toString() {
+        return type == Type.DOMAIN ? DOMAIN_PREFIX + pattern : KEYWORD_PREFIX + pattern;
+    }
+}
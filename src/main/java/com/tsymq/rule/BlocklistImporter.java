@@ -0,0 +1,317 @@
+package com.tsymq.rule;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 大型屏蔽列表导入器
+ * 通过内存映射读取文件，直接在 ByteBuffer 上逐行解析，不为每一行创建字符串，解析出的域名直接写入 {@link DomainTrie.Builder}
+ *
+ * 支持的格式（可以混用）：
+ * - hosts 文件：{@code 0.0.0.0 example.com}、{@code 127.0.0.1 a.com b.com}
+ * - 纯域名列表：每行一个域名
+ * - 简单 adblock 语法：{@code ||example.com^}、{@code ||example.com^$third-party}
+ * 以 #、!、[ 开头的行视为注释，adblock 例外规则（@@）和其他复杂语法会被跳过
+ */
+public class BlocklistImporter {
+
+    // 单次映射的最大字节数，超大文件按行边界分段映射
+    private static final int MAX_MAP_BYTES = 256 * 1024 * 1024;
+
+    /**
+     * 导入文件
+     * @param path 列表文件路径
+     * @param builder 目标域名字典树构建器
+     * @return 导入统计
+     * @throws IOException 读取失败时抛出
+     */
+    public ImportResult importFile(Path path, DomainTrie.Builder builder) throws IOException {
+        long startNanos = System.nanoTime();
+        ImportResult result = new ImportResult();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            long position = 0;
+            while (position < fileSize) {
+                long remaining = fileSize - position;
+                int length = (int) Math.min(remaining, MAX_MAP_BYTES);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int limit = length;
+                if (remaining > length) {
+                    // 在最后一个换行处截断，剩余部分留给下一段
+                    int lastNewline = lastIndexOf(buffer, (byte) '\n', length);
+                    if (lastNewline >= 0) {
+                        limit = lastNewline + 1;
+                    }
+                }
+                parse(buffer, 0, limit, builder, result);
+                position += limit;
+            }
+            result.bytes = fileSize;
+        }
+        result.elapsedNanos = System.nanoTime() - startNanos;
+        return result;
+    }
+
+    /**
+     * 导入内存中的数据
+     * @param buffer 列表内容（ASCII/UTF-8）
+     * @param builder 目标域名字典树构建器
+     * @return 导入统计
+     */
+    public ImportResult importBuffer(ByteBuffer buffer, DomainTrie.Builder builder) {
+        long startNanos = System.nanoTime();
+        ImportResult result = new ImportResult();
+        parse(buffer, buffer.position(), buffer.limit(), builder, result);
+        result.bytes = buffer.remaining();
+        result.elapsedNanos = System.nanoTime() - startNanos;
+        return result;
+    }
+
+    private void parse(ByteBuffer buffer, int from, int to, DomainTrie.Builder builder, ImportResult result) {
+        int lineStart = from;
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            result.lines++;
+            parseLine(buffer, lineStart, lineEnd, builder, result);
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    private void parseLine(ByteBuffer buffer, int from, int to, DomainTrie.Builder builder, ImportResult result) {
+        int start = skipBlank(buffer, from, to);
+        int end = trimEnd(buffer, start, to);
+        if (start >= end) {
+            return;
+        }
+
+        byte first = buffer.get(start);
+        if (first == '#' || first == '!' || first == '[') {
+            return;
+        }
+
+        // adblock: ||domain^
+        if (first == '|') {
+            if (end - start < 3 || buffer.get(start + 1) != '|') {
+                result.skipped++;
+                return;
+            }
+            int domainStart = start + 2;
+            int domainEnd = domainStart;
+            while (domainEnd < end && buffer.get(domainEnd) != '^') {
+                domainEnd++;
+            }
+            // 只接受以 ^ 结尾或 ^$选项 的简单规则
+            if (domainEnd == end || (domainEnd + 1 < end && buffer.get(domainEnd + 1) != '$')) {
+                result.skipped++;
+                return;
+            }
+            addDomain(buffer, domainStart, domainEnd, builder, result);
+            return;
+        }
+        if (first == '@') {
+            result.skipped++;
+            return;
+        }
+
+        // 去掉行内注释
+        int commentAt = indexOf(buffer, (byte) '#', start, end);
+        if (commentAt >= 0) {
+            end = trimEnd(buffer, start, commentAt);
+        }
+
+        int tokenEnd = tokenEnd(buffer, start, end);
+        if (isAddress(buffer, start, tokenEnd)) {
+            // hosts: 地址后面可以跟多个域名
+            int tokenStart = skipBlank(buffer, tokenEnd, end);
+            while (tokenStart < end) {
+                int next = tokenEnd(buffer, tokenStart, end);
+                addDomain(buffer, tokenStart, next, builder, result);
+                tokenStart = skipBlank(buffer, next, end);
+            }
+            return;
+        }
+
+        // 纯域名列表：只取第一个字段
+        addDomain(buffer, start, tokenEnd, builder, result);
+    }
+
+    private void addDomain(ByteBuffer buffer, int from, int to, DomainTrie.Builder builder, ImportResult result) {
+        // 通配前缀 *. 和结尾的 . 都去掉
+        if (to - from > 2 && buffer.get(from) == '*' && buffer.get(from + 1) == '.') {
+            from += 2;
+        }
+        if (to > from && buffer.get(to - 1) == '.') {
+            to--;
+        }
+        if (isLocalName(buffer, from, to) || isAddress(buffer, from, to)) {
+            result.skipped++;
+            return;
+        }
+        if (!DomainTrie.Builder.isDomainName(buffer, from, to)) {
+            result.skipped++;
+        } else if (builder.add(buffer, from, to)) {
+            result.added++;
+        } else {
+            result.duplicates++;
+        }
+    }
+
+    private static boolean isLocalName(ByteBuffer buffer, int from, int to) {
+        return regionEquals(buffer, from, to, "localhost.localdomain")
+                || regionEquals(buffer, from, to, "local.localdomain")
+                || regionEquals(buffer, from, to, "ip6-localhost.localdomain");
+    }
+
+    private static boolean isAddress(ByteBuffer buffer, int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        boolean hasSeparator = false;
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == '.' || b == ':') {
+                hasSeparator = true;
+            } else if (!((b >= '0' && b <= '9') || (b >= 'a' && b <= 'f') || (b >= 'A' && b <= 'F'))) {
+                return false;
+            }
+        }
+        if (!hasSeparator) {
+            return false;
+        }
+        // IPv4 地址只能由数字和点组成，避免把 "cafe.be" 这类域名误判为地址
+        for (int i = from; i < to; i++) {
+            byte b = buffer.get(i);
+            if (b == ':') {
+                return true;
+            }
+            if (b != '.' && (b < '0' || b > '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionEquals(ByteBuffer buffer, int from, int to, String expected) {
+        if (to - from != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            byte b = buffer.get(from + i);
+            if (b >= 'A' && b <= 'Z') {
+                b += 'a' - 'A';
+            }
+            if (b != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static int skipBlank(ByteBuffer buffer, int from, int to) {
+        while (from < to && isBlank(buffer.get(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(ByteBuffer buffer, int from, int to) {
+        while (to > from && isBlank(buffer.get(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    private static int tokenEnd(ByteBuffer buffer, int from, int to) {
+        while (from < to && !isBlank(buffer.get(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int indexOf(ByteBuffer buffer, byte value, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lastIndexOf(ByteBuffer buffer, byte value, int to) {
+        for (int i = to - 1; i >= 0; i--) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 导入统计
+     */
+    public static class ImportResult {
+        private long lines;
+        private long added;
+        private long duplicates;
+        private long skipped;
+        private long bytes;
+        private long elapsedNanos;
+
+        public long getLines() {
+            return lines;
+        }
+
+        public long getAdded() {
+            return added;
+        }
+
+        /**
+         * 被去重的条目数（列表内重复或已存在于构建器中）
+         * @return 重复条目数
+         */
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        /**
+         * 无法识别或不支持的条目数
+         * @return 跳过条目数
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * 解析速度
+         * @return 每秒处理的行数
+         */
+        public double getLinesPerSecond() {
+            return elapsedNanos == 0 ? 0.0 : lines * 1_000_000_000.0 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ImportResult{lines=%d, added=%d, duplicates=%d, skipped=%d, %.0f lines/s}",
+                    lines, added, duplicates, skipped, getLinesPerSecond());
+        }
+    }
+}
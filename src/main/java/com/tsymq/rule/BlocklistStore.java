@@ -0,0 +1,88 @@
+package com.tsymq.rule;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 导入列表的编译缓存
+ * 源列表（文本）保持可编辑；编译结果保存为 {@link DomainSetFile}，只有源文件变化时才重新解析生成，
+ * 否则启动时直接内存映射二进制文件，几乎不占用堆内存
+ */
+public class BlocklistStore {
+
+    private final Path sourceDir;
+    private final Path compiledFile;
+    private final BlocklistImporter importer = new BlocklistImporter();
+
+    /**
+     * @param sourceDir 源列表目录
+     * @param compiledFile 编译后的二进制文件
+     */
+    public BlocklistStore(Path sourceDir, Path compiledFile) {
+        this.sourceDir = sourceDir;
+        this.compiledFile = compiledFile;
+    }
+
+    /**
+     * 加载导入列表：二进制缓存有效时直接映射，否则重新导入并生成
+     * @return 域名集合，没有任何源列表时返回空集合
+     * @throws IOException 读写失败时抛出
+     */
+    public DomainSet load() throws IOException {
+        List<Path> sources = listSources();
+        if (sources.isEmpty()) {
+            return DomainTrie.empty();
+        }
+
+        long fingerprint = fingerprint(sources);
+        Long cached = DomainSetFile.readFingerprint(compiledFile);
+        if (cached != null && cached == fingerprint) {
+            try {
+                DomainSetFile set = DomainSetFile.open(compiledFile);
+                System.out.println("Mapped compiled blocklist: " + set);
+                return set;
+            } catch (IOException e) {
+                System.err.println("Compiled blocklist is corrupt, rebuilding: " + e.getMessage());
+            }
+        }
+
+        DomainTrie.Builder builder = new DomainTrie.Builder();
+        for (Path source : sources) {
+            BlocklistImporter.ImportResult result = importer.importFile(source, builder);
+            System.out.println("Imported blocklist " + source.getFileName() + ": " + result);
+        }
+        DomainTrie trie = builder.build();
+        int written = DomainSetFile.write(compiledFile, trie.getDomains(), fingerprint);
+        System.out.println("Compiled blocklist written: " + written + " domains -> " + compiledFile);
+        return DomainSetFile.open(compiledFile);
+    }
+
+    private List<Path> listSources() throws IOException {
+        if (!Files.isDirectory(sourceDir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(sourceDir)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> !file.getFileName().toString().startsWith("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * 根据源文件名、大小和修改时间计算指纹
+     */
+    static long fingerprint(List<Path> sources) throws IOException {
+        long hash = 1125899906842597L + DomainSetFile.VERSION;
+        for (Path source : sources) {
+            hash = 31 * hash + source.getFileName().toString().hashCode();
+            hash = 31 * hash + Files.size(source);
+            hash = 31 * hash + Files.getLastModifiedTime(source).toMillis();
+        }
+        return hash;
+    }
+}
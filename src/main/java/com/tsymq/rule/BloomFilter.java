@@ -0,0 +1,189 @@
+package com.tsymq.rule;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 布隆过滤器
+ * 按期望元素数和目标误判率计算位数组大小与哈希函数个数，使用双重哈希生成各个位置
+ * 查询对字符串区间直接计算哈希（忽略 ASCII 大小写），不产生对象分配
+ */
+public final class BloomFilter {
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final int expectedItems;
+    private final double falsePositiveRate;
+
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * @param expectedItems 期望插入的元素数
+     * @param falsePositiveRate 目标误判率（0-1 之间）
+     */
+    public BloomFilter(int expectedItems, double falsePositiveRate) {
+        this(expectedItems, falsePositiveRate, null);
+    }
+
+    /**
+     * 使用已有的位数组（从编译文件中读出），长度必须与按参数计算的一致
+     * @param expectedItems 期望插入的元素数
+     * @param falsePositiveRate 目标误判率（0-1 之间）
+     * @param bits 位数组，为 null 时新建
+     */
+    BloomFilter(int expectedItems, double falsePositiveRate, long[] bits) {
+        int n = Math.max(1, expectedItems);
+        long m = bitCountFor(n, falsePositiveRate);
+        if (bits != null && (long) bits.length * 64 != m) {
+            throw new IllegalArgumentException("Expected " + m + " bits but got " + (long) bits.length * 64);
+        }
+        this.bits = bits != null ? bits : new long[(int) (m / 64)];
+        this.bitCount = m;
+        this.hashCount = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        this.expectedItems = n;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * 按期望元素数和目标误判率计算位数（向上取整到 64 的倍数）
+     * @param expectedItems 期望插入的元素数
+     * @param falsePositiveRate 目标误判率（0-1 之间）
+     * @return 位数
+     */
+    static long bitCountFor(int expectedItems, double falsePositiveRate) {
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1): " + falsePositiveRate);
+        }
+        int n = Math.max(1, expectedItems);
+        double ln2 = Math.log(2);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (ln2 * ln2));
+        return Math.max(64, (m + 63) / 64 * 64);
+    }
+
+    /**
+     * 插入一个元素
+     * @param value 元素
+     */
+    public void add(CharSequence value) {
+        long h = hash(value, 0, value.length());
+        long h2 = secondHash(h);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h + i * h2, bitCount);
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    /**
+     * 检查元素是否可能存在（不计入统计）
+     * @param text 包含元素的文本
+     * @param from 起始下标（包含）
+     * @param to 结束下标（不包含）
+     * @return false 表示一定不存在，true 表示可能存在
+     */
+    public boolean mightContain(CharSequence text, int from, int to) {
+        long h = hash(text, from, to);
+        long h2 = secondHash(h);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Math.floorMod(h + i * h2, bitCount);
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean mightContain(CharSequence value) {
+        return mightContain(value, 0, value.length());
+    }
+
+    private static long hash(CharSequence text, int from, int to) {
+        // FNV-1a 64 位，再做一次 murmur3 finalizer 混淆
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            h ^= c;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long secondHash(long h) {
+        return (Long.rotateLeft(h, 32) * 0x9E3779B97F4A7C15L) | 1L;
+    }
+
+    void recordQuery(boolean negative) {
+        queries.increment();
+        if (negative) {
+            negatives.increment();
+        }
+    }
+
+    void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    public long getQueries() {
+        return queries.sum();
+    }
+
+    /**
+     * 被过滤器直接判定为不存在的查询数
+     * @return 过滤掉的查询数
+     */
+    public long getNegatives() {
+        return negatives.sum();
+    }
+
+    /**
+     * 过滤器判定可能存在、但精确查询未命中的次数
+     * @return 误判次数
+     */
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * 过滤率：被直接过滤掉的查询占比
+     * @return 过滤率（0-1）
+     */
+    public double getNegativeRate() {
+        long total = queries.sum();
+        return total == 0 ? 0.0 : (double) negatives.sum() / total;
+    }
+
+    /**
+     * 位数组（写入编译文件时使用）
+     * @return 位数组本身，不是副本
+     */
+    long[] getBits() {
+        return bits;
+    }
+
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    public double getFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("BloomFilter{items=%d, bits=%d, hashes=%d, queries=%d, negatives=%d, falsePositives=%d}",
+                expectedItems, bitCount, hashCount, getQueries(), getNegatives(), getFalsePositives());
+    }
+}
@@ -0,0 +1,54 @@
+package com.tsymq.rule;
+
+import java.util.function.Consumer;
+
+/**
+ * 只读域名集合接口
+ * 命中规则：主机名本身或其任一父域名在集合中
+ */
+public interface DomainSet {
+
+    /**
+     * 检查URL的主机名是否命中
+     * @param url 待检查URL，可以不带协议
+     * @return 是否命中
+     */
+    boolean matchesUrl(CharSequence url);
+
+    /**
+     * 检查字符串区间表示的主机名是否命中
+     * @param text 包含主机名的文本
+     * @param from 主机名起始下标（包含）
+     * @param to 主机名结束下标（不包含）
+     * @return 是否命中
+     */
+    boolean matchesHost(CharSequence text, int from, int to);
+
+    /**
+     * 获取域名数量
+     * @return 域名数量
+     */
+    int size();
+
+    /**
+     * 遍历集合中的全部域名（会为每个域名创建字符串，只用于构建索引等离线操作）
+     * @param action 对每个域名执行的操作
+     */
+    void forEachDomain(Consumer<? super String> action);
+
+    /**
+     * 检查主机名是否命中
+     * @param host 主机名
+     * @return 是否命中
+     */
+    default boolean matchesHost(CharSequence host) {
+        if (host == null || size() == 0) {
+            return false;
+        }
+        return matchesHost(host, 0, host.length());
+    }
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+}
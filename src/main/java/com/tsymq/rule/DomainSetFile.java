@@ -0,0 +1,442 @@
+package com.tsymq.rule;
+
+import com.tsymq.config.AppConfig;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * 内存映射的二进制域名集合
+ * 域名按字符反转后排序（youtube.com → moc.ebutuoy），相同后缀变成相同前缀，再做前缀压缩（front coding）
+ * 每 {@value #BLOCK_SIZE} 条记录为一个块，块首记录完整存储并建立索引；查询时在索引上二分，再在块内顺序解码
+ * 整个文件直接映射到内存中就地查询，不复制到堆上。
+ * 文件末尾附带全部域名的布隆过滤器位数组，加载时直接读出，不必逐条解码域名重建
+ *
+ * 文件布局（大端序）：
+ * <pre>
+ * 0   int  magic "MFDS"
+ * 4   int  格式版本
+ * 8   int  记录数
+ * 12  int  块大小
+ * 16  int  块数
+ * 20  int  过滤器哈希函数个数
+ * 24  long 数据区偏移
+ * 32  long 索引区偏移
+ * 40  long 源文件指纹
+ * 48  long CRC32 校验和（覆盖头部之后的全部内容）
+ * 56  long 过滤器区偏移
+ * 64  数据区：每条记录 [共享前缀长度 1B][后缀长度 1B][后缀字节]
+ * ..  索引区：每个块首记录相对数据区的偏移 int
+ * ..  过滤器区：布隆过滤器位数组 long，直到文件末尾
+ * </pre>
+ */
+public final class DomainSetFile implements DomainSet {
+
+    public static final int MAGIC = 0x4D464453;
+    public static final int VERSION = 2;
+    static final int HEADER_SIZE = 64;
+    static final int BLOCK_SIZE = 16;
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final ByteBuffer buffer;
+    private final int entryCount;
+    private final int blockCount;
+    private final int dataOffset;
+    private final int indexOffset;
+    private final int filterOffset;
+    private final int filterHashCount;
+    private final long sourceFingerprint;
+
+    private DomainSetFile(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.entryCount = buffer.getInt(8);
+        this.blockCount = buffer.getInt(16);
+        this.dataOffset = (int) buffer.getLong(24);
+        this.indexOffset = (int) buffer.getLong(32);
+        this.filterOffset = (int) buffer.getLong(56);
+        this.filterHashCount = buffer.getInt(20);
+        this.sourceFingerprint = buffer.getLong(40);
+    }
+
+    /**
+     * 映射并校验二进制域名文件
+     * @param path 文件路径
+     * @return 映射后的域名集合
+     * @throws IOException 文件不存在、格式不符或校验失败时抛出
+     */
+    public static DomainSetFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid domain set file size: " + size);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.BIG_ENDIAN);
+            checkHeader(buffer, path);
+            if (buffer.getInt(12) != BLOCK_SIZE) {
+                throw new IOException("Unsupported block size in " + path);
+            }
+            long filterOffset = buffer.getLong(56);
+            if (filterOffset < HEADER_SIZE || filterOffset > size || (size - filterOffset) % Long.BYTES != 0) {
+                throw new IOException("Invalid filter section in " + path);
+            }
+
+            ByteBuffer body = buffer.duplicate();
+            body.position(HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if (crc.getValue() != buffer.getLong(48)) {
+                throw new IOException("Checksum mismatch in " + path);
+            }
+            return new DomainSetFile(buffer);
+        }
+    }
+
+    /**
+     * 只读取文件头中的源文件指纹，用于判断是否需要重新生成
+     * @param path 文件路径
+     * @return 源文件指纹，文件不存在或格式不符时返回 null
+     */
+    public static Long readFingerprint(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // 读满文件头
+            }
+            if (header.hasRemaining()) {
+                return null;
+            }
+            checkHeader(header, path);
+            return header.getLong(40);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void checkHeader(ByteBuffer header, Path path) throws IOException {
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a domain set file: " + path);
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported domain set version " + header.getInt(4) + ": " + path);
+        }
+    }
+
+    /**
+     * 生成二进制域名文件，过滤器使用配置的误判率
+     * @param target 目标文件
+     * @param domains 域名集合（非法域名会被忽略）
+     * @param sourceFingerprint 源文件指纹
+     * @return 实际写入的记录数
+     * @throws IOException 写入失败时抛出
+     */
+    public static int write(Path target, Collection<String> domains, long sourceFingerprint) throws IOException {
+        return write(target, domains, sourceFingerprint, AppConfig.BLOOM_FALSE_POSITIVE_RATE);
+    }
+
+    /**
+     * 生成二进制域名文件（先写临时文件，再原子替换）
+     * @param target 目标文件
+     * @param domains 域名集合（非法域名会被忽略）
+     * @param sourceFingerprint 源文件指纹
+     * @param falsePositiveRate 过滤器的目标误判率
+     * @return 实际写入的记录数
+     * @throws IOException 写入失败时抛出
+     */
+    public static int write(Path target, Collection<String> domains, long sourceFingerprint,
+                            double falsePositiveRate) throws IOException {
+        List<byte[]> keys = new ArrayList<>(domains.size());
+        for (String domain : domains) {
+            if (domain != null && UrlHosts.isDomainName(domain)) {
+                byte[] key = domain.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+                reverse(key);
+                keys.add(key);
+            }
+        }
+        keys.sort(Arrays::compareUnsigned);
+
+        ByteArrayOutputStream data = new ByteArrayOutputStream(Math.max(64, keys.size() * 8));
+        List<Integer> blockOffsets = new ArrayList<>();
+        List<byte[]> unique = new ArrayList<>(keys.size());
+        byte[] previous = null;
+        int count = 0;
+        for (byte[] key : keys) {
+            if (previous != null && Arrays.equals(previous, key)) {
+                continue;
+            }
+            int shared = 0;
+            if (count % BLOCK_SIZE == 0) {
+                blockOffsets.add(data.size());
+            } else {
+                int limit = Math.min(previous.length, key.length);
+                while (shared < limit && previous[shared] == key[shared]) {
+                    shared++;
+                }
+            }
+            data.write(shared);
+            data.write(key.length - shared);
+            data.write(key, shared, key.length - shared);
+            previous = key;
+            unique.add(key);
+            count++;
+        }
+
+        BloomFilter filter = new BloomFilter(count, falsePositiveRate);
+        char[] domain = new char[MAX_KEY_LENGTH + 1];
+        for (byte[] key : unique) {
+            for (int i = 0; i < key.length; i++) {
+                domain[i] = (char) key[key.length - 1 - i];
+            }
+            filter.add(CharBuffer.wrap(domain, 0, key.length));
+        }
+        long[] filterBits = filter.getBits();
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream(
+                data.size() + blockOffsets.size() * 4 + filterBits.length * Long.BYTES);
+        data.writeTo(body);
+        DataOutputStream indexOut = new DataOutputStream(body);
+        for (int offset : blockOffsets) {
+            indexOut.writeInt(offset);
+        }
+        for (long word : filterBits) {
+            indexOut.writeLong(word);
+        }
+        indexOut.flush();
+        byte[] bodyBytes = body.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.BIG_ENDIAN);
+        header.putInt(0, MAGIC);
+        header.putInt(4, VERSION);
+        header.putInt(8, count);
+        header.putInt(12, BLOCK_SIZE);
+        header.putInt(16, blockOffsets.size());
+        header.putInt(20, filter.getHashCount());
+        header.putLong(24, HEADER_SIZE);
+        header.putLong(32, HEADER_SIZE + data.size());
+        header.putLong(40, sourceFingerprint);
+        header.putLong(48, crc.getValue());
+        header.putLong(56, HEADER_SIZE + data.size() + blockOffsets.size() * 4L);
+
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = Files.createTempFile(parent, target.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer bodyBuffer = ByteBuffer.wrap(bodyBytes);
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                while (bodyBuffer.hasRemaining()) {
+                    channel.write(bodyBuffer);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return count;
+    }
+
+    @Override
+    public boolean matchesUrl(CharSequence url) {
+        if (url == null || entryCount == 0) {
+            return false;
+        }
+        int start = UrlHosts.hostStart(url);
+        int end = UrlHosts.hostEnd(url, start);
+        return matchesHost(url, start, end);
+    }
+
+    @Override
+    public boolean matchesHost(CharSequence text, int from, int to) {
+        int length = to - from;
+        if (length <= 0 || length > MAX_KEY_LENGTH || entryCount == 0) {
+            return false;
+        }
+        Scratch scratch = SCRATCH.get();
+        byte[] target = scratch.target;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(to - 1 - i);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            if (c > 0x7F) {
+                return false;
+            }
+            target[i] = (byte) c;
+        }
+        // 反转后的主机名中，每个标签边界之前的前缀都对应一个父域名（com → youtube.com → m.youtube.com）
+        for (int i = 1; i <= length; i++) {
+            if ((i == length || target[i] == '.') && contains(target, i, scratch.decoded)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean contains(byte[] target, int targetLength, byte[] decoded) {
+        // 找到最后一个块首记录 <= target 的块
+        int low = 0;
+        int high = blockCount - 1;
+        int block = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int position = dataOffset + buffer.getInt(indexOffset + mid * 4);
+            int keyLength = buffer.get(position + 1) & 0xFF;
+            int cmp = compareBuffer(position + 2, keyLength, target, targetLength);
+            if (cmp == 0) {
+                return true;
+            }
+            if (cmp < 0) {
+                block = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (block < 0) {
+            return false;
+        }
+
+        int position = dataOffset + buffer.getInt(indexOffset + block * 4);
+        int first = block * BLOCK_SIZE;
+        int last = Math.min(entryCount, first + BLOCK_SIZE);
+        for (int entry = first; entry < last; entry++) {
+            int shared = buffer.get(position) & 0xFF;
+            int suffixLength = buffer.get(position + 1) & 0xFF;
+            for (int i = 0; i < suffixLength; i++) {
+                decoded[shared + i] = buffer.get(position + 2 + i);
+            }
+            position += 2 + suffixLength;
+            int cmp = Arrays.compareUnsigned(decoded, 0, shared + suffixLength, target, 0, targetLength);
+            if (cmp == 0) {
+                return true;
+            }
+            if (cmp > 0) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    private int compareBuffer(int position, int length, byte[] target, int targetLength) {
+        int limit = Math.min(length, targetLength);
+        for (int i = 0; i < limit; i++) {
+            int a = buffer.get(position + i) & 0xFF;
+            int b = target[i] & 0xFF;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return length - targetLength;
+    }
+
+    private static void reverse(byte[] bytes) {
+        for (int i = 0, j = bytes.length - 1; i < j; i++, j--) {
+            byte t = bytes[i];
+            bytes[i] = bytes[j];
+            bytes[j] = t;
+        }
+    }
+
+    @Override
+    public int size() {
+        return entryCount;
+    }
+
+    @Override
+    public void forEachDomain(Consumer<? super String> action) {
+        byte[] decoded = new byte[MAX_KEY_LENGTH + 1];
+        char[] domain = new char[MAX_KEY_LENGTH + 1];
+        int position = dataOffset;
+        for (int entry = 0; entry < entryCount; entry++) {
+            int shared = buffer.get(position) & 0xFF;
+            int suffixLength = buffer.get(position + 1) & 0xFF;
+            for (int i = 0; i < suffixLength; i++) {
+                decoded[shared + i] = buffer.get(position + 2 + i);
+            }
+            position += 2 + suffixLength;
+            int length = shared + suffixLength;
+            for (int i = 0; i < length; i++) {
+                domain[i] = (char) decoded[length - 1 - i];
+            }
+            action.accept(new String(domain, 0, length));
+        }
+    }
+
+    /**
+     * 读出文件中保存的布隆过滤器（复制位数组，不解码域名）
+     * @param falsePositiveRate 期望的误判率
+     * @return 过滤器；文件中的过滤器不是按该误判率生成时返回 null
+     */
+    public BloomFilter loadFilter(double falsePositiveRate) {
+        int words = (buffer.capacity() - filterOffset) / Long.BYTES;
+        if ((long) words * 64 != BloomFilter.bitCountFor(entryCount, falsePositiveRate)) {
+            return null;
+        }
+        long[] bits = new long[words];
+        ByteBuffer section = buffer.duplicate();
+        section.position(filterOffset);
+        section.asLongBuffer().get(bits);
+        BloomFilter filter = new BloomFilter(entryCount, falsePositiveRate, bits);
+        return filter.getHashCount() == filterHashCount ? filter : null;
+    }
+
+    /**
+     * 获取生成该文件时记录的源文件指纹
+     * @return 源文件指纹
+     */
+    public long getSourceFingerprint() {
+        return sourceFingerprint;
+    }
+
+    /**
+     * 文件总字节数
+     * @return 字节数
+     */
+    public int getByteSize() {
+        return buffer.capacity();
+    }
+
+    private static final class Scratch {
+        private final byte[] target = new byte[MAX_KEY_LENGTH + 1];
+        private final byte[] decoded = new byte[MAX_KEY_LENGTH + 1];
+    }
+
+    @Override
+    public String toString() {
+        return "DomainSetFile{" +
+                "entries=" + entryCount +
+                ", blocks=" + blockCount +
+                ", bytes=" + buffer.capacity() +
+                '}';
+    }
+}
@@ -0,0 +1,407 @@
+package com.tsymq.rule;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 反向标签域名字典树
+ * 域名按标签倒序插入（m.youtube.com → com → youtube → m），查询时从主机名末尾逐个标签向下走，
+ * 遇到终止节点即命中，因此同时支持精确匹配和子域名匹配，耗时只与主机名的标签数有关
+ *
+ * 节点信息（父节点、标签）存放在平行数组中，所有边存放在一张以（父节点, 标签）为键的开放寻址哈希表中，
+ * 查询不产生对象分配；通过 {@link Builder} 可以直接从字节缓冲区插入域名，导入大列表时无需为每行创建字符串
+ */
+public final class DomainTrie implements DomainSet {
+
+    private static final int ROOT = 0;
+    private static final int EMPTY_SLOT = 0;
+    private static final DomainTrie EMPTY = new Builder().build();
+
+    private final int size;
+    private final int nodeCount;
+    private final int[] nodeParent;
+    private final int[] nodeLabelStart;
+    private final int[] nodeLabelLength;
+    private final boolean[] terminal;
+    private final byte[] labelPool;
+    // 哈希表：存放子节点编号，0 表示空槽（子节点编号从 1 开始）
+    private final int[] slots;
+    private final int mask;
+
+    private DomainTrie(Builder builder) {
+        this.size = builder.size;
+        this.nodeCount = builder.nodeCount;
+        this.nodeParent = Arrays.copyOf(builder.nodeParent, nodeCount);
+        this.nodeLabelStart = Arrays.copyOf(builder.nodeLabelStart, nodeCount);
+        this.nodeLabelLength = Arrays.copyOf(builder.nodeLabelLength, nodeCount);
+        this.terminal = Arrays.copyOf(builder.terminal, nodeCount);
+        this.labelPool = Arrays.copyOf(builder.labelPool, builder.poolSize);
+        this.slots = builder.slots.clone();
+        this.mask = slots.length - 1;
+    }
+
+    /**
+     * 获取空字典树
+     * @return 不含任何域名的字典树
+     */
+    public static DomainTrie empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 编译域名集合
+     * @param domainNames 域名集合（会被转为小写，非法域名会被忽略）
+     * @return 编译后的字典树
+     */
+    public static DomainTrie compile(Collection<String> domainNames) {
+        Builder builder = new Builder();
+        if (domainNames != null) {
+            for (String domain : domainNames) {
+                if (domain != null) {
+                    builder.add(domain);
+                }
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public boolean matchesUrl(CharSequence url) {
+        if (url == null || size == 0) {
+            return false;
+        }
+        int start = UrlHosts.hostStart(url);
+        int end = UrlHosts.hostEnd(url, start);
+        return matchesHost(url, start, end);
+    }
+
+    @Override
+    public boolean matchesHost(CharSequence text, int from, int to) {
+        int node = ROOT;
+        int end = to;
+        while (end > from) {
+            int dot = end - 1;
+            while (dot >= from && text.charAt(dot) != '.') {
+                dot--;
+            }
+            node = child(node, text, dot + 1, end);
+            if (node < 0) {
+                return false;
+            }
+            if (terminal[node]) {
+                return true;
+            }
+            end = dot;
+        }
+        return false;
+    }
+
+    private int child(int parent, CharSequence text, int from, int to) {
+        int length = to - from;
+        if (length <= 0) {
+            return -1;
+        }
+        int slot = hash(parent, text, from, to) & mask;
+        while (true) {
+            int child = slots[slot];
+            if (child == EMPTY_SLOT) {
+                return -1;
+            }
+            if (nodeParent[child] == parent && nodeLabelLength[child] == length
+                    && labelEquals(labelPool, nodeLabelStart[child], text, from, length)) {
+                return child;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * 获取编译进字典树的域名
+     * 域名由节点反向拼接得到，每次调用都会重新生成，不应在热路径上使用
+     * @return 不可修改的域名集合
+     */
+    public Set<String> getDomains() {
+        Set<String> domains = new LinkedHashSet<>(Math.max(16, size * 2));
+        forEachDomain(domains::add);
+        return Collections.unmodifiableSet(domains);
+    }
+
+    @Override
+    public void forEachDomain(Consumer<? super String> action) {
+        StringBuilder sb = new StringBuilder();
+        for (int node = 1; node < nodeCount; node++) {
+            if (!terminal[node]) {
+                continue;
+            }
+            sb.setLength(0);
+            for (int n = node; n != ROOT; n = nodeParent[n]) {
+                if (sb.length() > 0) {
+                    sb.append('.');
+                }
+                int start = nodeLabelStart[n];
+                for (int i = 0; i < nodeLabelLength[n]; i++) {
+                    sb.append((char) labelPool[start + i]);
+                }
+            }
+            action.accept(sb.toString());
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 节点数（用于统计内存占用）
+     * @return 节点数
+     */
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    private static boolean labelEquals(byte[] pool, int poolStart, CharSequence text, int from, int length) {
+        for (int i = 0; i < length; i++) {
+            if (pool[poolStart + i] != toLower(text.charAt(from + i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(int parent, CharSequence text, int from, int to) {
+        int h = parent * 0x9E3779B9;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + toLower(text.charAt(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int hash(int parent, ByteBuffer buffer, int from, int to) {
+        int h = parent * 0x9E3779B9;
+        for (int i = from; i < to; i++) {
+            h = 31 * h + toLower((char) buffer.get(i));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static int toLower(char c) {
+        return (c >= 'A' && c <= 'Z') ? c + ('a' - 'A') : c;
+    }
+
+    private static boolean isLabelByte(int b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '-' || b == '_';
+    }
+
+    /**
+     * 字典树构建器（非线程安全）
+     * 支持从字符串或字节缓冲区插入域名，插入时自动去重
+     */
+    public static final class Builder {
+
+        private int size;
+        private int nodeCount = 1;
+        private int[] nodeParent = new int[16];
+        private int[] nodeLabelStart = new int[16];
+        private int[] nodeLabelLength = new int[16];
+        private boolean[] terminal = new boolean[16];
+        private byte[] labelPool = new byte[64];
+        private int poolSize;
+        private int[] slots = new int[32];
+
+        /**
+         * 插入一个域名
+         * @param domain 域名（不合法时忽略）
+         * @return 是否是新域名（重复或非法返回 false）
+         */
+        public boolean add(CharSequence domain) {
+            if (!UrlHosts.isDomainName(domain)) {
+                return false;
+            }
+            int node = ROOT;
+            int end = domain.length();
+            while (end > 0) {
+                int dot = end - 1;
+                while (dot >= 0 && domain.charAt(dot) != '.') {
+                    dot--;
+                }
+                node = findOrCreate(node, domain, dot + 1, end);
+                end = dot;
+            }
+            return markTerminal(node);
+        }
+
+        /**
+         * 从字节缓冲区插入一个 ASCII 域名，不创建字符串
+         * @param buffer 缓冲区（按绝对下标读取，不改变 position）
+         * @param from 域名起始下标（包含）
+         * @param to 域名结束下标（不包含）
+         * @return 是否是新域名（重复或非法返回 false）
+         */
+        public boolean add(ByteBuffer buffer, int from, int to) {
+            if (!isDomainName(buffer, from, to)) {
+                return false;
+            }
+            int node = ROOT;
+            int end = to;
+            while (end > from) {
+                int dot = end - 1;
+                while (dot >= from && buffer.get(dot) != '.') {
+                    dot--;
+                }
+                node = findOrCreate(node, buffer, dot + 1, end);
+                end = dot;
+            }
+            return markTerminal(node);
+        }
+
+        private boolean markTerminal(int node) {
+            if (terminal[node]) {
+                return false;
+            }
+            terminal[node] = true;
+            size++;
+            return true;
+        }
+
+        private int findOrCreate(int parent, CharSequence text, int from, int to) {
+            int length = to - from;
+            int mask = slots.length - 1;
+            int slot = hash(parent, text, from, to) & mask;
+            while (slots[slot] != EMPTY_SLOT) {
+                int child = slots[slot];
+                if (nodeParent[child] == parent && nodeLabelLength[child] == length
+                        && labelEquals(labelPool, nodeLabelStart[child], text, from, length)) {
+                    return child;
+                }
+                slot = (slot + 1) & mask;
+            }
+            ensurePool(length);
+            int start = poolSize;
+            for (int i = from; i < to; i++) {
+                labelPool[poolSize++] = (byte) toLower(text.charAt(i));
+            }
+            return newNode(parent, start, length, slot);
+        }
+
+        private int findOrCreate(int parent, ByteBuffer buffer, int from, int to) {
+            int length = to - from;
+            int mask = slots.length - 1;
+            int slot = hash(parent, buffer, from, to) & mask;
+            while (slots[slot] != EMPTY_SLOT) {
+                int child = slots[slot];
+                if (nodeParent[child] == parent && nodeLabelLength[child] == length
+                        && bytesEqual(nodeLabelStart[child], buffer, from, length)) {
+                    return child;
+                }
+                slot = (slot + 1) & mask;
+            }
+            ensurePool(length);
+            int start = poolSize;
+            for (int i = from; i < to; i++) {
+                labelPool[poolSize++] = (byte) toLower((char) buffer.get(i));
+            }
+            return newNode(parent, start, length, slot);
+        }
+
+        private boolean bytesEqual(int poolStart, ByteBuffer buffer, int from, int length) {
+            for (int i = 0; i < length; i++) {
+                if (labelPool[poolStart + i] != toLower((char) buffer.get(from + i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int newNode(int parent, int labelStart, int labelLength, int slot) {
+            if (nodeCount == nodeParent.length) {
+                int capacity = nodeCount * 2;
+                nodeParent = Arrays.copyOf(nodeParent, capacity);
+                nodeLabelStart = Arrays.copyOf(nodeLabelStart, capacity);
+                nodeLabelLength = Arrays.copyOf(nodeLabelLength, capacity);
+                terminal = Arrays.copyOf(terminal, capacity);
+            }
+            int node = nodeCount++;
+            nodeParent[node] = parent;
+            nodeLabelStart[node] = labelStart;
+            nodeLabelLength[node] = labelLength;
+            slots[slot] = node;
+            // 装载因子超过 0.5 时扩容
+            if (nodeCount * 2 > slots.length) {
+                rehash();
+            }
+            return node;
+        }
+
+        private void ensurePool(int extra) {
+            if (poolSize + extra > labelPool.length) {
+                labelPool = Arrays.copyOf(labelPool, Math.max(labelPool.length * 2, poolSize + extra));
+            }
+        }
+
+        private void rehash() {
+            int[] newSlots = new int[slots.length * 2];
+            int mask = newSlots.length - 1;
+            for (int node = 1; node < nodeCount; node++) {
+                int h = nodeParent[node] * 0x9E3779B9;
+                int start = nodeLabelStart[node];
+                for (int i = 0; i < nodeLabelLength[node]; i++) {
+                    h = 31 * h + labelPool[start + i];
+                }
+                int slot = (h ^ (h >>> 16)) & mask;
+                while (newSlots[slot] != EMPTY_SLOT) {
+                    slot = (slot + 1) & mask;
+                }
+                newSlots[slot] = node;
+            }
+            slots = newSlots;
+        }
+
+        static boolean isDomainName(ByteBuffer buffer, int from, int to) {
+            int length = to - from;
+            if (length <= 0 || length > 253) {
+                return false;
+            }
+            int dots = 0;
+            int labelLength = 0;
+            for (int i = from; i < to; i++) {
+                byte b = buffer.get(i);
+                if (b == '.') {
+                    if (labelLength == 0) {
+                        return false;
+                    }
+                    dots++;
+                    labelLength = 0;
+                } else if (isLabelByte(b)) {
+                    if (++labelLength > 63) {
+                        return false;
+                    }
+                } else {
+                    return false;
+                }
+            }
+            return dots > 0 && labelLength > 0;
+        }
+
+        /**
+         * 当前已插入的域名数量
+         * @return 域名数量
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * 生成不可变的字典树（构建器之后仍可继续使用）
+         * @return 字典树
+         */
+        public DomainTrie build() {
+            return new DomainTrie(this);
+        }
+    }
+}
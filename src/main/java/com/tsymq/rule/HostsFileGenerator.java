@@ -0,0 +1,296 @@
+package com.tsymq.rule;
+
+import com.tsymq.config.AppConfig;
+import com.tsymq.config.BlockedSitesConfig;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * hosts 格式屏蔽文件生成器
+ * 把当前生效的屏蔽列表（硬编码规则中的域名；学习模式下再加上用户域名规则和导入的列表）渲染为
+ * "0.0.0.0 域名" 行，供 /etc/hosts、dnsmasq addn-hosts 等按主机名解析的工具使用。
+ * 关键词规则无法用 hosts 格式表达，不写入文件。
+ * <p>
+ * 写入时先写同目录下的临时文件并落盘，再原子重命名为目标文件，读取方不会看到写了一半的文件。
+ * 与上一次生成的输入比较：模式和域名集合对象都没变时直接返回；用户域名集合重新编译过（如只改了关键词规则）
+ * 时比较其内容摘要，内容相同则不写文件。文件只写一遍，用大缓冲区流式写出。线程安全
+ */
+public class HostsFileGenerator {
+
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final Path target;
+    private final byte[] linePrefix;
+    private final boolean wwwAliases;
+    private final int bufferBytes;
+
+    // 上一次生成时的输入
+    private DomainSet lastUserDomains;
+    private DomainSet lastImportedDomains;
+    private boolean lastFocus;
+    private byte[] lastUserDigest;
+
+    private long checks;
+    private long writes;
+    private int lastEntries;
+    private int skippedKeywords;
+
+    /**
+     * @param target 目标文件
+     * @param address 屏蔽域名解析到的地址，如 0.0.0.0
+     * @param wwwAliases 是否为每个域名同时写入 www. 子域名（hosts 文件不匹配子域名）
+     * @param bufferBytes 写文件的缓冲区大小
+     */
+    public HostsFileGenerator(Path target, String address, boolean wwwAliases, int bufferBytes) {
+        this.target = target;
+        this.linePrefix = (address + " ").getBytes(StandardCharsets.US_ASCII);
+        this.wwwAliases = wwwAliases;
+        this.bufferBytes = bufferBytes;
+    }
+
+    /**
+     * 使用配置中的地址和缓冲区大小
+     * @param target 目标文件
+     * @return 生成器
+     */
+    public static HostsFileGenerator configured(Path target) {
+        return new HostsFileGenerator(target, AppConfig.HOSTS_FILE_ADDRESS, AppConfig.HOSTS_FILE_WWW_ALIASES,
+                AppConfig.HOSTS_FILE_BUFFER_BYTES);
+    }
+
+    /**
+     * 按规则快照和当前模式生成文件
+     * @param snapshot 规则快照
+     * @param focus 是否处于学习模式（用户规则和导入列表只在学习模式下生效）
+     * @return 是否写入了文件
+     * @throws IOException 写入或重命名失败，目标文件保持原样
+     */
+    public synchronized boolean generate(RuleSnapshot snapshot, boolean focus) throws IOException {
+        // 普通模式下用户规则和导入列表不影响结果
+        DomainSet userDomains = focus ? snapshot.getBlockedDomains() : null;
+        DomainSet importedDomains = focus ? snapshot.getImportedDomains() : null;
+        boolean rendered = lastUserDigest != null;
+        if (rendered && focus == lastFocus && userDomains == lastUserDomains && importedDomains == lastImportedDomains) {
+            return false;
+        }
+        checks++;
+        skippedKeywords = focus ? snapshot.getBlockedKeywords().size() : 0;
+
+        // 用户规则每次编辑都会重新编译集合（包括只改关键词规则），按内容比较；导入的列表只在重新导入时替换，按对象比较
+        byte[] userDigest = digest(userDomains);
+        boolean changed = !rendered || focus != lastFocus || importedDomains != lastImportedDomains
+                || !Arrays.equals(userDigest, lastUserDigest) || !Files.exists(target);
+        if (changed) {
+            lastEntries = write(userDomains, importedDomains);
+            writes++;
+        }
+        lastUserDigest = userDigest;
+        lastFocus = focus;
+        lastUserDomains = userDomains;
+        lastImportedDomains = importedDomains;
+        return changed;
+    }
+
+    private static byte[] digest(DomainSet domains) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        if (domains != null) {
+            domains.forEachDomain(domain -> {
+                digest.update(domain.getBytes(StandardCharsets.US_ASCII));
+                digest.update((byte) '\n');
+            });
+        }
+        return digest.digest();
+    }
+
+    /**
+     * 流式写入临时文件，落盘后原子重命名为目标文件
+     * @return 写入的域名数
+     */
+    private int write(DomainSet userDomains, DomainSet importedDomains) throws IOException {
+        Path directory = target.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, "." + target.getFileName(), ".tmp");
+        int entries;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                 LineSink sink = new LineSink(Channels.newOutputStream(channel), bufferBytes)) {
+                entries = render(sink, userDomains, importedDomains);
+                sink.flush();
+                // 重命名前落盘，断电后目标文件要么是旧内容要么是完整的新内容
+                channel.force(true);
+            }
+            try {
+                // hosts 文件需要其他用户可读，临时文件默认只有所有者可读
+                Files.setPosixFilePermissions(temp, PosixFilePermissions.fromString("rw-r--r--"));
+            } catch (UnsupportedOperationException e) {
+                // 非 POSIX 文件系统
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return entries;
+    }
+
+    /**
+     * 按固定顺序渲染全部行：硬编码域名、用户域名规则、导入的域名，重复的域名只写一次
+     * @return 写入的域名数（不含 www. 别名）
+     */
+    private int render(LineSink sink, DomainSet userDomains, DomainSet importedDomains) throws IOException {
+        Set<String> small = new LinkedHashSet<>();
+        for (String keyword : BlockedSitesConfig.getHardcodedMatcher().getKeywords()) {
+            BlockRule rule = BlockRule.parse(keyword);
+            if (rule != null && rule.getType() == BlockRule.Type.DOMAIN) {
+                small.add(rule.getPattern());
+            }
+        }
+        if (userDomains != null) {
+            userDomains.forEachDomain(small::add);
+        }
+        sink.writeAscii("# Generated by " + AppConfig.APP_NAME + "; changes are overwritten\n");
+        sink.writeAscii("# mode: " + (userDomains != null ? "FOCUS" : "NORMAL") + "\n");
+        int[] entries = {0};
+        for (String domain : small) {
+            writeEntry(sink, domain);
+            entries[0]++;
+        }
+        if (importedDomains != null) {
+            IOException[] failure = {null};
+            importedDomains.forEachDomain(domain -> {
+                if (failure[0] != null || small.contains(domain)) {
+                    return;
+                }
+                try {
+                    writeEntry(sink, domain);
+                    entries[0]++;
+                } catch (IOException e) {
+                    failure[0] = e;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+        }
+        return entries[0];
+    }
+
+    private void writeEntry(LineSink sink, String domain) throws IOException {
+        sink.write(linePrefix);
+        sink.writeAscii(domain);
+        sink.write(NEWLINE);
+        if (wwwAliases && !domain.startsWith("www.")) {
+            sink.write(linePrefix);
+            sink.writeAscii("www.");
+            sink.writeAscii(domain);
+            sink.write(NEWLINE);
+        }
+    }
+
+    /**
+     * 按字节缓冲的输出：缓冲区满时整块写出，域名是 ASCII，逐字符写入缓冲区而不经过字符编码器
+     */
+    private static final class LineSink implements AutoCloseable {
+
+        private final OutputStream out;
+        private final byte[] buffer;
+        private int count;
+
+        LineSink(OutputStream out, int bufferBytes) {
+            this.out = out;
+            this.buffer = new byte[bufferBytes];
+        }
+
+        void write(byte[] bytes) throws IOException {
+            if (count + bytes.length > buffer.length) {
+                flush();
+            }
+            System.arraycopy(bytes, 0, buffer, count, bytes.length);
+            count += bytes.length;
+        }
+
+        void writeAscii(String text) throws IOException {
+            int length = text.length();
+            if (count + length > buffer.length) {
+                flush();
+                if (length > buffer.length) {
+                    write(text.getBytes(StandardCharsets.US_ASCII));
+                    return;
+                }
+            }
+            for (int i = 0; i < length; i++) {
+                buffer[count++] = (byte) text.charAt(i);
+            }
+        }
+
+        void flush() throws IOException {
+            if (count == 0) {
+                return;
+            }
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    public Path getTarget() {
+        return target;
+    }
+
+    /**
+     * 累计比较输入的次数（输入对象完全相同的调用不计入）
+     * @return 比较次数
+     */
+    public synchronized long getChecks() {
+        return checks;
+    }
+
+    /**
+     * 累计写文件次数
+     * @return 写入次数
+     */
+    public synchronized long getWrites() {
+        return writes;
+    }
+
+    /**
+     * 最近一次写入的域名数
+     * @return 域名数
+     */
+    public synchronized int getEntries() {
+        return lastEntries;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("HostsFileGenerator{target=%s, entries=%d, skippedKeywordRules=%d, checks=%d, writes=%d}",
+                target, lastEntries, skippedKeywords, checks, writes);
+    }
+}
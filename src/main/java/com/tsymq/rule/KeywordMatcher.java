@@ -0,0 +1,253 @@
+package com.tsymq.rule;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 多关键词匹配器（Aho-Corasick 自动机）
+ * 关键词列表只编译一次，之后不可变，可在线程间安全共享
+ * 查询时只对文本做一次顺序扫描，不产生任何对象分配，耗时与关键词数量无关
+ */
+public final class KeywordMatcher {
+
+    private static final int ROOT = 0;
+    private static final int ASCII_SIZE = 128;
+
+    private final Set<String> keywords;
+    private final boolean ignoreCase;
+
+    // 压缩存储的转移表：状态 s 的出边位于 [edgeStart[s], edgeStart[s + 1])，按字符升序排列
+    private final int[] edgeStart;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    // 根节点的 ASCII 直接寻址表，绝大多数 URL 字符走这条快速路径
+    private final int[] rootAscii;
+    private final int[] fail;
+    private final boolean[] output;
+
+    private KeywordMatcher(Set<String> keywords, boolean ignoreCase, int[] edgeStart, char[] edgeChars,
+                           int[] edgeTargets, int[] rootAscii, int[] fail, boolean[] output) {
+        this.keywords = keywords;
+        this.ignoreCase = ignoreCase;
+        this.edgeStart = edgeStart;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.rootAscii = rootAscii;
+        this.fail = fail;
+        this.output = output;
+    }
+
+    /**
+     * 编译大小写敏感的关键词匹配器
+     * @param keywords 关键词集合，空字符串会被忽略
+     * @return 编译后的匹配器
+     */
+    public static KeywordMatcher compile(Collection<String> keywords) {
+        return compile(keywords, false);
+    }
+
+    /**
+     * 编译关键词匹配器
+     * @param keywords 关键词集合，空字符串会被忽略
+     * @param ignoreCase 是否忽略大小写（关键词和待查文本都会转为小写比较）
+     * @return 编译后的匹配器
+     */
+    public static KeywordMatcher compile(Collection<String> keywords, boolean ignoreCase) {
+        Set<String> normalized = new LinkedHashSet<>();
+        if (keywords != null) {
+            for (String keyword : keywords) {
+                if (keyword == null || keyword.isEmpty()) {
+                    continue;
+                }
+                normalized.add(ignoreCase ? keyword.toLowerCase(Locale.ROOT) : keyword);
+            }
+        }
+
+        // 1. 构建字典树
+        BuildNode root = new BuildNode();
+        int nodeCount = 1;
+        for (String keyword : normalized) {
+            BuildNode node = root;
+            for (int i = 0; i < keyword.length(); i++) {
+                char c = keyword.charAt(i);
+                BuildNode next = node.next.get(c);
+                if (next == null) {
+                    next = new BuildNode();
+                    node.next.put(c, next);
+                    nodeCount++;
+                }
+                node = next;
+            }
+            node.output = true;
+        }
+
+        // 2. 按层次遍历计算失败指针，同时按 BFS 顺序编号
+        BuildNode[] ordered = new BuildNode[nodeCount];
+        Queue<BuildNode> queue = new ArrayDeque<>();
+        root.id = ROOT;
+        ordered[ROOT] = root;
+        int nextId = 1;
+        queue.add(root);
+        while (!queue.isEmpty()) {
+            BuildNode node = queue.poll();
+            for (Map.Entry<Character, BuildNode> entry : node.next.entrySet()) {
+                char c = entry.getKey();
+                BuildNode child = entry.getValue();
+                child.id = nextId;
+                ordered[nextId++] = child;
+
+                BuildNode f = node.fail;
+                while (f != null && !f.next.containsKey(c)) {
+                    f = f.fail;
+                }
+                child.fail = (f == null) ? root : f.next.get(c);
+                child.output |= child.fail.output;
+                queue.add(child);
+            }
+        }
+
+        // 3. 展平为数组
+        int edgeCount = nodeCount - 1;
+        int[] edgeStart = new int[nodeCount + 1];
+        char[] edgeChars = new char[edgeCount];
+        int[] edgeTargets = new int[edgeCount];
+        int[] fail = new int[nodeCount];
+        boolean[] output = new boolean[nodeCount];
+        int edge = 0;
+        for (int id = 0; id < nodeCount; id++) {
+            BuildNode node = ordered[id];
+            edgeStart[id] = edge;
+            fail[id] = node.fail == null ? ROOT : node.fail.id;
+            output[id] = node.output;
+            for (Map.Entry<Character, BuildNode> entry : node.next.entrySet()) {
+                edgeChars[edge] = entry.getKey();
+                edgeTargets[edge] = entry.getValue().id;
+                edge++;
+            }
+        }
+        edgeStart[nodeCount] = edge;
+
+        int[] rootAscii = new int[ASCII_SIZE];
+        for (int i = 0; i < ASCII_SIZE; i++) {
+            BuildNode child = root.next.get((char) i);
+            rootAscii[i] = child == null ? ROOT : child.id;
+        }
+
+        return new KeywordMatcher(Collections.unmodifiableSet(normalized), ignoreCase,
+                edgeStart, edgeChars, edgeTargets, rootAscii, fail, output);
+    }
+
+    /**
+     * 检查文本是否包含任意一个关键词
+     * @param text 待检查文本
+     * @return 是否命中
+     */
+    public boolean matches(CharSequence text) {
+        if (text == null || keywords.isEmpty()) {
+            return false;
+        }
+        return matches(text, 0, text.length());
+    }
+
+    /**
+     * 检查文本的指定区间是否包含任意一个关键词
+     * @param text 待检查文本
+     * @param from 起始下标（包含）
+     * @param to 结束下标（不包含）
+     * @return 是否命中
+     */
+    public boolean matches(CharSequence text, int from, int to) {
+        int state = ROOT;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (ignoreCase) {
+                c = Character.toLowerCase(c);
+            }
+            state = step(state, c);
+            if (output[state]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int step(int state, char c) {
+        while (true) {
+            if (state == ROOT) {
+                if (c < ASCII_SIZE) {
+                    return rootAscii[c];
+                }
+                int target = findEdge(ROOT, c);
+                return target < 0 ? ROOT : target;
+            }
+            int target = findEdge(state, c);
+            if (target >= 0) {
+                return target;
+            }
+            state = fail[state];
+        }
+    }
+
+    private int findEdge(int state, char c) {
+        int low = edgeStart[state];
+        int high = edgeStart[state + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 获取编译进自动机的关键词（已规范化、去重）
+     * @return 不可修改的关键词集合
+     */
+    public Set<String> getKeywords() {
+        return keywords;
+    }
+
+    /**
+     * 获取关键词数量
+     * @return 关键词数量
+     */
+    public int size() {
+        return keywords.size();
+    }
+
+    public boolean isEmpty() {
+        return keywords.isEmpty();
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * 自动机状态数（用于统计内存占用）
+     * @return 状态数
+     */
+    public int getStateCount() {
+        return fail.length;
+    }
+
+    private static final class BuildNode {
+        private final TreeMap<Character, BuildNode> next = new TreeMap<>();
+        private BuildNode fail;
+        private boolean output;
+        private int id;
+    }
+}
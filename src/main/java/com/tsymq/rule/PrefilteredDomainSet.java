@@ -0,0 +1,97 @@
+package com.tsymq.rule;
+
+import java.util.function.Consumer;
+
+/**
+ * 带布隆过滤器前置检查的域名集合
+ * 过滤器中存放集合内的全部域名；查询时依次检查主机名的每个后缀（com、youtube.com、m.youtube.com），
+ * 全部判定为不存在时直接返回，无需访问精确结构（字典树或映射文件）。
+ * 映射文件自带按同一误判率生成的过滤器时直接读出，不逐条解码域名
+ */
+public final class PrefilteredDomainSet implements DomainSet {
+
+    private final DomainSet delegate;
+    private final BloomFilter filter;
+
+    private PrefilteredDomainSet(DomainSet delegate, BloomFilter filter) {
+        this.delegate = delegate;
+        this.filter = filter;
+    }
+
+    /**
+     * 为域名集合构建前置过滤器
+     * @param delegate 精确域名集合
+     * @param falsePositiveRate 目标误判率
+     * @return 带过滤器的域名集合
+     */
+    public static PrefilteredDomainSet wrap(DomainSet delegate, double falsePositiveRate) {
+        if (delegate instanceof PrefilteredDomainSet) {
+            delegate = ((PrefilteredDomainSet) delegate).delegate;
+        }
+        BloomFilter filter = delegate instanceof DomainSetFile
+                ? ((DomainSetFile) delegate).loadFilter(falsePositiveRate) : null;
+        if (filter == null) {
+            filter = new BloomFilter(delegate.size(), falsePositiveRate);
+            delegate.forEachDomain(filter::add);
+        }
+        return new PrefilteredDomainSet(delegate, filter);
+    }
+
+    @Override
+    public boolean matchesUrl(CharSequence url) {
+        if (url == null || delegate.isEmpty()) {
+            return false;
+        }
+        int start = UrlHosts.hostStart(url);
+        int end = UrlHosts.hostEnd(url, start);
+        return matchesHost(url, start, end);
+    }
+
+    @Override
+    public boolean matchesHost(CharSequence text, int from, int to) {
+        if (from >= to || delegate.isEmpty()) {
+            return false;
+        }
+        boolean candidate = false;
+        for (int i = to - 1; i >= from; i--) {
+            if (i == from || text.charAt(i - 1) == '.') {
+                if (filter.mightContain(text, i, to)) {
+                    candidate = true;
+                    break;
+                }
+            }
+        }
+        filter.recordQuery(!candidate);
+        if (!candidate) {
+            return false;
+        }
+        boolean matched = delegate.matchesHost(text, from, to);
+        if (!matched) {
+            filter.recordFalsePositive();
+        }
+        return matched;
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public void forEachDomain(Consumer<? super String> action) {
+        delegate.forEachDomain(action);
+    }
+
+    public DomainSet getDelegate() {
+        return delegate;
+    }
+
+    public BloomFilter getFilter() {
+        return filter;
+    }
+
+    @Override
+    public String toString() {
+        return "PrefilteredDomainSet{" + delegate + ", " + filter + '}';
+    }
+}
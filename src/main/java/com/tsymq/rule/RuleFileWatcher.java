@@ -0,0 +1,135 @@
+package com.tsymq.rule;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 规则文件监听器
+ * 基于 {@link WatchService} 监听规则文件所在目录，同一批变更（编辑器保存、脚本连续写入）会被合并：
+ * 收到第一个事件后等待目录安静 debounce 毫秒（最长 {@value #MAX_DEBOUNCE_ROUNDS} 个窗口），
+ * 再在监听线程上依次执行发生变化的文件对应的回调，不会占用监控线程
+ */
+public class RuleFileWatcher implements AutoCloseable {
+
+    private static final int MAX_DEBOUNCE_ROUNDS = 10;
+
+    private final long debounceMillis;
+    private final WatchService watchService;
+    private final Map<Path, Runnable> listeners = new ConcurrentHashMap<>();
+    private final Set<Path> watchedDirs = new HashSet<>();
+    private Thread thread;
+    private volatile boolean closed;
+
+    /**
+     * @param debounceMillis 合并变更的静默窗口（毫秒）
+     * @throws IOException 无法创建 WatchService 时抛出
+     */
+    public RuleFileWatcher(long debounceMillis) throws IOException {
+        this.debounceMillis = debounceMillis;
+        this.watchService = FileSystems.getDefault().newWatchService();
+    }
+
+    /**
+     * 监听一个文件，文件被创建、修改或删除时执行回调
+     * @param file 文件路径（所在目录不存在时会被创建）
+     * @param onChange 变更回调（在监听线程上执行）
+     * @throws IOException 注册目录失败时抛出
+     */
+    public synchronized void watch(Path file, Runnable onChange) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Watcher is closed");
+        }
+        Path target = file.toAbsolutePath().normalize();
+        Path dir = target.getParent();
+        if (watchedDirs.add(dir)) {
+            Files.createDirectories(dir);
+            dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        }
+        listeners.put(target, onChange);
+        if (thread == null) {
+            thread = new Thread(this::run, "rule-file-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                Set<Path> changed = new LinkedHashSet<>();
+                collect(watchService.take(), changed);
+                // 等待目录安静下来，把一连串写入合并为一次重新加载
+                WatchKey key;
+                int rounds = 0;
+                while (rounds++ < MAX_DEBOUNCE_ROUNDS
+                        && (key = watchService.poll(debounceMillis, TimeUnit.MILLISECONDS)) != null) {
+                    collect(key, changed);
+                }
+                for (Path file : changed) {
+                    Runnable listener = listeners.get(file);
+                    if (listener == null) {
+                        continue;
+                    }
+                    try {
+                        listener.run();
+                    } catch (RuntimeException e) {
+                        System.err.println("Error reloading " + file.getFileName() + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException e) {
+            // 正常关闭
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // 事件丢失时重新加载该目录下的全部文件
+                for (Path file : listeners.keySet()) {
+                    if (file.getParent().equals(dir)) {
+                        changed.add(file);
+                    }
+                }
+                continue;
+            }
+            Path file = dir.resolve((Path) event.context()).normalize();
+            if (listeners.containsKey(file)) {
+                changed.add(file);
+            }
+        }
+        key.reset();
+    }
+
+    /**
+     * 停止监听（监听线程在阻塞等待中收到 ClosedWatchServiceException 后退出）
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Error closing file watcher: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,486 @@
+package com.tsymq.rule;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 规则列表的追加日志（write-ahead journal）
+ * 编辑不再整体重写列表文件，而是把 "+规则" / "-规则" 追加到同目录下的 .journal 文件中；
+ * 写入由后台线程完成，一次取出队列中积压的全部操作，合并为一次写入和一次 fsync
+ * 日志超过阈值时压缩：把当前完整列表写入基础文件（临时文件 + 原子替换），再清空日志
+ * 启动时先读基础文件再按顺序重放日志；操作都是幂等的集合增删，压缩中途崩溃后重放也能得到相同结果
+ * 基础文件被外部修改后以修改后的文件为准（见 {@link #reload()}），压缩也不会用旧列表覆盖外部修改
+ */
+public class RuleJournal implements AutoCloseable {
+
+    private static final char OP_ADD = '+';
+    private static final char OP_REMOVE = '-';
+    private static final int MAX_BATCH = 4096;
+
+    private final Path baseFile;
+    private final Path journalFile;
+    private final long compactThresholdBytes;
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final Object lifecycleLock = new Object();
+
+    private Thread writer;
+    private volatile boolean closed;
+    // 最近一次读取或压缩写入的基础文件内容，用来区分外部修改和压缩自身的写入
+    private volatile Set<String> knownBase;
+
+    // 以下字段只由写线程访问
+    private Set<String> state;
+    // 启动时重放失败则只追加、不压缩，避免用不完整的列表覆盖基础文件
+    private boolean compactable;
+    private FileChannel channel;
+    private long compactions;
+
+    /**
+     * @param baseFile 基础列表文件（每行一条规则）
+     * @param compactThresholdBytes 日志超过该大小时压缩进基础文件
+     */
+    public RuleJournal(Path baseFile, long compactThresholdBytes) {
+        this.baseFile = baseFile;
+        this.journalFile = baseFile.resolveSibling(baseFile.getFileName() + ".journal");
+        this.compactThresholdBytes = compactThresholdBytes;
+    }
+
+    /**
+     * 读取基础文件并重放日志（会先等待尚未落盘的操作写完）
+     * @return 当前完整的规则列表（保持插入顺序）
+     * @throws IOException 读取失败时抛出
+     */
+    public Set<String> load() throws IOException {
+        flush();
+        Set<String> base = readBase(baseFile);
+        knownBase = base;
+        Set<String> rules = new LinkedHashSet<>(base);
+        replayJournal(journalFile, rules);
+        return rules;
+    }
+
+    /**
+     * 基础文件变化后重新加载（会先等待此前提交的操作写完）
+     * 内容与上次读取或压缩写入的相同时（如压缩自身的写入）按基础文件加日志重放；
+     * 否则视为外部修改，以修改后的文件为准：丢弃尚未压缩的日志，并把写线程维护的列表重置为该文件的内容，
+     * 否则日志中的 "+规则" 会恢复外部刚删除的规则，之后的压缩也会用旧列表覆盖外部修改
+     * @return 当前完整的规则列表（保持插入顺序）
+     * @throws IOException 读取或清空日志失败时抛出
+     */
+    public Set<String> reload() throws IOException {
+        Reload reload = new Reload();
+        if (!enqueue(reload)) {
+            return replay(baseFile, journalFile);
+        }
+        try {
+            reload.latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reloading " + baseFile, e);
+        }
+        if (reload.error != null) {
+            throw reload.error;
+        }
+        return reload.result;
+    }
+
+    /**
+     * 记录添加一条规则（异步写入）
+     * @param rule 规则
+     */
+    public void recordAdd(String rule) {
+        enqueue(new Entry(OP_ADD, rule));
+    }
+
+    /**
+     * 记录删除一条规则（异步写入）
+     * @param rule 规则
+     */
+    public void recordRemove(String rule) {
+        enqueue(new Entry(OP_REMOVE, rule));
+    }
+
+    /**
+     * 批量记录添加，保证在同一次写入中落盘
+     * @param rules 规则集合
+     */
+    public void recordAddAll(Collection<String> rules) {
+        List<Entry> entries = new ArrayList<>(rules.size());
+        for (String rule : rules) {
+            if (isValidRule(rule)) {
+                entries.add(new Entry(OP_ADD, rule));
+            }
+        }
+        if (!entries.isEmpty()) {
+            enqueue(new Batch(entries));
+        }
+    }
+
+    /**
+     * 请求立即压缩（异步执行）
+     */
+    public void requestCompaction() {
+        enqueue(Compact.INSTANCE);
+    }
+
+    /**
+     * 等待此前提交的全部操作写入并 fsync
+     */
+    public void flush() {
+        Barrier barrier = new Barrier();
+        if (!enqueue(barrier)) {
+            return;
+        }
+        try {
+            barrier.latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 写完剩余操作后停止写线程
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (lifecycleLock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            thread = writer;
+            if (thread != null) {
+                queue.add(Stop.INSTANCE);
+            }
+        }
+        if (thread != null) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public Path getJournalFile() {
+        return journalFile;
+    }
+
+    /**
+     * 已执行的压缩次数
+     * @return 压缩次数
+     */
+    public long getCompactions() {
+        synchronized (lifecycleLock) {
+            return compactions;
+        }
+    }
+
+    private boolean enqueue(Object item) {
+        if (item instanceof Entry && !isValidRule(((Entry) item).rule)) {
+            return false;
+        }
+        synchronized (lifecycleLock) {
+            if (closed) {
+                System.err.println("Rule journal is closed, dropping edit: " + item);
+                return false;
+            }
+            if (writer == null) {
+                writer = new Thread(this::runWriter, "rule-journal-writer");
+                writer.setDaemon(true);
+                writer.start();
+            }
+            queue.add(item);
+            return true;
+        }
+    }
+
+    private static boolean isValidRule(String rule) {
+        return rule != null && !rule.trim().isEmpty() && rule.indexOf('\n') < 0 && rule.indexOf('\r') < 0;
+    }
+
+    private void runWriter() {
+        List<Object> batch = new ArrayList<>();
+        try {
+            try {
+                state = replay(baseFile, journalFile);
+                compactable = true;
+            } catch (IOException e) {
+                System.err.println("Error replaying rule journal, compaction disabled: " + e.getMessage());
+                state = new LinkedHashSet<>();
+            }
+            boolean running = true;
+            while (running) {
+                batch.add(queue.take());
+                queue.drainTo(batch, MAX_BATCH);
+                running = processBatch(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            closeChannel();
+            // 释放仍在等待的调用方
+            for (Object item : batch) {
+                release(item);
+            }
+            for (Object item : queue) {
+                release(item);
+            }
+        }
+    }
+
+    private boolean processBatch(List<Object> batch) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        boolean compact = false;
+        boolean stop = false;
+        for (Object item : batch) {
+            if (item instanceof Entry) {
+                append(out, (Entry) item);
+            } else if (item instanceof Batch) {
+                for (Entry entry : ((Batch) item).entries) {
+                    append(out, entry);
+                }
+            } else if (item instanceof Reload) {
+                // 之前的操作先写入日志，之后的操作追加到重新加载后的列表上
+                try {
+                    writeJournal(out);
+                } catch (IOException e) {
+                    System.err.println("Error writing rule journal: " + e.getMessage());
+                }
+                out.reset();
+                reload((Reload) item);
+            } else if (item == Compact.INSTANCE) {
+                compact = true;
+            } else if (item == Stop.INSTANCE) {
+                stop = true;
+            }
+        }
+
+        try {
+            writeJournal(out);
+            if (compactable && (compact || (channel != null && channel.size() > compactThresholdBytes))) {
+                compact();
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing rule journal: " + e.getMessage());
+        }
+
+        for (Object item : batch) {
+            release(item);
+        }
+        return !stop;
+    }
+
+    private void writeJournal(ByteArrayOutputStream out) throws IOException {
+        if (out.size() == 0) {
+            return;
+        }
+        FileChannel journal = openChannel();
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+        while (buffer.hasRemaining()) {
+            journal.write(buffer);
+        }
+        journal.force(false);
+    }
+
+    private void reload(Reload reload) {
+        try {
+            Set<String> base = readBase(baseFile);
+            if (base.equals(knownBase)) {
+                Set<String> rules = new LinkedHashSet<>(base);
+                replayJournal(journalFile, rules);
+                reload.result = rules;
+            } else {
+                // 外部修改：日志中的操作都基于旧文件，全部丢弃
+                if (channel != null || Files.exists(journalFile)) {
+                    openChannel().truncate(0);
+                    channel.force(false);
+                }
+                knownBase = base;
+                state = new LinkedHashSet<>(base);
+                compactable = true;
+                reload.result = new LinkedHashSet<>(base);
+                System.out.println("Reloaded externally modified " + baseFile.getFileName() + ", discarded pending journal");
+            }
+        } catch (IOException e) {
+            reload.error = e;
+        }
+    }
+
+    private void append(ByteArrayOutputStream out, Entry entry) {
+        if (entry.op == OP_ADD) {
+            state.add(entry.rule);
+        } else {
+            state.remove(entry.rule);
+        }
+        out.write(entry.op);
+        byte[] bytes = entry.rule.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+        out.write('\n');
+    }
+
+    private void compact() throws IOException {
+        Set<String> known = knownBase;
+        if (known != null && Files.exists(baseFile) && !readBase(baseFile).equals(known)) {
+            // 基础文件被外部修改且还未重新加载，等 reload() 以新文件为准后再压缩
+            System.out.println("Postponing rule journal compaction: " + baseFile.getFileName() + " changed externally");
+            return;
+        }
+        Path parent = baseFile.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, baseFile.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                for (String rule : state) {
+                    writer.write(rule);
+                    writer.newLine();
+                }
+            }
+            try (FileChannel sync = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                sync.force(true);
+            }
+            Files.move(temp, baseFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        knownBase = new LinkedHashSet<>(state);
+        // 基础文件已包含全部操作，日志可以清空
+        openChannel().truncate(0);
+        channel.force(false);
+        synchronized (lifecycleLock) {
+            compactions++;
+        }
+        System.out.println("Compacted rule journal into " + baseFile.getFileName() + ": " + state.size() + " rules");
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel == null) {
+            Files.createDirectories(journalFile.toAbsolutePath().getParent());
+            channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing rule journal: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    private static void release(Object item) {
+        if (item instanceof Barrier) {
+            ((Barrier) item).latch.countDown();
+        } else if (item instanceof Reload) {
+            ((Reload) item).latch.countDown();
+        }
+    }
+
+    /**
+     * 读取基础文件并按顺序重放日志
+     * 日志最后一行没有换行符时说明写入中途中断，忽略该行
+     */
+    static Set<String> replay(Path baseFile, Path journalFile) throws IOException {
+        Set<String> rules = readBase(baseFile);
+        replayJournal(journalFile, rules);
+        return rules;
+    }
+
+    private static Set<String> readBase(Path baseFile) throws IOException {
+        Set<String> rules = new LinkedHashSet<>();
+        if (Files.exists(baseFile)) {
+            try (Stream<String> lines = Files.lines(baseFile, StandardCharsets.UTF_8)) {
+                lines.filter(line -> !line.trim().isEmpty())
+                    .forEach(rules::add);
+            }
+        }
+        return rules;
+    }
+
+    private static void replayJournal(Path journalFile, Set<String> rules) throws IOException {
+        if (Files.exists(journalFile)) {
+            String content = new String(Files.readAllBytes(journalFile), StandardCharsets.UTF_8);
+            int start = 0;
+            int newline;
+            while ((newline = content.indexOf('\n', start)) >= 0) {
+                if (newline - start > 1) {
+                    char op = content.charAt(start);
+                    String rule = content.substring(start + 1, newline);
+                    if (op == OP_ADD) {
+                        rules.add(rule);
+                    } else if (op == OP_REMOVE) {
+                        rules.remove(rule);
+                    }
+                }
+                start = newline + 1;
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final char op;
+        private final String rule;
+
+        private Entry(char op, String rule) {
+            this.op = op;
+            this.rule = rule;
+        }
+
+        @Override
+        public String toString() {
+            return op + rule;
+        }
+    }
+
+    private static final class Batch {
+        private final List<Entry> entries;
+
+        private Batch(List<Entry> entries) {
+            this.entries = entries;
+        }
+
+        @Override
+        public String toString() {
+            return entries.size() + " entries";
+        }
+    }
+
+    private static final class Barrier {
+        private final CountDownLatch latch = new CountDownLatch(1);
+    }
+
+    private static final class Reload {
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private Set<String> result;
+        private IOException error;
+    }
+
+    private enum Compact { INSTANCE }
+
+    private enum Stop { INSTANCE }
+}
@@ -0,0 +1,218 @@
+package com.tsymq.rule;
+
+import com.tsymq.config.AppConfig;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 用户规则快照
+ * 包含用户屏蔽列表、白名单及其编译后的匹配器，创建后不可变
+ * 屏蔽列表中的每条规则在编译时自动归类（见 {@link BlockRule}）：域名规则进入 {@link DomainTrie}，
+ * 其余作为关键词规则进入 {@link KeywordMatcher}
+ * 从社区列表导入的大量域名单独保存在 importedDomains 中，不会写回 blocked_websites.txt
+ * 两类域名集合都包一层布隆过滤器（{@link PrefilteredDomainSet}），绝大多数未屏蔽的主机名无需访问精确结构
+ * 任何编辑都会生成一个新的快照（写时复制），读线程无需加锁
+ * 每个快照带有全局递增的代号（generation），下游缓存可以用它判断规则是否已变化
+ */
+public final class RuleSnapshot {
+
+    private static final AtomicLong GENERATION_SEQUENCE = new AtomicLong();
+
+    private final long generation;
+    private final Set<String> blockedRules;
+    private final Set<String> whiteRules;
+    private final PrefilteredDomainSet blockedDomains;
+    private final KeywordMatcher blockedKeywords;
+    private final PrefilteredDomainSet importedDomains;
+    private final KeywordMatcher whiteMatcher;
+
+    private RuleSnapshot(Set<String> blockedRules, CompiledBlockRules compiled, PrefilteredDomainSet importedDomains,
+                         Set<String> whiteRules, KeywordMatcher whiteMatcher) {
+        this.generation = GENERATION_SEQUENCE.incrementAndGet();
+        this.blockedRules = blockedRules;
+        this.whiteRules = whiteRules;
+        this.blockedDomains = compiled.domains;
+        this.blockedKeywords = compiled.keywords;
+        this.importedDomains = importedDomains;
+        this.whiteMatcher = whiteMatcher;
+    }
+
+    /**
+     * 创建空快照
+     * @return 不含任何规则的快照
+     */
+    public static RuleSnapshot empty() {
+        return of(Collections.emptySet(), Collections.emptySet());
+    }
+
+    /**
+     * 根据屏蔽列表和白名单编译快照
+     * @param blockedRules 用户屏蔽规则
+     * @param whiteRules 白名单规则（按标题匹配）
+     * @return 新快照
+     */
+    public static RuleSnapshot of(Collection<String> blockedRules, Collection<String> whiteRules) {
+        Set<String> blocked = freeze(blockedRules);
+        Set<String> white = freeze(whiteRules);
+        return new RuleSnapshot(blocked, CompiledBlockRules.compile(blocked), prefilter(DomainTrie.empty()),
+                white, KeywordMatcher.compile(white));
+    }
+
+    /**
+     * 添加一条屏蔽规则，返回新快照（白名单匹配器直接复用）
+     * @param rule 屏蔽规则
+     * @return 新快照
+     */
+    public RuleSnapshot withBlockedRule(String rule) {
+        Set<String> blocked = new LinkedHashSet<>(blockedRules);
+        blocked.add(rule);
+        return withBlockedRules(blocked);
+    }
+
+    /**
+     * 删除一条屏蔽规则，返回新快照（白名单匹配器直接复用）
+     * @param rule 屏蔽规则
+     * @return 新快照，规则不存在时返回当前快照
+     */
+    public RuleSnapshot withoutBlockedRule(String rule) {
+        if (!blockedRules.contains(rule)) {
+            return this;
+        }
+        Set<String> blocked = new LinkedHashSet<>(blockedRules);
+        blocked.remove(rule);
+        return withBlockedRules(blocked);
+    }
+
+    /**
+     * 替换屏蔽列表，返回新快照（白名单匹配器直接复用）
+     * @param rules 新的屏蔽列表
+     * @return 新快照
+     */
+    public RuleSnapshot withBlockedRules(Collection<String> rules) {
+        Set<String> blocked = freeze(rules);
+        return new RuleSnapshot(blocked, CompiledBlockRules.compile(blocked), importedDomains,
+                whiteRules, whiteMatcher);
+    }
+
+    /**
+     * 替换白名单，返回新快照（屏蔽匹配器直接复用）
+     * @param rules 新的白名单
+     * @return 新快照
+     */
+    public RuleSnapshot withWhiteRules(Collection<String> rules) {
+        Set<String> white = freeze(rules);
+        return new RuleSnapshot(blockedRules, new CompiledBlockRules(blockedDomains, blockedKeywords),
+                importedDomains, white, KeywordMatcher.compile(white));
+    }
+
+    /**
+     * 替换导入的域名列表，返回新快照（用户规则和白名单直接复用）
+     * 过滤器在这里随导入列表一起重建（映射文件直接读出其中保存的过滤器）；只修改用户规则时沿用已有的过滤器
+     * @param domains 导入的域名集合（内存字典树或映射的二进制文件）
+     * @return 新快照
+     */
+    public RuleSnapshot withImportedDomains(DomainSet domains) {
+        return new RuleSnapshot(blockedRules, new CompiledBlockRules(blockedDomains, blockedKeywords),
+                prefilter(domains == null ? DomainTrie.empty() : domains), whiteRules, whiteMatcher);
+    }
+
+    /**
+     * URL 是否命中用户屏蔽规则
+     * @param url 待检查URL
+     * @return 是否命中
+     */
+    public boolean isBlocked(String url) {
+        return blockedDomains.matchesUrl(url) || importedDomains.matchesUrl(url) || blockedKeywords.matches(url);
+    }
+
+    /**
+     * 标题是否命中白名单
+     * @param title 页面标题
+     * @return 是否命中
+     */
+    public boolean isWhite(String title) {
+        return whiteMatcher.matches(title);
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public Set<String> getBlockedRules() {
+        return blockedRules;
+    }
+
+    public Set<String> getWhiteRules() {
+        return whiteRules;
+    }
+
+    public PrefilteredDomainSet getBlockedDomains() {
+        return blockedDomains;
+    }
+
+    public KeywordMatcher getBlockedKeywords() {
+        return blockedKeywords;
+    }
+
+    public PrefilteredDomainSet getImportedDomains() {
+        return importedDomains;
+    }
+
+    private static PrefilteredDomainSet prefilter(DomainSet domains) {
+        return PrefilteredDomainSet.wrap(domains, AppConfig.BLOOM_FALSE_POSITIVE_RATE);
+    }
+
+    private static Set<String> freeze(Collection<String> rules) {
+        if (rules == null || rules.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(new LinkedHashSet<>(rules));
+    }
+
+    /**
+     * 按类型拆分后编译的屏蔽规则
+     */
+    private static final class CompiledBlockRules {
+        private final PrefilteredDomainSet domains;
+        private final KeywordMatcher keywords;
+
+        private CompiledBlockRules(PrefilteredDomainSet domains, KeywordMatcher keywords) {
+            this.domains = domains;
+            this.keywords = keywords;
+        }
+
+        private static CompiledBlockRules compile(Collection<String> rules) {
+            List<String> domains = new ArrayList<>();
+            List<String> keywords = new ArrayList<>();
+            for (String raw : rules) {
+                BlockRule rule = BlockRule.parse(raw);
+                if (rule == null) {
+                    continue;
+                }
+                if (rule.getType() == BlockRule.Type.DOMAIN) {
+                    domains.add(rule.getPattern());
+                } else {
+                    keywords.add(rule.getPattern());
+                }
+            }
+            return new CompiledBlockRules(prefilter(DomainTrie.compile(domains)), KeywordMatcher.compile(keywords));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RuleSnapshot{" +
+                "generation=" + generation +
+                ", domainRules=" + blockedDomains.size() +
+                ", keywordRules=" + blockedKeywords.size() +
+                ", importedDomains=" + importedDomains.size() +
+                ", whiteRules=" + whiteRules.size() +
+                '}';
+    }
+}
@@ -0,0 +1,117 @@
+package com.tsymq.rule;
+
+import java.util.Locale;
+
+/**
+ * URL 主机名解析工具类
+ * 在原始字符串上定位主机名区间，供匹配器在热路径上零分配地使用
+ */
+public final class UrlHosts {
+
+    private UrlHosts() {
+        // 私有构造函数，防止实例化
+    }
+
+    /**
+     * 定位主机名起始下标（跳过协议和 userinfo）
+     * @param url 原始URL，可以不带协议
+     * @return 主机名起始下标
+     */
+    public static int hostStart(CharSequence url) {
+        int length = url.length();
+        int start = 0;
+        for (int i = 0; i + 2 < length; i++) {
+            char c = url.charAt(i);
+            if (c == ':' && url.charAt(i + 1) == '/' && url.charAt(i + 2) == '/') {
+                start = i + 3;
+                break;
+            }
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+        }
+        // 跳过 user:password@
+        for (int i = start; i < length; i++) {
+            char c = url.charAt(i);
+            if (c == '@') {
+                return i + 1;
+            }
+            if (c == '/' || c == '?' || c == '#') {
+                break;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * 定位主机名结束下标（不包含端口、路径、查询参数和末尾的点）
+     * @param url 原始URL
+     * @param start 主机名起始下标
+     * @return 主机名结束下标（不包含）
+     */
+    public static int hostEnd(CharSequence url, int start) {
+        int length = url.length();
+        int end = start;
+        while (end < length) {
+            char c = url.charAt(end);
+            if (c == '/' || c == ':' || c == '?' || c == '#') {
+                break;
+            }
+            end++;
+        }
+        while (end > start && url.charAt(end - 1) == '.') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * 提取小写主机名
+     * @param url 原始URL，可以不带协议
+     * @return 主机名，无法解析时返回空字符串
+     */
+    public static String extractHost(String url) {
+        if (url == null || url.isEmpty()) {
+            return "";
+        }
+        int start = hostStart(url);
+        int end = hostEnd(url, start);
+        return url.substring(start, end).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 检查字符串是否是合法的域名形式（字母、数字、连字符，至少两个非空标签）
+     * @param candidate 候选字符串
+     * @return 是否是域名
+     */
+    public static boolean isDomainName(CharSequence candidate) {
+        int length = candidate.length();
+        if (length == 0 || length > 253) {
+            return false;
+        }
+        int dots = 0;
+        int labelLength = 0;
+        for (int i = 0; i < length; i++) {
+            char c = candidate.charAt(i);
+            if (c == '.') {
+                if (labelLength == 0) {
+                    return false;
+                }
+                dots++;
+                labelLength = 0;
+            } else if (isLabelChar(c)) {
+                labelLength++;
+                if (labelLength > 63) {
+                    return false;
+                }
+            } else {
+                return false;
+            }
+        }
+        return dots > 0 && labelLength > 0;
+    }
+
+    private static boolean isLabelChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+}
@@ -0,0 +1,23 @@
+package com.tsymq.rule;
+
+/**
+ * URL 判定结果
+ */
+public enum Verdict {
+    /**
+     * 放行
+     */
+    ALLOW,
+    /**
+     * 命中用户自定义屏蔽规则（仅学习模式下生效）
+     */
+    USER_BLOCKED,
+    /**
+     * 命中硬编码屏蔽规则（所有模式下生效）
+     */
+    HARDCODED_BLOCKED;
+
+    public boolean isBlocked() {
+        return this != ALLOW;
+    }
+}
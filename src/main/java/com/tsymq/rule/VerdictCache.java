@@ -0,0 +1,153 @@
+package com.tsymq.rule;
+
+/**
+ * 有界的 URL 判定结果缓存
+ * 采用 4 路组相联结构，组内使用 CLOCK 算法淘汰，所有数据存放在预分配数组中，读写不产生对象分配
+ * 每个条目记录写入时的规则代号（generation），代号不一致即视为未命中，
+ * 因此规则编辑或模式切换后无需显式清空缓存。
+ * 键是匹配器实际检查的完整URL，不做规范化：关键词规则会匹配片段标识等任意部分
+ */
+public class VerdictCache {
+
+    private static final int WAYS = 4;
+    private static final Verdict[] VERDICTS = Verdict.values();
+
+    private final String[] keys;
+    private final long[] generations;
+    private final byte[] verdicts;
+    private final boolean[] referenced;
+    private final byte[] hands;
+    private final int setMask;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity 期望容量，会向上取整为 4 的 2 次幂倍数
+     */
+    public VerdictCache(int capacity) {
+        int sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS));
+        if (sets * WAYS < capacity) {
+            sets <<= 1;
+        }
+        int slots = sets * WAYS;
+        this.keys = new String[slots];
+        this.generations = new long[slots];
+        this.verdicts = new byte[slots];
+        this.referenced = new boolean[slots];
+        this.hands = new byte[sets];
+        this.setMask = sets - 1;
+    }
+
+    /**
+     * 查询缓存
+     * @param url 判定使用的URL
+     * @param generation 当前规则代号
+     * @return 缓存的判定结果，未命中返回 null
+     */
+    public synchronized Verdict get(String url, long generation) {
+        int base = setIndex(url) * WAYS;
+        for (int i = base; i < base + WAYS; i++) {
+            if (generations[i] == generation && url.equals(keys[i])) {
+                referenced[i] = true;
+                hits++;
+                return VERDICTS[verdicts[i]];
+            }
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * 写入缓存
+     * @param url 判定使用的URL
+     * @param generation 当前规则代号
+     * @param verdict 判定结果
+     */
+    public synchronized void put(String url, long generation, Verdict verdict) {
+        int set = setIndex(url);
+        int base = set * WAYS;
+        int target = -1;
+        for (int i = base; i < base + WAYS; i++) {
+            String key = keys[i];
+            if (key == null || generations[i] != generation || url.equals(key)) {
+                // 空槽、过期代号或同一URL，直接覆盖
+                target = i;
+                break;
+            }
+        }
+        if (target < 0) {
+            target = evict(set);
+        }
+        keys[target] = url;
+        generations[target] = generation;
+        verdicts[target] = (byte) verdict.ordinal();
+        referenced[target] = false;
+    }
+
+    /**
+     * CLOCK 淘汰：从组内指针位置开始，跳过并清除被访问过的条目，淘汰第一个未被访问的条目
+     */
+    private int evict(int set) {
+        int base = set * WAYS;
+        int hand = hands[set];
+        while (referenced[base + hand]) {
+            referenced[base + hand] = false;
+            hand = (hand + 1) & (WAYS - 1);
+        }
+        hands[set] = (byte) ((hand + 1) & (WAYS - 1));
+        evictions++;
+        return base + hand;
+    }
+
+    private int setIndex(String url) {
+        int h = url.hashCode();
+        return (h ^ (h >>> 16)) & setMask;
+    }
+
+    /**
+     * 清空缓存（统计数据保留）
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = null;
+            referenced[i] = false;
+        }
+    }
+
+    public int capacity() {
+        return keys.length;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * 获取命中率
+     * @return 命中率（0-1），没有任何查询时返回 0
+     */
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "VerdictCache{" +
+                "capacity=" + keys.length +
+                ", hits=" + hits +
+                ", misses=" + misses +
+                ", evictions=" + evictions +
+                '}';
+    }
+}
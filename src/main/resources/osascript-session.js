@@ -0,0 +1,49 @@
+// MyFocusme 常驻 AppleScript 解释器（由 osascript -l JavaScript 运行）
+// 协议：每行一个请求 "<id> <base64 脚本>"，每行一个响应 "<id> <OK|ERR> <base64 结果>"
+// 标准输入关闭时退出
+ObjC.import('Foundation');
+
+function encode(text) {
+    return $(text).dataUsingEncoding($.NSUTF8StringEncoding).base64EncodedStringWithOptions(0).js;
+}
+
+function decode(base64) {
+    var data = $.NSData.alloc.initWithBase64EncodedStringOptions($(base64), 0);
+    return $.NSString.alloc.initWithDataEncoding(data, $.NSUTF8StringEncoding);
+}
+
+function execute(id, source) {
+    var error = Ref();
+    var script = $.NSAppleScript.alloc.initWithSource(source);
+    var result = script.executeAndReturnError(error);
+    if (result.isNil()) {
+        var message = error[0] ? ObjC.unwrap(error[0].objectForKey('NSAppleScriptErrorMessage')) : '';
+        return id + ' ERR ' + encode(message || 'unknown error');
+    }
+    var text = ObjC.unwrap(result.stringValue);
+    return id + ' OK ' + encode(text === undefined || text === null ? '' : String(text));
+}
+
+function run() {
+    var stdin = $.NSFileHandle.fileHandleWithStandardInput;
+    var stdout = $.NSFileHandle.fileHandleWithStandardOutput;
+    var pending = '';
+    while (true) {
+        var data = stdin.availableData;
+        if (data.length === 0) {
+            return;
+        }
+        pending += $.NSString.alloc.initWithDataEncoding(data, $.NSUTF8StringEncoding).js;
+        var newline;
+        while ((newline = pending.indexOf('\n')) >= 0) {
+            var line = pending.substring(0, newline);
+            pending = pending.substring(newline + 1);
+            var space = line.indexOf(' ');
+            if (space <= 0) {
+                continue;
+            }
+            var response = execute(line.substring(0, space), decode(line.substring(space + 1)));
+            stdout.writeData($(response + '\n').dataUsingEncoding($.NSUTF8StringEncoding));
+        }
+    }
+}
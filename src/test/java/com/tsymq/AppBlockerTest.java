@@ -1,21 +1,66 @@
 package com.tsymq;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.tsymq.browser.BrowserFactory;
+import com.tsymq.browser.CdpBrowser;
+import com.tsymq.browser.ChromeBrowser;
+import com.tsymq.browser.ChromiumBrowser;
+import com.tsymq.browser.EdgeBrowser;
+import com.tsymq.browser.FakeCdpServer;
+import com.tsymq.browser.NativeHostPresence;
+import com.tsymq.browser.NativeMessageCodec;
+import com.tsymq.browser.NativeMessagingHost;
+import com.tsymq.browser.TabSnapshot;
+import com.tsymq.command.CircuitBreaker;
+import com.tsymq.command.CommandRunner;
+import com.tsymq.command.CommandTrace;
+import com.tsymq.command.CompiledScript;
+import com.tsymq.command.ScriptException;
+import com.tsymq.command.ReplayCommandRunner;
 import com.tsymq.mode.ModeManager;
+import com.tsymq.mode.ModeState;
+import com.tsymq.net.DnsSinkhole;
+import com.tsymq.net.FilteringProxy;
+import com.tsymq.net.VerdictClient;
+import com.tsymq.net.VerdictServer;
+import com.tsymq.net.VerdictServiceEvaluator;
+import com.tsymq.monitor.ActionExecutor;
+import com.tsymq.monitor.AdaptivePollingPolicy;
+import com.tsymq.monitor.AdaptivePollingPolicy.Observation;
 import com.tsymq.config.AppConfig;
+import com.tsymq.rule.HostsFileGenerator;
+import com.tsymq.rule.Verdict;
 import javafx.scene.control.TextArea;
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -172,6 +217,88 @@ class AppBlockerTest {
             assertThat(appBlocker.isBlocked("http://facebook.com/profile")).isTrue();
             assertThat(appBlocker.isBlocked("https://m.facebook.com")).isTrue();
         }
+
+        @Test
+        @DisplayName("域名规则应该按主机名后缀匹配")
+        void shouldMatchDomainRulesBySuffix() {
+            appBlocker.block("x.com");
+
+            assertThat(appBlocker.isBlocked("https://x.com/home")).isTrue();
+            assertThat(appBlocker.isBlocked("https://mobile.x.com")).isTrue();
+            assertThat(appBlocker.isBlocked("https://netflix.com/box.com")).isFalse();
+        }
+
+        @Test
+        @DisplayName("每次屏蔽都应该发布新的规则快照")
+        void shouldPublishNewSnapshotOnBlock() {
+            long before = appBlocker.getRuleSnapshot().getGeneration();
+
+            appBlocker.block("weibo");
+
+            assertThat(appBlocker.getRuleSnapshot().getGeneration()).isGreaterThan(before);
+            assertThat(appBlocker.getRuleSnapshot().getBlockedRules()).contains("weibo");
+        }
+    }
+
+    @Nested
+    @DisplayName("evaluate 方法测试")
+    class EvaluateTest {
+
+        @Test
+        @DisplayName("用户规则只在学习模式下生效")
+        void userRulesShouldOnlyApplyInFocusMode() {
+            appBlocker.block("youtube.com");
+
+            when(mockModeManager.isInFocusMode()).thenReturn(false);
+            assertThat(appBlocker.evaluate("https://youtube.com")).isEqualTo(Verdict.ALLOW);
+
+            // 模式切换后缓存应该自动失效
+            when(mockModeManager.isInFocusMode()).thenReturn(true);
+            assertThat(appBlocker.evaluate("https://youtube.com")).isEqualTo(Verdict.USER_BLOCKED);
+        }
+
+        @Test
+        @DisplayName("硬编码规则在所有模式下生效")
+        void hardcodedRulesShouldAlwaysApply() {
+            when(mockModeManager.isInFocusMode()).thenReturn(false);
+
+            assertThat(appBlocker.evaluate("https://www.pornhub.com")).isEqualTo(Verdict.HARDCODED_BLOCKED);
+        }
+
+        @Test
+        @DisplayName("重复判定应该命中缓存")
+        void repeatedEvaluationShouldHitCache() {
+            when(mockModeManager.isInFocusMode()).thenReturn(true);
+
+            appBlocker.evaluate("https://github.com");
+            appBlocker.evaluate("https://github.com");
+
+            assertThat(appBlocker.getVerdictCache().getHits()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("只有片段标识不同的URL不应该共用缓存结果")
+        void urlsDifferingOnlyInFragmentShouldNotShareCachedVerdict() {
+            when(mockModeManager.isInFocusMode()).thenReturn(true);
+            appBlocker.block("shorts");
+
+            assertThat(appBlocker.evaluate("https://a.com/")).isEqualTo(Verdict.ALLOW);
+            assertThat(appBlocker.evaluate("https://a.com/#shorts")).isEqualTo(Verdict.USER_BLOCKED);
+            // 反过来的顺序也一样
+            assertThat(appBlocker.evaluate("https://b.com/#shorts")).isEqualTo(Verdict.USER_BLOCKED);
+            assertThat(appBlocker.evaluate("https://b.com/")).isEqualTo(Verdict.ALLOW);
+        }
+
+        @Test
+        @DisplayName("编辑规则后缓存应该自动失效")
+        void ruleEditShouldInvalidateCache() {
+            when(mockModeManager.isInFocusMode()).thenReturn(true);
+            assertThat(appBlocker.evaluate("https://weibo.com")).isEqualTo(Verdict.ALLOW);
+
+            appBlocker.block("weibo.com");
+
+            assertThat(appBlocker.evaluate("https://weibo.com")).isEqualTo(Verdict.USER_BLOCKED);
+        }
     }
 
     @Nested
@@ -233,10 +360,11 @@ class AppBlockerTest {
             // 添加一些屏蔽网站
             appBlocker.block("https://blocked1.com");
             appBlocker.block("https://blocked2.com");
+            appBlocker.flushBlockedWebsites();
 
-            // 验证文件内容
-            List<String> lines = Files.readAllLines(blockedWebsitesFile);
-            assertThat(lines).contains("https://blocked1.com", "https://blocked2.com");
+            // 编辑追加到日志文件中
+            List<String> lines = Files.readAllLines(tempDir.resolve("blockedWebsites.txt.journal"));
+            assertThat(lines).contains("+https://blocked1.com", "+https://blocked2.com");
 
             // 创建新实例并加载
             AppBlocker newBlocker = new AppBlocker();
@@ -246,6 +374,78 @@ class AppBlockerTest {
             assertThat(newBlocker.isBlocked("https://blocked2.com")).isTrue();
         }
 
+        @Test
+        @DisplayName("保存时应该把日志压缩进列表文件")
+        void shouldCompactJournalIntoListFile() throws IOException {
+            appBlocker.blockAll(List.of("https://a.com", "https://b.com", "https://c.com"));
+            appBlocker.unblock("https://b.com");
+            appBlocker.saveBlockedWebsites();
+
+            assertThat(Files.readAllLines(blockedWebsitesFile))
+                .containsExactly("https://a.com", "https://c.com");
+            assertThat(Files.size(tempDir.resolve("blockedWebsites.txt.journal"))).isZero();
+
+            AppBlocker newBlocker = new AppBlocker();
+            newBlocker.loadBlockedWebsites();
+            assertThat(newBlocker.isBlocked("https://b.com")).isFalse();
+            assertThat(newBlocker.getRuleSnapshot().getBlockedRules())
+                .containsExactly("https://a.com", "https://c.com");
+            newBlocker.stop();
+        }
+
+        @Test
+        @DisplayName("外部修改列表文件后应该自动重新加载")
+        void shouldHotReloadModifiedFiles() throws Exception {
+            appBlocker.loadBlockedWebsites();
+            appBlocker.startWatchingRuleFiles();
+
+            Files.write(blockedWebsitesFile, List.of("reddit.com"));
+            Files.write(whiteWebsitesFile, List.of("Tutorial"));
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while ((!appBlocker.isBlocked("https://www.reddit.com") || !appBlocker.isWhiteWeb("Java Tutorial"))
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(appBlocker.isBlocked("https://www.reddit.com")).isTrue();
+            assertThat(appBlocker.isWhiteWeb("Java Tutorial")).isTrue();
+        }
+
+        @Test
+        @DisplayName("外部修改列表文件时尚未压缩的编辑不应该恢复被删除的规则")
+        void shouldNotResurrectJournaledRulesOnExternalEdit() throws Exception {
+            Files.write(blockedWebsitesFile, List.of("keep.com"));
+            appBlocker.loadBlockedWebsites();
+            appBlocker.startWatchingRuleFiles();
+            appBlocker.block("removed.com");
+            appBlocker.flushBlockedWebsites();
+
+            Files.write(blockedWebsitesFile, List.of("keep.com", "reddit.com"));
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!appBlocker.isBlocked("https://www.reddit.com") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(appBlocker.getRuleSnapshot().getBlockedRules()).containsExactly("keep.com", "reddit.com");
+
+            // 之后的编辑和压缩基于外部修改后的文件
+            appBlocker.block("weibo.com");
+            appBlocker.saveBlockedWebsites();
+            assertThat(Files.readAllLines(blockedWebsitesFile)).containsExactly("keep.com", "reddit.com", "weibo.com");
+        }
+
+        @Test
+        @DisplayName("内容未变化时重新加载不应该替换快照")
+        void reloadWithoutChangeShouldKeepSnapshot() throws IOException {
+            Files.write(blockedWebsitesFile, List.of("reddit.com"));
+            appBlocker.loadBlockedWebsites();
+            long generation = appBlocker.getRuleSnapshot().getGeneration();
+
+            appBlocker.loadBlockedWebsites();
+
+            assertThat(appBlocker.getRuleSnapshot().getGeneration()).isEqualTo(generation);
+        }
+
         @Test
         @DisplayName("文件不存在时加载应该正常处理")
         void shouldHandleNonExistentFileWhenLoading() {
@@ -280,10 +480,13 @@ class AppBlockerTest {
         @DisplayName("openNewEdgeTab应该调用正确的AppleScript命令")
         void shouldCallCorrectAppleScriptForNewTab() {
             try (MockedStatic<CommandUtil> mockedCommandUtil = mockStatic(CommandUtil.class)) {
+                mockedCommandUtil.when(() -> CommandUtil.executeAppleScriptChecked(anyString(), anyLong()))
+                    .thenReturn(CompletableFuture.completedFuture(""));
+
                 appBlocker.openNewEdgeTab();
 
                 mockedCommandUtil.verify(() ->
-                    CommandUtil.executeAppleScript(contains("make new tab")),
+                    CommandUtil.executeAppleScriptChecked(contains("make new tab"), anyLong()),
                     times(1)
                 );
             }
@@ -293,10 +496,13 @@ class AppBlockerTest {
         @DisplayName("closeActiveEdgeTab应该调用正确的AppleScript命令")
         void shouldCallCorrectAppleScriptForCloseTab() {
             try (MockedStatic<CommandUtil> mockedCommandUtil = mockStatic(CommandUtil.class)) {
+                mockedCommandUtil.when(() -> CommandUtil.executeAppleScriptChecked(anyString(), anyLong()))
+                    .thenReturn(CompletableFuture.completedFuture(""));
+
                 appBlocker.closeActiveEdgeTab();
 
                 mockedCommandUtil.verify(() ->
-                    CommandUtil.executeAppleScript(contains("close active tab")),
+                    CommandUtil.executeAppleScriptChecked(contains("close active tab"), anyLong()),
                     times(1)
                 );
             }
@@ -307,6 +513,486 @@ class AppBlockerTest {
     @DisplayName("监控功能测试")
     class MonitoringTest {
 
+        @Test
+        @DisplayName("一次脚本调用应该取回前台应用、URL和标题")
+        void shouldProbeFrontmostTabInSingleCall() {
+            try (MockedStatic<CommandUtil> mockedCommandUtil = mockStatic(CommandUtil.class)) {
+                String sep = TabSnapshot.FIELD_SEPARATOR;
+                mockedCommandUtil.when(() -> CommandUtil.executeAppleScriptChecked(anyString(), anyLong()))
+                    .thenReturn(CompletableFuture.completedFuture(
+                        "Microsoft Edge" + sep + "1" + sep + "7" + sep + "https://example.com" + sep + "Example"));
+
+                TabSnapshot tab = appBlocker.probeFrontmostTab().join();
+
+                assertThat(tab.getAppName()).isEqualTo("Microsoft Edge");
+                assertThat(tab.getUrl()).isEqualTo("https://example.com");
+                assertThat(tab.getTitle()).isEqualTo("Example");
+                mockedCommandUtil.verify(() -> CommandUtil.executeAppleScriptChecked(anyString(), anyLong()), times(1));
+            }
+        }
+
+        @Test
+        @DisplayName("回放录制的脚本输出应该驱动完整的采样流程")
+        void shouldRunSamplingPipelineWithReplayRunner() {
+            String sep = TabSnapshot.FIELD_SEPARATOR;
+            String openNewTab = new CompiledScript(EdgeBrowser.APP_NAME + ".openNewTab", ChromiumBrowser.SCRIPT_VERSION,
+                "on run argv\n  tell application \"" + EdgeBrowser.APP_NAME
+                    + "\" to make new tab at end of tabs of front window\nend run").inline(List.of());
+            List<CommandTrace> traces = List.of(
+                new CommandTrace(BrowserFactory.getFrontmostProbeScript(),
+                    EdgeBrowser.APP_NAME + sep + "1" + sep + "7" + sep + "https://www.youtube.com/watch" + sep + "Video",
+                    0, 0),
+                new CommandTrace(BrowserFactory.getFrontmostProbeScript(), "Finder", 0, 0),
+                new CommandTrace(openNewTab, "", 0, 0));
+            ReplayCommandRunner runner = new ReplayCommandRunner(traces, 0);
+            AppBlocker blocker = new AppBlocker(runner);
+            blocker.setModeManager(mockModeManager);
+            when(mockModeManager.isInFocusMode()).thenReturn(true);
+            blocker.block("youtube.com");
+
+            int samples = 20_000;
+            List<String> log = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < samples; i++) {
+                blocker.sampleActiveTab(log::add).join();
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            assertThat(blocker.getActionExecutor().awaitIdle(5000)).isTrue();
+            blocker.stop();
+
+            // 探测结果在 Edge 和 Finder 之间交替，Edge 的一半采样需要打开新标签页；
+            // 动作在单独的线程上执行，同一标签页还未处理完时重复的动作被去重
+            ActionExecutor actions = blocker.getActionExecutor();
+            assertThat(runner.getMisses()).isZero();
+            assertThat(actions.getSubmitted() + actions.getDeduplicated() + actions.getRejected())
+                .isEqualTo(samples / 2);
+            assertThat(runner.getCalls()).isEqualTo(samples + actions.getExecuted());
+            assertThat(log).isEmpty();
+            System.out.println("Replayed " + samples + " samples in " + elapsedMillis + " ms");
+        }
+
+        @Test
+        @DisplayName("采样结果应该驱动自适应采样间隔")
+        void shouldAdaptSamplingIntervalToObservations() {
+            String sep = TabSnapshot.FIELD_SEPARATOR;
+            String probe = BrowserFactory.getFrontmostProbeScript();
+            String edge = EdgeBrowser.APP_NAME + sep + "1" + sep + "7" + sep;
+            List<CommandTrace> traces = List.of(
+                new CommandTrace(probe, edge + "https://example.com" + sep + "Example", 0, 0),
+                new CommandTrace(probe, edge + "https://example.com" + sep + "Example", 0, 0),
+                new CommandTrace(probe, "Finder", 0, 0),
+                new CommandTrace(probe, edge + "https://www.youtube.com/watch" + sep + "Video", 0, 0));
+            AppBlocker blocker = new AppBlocker(new ReplayCommandRunner(traces, 0), () -> 0L);
+            blocker.setModeManager(mockModeManager);
+            when(mockModeManager.isInFocusMode()).thenReturn(true);
+            blocker.block("youtube.com");
+            AdaptivePollingPolicy policy = blocker.getPollingPolicy();
+
+            assertThat(blocker.sampleActiveTab(message -> { }).join()).isEqualTo(Observation.CHANGED);
+            assertThat(policy.getCurrentDelayMillis()).isEqualTo(AppConfig.MONITOR_MIN_INTERVAL_MS);
+            assertThat(blocker.sampleActiveTab(message -> { }).join()).isEqualTo(Observation.UNCHANGED);
+            assertThat(blocker.sampleActiveTab(message -> { }).join()).isEqualTo(Observation.UNSUPPORTED);
+            assertThat(policy.getCurrentDelayMillis()).isGreaterThan(AppConfig.MONITOR_MIN_INTERVAL_MS);
+            assertThat(blocker.sampleActiveTab(message -> { }).join()).isEqualTo(Observation.BLOCKED);
+            assertThat(policy.getCurrentDelayMillis()).isEqualTo(AppConfig.MONITOR_MIN_INTERVAL_MS);
+            assertThat(policy.getSamples()).isEqualTo(4);
+            assertThat(blocker.getActionExecutor().awaitIdle(5000)).isTrue();
+            assertThat(policy.getAverageTimeToBlockMillis()).isPositive();
+            blocker.stop();
+        }
+
+        @Test
+        @DisplayName("硬编码屏蔽应该按采样时的标签页 id 关闭，而不是执行时的活动标签页")
+        void hardcodedBlockShouldCloseSampledTabById() {
+            String sep = TabSnapshot.FIELD_SEPARATOR;
+            List<String> executed = new CopyOnWriteArrayList<>();
+            CommandRunner runner = new CommandRunner() {
+                @Override
+                public String runAppleScript(String script) {
+                    return "";
+                }
+
+                @Override
+                public CompletableFuture<String> runAppleScriptChecked(String script, long timeoutMillis) {
+                    if (script.equals(BrowserFactory.getFrontmostProbeScript())) {
+                        return CompletableFuture.completedFuture(EdgeBrowser.APP_NAME + sep + "3" + sep + "42"
+                            + sep + "https://www.pornhub.com/view" + sep + "Video");
+                    }
+                    executed.add(script);
+                    return CompletableFuture.completedFuture("");
+                }
+            };
+            AppBlocker blocker = new AppBlocker(runner, () -> 0L);
+
+            assertThat(blocker.sampleActiveTab(message -> { }).join()).isEqualTo(Observation.BLOCKED);
+            assertThat(blocker.getActionExecutor().awaitIdle(5000)).isTrue();
+
+            assertThat(executed).hasSize(1);
+            assertThat(executed.get(0)).contains("close tab id").endsWith("with parameters {\"3\", \"42\"}")
+                .doesNotContain("active tab");
+            blocker.stop();
+        }
+
+        @Test
+        @DisplayName("前台浏览器拒绝自动化授权时应该计入失败并熔断")
+        void shouldOpenCircuitForBrowserDenyingAutomation() {
+            String sep = TabSnapshot.FIELD_SEPARATOR;
+            String edgeSection = "if frontApp is \"" + EdgeBrowser.APP_NAME + "\"";
+            List<String> scripts = new ArrayList<>();
+            CommandRunner deniedEdge = new CommandRunner() {
+                @Override
+                public String runAppleScript(String script) {
+                    return "";
+                }
+
+                @Override
+                public CompletableFuture<String> runAppleScriptChecked(String script, long timeoutMillis) {
+                    scripts.add(script);
+                    // 脚本捕获了标签页脚本的错误，整体执行成功，输出错误标记
+                    return CompletableFuture.completedFuture(script.contains(edgeSection)
+                        ? EdgeBrowser.APP_NAME + sep + TabSnapshot.PROBE_ERROR_MARKER + sep
+                            + "-1743: Not authorized to send Apple events to Microsoft Edge."
+                        : EdgeBrowser.APP_NAME);
+                }
+            };
+            AppBlocker blocker = new AppBlocker(deniedEdge, () -> 0L);
+            CircuitBreaker edge = blocker.getCircuitBreakers().get(EdgeBrowser.APP_NAME);
+
+            for (int i = 0; i < AppConfig.BREAKER_FAILURE_THRESHOLD; i++) {
+                assertThat(blocker.sampleActiveTab(message -> { }).join()).isEqualTo(Observation.UNSUPPORTED);
+            }
+            assertThat(edge.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+            assertThat(edge.getFailures()).isEqualTo(AppConfig.BREAKER_FAILURE_THRESHOLD);
+            assertThat(edge.getTimeouts()).isZero();
+
+            assertThat(blocker.sampleActiveTab(message -> { }).join()).isEqualTo(Observation.UNSUPPORTED);
+            assertThat(scripts.get(scripts.size() - 1)).doesNotContain(edgeSection);
+            blocker.stop();
+        }
+
+        @Test
+        @DisplayName("前台浏览器连续超时后应该熔断，之后探测不再访问该浏览器")
+        void shouldOpenCircuitForHangingBrowser() {
+            String sep = TabSnapshot.FIELD_SEPARATOR;
+            String edgeSection = "if frontApp is \"" + EdgeBrowser.APP_NAME + "\"";
+            List<String> scripts = new ArrayList<>();
+            CommandRunner hangingEdge = new CommandRunner() {
+                @Override
+                public String runAppleScript(String script) {
+                    return "";
+                }
+
+                @Override
+                public CompletableFuture<String> runAppleScriptChecked(String script, long timeoutMillis) {
+                    scripts.add(script);
+                    if (scripts.size() == 1) {
+                        return CompletableFuture.completedFuture(EdgeBrowser.APP_NAME + sep + "1" + sep + "7"
+                            + sep + "https://example.com" + sep + "Example");
+                    }
+                    if (script.contains(edgeSection)) {
+                        return CompletableFuture.failedFuture(new ScriptException("Script timed out", true));
+                    }
+                    return CompletableFuture.completedFuture(EdgeBrowser.APP_NAME);
+                }
+            };
+            AppBlocker blocker = new AppBlocker(hangingEdge, () -> 0L);
+            CircuitBreaker edge = blocker.getCircuitBreakers().get(EdgeBrowser.APP_NAME);
+
+            assertThat(blocker.sampleActiveTab(message -> { }).join()).isEqualTo(Observation.CHANGED);
+            for (int i = 0; i < AppConfig.BREAKER_FAILURE_THRESHOLD; i++) {
+                assertThat(blocker.sampleActiveTab(message -> { }).join()).isEqualTo(Observation.UNSUPPORTED);
+            }
+            assertThat(edge.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+            assertThat(edge.getTimeouts()).isEqualTo(AppConfig.BREAKER_FAILURE_THRESHOLD);
+
+            assertThat(blocker.sampleActiveTab(message -> { }).join()).isEqualTo(Observation.UNSUPPORTED);
+            assertThat(scripts.get(scripts.size() - 1)).doesNotContain(edgeSection);
+            assertThat(blocker.getCircuitBreakers().get(ChromeBrowser.APP_NAME).getState())
+                .isEqualTo(CircuitBreaker.State.CLOSED);
+            blocker.stop();
+        }
+
+        @Test
+        @DisplayName("没有成功采样过时，前台浏览器超时也应该计入它的熔断器")
+        void shouldOpenCircuitForBrowserHangingFromFirstSample() {
+            String edgeSection = "if frontApp is \"" + EdgeBrowser.APP_NAME + "\"";
+            List<String> scripts = new ArrayList<>();
+            CommandRunner hangingEdge = new CommandRunner() {
+                @Override
+                public String runAppleScript(String script) {
+                    return "";
+                }
+
+                @Override
+                public CompletableFuture<String> runAppleScriptChecked(String script, long timeoutMillis) {
+                    scripts.add(script);
+                    if (script.equals(BrowserFactory.getFrontAppScript())) {
+                        return CompletableFuture.completedFuture(EdgeBrowser.APP_NAME + "\n");
+                    }
+                    if (script.contains(edgeSection)) {
+                        return CompletableFuture.failedFuture(new ScriptException("Script timed out", true));
+                    }
+                    return CompletableFuture.completedFuture(EdgeBrowser.APP_NAME);
+                }
+            };
+            AppBlocker blocker = new AppBlocker(hangingEdge, () -> 0L);
+            CircuitBreaker edge = blocker.getCircuitBreakers().get(EdgeBrowser.APP_NAME);
+
+            for (int i = 0; i < AppConfig.BREAKER_FAILURE_THRESHOLD; i++) {
+                assertThat(blocker.sampleActiveTab(message -> { }).join()).isEqualTo(Observation.UNSUPPORTED);
+            }
+            assertThat(edge.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+            assertThat(edge.getTimeouts()).isEqualTo(AppConfig.BREAKER_FAILURE_THRESHOLD);
+            // 只有前台的浏览器计入失败
+            assertThat(blocker.getCircuitBreakers().get(ChromeBrowser.APP_NAME).getFailures()).isZero();
+
+            assertThat(blocker.sampleActiveTab(message -> { }).join()).isEqualTo(Observation.UNSUPPORTED);
+            assertThat(scripts.get(scripts.size() - 1)).doesNotContain(edgeSection);
+            blocker.stop();
+        }
+
+        @Test
+        @DisplayName("按录制耗时回放时采样应该异步完成")
+        void shouldCompleteSampleAsynchronouslyWithRecordedLatency() {
+            String sep = TabSnapshot.FIELD_SEPARATOR;
+            List<CommandTrace> traces = List.of(new CommandTrace(BrowserFactory.getFrontmostProbeScript(),
+                EdgeBrowser.APP_NAME + sep + "1" + sep + "7" + sep + "https://example.com" + sep + "Example",
+                TimeUnit.MILLISECONDS.toNanos(200), 0));
+            ReplayCommandRunner runner = new ReplayCommandRunner(traces, 1.0);
+            AppBlocker blocker = new AppBlocker(runner);
+
+            long start = System.nanoTime();
+            CompletableFuture<Observation> sample = blocker.sampleActiveTab(message -> { });
+            // 调用线程不等待回放延迟
+            assertThat(sample).isNotDone();
+            sample.join();
+            blocker.stop();
+
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(190);
+        }
+
+        @Test
+        @DisplayName("DevTools 推送的屏蔽页面应该立即关闭，连接期间不再探测该浏览器")
+        void shouldCloseBlockedTabPushedByDevTools() throws Exception {
+            String chromeSection = "if frontApp is \"" + ChromeBrowser.APP_NAME + "\"";
+            List<String> scripts = new CopyOnWriteArrayList<>();
+            AppBlocker blocker = new AppBlocker(script -> {
+                scripts.add(script);
+                return "Finder";
+            });
+            blocker.setModeManager(mockModeManager);
+            when(mockModeManager.isInFocusMode()).thenReturn(true);
+            blocker.block("youtube.com");
+
+            try (FakeCdpServer server = new FakeCdpServer()) {
+                server.addPage("A", "https://example.com", "Example");
+                CdpBrowser chrome = blocker.attachDevTools(ChromeBrowser.APP_NAME, server.getHttpEndpoint())
+                    .get(5, TimeUnit.SECONDS);
+                assertThat(blocker.getPushBrowsers()).containsKey(ChromeBrowser.APP_NAME);
+
+                server.navigate("A", "https://www.youtube.com/watch", "Video");
+                assertThat(server.awaitClosed(5000)).isEqualTo("A");
+                assertThat(blocker.probeFrontmostTab().join().getAppName()).isEqualTo("Finder");
+                assertThat(scripts).noneMatch(script -> script.contains(chromeSection));
+
+                // 连接断开后恢复轮询
+                server.dropConnections();
+                chrome.getDisconnected().get(5, TimeUnit.SECONDS);
+                long deadline = System.currentTimeMillis() + 5000;
+                while (!blocker.getPushBrowsers().isEmpty() && System.currentTimeMillis() < deadline) {
+                    TimeUnit.MILLISECONDS.sleep(10);
+                }
+                blocker.probeFrontmostTab().join();
+                assertThat(scripts.get(scripts.size() - 1)).contains(chromeSection);
+            }
+            blocker.stop();
+        }
+
+        @Test
+        @DisplayName("浏览器扩展在线时不应该探测该浏览器的标签页")
+        void shouldSkipBrowsersServedByExtension() {
+            String edgeSection = "if frontApp is \"" + EdgeBrowser.APP_NAME + "\"";
+            List<String> scripts = new CopyOnWriteArrayList<>();
+            AppBlocker blocker = new AppBlocker(script -> {
+                scripts.add(script);
+                return "Finder";
+            });
+            NativeHostPresence presence = new NativeHostPresence(tempDir.resolve("native-host"), 60_000);
+            blocker.setNativeHostPresence(presence);
+
+            presence.touch(EdgeBrowser.APP_NAME);
+            blocker.probeFrontmostTab().join();
+            assertThat(scripts.get(scripts.size() - 1)).doesNotContain(edgeSection)
+                .contains("if frontApp is \"" + ChromeBrowser.APP_NAME + "\"");
+
+            presence.clear(EdgeBrowser.APP_NAME);
+            blocker.probeFrontmostTab().join();
+            assertThat(scripts.get(scripts.size() - 1)).contains(edgeSection);
+            blocker.stop();
+        }
+
+        @Test
+        @DisplayName("本机判定服务应该随学习模式给出与轮询一致的判定")
+        void shouldServeModeAwareVerdicts() throws IOException {
+            appBlocker.block("youtube.com");
+            VerdictServer server = appBlocker.startVerdictService(0);
+
+            try (VerdictClient client = VerdictClient.connect(server.getPort(), 5000)) {
+                when(mockModeManager.isInFocusMode()).thenReturn(true);
+                assertThat(client.query("https://www.youtube.com/watch")).isEqualTo(Verdict.USER_BLOCKED);
+                assertThat(client.queryBatch(List.of("https://www.youtube.com/", "https://www.pornhub.com/")))
+                    .containsExactly(Verdict.USER_BLOCKED, Verdict.HARDCODED_BLOCKED);
+
+                when(mockModeManager.isInFocusMode()).thenReturn(false);
+                assertThat(client.query("https://www.youtube.com/watch")).isEqualTo(Verdict.ALLOW);
+                assertThat(client.query("https://www.pornhub.com/")).isEqualTo(Verdict.HARDCODED_BLOCKED);
+            }
+            // 外部查询不占用前台标签页的判定缓存
+            assertThat(appBlocker.getVerdictCache().getMisses()).isZero();
+        }
+
+        @Test
+        @DisplayName("原生消息主机连上判定服务时应该在学习模式下屏蔽用户规则，并标记在线")
+        void shouldBlockUserRuleInFocusModeThroughNativeHost() throws IOException {
+            appBlocker.block("youtube.com");
+            VerdictServer server = appBlocker.startVerdictService(0);
+            when(mockModeManager.isInFocusMode()).thenReturn(true);
+
+            ObjectMapper mapper = new ObjectMapper();
+            NativeMessageCodec codec = new NativeMessageCodec(AppConfig.NATIVE_MESSAGE_MAX_BYTES);
+            ByteArrayOutputStream requests = new ByteArrayOutputStream();
+            codec.write(requests, mapper.createObjectNode().put("type", "hello").put("browser", ChromeBrowser.APP_NAME));
+            codec.write(requests, mapper.createObjectNode().put("id", 1).put("type", "tab")
+                .put("url", "https://www.youtube.com/watch").put("title", "Video"));
+            List<String> touched = new ArrayList<>();
+            NativeHostPresence presence = new NativeHostPresence(tempDir.resolve("native-host"), 60_000) {
+                @Override
+                public void touch(String browser) {
+                    touched.add(browser);
+                    super.touch(browser);
+                }
+            };
+
+            // 主机进程里的 AppBlocker 没有模式管理器，本地判定不区分模式
+            AppBlocker host = new AppBlocker(script -> "");
+            ByteArrayOutputStream replies = new ByteArrayOutputStream();
+            try (VerdictServiceEvaluator evaluator = new VerdictServiceEvaluator(host::evaluate, true,
+                    server.getPort(), 5000)) {
+                new NativeMessagingHost(new ByteArrayInputStream(requests.toByteArray()), replies, evaluator,
+                    presence, evaluator::isModeAware).run();
+            } finally {
+                host.stop();
+            }
+
+            ByteArrayInputStream in = new ByteArrayInputStream(replies.toByteArray());
+            assertThat(codec.read(in).path("type").asText()).isEqualTo("pong");
+            JsonNode reply = codec.read(in);
+            assertThat(reply.path("verdict").asText()).isEqualTo("USER_BLOCKED");
+            assertThat(reply.path("block").asBoolean()).isTrue();
+            assertThat(touched).contains(ChromeBrowser.APP_NAME);
+            assertThat(presence.isActive(ChromeBrowser.APP_NAME)).isFalse();
+        }
+
+        @Test
+        @DisplayName("DNS 存根解析器应该随学习模式屏蔽域名，其他查询转发给上游")
+        void shouldSinkholeModeAwareDomains() throws IOException {
+            appBlocker.block("youtube.com");
+            try (DatagramSocket upstream = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+                 DatagramSocket client = new DatagramSocket()) {
+                upstream.setSoTimeout(5000);
+                client.setSoTimeout(5000);
+                DnsSinkhole sinkhole = appBlocker.startDnsSinkhole(0,
+                    (InetSocketAddress) upstream.getLocalSocketAddress());
+
+                when(mockModeManager.isInFocusMode()).thenReturn(true);
+                assertThat(resolveAddress(client, sinkhole, "www.youtube.com")).containsExactly(0, 0, 0, 0);
+
+                when(mockModeManager.isInFocusMode()).thenReturn(false);
+                assertThat(resolveAddress(client, sinkhole, "pornhub.com")).containsExactly(0, 0, 0, 0);
+                byte[] query = dnsQuery("www.youtube.com");
+                client.send(new DatagramPacket(query, query.length, InetAddress.getLoopbackAddress(), sinkhole.getPort()));
+                DatagramPacket forwarded = new DatagramPacket(new byte[512], 512);
+                upstream.receive(forwarded);
+                assertThat(forwarded.getLength()).isEqualTo(query.length);
+                assertThat(sinkhole.getBlocked()).isEqualTo(2);
+            }
+            assertThat(appBlocker.getVerdictCache().getMisses()).isZero();
+        }
+
+        @Test
+        @DisplayName("过滤代理应该随学习模式拒绝被屏蔽的主机")
+        void shouldRejectModeAwareHostsInProxy() throws IOException {
+            appBlocker.block("youtube.com");
+            FilteringProxy proxy = appBlocker.startFilteringProxy(0);
+
+            when(mockModeManager.isInFocusMode()).thenReturn(true);
+            assertThat(proxyResponse(proxy, "CONNECT www.youtube.com:443 HTTP/1.1\r\n\r\n"))
+                .startsWith("HTTP/1.1 403");
+
+            when(mockModeManager.isInFocusMode()).thenReturn(false);
+            assertThat(proxyResponse(proxy, "GET http://www.pornhub.com/ HTTP/1.1\r\nHost: www.pornhub.com\r\n\r\n"))
+                .startsWith("HTTP/1.1 403");
+            assertThat(proxyResponse(proxy, "GET /proxy.pac HTTP/1.1\r\n\r\n"))
+                .contains("PROXY 127.0.0.1:" + proxy.getPort());
+            assertThat(proxy.getBlocked()).isEqualTo(2);
+            assertThat(appBlocker.getVerdictCache().getMisses()).isZero();
+        }
+
+        @Test
+        @DisplayName("hosts 文件应该随学习模式切换重新生成")
+        @SuppressWarnings("unchecked")
+        void shouldRegenerateHostsFileOnModeChange() throws Exception {
+            ArgumentCaptor<Consumer<ModeState>> listener = ArgumentCaptor.forClass(Consumer.class);
+            verify(mockModeManager).addModeChangeListener(listener.capture());
+            appBlocker.block("youtube.com");
+            Path target = tempDir.resolve("hosts.blocklist");
+
+            HostsFileGenerator generator = appBlocker.startHostsFile(target);
+            assertThat(Files.readString(target)).contains("0.0.0.0 laoli.one").doesNotContain("youtube.com");
+            assertThat(appBlocker.regenerateHostsFile()).isFalse();
+
+            // 模式切换通知在调度线程上重新生成
+            when(mockModeManager.isInFocusMode()).thenReturn(true);
+            listener.getValue().accept(ModeState.createFocusMode(30));
+            long deadline = System.currentTimeMillis() + 5000;
+            while (generator.getWrites() < 2) {
+                assertThat(System.currentTimeMillis()).isLessThan(deadline);
+                Thread.sleep(10);
+            }
+            assertThat(Files.readString(target)).contains("0.0.0.0 youtube.com", "# mode: FOCUS");
+
+            appBlocker.setModeManager(null);
+            verify(mockModeManager).removeModeChangeListener(listener.getValue());
+        }
+
+        private String proxyResponse(FilteringProxy proxy, String request) throws IOException {
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), proxy.getPort())) {
+                socket.setSoTimeout(5000);
+                socket.getOutputStream().write(request.getBytes(StandardCharsets.ISO_8859_1));
+                return new String(socket.getInputStream().readAllBytes(), StandardCharsets.ISO_8859_1);
+            }
+        }
+
+        private byte[] dnsQuery(String name) {
+            ByteBuffer query = ByteBuffer.allocate(512);
+            query.putShort((short) 1).putShort((short) 0x0100).putShort((short) 1).putShort((short) 0)
+                .putShort((short) 0).putShort((short) 0);
+            for (String label : name.split("\\.")) {
+                query.put((byte) label.length()).put(label.getBytes(StandardCharsets.US_ASCII));
+            }
+            query.put((byte) 0).putShort((short) 1).putShort((short) 1);
+            return Arrays.copyOf(query.array(), query.position());
+        }
+
+        private byte[] resolveAddress(DatagramSocket client, DnsSinkhole sinkhole, String name) throws IOException {
+            byte[] query = dnsQuery(name);
+            client.send(new DatagramPacket(query, query.length, InetAddress.getLoopbackAddress(), sinkhole.getPort()));
+            DatagramPacket reply = new DatagramPacket(new byte[512], 512);
+            client.receive(reply);
+            // 回答紧跟在问题之后：名字指针、类型、类别、TTL、长度各占 2/2/2/4/2 字节
+            return Arrays.copyOfRange(reply.getData(), query.length + 12, reply.getLength());
+        }
+
         @Test
         @DisplayName("监控功能应该按计划执行")
         @Disabled("需要JavaFX环境")
@@ -0,0 +1,127 @@
+package com.tsymq;
+
+import com.tsymq.command.CommandResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 命令执行工具测试（使用 sh 模拟外部命令）
+ */
+@DisplayName("CommandUtil 测试")
+@DisabledOnOs(OS.WINDOWS)
+class CommandUtilTest {
+
+    private static final long TIMEOUT_MS = 10_000;
+
+    @Test
+    @DisplayName("同步执行应该返回去掉首尾空白的输出")
+    void executeCommandShouldReturnTrimmedOutput() {
+        assertThat(CommandUtil.executeCommand(new String[]{"sh", "-c", "echo hello"})).isEqualTo("hello");
+    }
+
+    @Test
+    @DisplayName("大量输出不应该阻塞进程")
+    void shouldDrainLargeOutputWithoutBlocking() {
+        String script = "head -c 1000000 /dev/zero | tr '\\0' a; head -c 500000 /dev/zero | tr '\\0' b >&2";
+
+        CommandResult result = CommandUtil.executeAsync(new String[]{"sh", "-c", script}, TIMEOUT_MS).join();
+
+        assertThat(result.isSuccess()).isTrue();
+        assertThat(result.getStdout()).hasSize(1_000_000);
+        assertThat(result.getStderr()).hasSize(500_000);
+    }
+
+    @Test
+    @DisplayName("应该分别收集标准输出、标准错误和退出码")
+    void shouldCollectStreamsAndExitCode() {
+        CommandResult result = CommandUtil.executeAsync(
+            new String[]{"sh", "-c", "echo out; echo err >&2; exit 3"}, TIMEOUT_MS).join();
+
+        assertThat(result.getExitCode()).isEqualTo(3);
+        assertThat(result.getStdout().trim()).isEqualTo("out");
+        assertThat(result.getStderr().trim()).isEqualTo("err");
+        assertThat(result.getOutput()).isEqualTo("out\nerr");
+    }
+
+    @Test
+    @DisplayName("超时应该以 TimeoutException 失败")
+    void shouldTimeOut() {
+        long start = System.nanoTime();
+        CompletableFuture<CommandResult> future = CommandUtil.executeAsync(new String[]{"sleep", "5"}, 200);
+
+        assertThatThrownBy(future::join)
+            .isInstanceOf(CompletionException.class)
+            .hasCauseInstanceOf(TimeoutException.class);
+        assertThat((System.nanoTime() - start) / 1_000_000).isLessThan(4000);
+    }
+
+    @Test
+    @DisplayName("取消 future 应该结束进程")
+    void cancelShouldStopCommand() {
+        CompletableFuture<CommandResult> future = CommandUtil.executeAsync(new String[]{"sleep", "5"}, TIMEOUT_MS);
+
+        future.cancel(true);
+
+        assertThat(future).isCancelled();
+        assertThatThrownBy(future::join).isInstanceOf(CancellationException.class);
+    }
+
+    @Test
+    @DisplayName("命令不存在时应该返回失败的 future")
+    void missingCommandShouldFail() {
+        CompletableFuture<CommandResult> future =
+            CommandUtil.executeAsync(new String[]{"/nonexistent/command"}, TIMEOUT_MS);
+
+        assertThatThrownBy(future::join).hasCauseInstanceOf(IOException.class);
+        assertThat(CommandUtil.executeCommand(new String[]{"/nonexistent/command"})).isEmpty();
+    }
+
+    @Test
+    @DisplayName("前一批命令刚结束时提交的新命令不应该被读流线程池拒绝")
+    void shouldAcceptCommandsRightAfterPreviousOnesComplete() {
+        for (int round = 0; round < 50; round++) {
+            List<CompletableFuture<CommandResult>> batch = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                batch.add(CommandUtil.executeAsync(new String[]{"true"}, TIMEOUT_MS));
+            }
+            for (CompletableFuture<CommandResult> future : batch) {
+                assertThat(future.join().getExitCode()).isZero();
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("并发命令数超过上限时应该直接拒绝")
+    void shouldRejectWhenTooManyCommands() {
+        List<CompletableFuture<CommandResult>> running = new ArrayList<>();
+        CompletableFuture<CommandResult> rejected = null;
+        for (int i = 0; i < 16 && rejected == null; i++) {
+            CompletableFuture<CommandResult> future =
+                CommandUtil.executeAsync(new String[]{"sleep", "1"}, TIMEOUT_MS);
+            if (future.isCompletedExceptionally()) {
+                rejected = future;
+            } else {
+                running.add(future);
+            }
+        }
+
+        assertThat(rejected).isNotNull();
+        assertThatThrownBy(rejected::join).hasCauseInstanceOf(RejectedExecutionException.class);
+        // 等待运行中的命令结束，释放许可
+        running.forEach(CompletableFuture::join);
+        assertThat(CommandUtil.executeCommand(new String[]{"sh", "-c", "echo ok"})).isEqualTo("ok");
+    }
+}
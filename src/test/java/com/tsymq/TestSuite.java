@@ -12,18 +12,38 @@ import org.junit.platform.suite.api.SuiteDisplayName;
 @SuiteDisplayName("MyFocusme 完整测试套件")
 @SelectPackages({
     "com.tsymq",           // 包含AppBlockerTest等根包测试
+    "com.tsymq.browser",   // 浏览器适配器测试
+    "com.tsymq.command",   // 命令执行测试
     "com.tsymq.config",    // 配置相关测试
     "com.tsymq.mode",      // 模式管理测试
+    "com.tsymq.monitor",   // 采样策略测试
+    "com.tsymq.net",       // 本地服务测试
+    "com.tsymq.rule",      // 规则匹配测试
     "com.tsymq.utils"      // 工具类测试
 })
 public class TestSuite {
     // 测试套件类，用于组织和运行所有测试
     // 包含测试类：
     // - AppBlockerTest
+    // - CommandUtilTest
     // - ConfigManagerTest
     // - BlockedSitesConfigTest
     // - UserConfigTest
     // - ModeManagerTest
     // - ModeStateTest
     // - TimeUtilsTest
+    // - KeywordMatcherTest
+    // - ScriptSessionTest
+    // - CommandRunnerTest
+    // - CircuitBreakerTest
+    // - ScriptCacheTest
+    // - AdaptivePollingPolicyTest
+    // - ActionExecutorTest
+    // - TabSweeperTest
+    // - CdpBrowserTest
+    // - NativeMessagingHostTest
+    // - VerdictServerTest
+    // - DnsSinkholeTest
+    // - FilteringProxyTest
+    // - HostsFileGeneratorTest
 }
\ No newline at end of file
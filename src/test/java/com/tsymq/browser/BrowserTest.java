@@ -4,6 +4,7 @@ import com.tsymq.CommandUtil;
 import org.junit.jupiter.api.*;
 import org.mockito.MockedStatic;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -341,4 +342,178 @@ class BrowserTest {
             assertThat(new SafariBrowser()).isNotInstanceOf(ChromiumBrowser.class);
         }
     }
+
+    @Nested
+    @DisplayName("标签页快照探测测试")
+    class TabSnapshotTest {
+
+        private static final String SEP = TabSnapshot.FIELD_SEPARATOR;
+
+        @Test
+        @DisplayName("应该解析全部字段")
+        void shouldParseAllFields() {
+            TabSnapshot tab = TabSnapshot.parse("Google Chrome" + SEP + "1" + SEP + "42" + SEP
+                + "https://example.com" + SEP + "Example Domain");
+
+            assertThat(tab.getAppName()).isEqualTo("Google Chrome");
+            assertThat(tab.getWindowId()).isEqualTo("1");
+            assertThat(tab.getTabId()).isEqualTo("42");
+            assertThat(tab.getUrl()).isEqualTo("https://example.com");
+            assertThat(tab.getTitle()).isEqualTo("Example Domain");
+            assertThat(tab.hasTab()).isTrue();
+        }
+
+        @Test
+        @DisplayName("只有应用名时应该返回不含标签页的快照")
+        void shouldParseAppOnly() {
+            TabSnapshot tab = TabSnapshot.parse("Finder\n");
+
+            assertThat(tab.getAppName()).isEqualTo("Finder");
+            assertThat(tab.hasTab()).isFalse();
+            assertThat(TabSnapshot.parse("")).isNull();
+        }
+
+        @Test
+        @DisplayName("探测脚本出错时应该返回带错误信息的快照")
+        void shouldParseProbeError() {
+            TabSnapshot tab = TabSnapshot.parse("Safari" + SEP + TabSnapshot.PROBE_ERROR_MARKER + SEP
+                + "-1743: Not authorized to send Apple events to Safari.");
+
+            assertThat(tab.getAppName()).isEqualTo("Safari");
+            assertThat(tab.getProbeError()).startsWith("-1743");
+            assertThat(tab.hasTab()).isFalse();
+            assertThat(TabSnapshot.parse("Finder").getProbeError()).isNull();
+        }
+
+        @Test
+        @DisplayName("标题中的分隔符应该被保留")
+        void shouldKeepSeparatorInTitle() {
+            TabSnapshot tab = TabSnapshot.parse("Safari" + SEP + "7" + SEP + "2" + SEP
+                + "https://a.com" + SEP + "a" + SEP + "b");
+
+            assertThat(tab.getTitle()).isEqualTo("a" + SEP + "b");
+        }
+
+        @Test
+        @DisplayName("Chromium 和 Safari 应该使用各自的批量语法")
+        void shouldUseBrowserSpecificProbeSyntax() {
+            assertThat(new EdgeBrowser().getTabProbeScript().getSource())
+                .contains("Microsoft Edge", "URL of active tab", "title of active tab", "character id 31");
+            assertThat(new SafariBrowser().getTabProbeScript().getSource())
+                .contains("URL of current tab", "name of current tab", "index of current tab");
+        }
+
+        @Test
+        @DisplayName("probeActiveTab 应该只执行一次脚本")
+        void probeShouldUseSingleInvocation() {
+            try (MockedStatic<CommandUtil> mockedCommandUtil = mockStatic(CommandUtil.class)) {
+                mockedCommandUtil.when(() -> CommandUtil.executeAppleScript(anyString()))
+                    .thenReturn("3" + SEP + "99" + SEP + "https://example.com" + SEP + "Example");
+
+                TabSnapshot tab = new ChromeBrowser().probeActiveTab();
+
+                assertThat(tab.getAppName()).isEqualTo("Google Chrome");
+                assertThat(tab.getTabId()).isEqualTo("99");
+                assertThat(tab.getUrl()).isEqualTo("https://example.com");
+                mockedCommandUtil.verify(() -> CommandUtil.executeAppleScript(anyString()), times(1));
+            }
+        }
+
+        @Test
+        @DisplayName("前台探测脚本应该覆盖所有支持的浏览器")
+        void frontmostProbeShouldCoverAllBrowsers() {
+            String script = BrowserFactory.getFrontmostProbeScript();
+
+            assertThat(script).contains("System Events", "run script", "return frontApp");
+            for (String name : BrowserFactory.getSupportedBrowsers()) {
+                assertThat(script).contains("if frontApp is \"" + name + "\"");
+            }
+            // 嵌入的脚本中的引号应该被转义
+            assertThat(script).contains("tell application \\\"Safari\\\"");
+        }
+    }
+
+    @Nested
+    @DisplayName("全量扫描脚本测试")
+    class TabListTest {
+
+        private static final String SEP = TabSnapshot.FIELD_SEPARATOR;
+        private static final String RS = TabSnapshot.RECORD_SEPARATOR;
+
+        @Test
+        @DisplayName("应该解析标签页列表并忽略不完整的记录")
+        void shouldParseTabList() {
+            List<TabSnapshot> tabs = TabSnapshot.parseList("Google Chrome",
+                "1" + SEP + "10" + SEP + "https://a.com" + SEP + "A" + RS
+                    + "1" + SEP + "11" + SEP + "https://b.com" + SEP + "B" + SEP + "x" + RS
+                    + "broken" + RS);
+
+            assertThat(tabs).hasSize(2);
+            assertThat(tabs.get(0).getAppName()).isEqualTo("Google Chrome");
+            assertThat(tabs.get(0).getTabId()).isEqualTo("10");
+            assertThat(tabs.get(1).getTitle()).isEqualTo("B" + SEP + "x");
+            assertThat(TabSnapshot.parseList("Safari", "")).isEmpty();
+        }
+
+        @Test
+        @DisplayName("列表脚本应该遍历所有窗口的全部标签页")
+        void listScriptShouldEnumerateAllTabs() {
+            assertThat(new ChromeBrowser().getTabListScript().getSource())
+                .contains("tell application \"Google Chrome\"", "repeat with w in windows",
+                    "repeat with t in tabs of w", "URL of t", "title of t", "character id 30");
+            assertThat(new SafariBrowser().getTabListScript().getSource())
+                .contains("repeat with t in tabs of w", "name of t", "(i as text)");
+        }
+
+        @Test
+        @DisplayName("Chromium 应该在一个脚本中按 id 关闭多个标签页")
+        void chromiumShouldCloseTabsById() {
+            EdgeBrowser edge = new EdgeBrowser();
+            List<String> args = edge.getCloseTabsArguments(List.of(
+                new TabSnapshot("Microsoft Edge", "1", "10", "https://a.com", ""),
+                new TabSnapshot("Microsoft Edge", "2", "20", "https://b.com", ""),
+                new TabSnapshot("Microsoft Edge", "2", "x\" & do shell script \"", "https://c.com", "")));
+
+            assertThat(args).containsExactly("1", "10", "2", "20");
+            assertThat(edge.getCloseTabsScript().getSource())
+                .startsWith("on run argv")
+                .contains("tell application \"Microsoft Edge\"", "close tab id", "of window id");
+        }
+
+        @Test
+        @DisplayName("Safari 应该按序号从大到小关闭，并在关闭前确认 URL 未变")
+        void safariShouldCloseTabsInDescendingIndexOrder() {
+            SafariBrowser safari = new SafariBrowser();
+            List<String> args = safari.getCloseTabsArguments(List.of(
+                new TabSnapshot("Safari", "5", "2", "https://a.com", ""),
+                new TabSnapshot("Safari", "5", "10", "https://b.com", "")));
+
+            assertThat(args).containsExactly("5", "10", "https://b.com", "5", "2", "https://a.com");
+            assertThat(safari.getCloseTabsScript().getSource())
+                .contains("by 3", "if (URL of t) is (item (i + 2) of argv) then close t");
+        }
+
+        @Test
+        @DisplayName("每个浏览器的脚本应该有各自的名称和版本")
+        void scriptsShouldBeNamedPerBrowser() {
+            assertThat(new ChromeBrowser().getCloseTabsScript().getName()).isEqualTo("Google Chrome.closeTabs");
+            assertThat(new EdgeBrowser().getCloseTabsScript().getName()).isEqualTo("Microsoft Edge.closeTabs");
+            assertThat(new EdgeBrowser().getTabListScript().getVersion()).isEqualTo(ChromiumBrowser.SCRIPT_VERSION);
+            assertThat(new SafariBrowser().getTabListScript().getVersion()).isEqualTo(SafariBrowser.SCRIPT_VERSION);
+        }
+
+        @Test
+        @DisplayName("closeTabs 应该只执行一次脚本")
+        void closeTabsShouldUseSingleInvocation() {
+            try (MockedStatic<CommandUtil> mockedCommandUtil = mockStatic(CommandUtil.class)) {
+                new ChromeBrowser().closeTabs(List.of(
+                    new TabSnapshot("Google Chrome", "1", "10", "https://a.com", ""),
+                    new TabSnapshot("Google Chrome", "1", "11", "https://b.com", "")));
+                new ChromeBrowser().closeTabs(List.of());
+
+                mockedCommandUtil.verify(() -> CommandUtil.executeAppleScript(contains("close tab id")), times(1));
+                mockedCommandUtil.verify(() -> CommandUtil.executeAppleScript(endsWith("with parameters {\"1\", \"10\", \"1\", \"11\"}")));
+            }
+        }
+    }
 }
@@ -0,0 +1,136 @@
+package com.tsymq.browser;
+
+import com.tsymq.command.CommandRunner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * DevTools 协议适配器测试（使用本地的假 DevTools 服务）
+ */
+@DisplayName("CdpBrowser 测试")
+class CdpBrowserTest {
+
+    private final List<String> scripts = new CopyOnWriteArrayList<>();
+    private final CommandRunner runner = script -> {
+        scripts.add(script);
+        return "";
+    };
+
+    private FakeCdpServer server;
+    private CdpBrowser browser;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new FakeCdpServer();
+        server.addPage("A", "https://docs.example/", "Docs");
+        browser = new CdpBrowser(new ChromeBrowser(runner), server.getHttpEndpoint());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        browser.close();
+        server.close();
+    }
+
+    @Test
+    @DisplayName("连接后应该收到已有标签页并推送后续变化")
+    void shouldReceiveTabEvents() throws InterruptedException {
+        List<TabSnapshot> received = new CopyOnWriteArrayList<>();
+        browser.addTabListener(received::add);
+
+        browser.connect().orTimeout(5, TimeUnit.SECONDS).join();
+        server.navigate("A", "https://video.example/watch", "Video");
+        awaitCondition(() -> received.size() >= 2);
+
+        assertThat(browser.isConnected()).isTrue();
+        assertThat(received).extracting(TabSnapshot::getUrl)
+            .containsExactly("https://docs.example/", "https://video.example/watch");
+        assertThat(received.get(1).getAppName()).isEqualTo(ChromeBrowser.APP_NAME);
+        assertThat(received.get(1).getWindowId()).isEqualTo(CdpBrowser.CDP_WINDOW_ID);
+        assertThat(browser.getActiveTabUrl()).isEqualTo("https://video.example/watch");
+        assertThat(browser.getActiveTabTitle()).isEqualTo("Video");
+        assertThat(browser.listTabsAsync().join()).extracting(TabSnapshot::getTabId).containsExactly("A");
+        assertThat(scripts).isEmpty();
+    }
+
+    @Test
+    @DisplayName("应该通过 Target.closeTarget 关闭标签页，不执行脚本")
+    void shouldCloseTabsThroughDevTools() throws InterruptedException {
+        server.addPage("B", "https://adult.example/", "B");
+        browser.connect().orTimeout(5, TimeUnit.SECONDS).join();
+        awaitCondition(() -> browser.listTabsAsync().join().size() == 2);
+
+        browser.closeTabs(browser.listTabsAsync().join());
+
+        List<String> closed = new ArrayList<>();
+        closed.add(server.awaitClosed(2000));
+        closed.add(server.awaitClosed(2000));
+        assertThat(closed).containsExactlyInAnyOrder("A", "B");
+        assertThat(server.getMethods()).contains("Target.closeTarget");
+        assertThat(scripts).isEmpty();
+        awaitCondition(() -> browser.listTabsAsync().join().isEmpty());
+    }
+
+    @Test
+    @DisplayName("新建标签页应该使用 Target.createTarget")
+    void shouldOpenTabThroughDevTools() {
+        browser.connect().orTimeout(5, TimeUnit.SECONDS).join();
+
+        browser.openNewTab();
+
+        assertThat(server.getMethods()).contains("Target.createTarget");
+        assertThat(server.hasTarget("NEW1")).isTrue();
+        assertThat(scripts).isEmpty();
+    }
+
+    @Test
+    @DisplayName("关闭不存在的标签页应该失败而不是挂起")
+    void closingUnknownTargetShouldFail() {
+        browser.connect().orTimeout(5, TimeUnit.SECONDS).join();
+
+        CompletableFuture<Boolean> result = browser.closeTarget("missing");
+
+        assertThatThrownBy(result::join).hasMessageContaining("No target");
+    }
+
+    @Test
+    @DisplayName("连接断开后应该退回 AppleScript 适配器")
+    void shouldFallBackToAppleScriptWhenDisconnected() {
+        browser.connect().orTimeout(5, TimeUnit.SECONDS).join();
+
+        server.dropConnections();
+        browser.getDisconnected().orTimeout(5, TimeUnit.SECONDS).join();
+        browser.closeActiveTab();
+
+        assertThat(browser.isConnected()).isFalse();
+        assertThat(scripts).singleElement().asString().contains("close active tab");
+    }
+
+    @Test
+    @DisplayName("端口不可用时连接应该失败")
+    void shouldFailWhenEndpointUnavailable() throws IOException {
+        server.close();
+
+        assertThatThrownBy(() -> browser.connect().join()).isInstanceOf(java.util.concurrent.CompletionException.class);
+        assertThat(browser.isConnected()).isFalse();
+    }
+
+    private static void awaitCondition(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.tsymq.browser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试用的本地 DevTools 服务
+ * 提供 /json/version 和浏览器级 WebSocket 端点（最小的 RFC 6455 实现：文本帧、掩码、ping、close），
+ * 支持 Target.setDiscoverTargets / closeTarget / createTarget，可以主动推送标签页变化事件
+ */
+public class FakeCdpServer implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String WEBSOCKET_GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+
+    private final ServerSocket server;
+    private final Thread acceptThread;
+    private final Map<String, ObjectNode> targets = new LinkedHashMap<>();
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final LinkedBlockingQueue<String> closed = new LinkedBlockingQueue<>();
+    private final List<String> methods = new CopyOnWriteArrayList<>();
+    private final AtomicInteger nextTarget = new AtomicInteger();
+
+    public FakeCdpServer() throws IOException {
+        server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        acceptThread = new Thread(this::acceptLoop, "fake-cdp");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    public URI getHttpEndpoint() {
+        return URI.create("http://127.0.0.1:" + server.getLocalPort());
+    }
+
+    public URI getWebSocketUrl() {
+        return URI.create("ws://127.0.0.1:" + server.getLocalPort() + "/devtools/browser/fake");
+    }
+
+    /**
+     * 添加一个已打开的标签页（连接订阅时推送 targetCreated）
+     */
+    public synchronized void addPage(String targetId, String url, String title) {
+        targets.put(targetId, targetInfo(targetId, url, title));
+    }
+
+    /**
+     * 标签页跳转到新地址，向已订阅的连接推送 targetInfoChanged
+     */
+    public void navigate(String targetId, String url, String title) {
+        ObjectNode info;
+        synchronized (this) {
+            info = targetInfo(targetId, url, title);
+            targets.put(targetId, info);
+        }
+        broadcast("Target.targetInfoChanged", MAPPER.createObjectNode().set("targetInfo", info));
+    }
+
+    public synchronized boolean hasTarget(String targetId) {
+        return targets.containsKey(targetId);
+    }
+
+    /**
+     * 等待下一个被关闭的标签页
+     * @return targetId，超时返回 null
+     */
+    public String awaitClosed(long timeoutMillis) throws InterruptedException {
+        return closed.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public List<String> getMethods() {
+        return methods;
+    }
+
+    /**
+     * 断开所有连接（模拟浏览器退出）
+     */
+    public void dropConnections() {
+        for (Client client : clients) {
+            client.close();
+        }
+    }
+
+    private static ObjectNode targetInfo(String targetId, String url, String title) {
+        ObjectNode info = MAPPER.createObjectNode();
+        info.put("targetId", targetId);
+        info.put("type", "page");
+        info.put("url", url);
+        info.put("title", title);
+        info.put("attached", false);
+        return info;
+    }
+
+    private void broadcast(String method, ObjectNode params) {
+        for (Client client : clients) {
+            if (client.discovering) {
+                client.sendEvent(method, params);
+            }
+        }
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                Thread thread = new Thread(() -> serve(socket), "fake-cdp-client");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            InputStream in = socket.getInputStream();
+            OutputStream out = socket.getOutputStream();
+            String requestLine = readLine(in);
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+                int colon = line.indexOf(':');
+                headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+            }
+            if (requestLine.startsWith("GET /json/version")) {
+                byte[] body = MAPPER.createObjectNode()
+                        .put("Browser", "FakeChrome/1.0")
+                        .put("webSocketDebuggerUrl", getWebSocketUrl().toString())
+                        .toString().getBytes(StandardCharsets.UTF_8);
+                out.write(("HTTP/1.1 200 OK\r\nContent-Type: application/json\r\nContent-Length: " + body.length
+                        + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                out.write(body);
+                out.flush();
+                return;
+            }
+            String key = headers.get("sec-websocket-key");
+            if (key == null) {
+                out.write("HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: close\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII));
+                return;
+            }
+            out.write(("HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                    + "Sec-WebSocket-Accept: " + acceptKey(key) + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            Client client = new Client(socket, out);
+            clients.add(client);
+            try {
+                client.readLoop(new DataInputStream(in));
+            } finally {
+                clients.remove(client);
+            }
+        } catch (IOException e) {
+            // 连接断开
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c < 0) {
+                throw new EOFException();
+            }
+            if (c != '\r') {
+                sb.append((char) c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return Base64.getEncoder().encodeToString(
+                    sha1.digest((key + WEBSOCKET_GUID).getBytes(StandardCharsets.US_ASCII)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        dropConnections();
+        server.close();
+    }
+
+    /**
+     * 一个 WebSocket 连接
+     */
+    private class Client {
+
+        private final Socket socket;
+        private final OutputStream out;
+        private volatile boolean discovering;
+
+        Client(Socket socket, OutputStream out) {
+            this.socket = socket;
+            this.out = out;
+        }
+
+        void readLoop(DataInputStream in) throws IOException {
+            ByteArrayOutputStream message = new ByteArrayOutputStream();
+            while (true) {
+                int first = in.readUnsignedByte();
+                int second = in.readUnsignedByte();
+                boolean fin = (first & 0x80) != 0;
+                int opcode = first & 0x0F;
+                long length = second & 0x7F;
+                if (length == 126) {
+                    length = in.readUnsignedShort();
+                } else if (length == 127) {
+                    length = in.readLong();
+                }
+                byte[] mask = new byte[4];
+                if ((second & 0x80) != 0) {
+                    in.readFully(mask);
+                }
+                byte[] payload = new byte[(int) length];
+                in.readFully(payload);
+                for (int i = 0; i < payload.length; i++) {
+                    payload[i] ^= mask[i & 3];
+                }
+                if (opcode == 0x8) {
+                    writeFrame(0x8, payload);
+                    return;
+                } else if (opcode == 0x9) {
+                    writeFrame(0xA, payload);
+                } else if (opcode == 0x1 || opcode == 0x0) {
+                    message.write(payload);
+                    if (fin) {
+                        handle(MAPPER.readTree(message.toByteArray()));
+                        message.reset();
+                    }
+                }
+            }
+        }
+
+        private void handle(JsonNode request) {
+            long id = request.path("id").asLong();
+            String method = request.path("method").asText();
+            JsonNode params = request.path("params");
+            methods.add(method);
+            ObjectNode result = MAPPER.createObjectNode();
+            List<ObjectNode> created = new ArrayList<>();
+            switch (method) {
+                case "Target.setDiscoverTargets":
+                    discovering = params.path("discover").asBoolean();
+                    synchronized (FakeCdpServer.this) {
+                        created.addAll(targets.values());
+                    }
+                    break;
+                case "Target.closeTarget":
+                    String targetId = params.path("targetId").asText();
+                    boolean removed;
+                    synchronized (FakeCdpServer.this) {
+                        removed = targets.remove(targetId) != null;
+                    }
+                    if (!removed) {
+                        sendError(id, "No target with given id found");
+                        return;
+                    }
+                    result.put("success", true);
+                    sendResult(id, result);
+                    broadcast("Target.targetDestroyed", MAPPER.createObjectNode().put("targetId", targetId));
+                    closed.add(targetId);
+                    return;
+                case "Target.createTarget":
+                    String newId = "NEW" + nextTarget.incrementAndGet();
+                    ObjectNode info = targetInfo(newId, params.path("url").asText(), "");
+                    synchronized (FakeCdpServer.this) {
+                        targets.put(newId, info);
+                    }
+                    result.put("targetId", newId);
+                    created.add(info);
+                    break;
+                case "Target.getTargets":
+                    ArrayNode infos = result.putArray("targetInfos");
+                    synchronized (FakeCdpServer.this) {
+                        targets.values().forEach(infos::add);
+                    }
+                    break;
+                default:
+                    sendError(id, "'" + method + "' wasn't found");
+                    return;
+            }
+            sendResult(id, result);
+            for (ObjectNode info : created) {
+                broadcast("Target.targetCreated", MAPPER.createObjectNode().set("targetInfo", info));
+            }
+        }
+
+        private void sendResult(long id, ObjectNode result) {
+            ObjectNode response = MAPPER.createObjectNode();
+            response.put("id", id);
+            response.set("result", result);
+            send(response);
+        }
+
+        private void sendError(long id, String message) {
+            ObjectNode response = MAPPER.createObjectNode();
+            response.put("id", id);
+            response.putObject("error").put("code", -32000).put("message", message);
+            send(response);
+        }
+
+        void sendEvent(String method, ObjectNode params) {
+            ObjectNode event = MAPPER.createObjectNode();
+            event.put("method", method);
+            event.set("params", params);
+            send(event);
+        }
+
+        private void send(ObjectNode message) {
+            try {
+                writeFrame(0x1, message.toString().getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        private synchronized void writeFrame(int opcode, byte[] payload) throws IOException {
+            out.write(0x80 | opcode);
+            if (payload.length < 126) {
+                out.write(payload.length);
+            } else if (payload.length < 65536) {
+                out.write(126);
+                out.write(payload.length >>> 8);
+                out.write(payload.length & 0xFF);
+            } else {
+                out.write(127);
+                for (int shift = 56; shift >= 0; shift -= 8) {
+                    out.write((int) ((long) payload.length >>> shift) & 0xFF);
+                }
+            }
+            out.write(payload);
+            out.flush();
+        }
+
+        void close() {
+            try {
+                // 1000 正常关闭，和浏览器退出时一样先发送关闭帧
+                writeFrame(0x8, new byte[]{0x03, (byte) 0xE8});
+            } catch (IOException e) {
+                // 连接已断开
+            }
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // 忽略
+            }
+        }
+    }
+}
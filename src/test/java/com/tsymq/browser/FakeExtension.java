@@ -0,0 +1,154 @@
+package com.tsymq.browser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 测试用的浏览器扩展
+ * 按浏览器的方式与原生消息主机通信：向主机的输入写入带长度前缀的 JSON，从主机的输出读取回复。
+ * 帧格式独立实现（小端长度，macOS 的 Intel 和 Apple 芯片都是小端），用于交叉验证主机的编解码
+ */
+class FakeExtension implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final OutputStream toHost;
+    private final DataInputStream fromHost;
+    private final Process process;
+    private final Thread thread;
+    private int nextId;
+
+    private FakeExtension(OutputStream toHost, InputStream fromHost, Process process, Thread thread) {
+        this.toHost = toHost;
+        this.fromHost = new DataInputStream(fromHost);
+        this.process = process;
+        this.thread = thread;
+    }
+
+    /**
+     * 在当前进程的线程上运行主机，通过管道连接
+     */
+    static FakeExtension connect(HostFactory factory) throws IOException {
+        PipedOutputStream toHost = new PipedOutputStream();
+        PipedInputStream hostIn = new PipedInputStream(toHost, 64 * 1024);
+        PipedInputStream fromHost = new PipedInputStream(64 * 1024);
+        PipedOutputStream hostOut = new PipedOutputStream(fromHost);
+        NativeMessagingHost host = factory.create(hostIn, hostOut);
+        Thread thread = new Thread(() -> {
+            try (hostOut) {
+                host.run();
+            } catch (IOException e) {
+                // 连接断开
+            }
+        }, "native-host");
+        thread.setDaemon(true);
+        thread.start();
+        return new FakeExtension(toHost, fromHost, null, thread);
+    }
+
+    /**
+     * 像浏览器一样启动主机进程（以扩展来源作为参数运行 Launcher）
+     * @param home 主机进程的用户目录，配置和在线标记都写在这里
+     */
+    static FakeExtension launch(Path home) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-Duser.home=" + home,
+                "-cp", System.getProperty("java.class.path"),
+                "com.tsymq.Launcher", "chrome-extension://fakeextensionid/")
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        return new FakeExtension(process.getOutputStream(), process.getInputStream(), process, null);
+    }
+
+    interface HostFactory {
+        NativeMessagingHost create(InputStream in, OutputStream out);
+    }
+
+    JsonNode hello(String browser) throws IOException {
+        return request(MAPPER.createObjectNode().put("type", "hello").put("browser", browser));
+    }
+
+    JsonNode ping() throws IOException {
+        return request(MAPPER.createObjectNode().put("type", "ping"));
+    }
+
+    JsonNode tab(String url, String title) throws IOException {
+        return request(MAPPER.createObjectNode()
+                .put("id", ++nextId).put("type", "tab").put("tabId", "7").put("url", url).put("title", title));
+    }
+
+    JsonNode request(ObjectNode message) throws IOException {
+        send(message.toString().getBytes(StandardCharsets.UTF_8));
+        return receive();
+    }
+
+    /**
+     * 连续发送多条消息后再依次读取回复
+     */
+    List<JsonNode> pipeline(List<ObjectNode> messages) throws IOException {
+        for (ObjectNode message : messages) {
+            send(message.toString().getBytes(StandardCharsets.UTF_8));
+        }
+        List<JsonNode> replies = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            replies.add(receive());
+        }
+        return replies;
+    }
+
+    void send(byte[] payload) throws IOException {
+        byte[] header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(payload.length).array();
+        toHost.write(header);
+        toHost.write(payload);
+        toHost.flush();
+    }
+
+    JsonNode receive() throws IOException {
+        byte[] header = new byte[4];
+        fromHost.readFully(header);
+        int length = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        if (length < 0) {
+            throw new EOFException("Invalid length " + length);
+        }
+        byte[] payload = new byte[length];
+        fromHost.readFully(payload);
+        return MAPPER.readTree(payload);
+    }
+
+    /**
+     * 关闭主机的输入（浏览器关闭端口），等待主机退出
+     * @return 主机是否在超时前退出
+     */
+    boolean disconnect(long timeoutMillis) throws IOException, InterruptedException {
+        toHost.close();
+        if (process != null) {
+            return process.waitFor(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        thread.join(timeoutMillis);
+        return !thread.isAlive();
+    }
+
+    @Override
+    public void close() throws IOException {
+        toHost.close();
+        if (process != null) {
+            process.destroy();
+        }
+    }
+}
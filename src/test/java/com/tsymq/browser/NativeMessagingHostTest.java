@@ -0,0 +1,252 @@
+package com.tsymq.browser;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.tsymq.rule.Verdict;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 原生消息主机测试（通过假扩展驱动）
+ */
+@DisplayName("NativeMessagingHost 测试")
+class NativeMessagingHostTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    private static Verdict evaluate(TabSnapshot tab) {
+        if (tab.getTitle().contains("Lecture")) {
+            return Verdict.ALLOW;
+        }
+        if (tab.getUrl().contains("adult.example")) {
+            return Verdict.HARDCODED_BLOCKED;
+        }
+        return tab.getUrl().contains("video.example") ? Verdict.USER_BLOCKED : Verdict.ALLOW;
+    }
+
+    @Nested
+    @DisplayName("帧编解码测试")
+    class CodecTest {
+
+        @Test
+        @DisplayName("编码后应该能解码出相同的消息")
+        void shouldRoundTrip() throws IOException {
+            NativeMessageCodec codec = new NativeMessageCodec(1024);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ObjectNode message = MAPPER.createObjectNode().put("url", "https://例子.example/").put("id", 3);
+
+            codec.write(out, message);
+            codec.write(out, MAPPER.createObjectNode().put("type", "ping"));
+            ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+
+            assertThat(codec.read(in)).isEqualTo(message);
+            assertThat(codec.read(in).path("type").asText()).isEqualTo("ping");
+            assertThat(codec.read(in)).isNull();
+        }
+
+        @Test
+        @DisplayName("小于初始容量的消息不应该重新分配缓冲区")
+        void shouldReuseBuffers() throws IOException {
+            NativeMessageCodec codec = new NativeMessageCodec(1024 * 1024);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (int i = 0; i < 1000; i++) {
+                codec.write(out, MAPPER.createObjectNode().put("id", i).put("url", "https://example.com/" + i));
+            }
+            ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+            for (int i = 0; i < 1000; i++) {
+                assertThat(codec.read(in).path("id").asInt()).isEqualTo(i);
+            }
+            assertThat(codec.getReallocations()).isZero();
+
+            char[] title = new char[20_000];
+            Arrays.fill(title, 'x');
+            codec.write(out, MAPPER.createObjectNode().put("title", new String(title)));
+            codec.write(out, MAPPER.createObjectNode().put("title", new String(title)));
+            assertThat(codec.getReallocations()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("超过上限的消息应该被拒绝")
+        void shouldRejectOversizedMessages() {
+            NativeMessageCodec codec = new NativeMessageCodec(16);
+            byte[] header = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0x7F};
+
+            assertThatThrownBy(() -> codec.read(new ByteArrayInputStream(header)))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("too large");
+            assertThatThrownBy(() -> codec.write(new ByteArrayOutputStream(),
+                MAPPER.createObjectNode().put("url", "https://example.com/long")))
+                .isInstanceOf(IOException.class);
+        }
+
+        @Test
+        @DisplayName("消息中途结束应该报错")
+        void shouldFailOnTruncatedMessage() {
+            NativeMessageCodec codec = new NativeMessageCodec(1024);
+            byte[] truncated = {10, 0, 0, 0, '{', '"'};
+
+            assertThatThrownBy(() -> codec.read(new ByteArrayInputStream(truncated)))
+                .isInstanceOf(EOFException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("消息处理测试")
+    class HostTest {
+
+        private FakeExtension connect(NativeHostPresence presence) throws IOException {
+            return FakeExtension.connect((in, out) ->
+                new NativeMessagingHost(in, out, NativeMessagingHostTest::evaluate, presence));
+        }
+
+        @Test
+        @DisplayName("应该按规则回复标签页的判定结果")
+        void shouldReplyWithVerdicts() throws IOException {
+            try (FakeExtension extension = connect(new NativeHostPresence(tempDir, 60_000))) {
+                assertThat(extension.hello(ChromeBrowser.APP_NAME).path("type").asText()).isEqualTo("pong");
+
+                JsonNode blocked = extension.tab("https://adult.example/", "Adult");
+                JsonNode user = extension.tab("https://video.example/watch", "Video");
+                JsonNode white = extension.tab("https://video.example/watch", "Lecture 3");
+
+                assertThat(blocked.path("id").asInt()).isEqualTo(1);
+                assertThat(blocked.path("verdict").asText()).isEqualTo("HARDCODED_BLOCKED");
+                assertThat(blocked.path("block").asBoolean()).isTrue();
+                assertThat(user.path("verdict").asText()).isEqualTo("USER_BLOCKED");
+                assertThat(white.path("block").asBoolean()).isFalse();
+            }
+        }
+
+        @Test
+        @DisplayName("连续发送的消息应该按顺序回复")
+        void shouldAnswerPipelinedMessagesInOrder() throws IOException {
+            try (FakeExtension extension = connect(new NativeHostPresence(tempDir, 60_000))) {
+                List<ObjectNode> messages = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    messages.add(MAPPER.createObjectNode().put("id", i).put("type", "tab")
+                        .put("url", i % 2 == 0 ? "https://adult.example/" + i : "https://docs.example/" + i));
+                }
+
+                List<JsonNode> replies = extension.pipeline(messages);
+
+                for (int i = 0; i < replies.size(); i++) {
+                    assertThat(replies.get(i).path("id").asInt()).isEqualTo(i);
+                    assertThat(replies.get(i).path("block").asBoolean()).isEqualTo(i % 2 == 0);
+                }
+            }
+        }
+
+        @Test
+        @DisplayName("无法解析或无法识别的消息应该回复错误并继续处理")
+        void shouldReplyErrorsAndContinue() throws IOException {
+            try (FakeExtension extension = connect(new NativeHostPresence(tempDir, 60_000))) {
+                extension.send("{not json".getBytes(StandardCharsets.UTF_8));
+                assertThat(extension.receive().path("error").asText()).isEqualTo("Invalid JSON");
+                assertThat(extension.request(MAPPER.createObjectNode().put("id", 9).put("type", "close"))
+                    .path("error").asText()).contains("close");
+                assertThat(extension.request(MAPPER.createObjectNode().put("id", 10).put("type", "tab"))
+                    .path("error").asText()).isEqualTo("Missing url");
+
+                assertThat(extension.tab("https://adult.example/", "").path("block").asBoolean()).isTrue();
+            }
+        }
+
+        @Test
+        @DisplayName("扩展在线时应该标记浏览器，断开后清除")
+        void shouldMarkPresenceWhileConnected() throws Exception {
+            NativeHostPresence presence = new NativeHostPresence(tempDir, 60_000);
+            FakeExtension extension = connect(presence);
+
+            extension.hello(EdgeBrowser.APP_NAME);
+            assertThat(presence.isActive(EdgeBrowser.APP_NAME)).isTrue();
+            assertThat(presence.isActive(ChromeBrowser.APP_NAME)).isFalse();
+
+            assertThat(extension.disconnect(5000)).isTrue();
+            assertThat(presence.isActive(EdgeBrowser.APP_NAME)).isFalse();
+        }
+
+        @Test
+        @DisplayName("判定不随学习模式变化时不应该标记在线，应用继续轮询")
+        void shouldMarkPresenceOnlyWhileModeAware() throws Exception {
+            NativeHostPresence presence = new NativeHostPresence(tempDir, 60_000);
+            AtomicBoolean modeAware = new AtomicBoolean(false);
+            try (FakeExtension extension = FakeExtension.connect((in, out) -> new NativeMessagingHost(in, out,
+                    NativeMessagingHostTest::evaluate, presence, modeAware::get))) {
+                extension.hello(EdgeBrowser.APP_NAME);
+                assertThat(presence.isActive(EdgeBrowser.APP_NAME)).isFalse();
+
+                modeAware.set(true);
+                extension.ping();
+                assertThat(presence.isActive(EdgeBrowser.APP_NAME)).isTrue();
+
+                // 与判定服务断开后清除标记
+                modeAware.set(false);
+                extension.ping();
+                assertThat(presence.isActive(EdgeBrowser.APP_NAME)).isFalse();
+            }
+        }
+
+        @Test
+        @DisplayName("标记超过有效期应该视为离线")
+        void shouldExpirePresence() throws IOException {
+            NativeHostPresence presence = new NativeHostPresence(tempDir, 1_000);
+            presence.touch(SafariBrowser.APP_NAME);
+            assertThat(presence.isActive(SafariBrowser.APP_NAME)).isTrue();
+
+            Files.setLastModifiedTime(tempDir.resolve("Safari"),
+                FileTime.fromMillis(System.currentTimeMillis() - 5_000));
+            assertThat(presence.isActive(SafariBrowser.APP_NAME)).isFalse();
+        }
+
+        @Test
+        @DisplayName("浏览器启动参数应该识别为主机模式")
+        void shouldDetectBrowserLaunch() {
+            assertThat(NativeMessagingHost.isLaunchedByBrowser(new String[]{"chrome-extension://abc/"})).isTrue();
+            assertThat(NativeMessagingHost.isLaunchedByBrowser(
+                new String[]{"/Library/Mozilla/NativeMessagingHosts/myfocusme.json", "myfocusme@tsymq"})).isTrue();
+            assertThat(NativeMessagingHost.isLaunchedByBrowser(new String[0])).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("进程测试")
+    class ProcessTest {
+
+        @Test
+        @DisplayName("像浏览器一样启动主机进程应该按硬编码规则回复，未开启判定服务时不标记在线")
+        void shouldServeExtensionFromLaunchedProcess() throws Exception {
+            try (FakeExtension extension = FakeExtension.launch(tempDir)) {
+                extension.hello(ChromeBrowser.APP_NAME);
+
+                assertThat(extension.tab("https://www.pornhub.com/", "").path("block").asBoolean()).isTrue();
+                assertThat(extension.tab("https://docs.oracle.com/", "Docs").path("verdict").asText())
+                    .isEqualTo("ALLOW");
+                // 本地判定不区分模式，应用继续轮询该浏览器
+                assertThat(Files.exists(tempDir.resolve(".config/myfocusme/native-host/Google_Chrome"))).isFalse();
+                assertThat(extension.disconnect(10_000)).isTrue();
+            }
+            assertThat(Files.exists(tempDir.resolve(".config/myfocusme/native-host/Google_Chrome"))).isFalse();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.tsymq.command;
+
+import com.tsymq.command.CircuitBreaker.State;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 熔断器和耗时直方图测试（使用可控时钟）
+ */
+@DisplayName("CircuitBreaker 测试")
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private CircuitBreaker breaker() {
+        return new CircuitBreaker("Test", 3, 1000, 8000, 3.0, 10, 5000, now::get);
+    }
+
+    private void advanceMillis(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private static CompletableFuture<String> timeout() {
+        return CompletableFuture.failedFuture(new ScriptException("Script timed out", true));
+    }
+
+    @Nested
+    @DisplayName("状态转换测试")
+    class StateTest {
+
+        @Test
+        @DisplayName("连续失败达到阈值后应该打开并拒绝调用")
+        void shouldOpenAfterConsecutiveFailures() {
+            CircuitBreaker breaker = breaker();
+            for (int i = 0; i < 3; i++) {
+                breaker.call(t -> timeout());
+            }
+
+            assertThat(breaker.getState()).isEqualTo(State.OPEN);
+            assertThat(breaker.getTimeouts()).isEqualTo(3);
+            AtomicInteger invoked = new AtomicInteger();
+            CompletableFuture<String> rejected = breaker.call(t -> {
+                invoked.incrementAndGet();
+                return CompletableFuture.completedFuture("ok");
+            });
+            assertThatThrownBy(rejected::join).hasCauseInstanceOf(RejectedExecutionException.class);
+            assertThat(invoked).hasValue(0);
+            assertThat(breaker.getRejected()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("成功调用应该重置连续失败次数")
+        void successShouldResetFailureCount() {
+            CircuitBreaker breaker = breaker();
+            breaker.call(t -> timeout());
+            breaker.call(t -> timeout());
+            breaker.call(t -> CompletableFuture.completedFuture("ok"));
+            breaker.call(t -> CompletableFuture.failedFuture(new ScriptException("Not authorized", false)));
+
+            assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+            assertThat(breaker.getFailures()).isEqualTo(3);
+            assertThat(breaker.getTimeouts()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("等待时间到后应该半开并只放行一次试探，试探成功后关闭")
+        void shouldHalfOpenAndCloseAfterSuccessfulTrial() {
+            CircuitBreaker breaker = breaker();
+            for (int i = 0; i < 3; i++) {
+                breaker.call(t -> timeout());
+            }
+            advanceMillis(999);
+            assertThat(breaker.tryAcquire()).isFalse();
+
+            advanceMillis(1);
+            assertThat(breaker.tryAcquire()).isTrue();
+            assertThat(breaker.getState()).isEqualTo(State.HALF_OPEN);
+            assertThat(breaker.tryAcquire()).isFalse();
+
+            breaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(20));
+            assertThat(breaker.getState()).isEqualTo(State.CLOSED);
+            assertThat(breaker.tryAcquire()).isTrue();
+        }
+
+        @Test
+        @DisplayName("试探失败应该重新打开并把等待时间加倍")
+        void failedTrialShouldDoubleOpenTime() {
+            CircuitBreaker breaker = breaker();
+            for (int i = 0; i < 3; i++) {
+                breaker.call(t -> timeout());
+            }
+            advanceMillis(1000);
+            breaker.call(t -> timeout());
+
+            assertThat(breaker.getState()).isEqualTo(State.OPEN);
+            assertThat(breaker.getOpens()).isEqualTo(2);
+            advanceMillis(1999);
+            assertThat(breaker.tryAcquire()).isFalse();
+            advanceMillis(1);
+            assertThat(breaker.tryAcquire()).isTrue();
+        }
+
+        @Test
+        @DisplayName("放弃的试探应该允许下一次申请")
+        void releaseShouldFreeTrial() {
+            CircuitBreaker breaker = breaker();
+            for (int i = 0; i < 3; i++) {
+                breaker.call(t -> timeout());
+            }
+            advanceMillis(1000);
+            assertThat(breaker.tryAcquire()).isTrue();
+
+            breaker.release();
+
+            assertThat(breaker.tryAcquire()).isTrue();
+        }
+
+        @Test
+        @DisplayName("状态变化时应该通知监听器")
+        void shouldNotifyStateListener() {
+            CircuitBreaker breaker = breaker();
+            StringBuilder states = new StringBuilder();
+            breaker.setStateListener(b -> states.append(b.getState()).append(' '));
+            for (int i = 0; i < 3; i++) {
+                breaker.call(t -> timeout());
+            }
+            advanceMillis(1000);
+            breaker.call(t -> CompletableFuture.completedFuture("ok"));
+
+            assertThat(states.toString().trim()).isEqualTo("OPEN HALF_OPEN CLOSED");
+        }
+    }
+
+    @Nested
+    @DisplayName("自适应超时测试")
+    class TimeoutTest {
+
+        @Test
+        @DisplayName("样本不足时应该使用超时上限")
+        void shouldUseCeilingWithoutSamples() {
+            assertThat(breaker().getTimeoutMillis()).isEqualTo(5000);
+        }
+
+        @Test
+        @DisplayName("超时时间应该是 p99 耗时乘以倍数")
+        void shouldDeriveTimeoutFromP99() {
+            CircuitBreaker breaker = breaker();
+            for (int i = 0; i < 100; i++) {
+                breaker.onSuccess(TimeUnit.MILLISECONDS.toNanos(20));
+            }
+
+            assertThat(breaker.getP99Millis()).isBetween(20L, 25L);
+            assertThat(breaker.getTimeoutMillis()).isBetween(60L, 75L);
+        }
+
+        @Test
+        @DisplayName("调用应该收到当前的超时时间")
+        void callShouldReceiveTimeout() {
+            CircuitBreaker breaker = breaker();
+            AtomicLong received = new AtomicLong();
+
+            breaker.call(t -> {
+                received.set(t);
+                return CompletableFuture.completedFuture("ok");
+            });
+
+            assertThat(received).hasValue(5000);
+        }
+    }
+
+    @Nested
+    @DisplayName("耗时直方图测试")
+    class HistogramTest {
+
+        @Test
+        @DisplayName("分位数应该落在样本所在的桶")
+        void shouldComputePercentiles() {
+            LatencyHistogram histogram = new LatencyHistogram(10_000);
+            for (int i = 0; i < 990; i++) {
+                histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+            }
+            for (int i = 0; i < 10; i++) {
+                histogram.record(TimeUnit.MILLISECONDS.toNanos(800));
+            }
+
+            assertThat(histogram.percentileMillis(0.5)).isEqualTo(5);
+            assertThat(histogram.percentileMillis(0.99)).isEqualTo(5);
+            assertThat(histogram.percentileMillis(1.0)).isBetween(800L, 1000L);
+            assertThat(new LatencyHistogram(10).percentileMillis(0.99)).isZero();
+        }
+
+        @Test
+        @DisplayName("超过窗口后旧样本应该衰减")
+        void shouldDecayOldSamples() {
+            LatencyHistogram histogram = new LatencyHistogram(100);
+            for (int i = 0; i < 99; i++) {
+                histogram.record(TimeUnit.SECONDS.toNanos(2));
+            }
+            for (int i = 0; i < 500; i++) {
+                histogram.record(TimeUnit.MILLISECONDS.toNanos(10));
+            }
+
+            assertThat(histogram.getCount()).isLessThan(100);
+            assertThat(histogram.percentileMillis(0.99)).isEqualTo(10);
+        }
+    }
+
+    @Nested
+    @DisplayName("带熔断的执行器测试")
+    class RunnerTest {
+
+        @Test
+        @DisplayName("熔断后调用应该快速返回空字符串且不再执行脚本")
+        void shouldShortCircuitWhenOpen() {
+            AtomicInteger executed = new AtomicInteger();
+            CommandRunner hanging = new CommandRunner() {
+                @Override
+                public String runAppleScript(String script) {
+                    return "";
+                }
+
+                @Override
+                public CompletableFuture<String> runAppleScriptChecked(String script, long timeoutMillis) {
+                    executed.incrementAndGet();
+                    return timeout();
+                }
+            };
+            CircuitBreakerCommandRunner runner = new CircuitBreakerCommandRunner(hanging, breaker());
+
+            for (int i = 0; i < 5; i++) {
+                assertThat(runner.runAppleScript("tell application \"Test\" to activate")).isEmpty();
+            }
+
+            assertThat(executed).hasValue(3);
+            assertThat(runner.getCircuitBreaker().getRejected()).isEqualTo(2);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.tsymq.command;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 录制与回放执行器测试
+ */
+@DisplayName("CommandRunner 测试")
+class CommandRunnerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("录制测试")
+    class RecordingTest {
+
+        @Test
+        @DisplayName("应该把脚本、输出和耗时写入录制文件")
+        void shouldRecordTraces() throws IOException {
+            Path traceFile = tempDir.resolve("trace.jsonl");
+            CommandRunner delegate = script -> "out:" + script;
+
+            try (RecordingCommandRunner recorder = new RecordingCommandRunner(delegate, traceFile)) {
+                assertThat(recorder.runAppleScript("a")).isEqualTo("out:a");
+                assertThat(recorder.runAppleScriptAsync("b\nc").join()).isEqualTo("out:b\nc");
+                assertThat(recorder.getRecorded()).isEqualTo(2);
+            }
+
+            assertThat(Files.readAllLines(traceFile)).hasSize(2);
+            List<CommandTrace> traces = ReplayCommandRunner.readTraces(traceFile);
+            assertThat(traces).extracting(CommandTrace::getScript).containsExactly("a", "b\nc");
+            assertThat(traces).extracting(CommandTrace::getResponse).containsExactly("out:a", "out:b\nc");
+            assertThat(traces).allSatisfy(trace -> assertThat(trace.getLatencyNanos()).isNotNegative());
+        }
+    }
+
+    @Nested
+    @DisplayName("回放测试")
+    class ReplayTest {
+
+        @Test
+        @DisplayName("录制后回放应该得到相同的输出")
+        void shouldReplayRecordedResponses() throws IOException {
+            Path traceFile = tempDir.resolve("trace.jsonl");
+            try (RecordingCommandRunner recorder = new RecordingCommandRunner(script -> script.toUpperCase(), traceFile)) {
+                recorder.runAppleScript("probe");
+                recorder.runAppleScript("close");
+            }
+
+            ReplayCommandRunner replay = new ReplayCommandRunner(traceFile, 0);
+
+            assertThat(replay.runAppleScript("probe")).isEqualTo("PROBE");
+            assertThat(replay.runAppleScriptAsync("close").join()).isEqualTo("CLOSE");
+            assertThat(replay.getCalls()).isEqualTo(2);
+            assertThat(replay.getMisses()).isZero();
+        }
+
+        @Test
+        @DisplayName("同一脚本的多条记录应该按顺序循环返回")
+        void shouldCycleThroughRepliesInOrder() {
+            ReplayCommandRunner replay = new ReplayCommandRunner(List.of(
+                new CommandTrace("probe", "1", 0, 0),
+                new CommandTrace("probe", "2", 0, 0)), 0);
+
+            assertThat(replay.runAppleScript("probe")).isEqualTo("1");
+            assertThat(replay.runAppleScript("probe")).isEqualTo("2");
+            assertThat(replay.runAppleScript("probe")).isEqualTo("1");
+        }
+
+        @Test
+        @DisplayName("没有录制的脚本应该返回空字符串并计入未命中")
+        void shouldCountMisses() {
+            ReplayCommandRunner replay = new ReplayCommandRunner(List.of(), 0);
+
+            assertThat(replay.runAppleScript("unknown")).isEmpty();
+            assertThat(replay.runAppleScriptAsync("unknown").join()).isEmpty();
+            assertThat(replay.getMisses()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("应该按缩放后的录制耗时延迟返回")
+        void shouldHonourScaledLatency() {
+            CommandTrace trace = new CommandTrace("probe", "ok", TimeUnit.MILLISECONDS.toNanos(400), 0);
+
+            long start = System.nanoTime();
+            new ReplayCommandRunner(List.of(trace), 0.25).runAppleScript("probe");
+            long syncMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            start = System.nanoTime();
+            CompletableFuture<String> future = new ReplayCommandRunner(List.of(trace), 0.25).runAppleScriptAsync("probe");
+            assertThat(future).isNotDone();
+            assertThat(future.join()).isEqualTo("ok");
+            long asyncMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            assertThat(syncMillis).isBetween(95L, 390L);
+            assertThat(asyncMillis).isBetween(95L, 390L);
+        }
+
+        @Test
+        @DisplayName("负的缩放比例应该被拒绝")
+        void shouldRejectNegativeScale() {
+            assertThatThrownBy(() -> new ReplayCommandRunner(List.of(), -1))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
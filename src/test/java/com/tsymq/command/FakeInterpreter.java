@@ -0,0 +1,70 @@
+package com.tsymq.command;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * 假的脚本解释器，按 {@link ScriptSession} 的行协议应答，用于在 Linux 上测试会话
+ * 支持的"脚本"：
+ * <ul>
+ *     <li>echo:文本 —— 原样返回文本</li>
+ *     <li>sleep:毫秒 —— 等待后返回 done</li>
+ *     <li>error:消息 —— 返回脚本错误</li>
+ *     <li>crash —— 直接退出进程</li>
+ *     <li>pid —— 返回当前进程号</li>
+ *     <li>其他 —— 返回 "ran:" + 脚本</li>
+ * </ul>
+ */
+public class FakeInterpreter {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        PrintStream out = new PrintStream(System.out, true, StandardCharsets.UTF_8);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = in.readLine()) != null) {
+            int space = line.indexOf(' ');
+            String id = line.substring(0, space);
+            String script = new String(Base64.getDecoder().decode(line.substring(space + 1)), StandardCharsets.UTF_8);
+
+            String status = "OK";
+            String result;
+            if (script.startsWith("echo:")) {
+                result = script.substring(5);
+            } else if (script.startsWith("sleep:")) {
+                Thread.sleep(Long.parseLong(script.substring(6)));
+                result = "done";
+            } else if (script.startsWith("error:")) {
+                status = "ERR";
+                result = script.substring(6);
+            } else if (script.equals("crash")) {
+                System.exit(3);
+                return;
+            } else if (script.equals("pid")) {
+                result = String.valueOf(ProcessHandle.current().pid());
+            } else {
+                result = "ran:" + script;
+            }
+            out.println(id + " " + status + " "
+                    + Base64.getEncoder().encodeToString(result.getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+
+    /**
+     * 启动假解释器的命令（使用当前 JVM 和类路径）
+     * @return 命令
+     */
+    public static List<String> command() {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(FakeInterpreter.class.getName());
+        return command;
+    }
+}
@@ -0,0 +1,174 @@
+package com.tsymq.command;
+
+import com.tsymq.browser.Browser;
+import com.tsymq.browser.ChromeBrowser;
+import com.tsymq.browser.TabSnapshot;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 预编译脚本缓存测试
+ */
+@DisplayName("ScriptCache 测试")
+class ScriptCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static CompiledScript script(int version, String body) {
+        return new CompiledScript("Google Chrome.closeTabs", version, "on run argv\n" + body + "\nend run");
+    }
+
+    private List<String> cachedFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Nested
+    @DisplayName("脚本调用测试")
+    class InvocationTest {
+
+        @Test
+        @DisplayName("内联执行应该转义源码并传入参数")
+        void inlineShouldQuoteSourceAndArguments() {
+            CompiledScript script = script(1, "  return \"a\\b\"");
+
+            assertThat(script.inline(List.of("1", "x\"y")))
+                .isEqualTo("run script \"on run argv\\n  return \\\"a\\\\b\\\"\\nend run\" with parameters {\"1\", \"x\\\"y\"}");
+            assertThat(script.inline(List.of())).endsWith("with parameters {}");
+        }
+
+        @Test
+        @DisplayName("执行编译文件时只传入路径和参数")
+        void fileInvocationShouldReferenceCompiledFile() {
+            assertThat(CompiledScript.fileInvocation(Path.of("/tmp/a.scpt"), List.of("5")))
+                .isEqualTo("run script (POSIX file \"/tmp/a.scpt\") with parameters {\"5\"}");
+        }
+
+        @Test
+        @DisplayName("文件名应该包含安全的脚本名和版本")
+        void fileNameShouldContainNameAndVersion() {
+            assertThat(script(3, "").getFileName()).matches("Google_Chrome\\.closeTabs@v3-[0-9a-f]{8}\\.scpt");
+            assertThat(script(3, "a").getFileName()).isNotEqualTo(script(3, "b").getFileName());
+        }
+    }
+
+    @Nested
+    @DisplayName("缓存测试")
+    class CacheTest {
+
+        @Test
+        @DisplayName("同一脚本只编译一次")
+        void shouldCompileOnce() throws IOException {
+            AtomicInteger compiles = new AtomicInteger();
+            ScriptCache cache = new ScriptCache(tempDir, (source, output) -> {
+                compiles.incrementAndGet();
+                Files.writeString(output, source);
+            });
+
+            String first = cache.invocationOf(script(1, "x"), List.of("1"));
+            String second = cache.invocationOf(script(1, "x"), List.of("2"));
+
+            assertThat(compiles).hasValue(1);
+            assertThat(first).startsWith("run script (POSIX file ").endsWith("{\"1\"}");
+            assertThat(second).endsWith("{\"2\"}");
+            assertThat(cache.getCompiles()).isEqualTo(1);
+            assertThat(cache.getHits()).isEqualTo(1);
+            assertThat(cachedFiles()).containsExactly(script(1, "x").getFileName());
+        }
+
+        @Test
+        @DisplayName("上次运行编译的文件应该直接使用")
+        void shouldReuseFilesFromPreviousRun() throws IOException {
+            Files.writeString(tempDir.resolve(script(1, "x").getFileName()), "compiled");
+            ScriptCache cache = new ScriptCache(tempDir, (source, output) -> fail("should not compile"));
+
+            assertThat(cache.resolve(script(1, "x"))).contains(tempDir.resolve(script(1, "x").getFileName()));
+            assertThat(cache.getCompiles()).isZero();
+        }
+
+        @Test
+        @DisplayName("版本变化时应该删除旧文件并重新编译")
+        void shouldInvalidateOnVersionChange() throws IOException {
+            new ScriptCache(tempDir, (source, output) -> Files.writeString(output, source)).resolve(script(1, "x"));
+            Files.writeString(tempDir.resolve("Safari.closeTabs@v1-00000000.scpt"), "other");
+
+            ScriptCache cache = new ScriptCache(tempDir, (source, output) -> Files.writeString(output, source));
+            cache.resolve(script(2, "x"));
+
+            assertThat(cache.getCompiles()).isEqualTo(1);
+            assertThat(cachedFiles()).containsExactly(script(2, "x").getFileName(), "Safari.closeTabs@v1-00000000.scpt");
+        }
+
+        @Test
+        @DisplayName("编译失败时应该内联执行且不再重试")
+        void shouldFallBackToInlineWhenCompileFails() {
+            AtomicInteger attempts = new AtomicInteger();
+            ScriptCache cache = new ScriptCache(tempDir, (source, output) -> {
+                attempts.incrementAndGet();
+                throw new ScriptException("Can't get application", false);
+            });
+
+            assertThat(cache.invocationOf(script(1, "x"), List.of())).isEqualTo(script(1, "x").inline(List.of()));
+            assertThat(cache.invocationOf(script(1, "x"), List.of())).isEqualTo(script(1, "x").inline(List.of()));
+            assertThat(attempts).hasValue(1);
+            assertThat(cache.getFailures()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("没有缓存的执行器应该内联执行")
+        void defaultRunnerShouldRunInline() {
+            CommandRunner runner = text -> text;
+
+            assertThat(runner.runCompiled(script(1, "x"), List.of("1"))).isEqualTo(script(1, "x").inline(List.of("1")));
+            assertThat(new CircuitBreakerCommandRunner(runner, new CircuitBreaker("Google Chrome"))
+                .invocationOf(script(1, "x"), List.of())).isEqualTo(script(1, "x").inline(List.of()));
+        }
+    }
+
+    @Nested
+    @DisplayName("编译与解释开销对比")
+    class BenchmarkTest {
+
+        private static final int ITERATIONS = 200;
+
+        private SimulatedCommandRunner run(Path cacheDirectory) {
+            SimulatedCommandRunner runner = new SimulatedCommandRunner(text -> "", cacheDirectory);
+            Browser chrome = new ChromeBrowser(runner);
+            List<TabSnapshot> tabs = List.of(new TabSnapshot(ChromeBrowser.APP_NAME, "1", "10", "https://a.com", ""));
+            for (int i = 0; i < ITERATIONS; i++) {
+                chrome.listTabsAsync().join();
+                chrome.closeTabs(tabs);
+                chrome.getActiveTabUrl();
+            }
+            return runner;
+        }
+
+        @Test
+        @DisplayName("预编译执行的开销应该低于每次内联执行")
+        void compiledShouldBeCheaperThanInline() {
+            SimulatedCommandRunner inline = run(null);
+            SimulatedCommandRunner compiled = run(tempDir);
+
+            System.out.println("inline:   " + inline);
+            System.out.println("compiled: " + compiled);
+            assertThat(compiled.getCalls()).isEqualTo(inline.getCalls());
+            assertThat(compiled.getCache().getCompiles()).isEqualTo(3);
+            assertThat(compiled.getCompiledChars()).isLessThan(inline.getCompiledChars() / 2);
+            assertThat(compiled.getSimulatedMillis()).isLessThan(inline.getSimulatedMillis() * 0.75);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.tsymq.command;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 常驻脚本解释器会话测试（使用假解释器）
+ */
+@DisplayName("ScriptSession 测试")
+class ScriptSessionTest {
+
+    private static final long TIMEOUT_MS = 10_000;
+
+    private ScriptSession session;
+
+    @BeforeEach
+    void setUp() {
+        session = new ScriptSession(FakeInterpreter.command());
+    }
+
+    @AfterEach
+    void tearDown() {
+        session.close();
+    }
+
+    @Test
+    @DisplayName("多次执行应该复用同一个解释器进程")
+    void shouldReuseInterpreterProcess() throws IOException {
+        String pid = session.execute("pid", TIMEOUT_MS);
+        for (int i = 0; i < 20; i++) {
+            assertThat(session.execute("echo:" + i, TIMEOUT_MS)).isEqualTo(String.valueOf(i));
+        }
+
+        assertThat(session.execute("pid", TIMEOUT_MS)).isEqualTo(pid);
+        assertThat(session.getRequests()).isEqualTo(22);
+        assertThat(session.getRestarts()).isZero();
+    }
+
+    @Test
+    @DisplayName("包含换行和中文的脚本与结果应该完整传输")
+    void shouldTransferMultiLineContent() throws IOException {
+        String text = "第一行\n  tell application \"Safari\"\n end tell";
+
+        assertThat(session.execute("echo:" + text, TIMEOUT_MS)).isEqualTo(text);
+    }
+
+    @Test
+    @DisplayName("脚本错误应该返回空字符串且不重启解释器")
+    void scriptErrorShouldReturnEmpty() throws IOException {
+        String pid = session.execute("pid", TIMEOUT_MS);
+
+        assertThat(session.execute("error:Can't get window 1", TIMEOUT_MS)).isEmpty();
+        assertThat(session.execute("pid", TIMEOUT_MS)).isEqualTo(pid);
+    }
+
+    @Test
+    @DisplayName("解释器崩溃后应该自动重启")
+    void shouldRestartAfterCrash() throws IOException {
+        String pid = session.execute("pid", TIMEOUT_MS);
+
+        assertThatThrownBy(() -> session.execute("crash", TIMEOUT_MS))
+                .isInstanceOf(IOException.class);
+        String newPid = session.execute("pid", TIMEOUT_MS);
+
+        assertThat(newPid).isNotEqualTo(pid);
+        assertThat(session.getRestarts()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("超时的请求应该失败，之后的请求正常执行")
+    void shouldTimeOutAndRecover() throws IOException {
+        session.execute("pid", TIMEOUT_MS);
+
+        assertThatThrownBy(() -> session.execute("sleep:5000", 200))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("timed out");
+        assertThat(session.getTimeouts()).isEqualTo(1);
+        assertThat(session.execute("echo:ok", TIMEOUT_MS)).isEqualTo("ok");
+    }
+
+    @Test
+    @DisplayName("关闭后执行应该抛出异常")
+    void shouldRejectAfterClose() throws IOException {
+        session.execute("echo:x", TIMEOUT_MS);
+        session.close();
+
+        assertThat(session.isAlive()).isFalse();
+        assertThatThrownBy(() -> session.execute("echo:x", TIMEOUT_MS))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    @DisplayName("解释器无法启动时应该抛出异常")
+    void shouldFailWhenInterpreterMissing() {
+        ScriptSession missing = new ScriptSession(List.of("/nonexistent/interpreter"));
+
+        assertThatThrownBy(() -> missing.execute("echo:x", TIMEOUT_MS))
+                .isInstanceOf(IOException.class);
+        missing.close();
+    }
+}
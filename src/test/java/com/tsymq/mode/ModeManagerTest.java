@@ -278,6 +278,33 @@ class ModeManagerTest {
                 .doesNotThrowAnyException();
         }
 
+        @Test
+        @DisplayName("添加的监听器应该和界面监听器一起触发，移除后不再触发")
+        void shouldNotifyAddedListenersAlongsideMainListener() {
+            java.time.LocalTime currentTime = java.time.LocalTime.now();
+            java.time.LocalTime cutoff = java.time.LocalTime.of(17, 0);
+
+            if (currentTime.isAfter(cutoff)) {
+                // 17:00后无法切换到学习模式，跳过测试
+                return;
+            }
+
+            AtomicReference<ModeState> mainState = new AtomicReference<>();
+            AtomicReference<ModeState> addedState = new AtomicReference<>();
+            AtomicBoolean removedTriggered = new AtomicBoolean(false);
+            java.util.function.Consumer<ModeState> removed = state -> removedTriggered.set(true);
+            modeManager.setModeChangeListener(mainState::set);
+            modeManager.addModeChangeListener(addedState::set);
+            modeManager.addModeChangeListener(removed);
+            modeManager.removeModeChangeListener(removed);
+
+            modeManager.switchToFocusMode(30);
+
+            assertThat(mainState.get()).isNotNull();
+            assertThat(addedState.get()).isSameAs(mainState.get());
+            assertThat(removedTriggered.get()).isFalse();
+        }
+
         @Test
         @DisplayName("移除监听器后不应该再触发")
         void shouldNotTriggerAfterRemovingListener() {
@@ -0,0 +1,163 @@
+package com.tsymq.monitor;
+
+import com.tsymq.browser.TabSnapshot;
+import com.tsymq.monitor.BlockAction.Priority;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 屏蔽动作执行器测试
+ */
+@DisplayName("ActionExecutor 测试")
+class ActionExecutorTest {
+
+    private static final long TIMEOUT_MS = 5000;
+
+    private final ActionExecutor executor = new ActionExecutor(2);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        executor.close();
+    }
+
+    /**
+     * 提交一个阻塞执行线程的动作，直到 release 被释放
+     */
+    private void blockWorker() throws InterruptedException {
+        executor.submit(new BlockAction(Priority.USER_RULE, "blocker", () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(started.await(TIMEOUT_MS, TimeUnit.MILLISECONDS)).isTrue();
+    }
+
+    private BlockAction action(Priority priority, String key) {
+        return new BlockAction(priority, key, () -> executed.add(key));
+    }
+
+    @Nested
+    @DisplayName("调度测试")
+    class SchedulingTest {
+
+        @Test
+        @DisplayName("硬编码屏蔽应该先于用户规则执行")
+        void shouldRunHardcodedActionsFirst() throws InterruptedException {
+            blockWorker();
+            executor.submit(action(Priority.USER_RULE, "user"));
+            executor.submit(action(Priority.HARDCODED, "hardcoded"));
+
+            release.countDown();
+
+            assertThat(executor.awaitIdle(TIMEOUT_MS)).isTrue();
+            assertThat(executed).containsExactly("hardcoded", "user");
+        }
+
+        @Test
+        @DisplayName("同一标签页的动作执行完之前不应该重复入队")
+        void shouldDeduplicatePendingActions() throws InterruptedException {
+            TabSnapshot tab = new TabSnapshot("Microsoft Edge", "1", "7", "https://example.com", "Example");
+            blockWorker();
+
+            assertThat(executor.submit(BlockAction.forTab(Priority.HARDCODED, tab, () -> executed.add("close")))).isTrue();
+            assertThat(executor.submit(BlockAction.forTab(Priority.HARDCODED, tab, () -> executed.add("close")))).isFalse();
+            release.countDown();
+            assertThat(executor.awaitIdle(TIMEOUT_MS)).isTrue();
+
+            assertThat(executed).containsExactly("close");
+            assertThat(executor.getDeduplicated()).isEqualTo(1);
+            // 执行完后同一标签页可以再次提交
+            assertThat(executor.submit(BlockAction.forTab(Priority.HARDCODED, tab, () -> executed.add("close")))).isTrue();
+        }
+
+        @Test
+        @DisplayName("不同标签页的动作不应该被去重")
+        void shouldNotDeduplicateDifferentTabs() {
+            TabSnapshot first = new TabSnapshot("Microsoft Edge", "1", "7", "https://example.com", "");
+            TabSnapshot second = new TabSnapshot("Microsoft Edge", "1", "8", "https://example.com", "");
+
+            assertThat(BlockAction.forTab(Priority.HARDCODED, first, () -> { }).getKey())
+                .isNotEqualTo(BlockAction.forTab(Priority.HARDCODED, second, () -> { }).getKey());
+        }
+
+        @Test
+        @DisplayName("队列满时应该拒绝新动作")
+        void shouldRejectWhenFull() throws InterruptedException {
+            blockWorker();
+
+            assertThat(executor.submit(action(Priority.USER_RULE, "a"))).isTrue();
+            assertThat(executor.submit(action(Priority.USER_RULE, "b"))).isTrue();
+            assertThat(executor.submit(action(Priority.HARDCODED, "c"))).isFalse();
+
+            assertThat(executor.getRejected()).isEqualTo(1);
+            assertThat(executor.getDepth()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("动作抛出异常后应该继续执行后续动作")
+        void shouldContinueAfterFailure() {
+            executor.submit(new BlockAction(Priority.HARDCODED, "bad", () -> {
+                throw new IllegalStateException("boom");
+            }));
+            executor.submit(action(Priority.USER_RULE, "good"));
+
+            assertThat(executor.awaitIdle(TIMEOUT_MS)).isTrue();
+            assertThat(executed).containsExactly("good");
+            assertThat(executor.getFailed()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("关闭时应该丢弃排队中的动作")
+        void closeShouldCancelQueuedActions() throws InterruptedException {
+            blockWorker();
+            BlockAction queued = action(Priority.USER_RULE, "queued");
+            executor.submit(queued);
+
+            release.countDown();
+            executor.close();
+
+            assertThat(executor.submit(action(Priority.USER_RULE, "late"))).isFalse();
+            assertThat(queued.getCompletion()).isDone();
+        }
+    }
+
+    @Nested
+    @DisplayName("统计测试")
+    class MetricsTest {
+
+        @Test
+        @DisplayName("应该统计队列深度和动作耗时")
+        void shouldReportDepthAndLatency() throws InterruptedException {
+            blockWorker();
+            executor.submit(action(Priority.USER_RULE, "a"));
+            executor.submit(action(Priority.USER_RULE, "b"));
+            TimeUnit.MILLISECONDS.sleep(50);
+
+            release.countDown();
+
+            assertThat(executor.awaitIdle(TIMEOUT_MS)).isTrue();
+            assertThat(executor.getMaxDepth()).isEqualTo(2);
+            assertThat(executor.getDepth()).isZero();
+            assertThat(executor.getSubmitted()).isEqualTo(3);
+            assertThat(executor.getExecuted()).isEqualTo(3);
+            assertThat(executor.getMaxLatencyMillis()).isGreaterThanOrEqualTo(50);
+            assertThat(executor.getAverageLatencyMillis()).isPositive();
+        }
+    }
+}
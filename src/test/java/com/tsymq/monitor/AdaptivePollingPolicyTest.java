@@ -0,0 +1,140 @@
+package com.tsymq.monitor;
+
+import com.tsymq.monitor.AdaptivePollingPolicy.Observation;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 自适应采样策略测试
+ */
+@DisplayName("AdaptivePollingPolicy 测试")
+class AdaptivePollingPolicyTest {
+
+    private AdaptivePollingPolicy policy() {
+        return new AdaptivePollingPolicy(100, 1000, 400, 2.0, 60_000);
+    }
+
+    @Nested
+    @DisplayName("采样间隔测试")
+    class IntervalTest {
+
+        @Test
+        @DisplayName("无变化时应该按倍数退避并封顶")
+        void shouldBackOffUpToCeiling() {
+            AdaptivePollingPolicy policy = policy();
+
+            assertThat(policy.onSample(Observation.UNCHANGED)).isEqualTo(800);
+            assertThat(policy.onSample(Observation.UNSUPPORTED)).isEqualTo(1000);
+            assertThat(policy.onSample(Observation.UNCHANGED)).isEqualTo(1000);
+        }
+
+        @Test
+        @DisplayName("标签页切换或屏蔽后应该回到最短间隔")
+        void shouldTightenAfterChangeOrBlock() {
+            AdaptivePollingPolicy policy = policy();
+            policy.onSample(Observation.UNCHANGED);
+
+            assertThat(policy.onSample(Observation.CHANGED)).isEqualTo(100);
+            policy.onSample(Observation.UNCHANGED);
+            assertThat(policy.onSample(Observation.BLOCKED)).isEqualTo(100);
+        }
+
+        @Test
+        @DisplayName("初始间隔应该限制在上下限之间")
+        void shouldClampInitialInterval() {
+            assertThat(new AdaptivePollingPolicy(100, 1000, 5000, 2.0, 0).getCurrentDelayMillis()).isEqualTo(1000);
+            assertThat(new AdaptivePollingPolicy(100, 1000, 10, 2.0, 0).getCurrentDelayMillis()).isEqualTo(100);
+        }
+
+        @Test
+        @DisplayName("无效参数应该被拒绝")
+        void shouldRejectInvalidArguments() {
+            assertThatThrownBy(() -> new AdaptivePollingPolicy(0, 1000, 500, 2.0, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> new AdaptivePollingPolicy(1000, 100, 500, 2.0, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> new AdaptivePollingPolicy(100, 1000, 500, 0.5, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("空闲暂停测试")
+    class IdleTest {
+
+        @Test
+        @DisplayName("间隔退避到上限之前不应该检查空闲")
+        void shouldOnlyCheckIdleAtCeiling() {
+            AdaptivePollingPolicy policy = policy();
+            assertThat(policy.shouldCheckIdle()).isFalse();
+
+            policy.onSample(Observation.UNCHANGED);
+            policy.onSample(Observation.UNCHANGED);
+
+            assertThat(policy.shouldCheckIdle()).isTrue();
+        }
+
+        @Test
+        @DisplayName("空闲时应该暂停，恢复活动后应该立即采样")
+        void shouldPauseWhileIdleAndResume() {
+            AdaptivePollingPolicy policy = policy();
+            policy.onSample(Observation.UNCHANGED);
+            policy.onSample(Observation.UNCHANGED);
+
+            assertThat(policy.checkIdle(120_000)).isTrue();
+            assertThat(policy.checkIdle(180_000)).isTrue();
+            assertThat(policy.isPaused()).isTrue();
+            assertThat(policy.getPausedChecks()).isEqualTo(2);
+            assertThat(policy.getCurrentDelayMillis()).isEqualTo(1000);
+
+            assertThat(policy.checkIdle(50)).isFalse();
+            assertThat(policy.isPaused()).isFalse();
+            assertThat(policy.getCurrentDelayMillis()).isEqualTo(100);
+        }
+
+        @Test
+        @DisplayName("空闲阈值为0时不应该暂停")
+        void shouldNotPauseWhenDisabled() {
+            AdaptivePollingPolicy policy = new AdaptivePollingPolicy(100, 100, 100, 2.0, 0);
+
+            assertThat(policy.shouldCheckIdle()).isFalse();
+            assertThat(policy.checkIdle(Long.MAX_VALUE)).isFalse();
+        }
+
+        @Test
+        @DisplayName("应该从 ioreg 输出解析 HIDIdleTime")
+        void shouldParseHidIdleTime() {
+            String output = "  | |   \"HIDIdleTime\" = 2500000000\n  | |   \"HIDParameters\" = 1";
+
+            assertThat(IdleDetector.parseHidIdleTime(output)).isEqualTo(2500);
+            assertThat(IdleDetector.parseHidIdleTime("")).isZero();
+            assertThat(IdleDetector.parseHidIdleTime("\"HIDIdleTime\" = abc")).isZero();
+        }
+    }
+
+    @Nested
+    @DisplayName("统计测试")
+    class StatsTest {
+
+        @Test
+        @DisplayName("应该统计采样次数、采样频率和平均屏蔽耗时")
+        void shouldReportStats() {
+            AdaptivePollingPolicy policy = policy();
+            assertThat(policy.getAverageTimeToBlockMillis()).isZero();
+
+            policy.onSample(Observation.CHANGED);
+            policy.onSample(Observation.BLOCKED);
+            policy.recordBlock(TimeUnit.MILLISECONDS.toNanos(100));
+            policy.recordBlock(TimeUnit.MILLISECONDS.toNanos(300));
+
+            assertThat(policy.getSamples()).isEqualTo(2);
+            assertThat(policy.getEffectiveRate()).isPositive();
+            assertThat(policy.getAverageTimeToBlockMillis()).isEqualTo(200.0);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.tsymq.monitor;
+
+import com.tsymq.browser.Browser;
+import com.tsymq.browser.BrowserFactory;
+import com.tsymq.browser.ChromeBrowser;
+import com.tsymq.browser.EdgeBrowser;
+import com.tsymq.browser.SafariBrowser;
+import com.tsymq.browser.TabSnapshot;
+import com.tsymq.command.CommandRunner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 全量标签页扫描测试（使用按脚本返回固定输出的执行器）
+ */
+@DisplayName("TabSweeper 测试")
+class TabSweeperTest {
+
+    private static final String SEP = TabSnapshot.FIELD_SEPARATOR;
+    private static final String RS = TabSnapshot.RECORD_SEPARATOR;
+    private static final long LIST_DELAY_MS = 300;
+
+    private final Map<String, String> responses = new HashMap<>();
+    private final List<String> executed = new CopyOnWriteArrayList<>();
+    private final ActionExecutor actions = new ActionExecutor(8);
+
+    /**
+     * 按脚本返回固定输出，标签页列表脚本延迟返回
+     */
+    private final CommandRunner runner = new CommandRunner() {
+        @Override
+        public String runAppleScript(String script) {
+            executed.add(script);
+            return responses.getOrDefault(script, "");
+        }
+
+        @Override
+        public CompletableFuture<String> runAppleScriptAsync(String script) {
+            long delay = script.contains("repeat with t in tabs of w") ? LIST_DELAY_MS : 0;
+            return CompletableFuture.supplyAsync(() -> runAppleScript(script),
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+        }
+    };
+
+    private final Map<String, Browser> browsers = BrowserFactory.createBrowsers(runner);
+
+    @AfterEach
+    void tearDown() {
+        actions.close();
+    }
+
+    private String listScriptOf(String browserName) {
+        return runner.invocationOf(browsers.get(browserName).getTabListScript(), List.of());
+    }
+
+    private static BlockAction.Priority classify(TabSnapshot tab) {
+        if (tab.getUrl().contains("adult")) {
+            return BlockAction.Priority.HARDCODED;
+        }
+        return tab.getUrl().contains("video") ? BlockAction.Priority.USER_RULE : null;
+    }
+
+    @Test
+    @DisplayName("应该并行扫描正在运行的浏览器并按浏览器合并关闭")
+    void shouldSweepRunningBrowsersInParallel() {
+        responses.put(BrowserFactory.getRunningAppsScript(), "Finder\nGoogle Chrome\nSafari");
+        responses.put(listScriptOf(ChromeBrowser.APP_NAME),
+            "1" + SEP + "10" + SEP + "https://adult.example" + SEP + "A" + RS
+                + "1" + SEP + "11" + SEP + "https://docs.example" + SEP + "B" + RS
+                + "2" + SEP + "20" + SEP + "https://video.example" + SEP + "C" + RS);
+        responses.put(listScriptOf(SafariBrowser.APP_NAME),
+            "5" + SEP + "1" + SEP + "https://video.example" + SEP + "D" + RS);
+        TabSweeper sweeper = new TabSweeper(runner, browsers.values(), TabSweeperTest::classify, actions, 1000, 0.5);
+        List<String> log = new ArrayList<>();
+
+        long start = System.nanoTime();
+        int closed = sweeper.sweep(log::add).join();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertThat(actions.awaitIdle(5000)).isTrue();
+
+        assertThat(closed).isEqualTo(3);
+        assertThat(sweeper.getTabsScanned()).isEqualTo(4);
+        assertThat(log).hasSize(2);
+        // 两个浏览器的列表脚本同时执行
+        assertThat(elapsedMillis).isLessThan(2 * LIST_DELAY_MS);
+        // 没有运行的浏览器不执行脚本
+        assertThat(executed).noneMatch(script -> script.contains(EdgeBrowser.APP_NAME));
+
+        List<String> closeScripts = executed.stream().filter(script -> script.contains("close t")).collect(Collectors.toList());
+        assertThat(closeScripts).hasSize(2);
+        assertThat(closeScripts).anySatisfy(script -> assertThat(script)
+            .contains("close tab id")
+            .endsWith("with parameters {\"1\", \"10\", \"2\", \"20\"}"));
+        assertThat(closeScripts).anySatisfy(script -> assertThat(script).endsWith("with parameters {\"5\", \"1\", \"https://video.example\"}"));
+    }
+
+    @Test
+    @DisplayName("扫描间隔应该按耗时占比预算拉长")
+    void shouldStretchIntervalToStayWithinBudget() {
+        responses.put(BrowserFactory.getRunningAppsScript(), "Google Chrome");
+        TabSweeper sweeper = new TabSweeper(runner, browsers.values(), TabSweeperTest::classify, actions, 100, 0.5);
+        assertThat(sweeper.getNextDelayMillis()).isEqualTo(100);
+
+        sweeper.sweep(message -> { }).join();
+
+        assertThat(sweeper.getSweeps()).isEqualTo(1);
+        assertThat(sweeper.getLastDurationMillis()).isGreaterThanOrEqualTo(LIST_DELAY_MS);
+        assertThat(sweeper.getNextDelayMillis()).isGreaterThanOrEqualTo(2 * LIST_DELAY_MS);
+    }
+
+    @Test
+    @DisplayName("无效的预算应该被拒绝")
+    void shouldRejectInvalidBudget() {
+        assertThatThrownBy(() -> new TabSweeper(runner, browsers.values(), TabSweeperTest::classify, actions, 100, 0))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TabSweeper(runner, browsers.values(), TabSweeperTest::classify, actions, 100, 1.5))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,245 @@
+package com.tsymq.net;
+
+import com.tsymq.config.AppConfig;
+import com.tsymq.rule.Verdict;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 本机 DNS 存根解析器测试
+ */
+@DisplayName("DnsSinkhole 测试")
+class DnsSinkholeTest {
+
+    // 模拟学习模式开关，用户规则随之生效
+    private final AtomicBoolean focus = new AtomicBoolean(true);
+    private final AtomicLong clock = new AtomicLong();
+    private final BufferPool pool = new BufferPool(DnsSinkhole.PACKET_BYTES, 8, true);
+    private FakeDnsUpstream upstream;
+    private DnsSinkhole sinkhole;
+    private DatagramSocket client;
+
+    private Verdict evaluate(String domain) {
+        if (domain.equals("pornhub.com") || domain.endsWith(".pornhub.com")) {
+            return Verdict.HARDCODED_BLOCKED;
+        }
+        return focus.get() && domain.equals("video.example") ? Verdict.USER_BLOCKED : Verdict.ALLOW;
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        upstream = new FakeDnsUpstream(300);
+        sinkhole = start(false);
+        client = new DatagramSocket();
+        client.setSoTimeout(5000);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        client.close();
+        sinkhole.close();
+        upstream.close();
+    }
+
+    private DnsSinkhole start(boolean nxdomain) throws IOException {
+        return new DnsSinkhole(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), upstream.getAddress(),
+                this::evaluate, nxdomain, pool, clock::get).start();
+    }
+
+    private static byte[] query(int id, String name, int type) {
+        ByteBuffer message = ByteBuffer.allocate(512);
+        message.putShort((short) id).putShort((short) 0x0100).putShort((short) 1).putShort((short) 0)
+                .putShort((short) 0).putShort((short) 0);
+        for (String label : name.split("\\.")) {
+            message.put((byte) label.length()).put(label.getBytes());
+        }
+        message.put((byte) 0).putShort((short) type).putShort((short) DnsMessage.CLASS_IN);
+        return Arrays.copyOf(message.array(), message.position());
+    }
+
+    private ByteBuffer exchange(DnsSinkhole target, byte[] query) throws IOException {
+        client.send(new DatagramPacket(query, query.length, InetAddress.getLoopbackAddress(), target.getPort()));
+        byte[] buffer = new byte[4096];
+        DatagramPacket reply = new DatagramPacket(buffer, buffer.length);
+        client.receive(reply);
+        return ByteBuffer.wrap(buffer, 0, reply.getLength()).slice();
+    }
+
+    private ByteBuffer resolve(String name, int type) throws IOException {
+        return exchange(sinkhole, query(0x1234, name, type));
+    }
+
+    private static byte[] answerData(ByteBuffer response) {
+        DnsMessage.Question question = DnsMessage.readQuestion(response);
+        byte[] data = new byte[response.getShort(question.end + 10)];
+        response.duplicate().position(question.end + 12).get(data);
+        return data;
+    }
+
+    private static long answerTtl(ByteBuffer response) {
+        return response.getInt(DnsMessage.readQuestion(response).end + 6);
+    }
+
+    @Nested
+    @DisplayName("屏蔽测试")
+    class BlockTest {
+
+        @Test
+        @DisplayName("被屏蔽域名的 A 查询应该直接回答 0.0.0.0，不转发给上游")
+        void shouldAnswerNullAddressForBlockedDomains() throws IOException {
+            ByteBuffer response = resolve("WWW.PornHub.com", DnsMessage.TYPE_A);
+
+            assertThat(DnsMessage.id(response)).isEqualTo(0x1234);
+            assertThat(DnsMessage.isResponse(response)).isTrue();
+            assertThat(DnsMessage.rcode(response)).isZero();
+            assertThat(DnsMessage.answerCount(response)).isEqualTo(1);
+            assertThat(answerData(response)).containsExactly(0, 0, 0, 0);
+            assertThat(answerTtl(response)).isEqualTo(AppConfig.DNS_BLOCKED_TTL_S);
+            assertThat(upstream.getQueries()).isZero();
+            assertThat(sinkhole.getBlocked()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("AAAA 查询应该回答 ::，其他类型回答没有记录")
+        void shouldAnswerPerRecordType() throws IOException {
+            ByteBuffer aaaa = resolve("pornhub.com", DnsMessage.TYPE_AAAA);
+            assertThat(answerData(aaaa)).hasSize(16).containsOnly(0);
+
+            ByteBuffer mx = resolve("pornhub.com", 15);
+            assertThat(DnsMessage.rcode(mx)).isZero();
+            assertThat(DnsMessage.answerCount(mx)).isZero();
+            assertThat(upstream.getQueries()).isZero();
+        }
+
+        @Test
+        @DisplayName("NXDOMAIN 方式应该回答域名不存在")
+        void shouldAnswerNxdomainWhenConfigured() throws IOException {
+            try (DnsSinkhole nx = start(true)) {
+                ByteBuffer response = exchange(nx, query(7, "pornhub.com", DnsMessage.TYPE_A));
+
+                assertThat(DnsMessage.id(response)).isEqualTo(7);
+                assertThat(DnsMessage.rcode(response)).isEqualTo(DnsMessage.RCODE_NXDOMAIN);
+                assertThat(DnsMessage.answerCount(response)).isZero();
+            }
+        }
+
+        @Test
+        @DisplayName("用户规则应该只在学习模式下屏蔽，切换模式立即生效")
+        void shouldFollowFocusMode() throws IOException {
+            assertThat(answerData(resolve("video.example", DnsMessage.TYPE_A))).containsExactly(0, 0, 0, 0);
+
+            focus.set(false);
+            assertThat(answerData(resolve("video.example", DnsMessage.TYPE_A))).containsExactly(FakeDnsUpstream.ADDRESS);
+
+            // 已缓存上游回答，重新进入学习模式后仍然屏蔽
+            focus.set(true);
+            assertThat(answerData(resolve("video.example", DnsMessage.TYPE_A))).containsExactly(0, 0, 0, 0);
+            assertThat(upstream.getQueries()).isEqualTo(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("转发与缓存测试")
+    class ForwardTest {
+
+        @Test
+        @DisplayName("未屏蔽的查询应该转发给上游，并恢复客户端的报文 ID")
+        void shouldForwardAllowedQueries() throws IOException {
+            ByteBuffer response = resolve("docs.example", DnsMessage.TYPE_A);
+
+            assertThat(DnsMessage.id(response)).isEqualTo(0x1234);
+            assertThat(answerData(response)).containsExactly(FakeDnsUpstream.ADDRESS);
+            assertThat(answerTtl(response)).isEqualTo(300);
+            assertThat(upstream.getQueries()).isEqualTo(1);
+            assertThat(sinkhole.getForwarded()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("缓存的回答应该按经过的时间减少 TTL，过期后重新转发")
+        void shouldCacheAnswersByTtl() throws IOException {
+            resolve("docs.example", DnsMessage.TYPE_A);
+
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(100));
+            ByteBuffer cached = exchange(sinkhole, query(42, "docs.example", DnsMessage.TYPE_A));
+            assertThat(DnsMessage.id(cached)).isEqualTo(42);
+            assertThat(answerTtl(cached)).isEqualTo(200);
+            assertThat(upstream.getQueries()).isEqualTo(1);
+            assertThat(sinkhole.getCacheHits()).isEqualTo(1);
+
+            // 不同类型的查询不共享缓存
+            resolve("docs.example", DnsMessage.TYPE_AAAA);
+            assertThat(upstream.getQueries()).isEqualTo(2);
+
+            clock.addAndGet(TimeUnit.SECONDS.toNanos(201));
+            assertThat(answerTtl(resolve("docs.example", DnsMessage.TYPE_A))).isEqualTo(300);
+            assertThat(upstream.getQueries()).isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("上游超时未回答时应该回复 SERVFAIL")
+        void shouldAnswerServfailOnUpstreamTimeout() throws IOException {
+            upstream.setSilent(true);
+            byte[] query = query(99, "slow.example", DnsMessage.TYPE_A);
+            client.send(new DatagramPacket(query, query.length, InetAddress.getLoopbackAddress(), sinkhole.getPort()));
+            await(() -> upstream.getQueries() == 1);
+
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(AppConfig.DNS_UPSTREAM_TIMEOUT_MS));
+            byte[] buffer = new byte[512];
+            DatagramPacket reply = new DatagramPacket(buffer, buffer.length);
+            client.receive(reply);
+            ByteBuffer response = ByteBuffer.wrap(buffer, 0, reply.getLength()).slice();
+
+            assertThat(DnsMessage.id(response)).isEqualTo(99);
+            assertThat(DnsMessage.rcode(response)).isEqualTo(DnsMessage.RCODE_SERVFAIL);
+            assertThat(DnsMessage.readQuestion(response).name).isEqualTo("slow.example");
+            assertThat(sinkhole.getTimeouts()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("无法解析的查询应该回复 FORMERR")
+        void shouldAnswerFormerrOnMalformedQueries() throws IOException {
+            byte[] truncated = Arrays.copyOf(query(5, "docs.example", DnsMessage.TYPE_A), 20);
+            ByteBuffer response = exchange(sinkhole, truncated);
+
+            assertThat(DnsMessage.id(response)).isEqualTo(5);
+            assertThat(DnsMessage.rcode(response)).isEqualTo(DnsMessage.RCODE_FORMERR);
+            assertThat(upstream.getQueries()).isZero();
+        }
+
+        @Test
+        @DisplayName("报文缓冲区应该在查询之间复用")
+        void shouldReusePooledBuffers() throws IOException {
+            for (int i = 0; i < 200; i++) {
+                resolve(i % 2 == 0 ? "pornhub.com" : "site" + i + ".example", DnsMessage.TYPE_A);
+            }
+
+            assertThat(pool.getAcquisitions()).isGreaterThanOrEqualTo(200);
+            assertThat(pool.getAllocations()).isLessThanOrEqualTo(8);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+}
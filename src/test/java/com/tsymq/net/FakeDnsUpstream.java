@@ -0,0 +1,94 @@
+package com.tsymq.net;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 测试用的上游 DNS 服务器
+ * 对 A 查询回答一条 93.184.216.34 记录，对其他查询回答没有记录；可以设置为不回答以模拟上游超时
+ */
+class FakeDnsUpstream implements AutoCloseable {
+
+    static final byte[] ADDRESS = {93, (byte) 184, (byte) 216, 34};
+
+    private final DatagramSocket socket;
+    private final Thread thread;
+    private final long ttlSeconds;
+    private final AtomicInteger queries = new AtomicInteger();
+    private final AtomicBoolean silent = new AtomicBoolean();
+
+    FakeDnsUpstream(long ttlSeconds) throws SocketException {
+        this.ttlSeconds = ttlSeconds;
+        this.socket = new DatagramSocket(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        this.thread = new Thread(this::serve, "fake-dns-upstream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    InetSocketAddress getAddress() {
+        return (InetSocketAddress) socket.getLocalSocketAddress();
+    }
+
+    int getQueries() {
+        return queries.get();
+    }
+
+    void setSilent(boolean silent) {
+        this.silent.set(silent);
+    }
+
+    private void serve() {
+        byte[] buffer = new byte[4096];
+        while (!socket.isClosed()) {
+            DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+            try {
+                socket.receive(packet);
+            } catch (IOException e) {
+                return;
+            }
+            queries.incrementAndGet();
+            if (silent.get()) {
+                continue;
+            }
+            ByteBuffer message = ByteBuffer.allocate(4096);
+            message.put(buffer, 0, packet.getLength()).flip();
+            DnsMessage.Question question = DnsMessage.readQuestion(message);
+            DnsMessage.toResponse(message, question, 0);
+            if (question.type == DnsMessage.TYPE_A) {
+                int offset = question.end;
+                message.limit(offset + 16);
+                message.putShort(offset, (short) 0xC00C);
+                message.putShort(offset + 2, (short) DnsMessage.TYPE_A);
+                message.putShort(offset + 4, (short) DnsMessage.CLASS_IN);
+                message.putInt(offset + 6, (int) ttlSeconds);
+                message.putShort(offset + 10, (short) 4);
+                message.duplicate().position(offset + 12).put(ADDRESS);
+                message.putShort(6, (short) 1);
+            }
+            byte[] reply = new byte[message.limit()];
+            message.duplicate().position(0).get(reply);
+            try {
+                socket.send(new DatagramPacket(reply, reply.length, packet.getSocketAddress()));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.tsymq.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 测试和基准测试用的本地 HTTP 源站
+ * 每个连接处理一个请求后关闭：/bytes/N 回复 N 个字节，其他路径回复 "hello &lt;路径&gt;"
+ */
+public class FakeHttpOrigin implements AutoCloseable {
+
+    private static final byte[] CHUNK = new byte[64 * 1024];
+
+    static {
+        Arrays.fill(CHUNK, (byte) 'x');
+    }
+
+    private final ServerSocket server;
+    private final ExecutorService workers;
+    // 收到的请求头
+    private final List<String> heads = new CopyOnWriteArrayList<>();
+
+    public FakeHttpOrigin() throws IOException {
+        this.server = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+        this.workers = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-http-origin");
+            thread.setDaemon(true);
+            return thread;
+        });
+        workers.execute(this::acceptLoop);
+    }
+
+    public int getPort() {
+        return server.getLocalPort();
+    }
+
+    public List<String> getHeads() {
+        return heads;
+    }
+
+    private void acceptLoop() {
+        while (!server.isClosed()) {
+            try {
+                Socket socket = server.accept();
+                workers.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            String head = readHead(socket.getInputStream());
+            if (head == null) {
+                return;
+            }
+            heads.add(head);
+            String path = head.split(" ")[1];
+            OutputStream out = socket.getOutputStream();
+            if (path.startsWith("/bytes/")) {
+                long remaining = Long.parseLong(path.substring(7));
+                out.write(("HTTP/1.1 200 OK\r\nContent-Length: " + remaining + "\r\nConnection: close\r\n\r\n")
+                        .getBytes(StandardCharsets.ISO_8859_1));
+                while (remaining > 0) {
+                    int length = (int) Math.min(CHUNK.length, remaining);
+                    out.write(CHUNK, 0, length);
+                    remaining -= length;
+                }
+            } else {
+                byte[] body = ("hello " + path).getBytes(StandardCharsets.UTF_8);
+                out.write(("HTTP/1.1 200 OK\r\nContent-Length: " + body.length + "\r\nConnection: close\r\n\r\n")
+                        .getBytes(StandardCharsets.ISO_8859_1));
+                out.write(body);
+            }
+            out.flush();
+        } catch (IOException e) {
+            // 客户端提前断开
+        }
+    }
+
+    /**
+     * 读取到空行为止的请求头或响应头
+     * @return 不含结尾空行的头部，连接在头部结束前关闭时返回 null
+     */
+    public static String readHead(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int matched = 0;
+        int b;
+        while ((b = in.read()) >= 0) {
+            head.write(b);
+            int expected = matched % 2 == 0 ? '\r' : '\n';
+            matched = b == expected ? matched + 1 : b == '\r' ? 1 : 0;
+            if (matched == 4) {
+                byte[] bytes = head.toByteArray();
+                return new String(bytes, 0, bytes.length - 4, StandardCharsets.ISO_8859_1);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 经代理的 CONNECT 隧道下载
+     * @param proxyPort 代理端口
+     * @param host 请求的主机名（需要能解析到本机）
+     * @param originPort 源站端口
+     * @param bytes 下载的字节数
+     * @return 响应体的字节数
+     */
+    public static long downloadThroughTunnel(int proxyPort, String host, int originPort, long bytes) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), proxyPort)) {
+            socket.setSoTimeout(10_000);
+            OutputStream out = socket.getOutputStream();
+            out.write(("CONNECT " + host + ":" + originPort + " HTTP/1.1\r\nHost: " + host + ":" + originPort + "\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            String established = readHead(socket.getInputStream());
+            if (established == null || !established.startsWith("HTTP/1.1 200")) {
+                throw new IOException("Tunnel refused: " + established);
+            }
+            return download(socket, host, bytes);
+        }
+    }
+
+    /**
+     * 直接从源站下载，作为对照
+     */
+    public static long downloadDirect(int originPort, long bytes) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), originPort)) {
+            socket.setSoTimeout(10_000);
+            return download(socket, "127.0.0.1", bytes);
+        }
+    }
+
+    private static long download(Socket socket, String host, long bytes) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(("GET /bytes/" + bytes + " HTTP/1.1\r\nHost: " + host + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+        InputStream in = socket.getInputStream();
+        if (readHead(in) == null) {
+            throw new IOException("No response");
+        }
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            total += read;
+        }
+        return total;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,210 @@
+package com.tsymq.net;
+
+import com.tsymq.rule.Verdict;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 本机过滤代理测试
+ */
+@DisplayName("FilteringProxy 测试")
+class FilteringProxyTest {
+
+    // 模拟学习模式开关，学习模式下用户规则屏蔽 localhost
+    private final AtomicBoolean focus = new AtomicBoolean(false);
+    private final BufferPool pool = new BufferPool(16 * 1024, 1024, true);
+    private FakeHttpOrigin origin;
+    private FilteringProxy proxy;
+
+    private Verdict evaluate(String url) {
+        if (url.contains("pornhub.com")) {
+            return Verdict.HARDCODED_BLOCKED;
+        }
+        return focus.get() && url.contains("://localhost") ? Verdict.USER_BLOCKED : Verdict.ALLOW;
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        origin = new FakeHttpOrigin();
+        proxy = new FilteringProxy(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), this::evaluate, pool)
+            .start();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        proxy.close();
+        origin.close();
+    }
+
+    /**
+     * 发送请求并读取代理返回的全部内容，直到连接关闭
+     */
+    private String exchange(String request) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), proxy.getPort())) {
+            socket.setSoTimeout(5000);
+            OutputStream out = socket.getOutputStream();
+            out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+            out.flush();
+            return new String(socket.getInputStream().readAllBytes(), StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    @Nested
+    @DisplayName("HTTP 请求测试")
+    class HttpTest {
+
+        @Test
+        @DisplayName("允许的请求应该改写为路径形式转发，并要求源站响应后关闭连接")
+        void shouldForwardAllowedRequests() throws IOException {
+            String response = exchange("GET http://127.0.0.1:" + origin.getPort() + "/hello?x=1 HTTP/1.1\r\n"
+                + "Host: 127.0.0.1:" + origin.getPort() + "\r\n"
+                + "Proxy-Connection: keep-alive\r\n"
+                + "Accept: */*\r\n\r\n");
+
+            assertThat(response).startsWith("HTTP/1.1 200 OK").endsWith("hello /hello?x=1");
+            assertThat(origin.getHeads()).hasSize(1);
+            String head = origin.getHeads().get(0);
+            assertThat(head).startsWith("GET /hello?x=1 HTTP/1.1\r\n")
+                .contains("Accept: */*", "Connection: close")
+                .doesNotContain("Proxy-Connection");
+        }
+
+        @Test
+        @DisplayName("被屏蔽的请求应该回复 403，不连接源站")
+        void shouldRejectBlockedRequests() throws IOException {
+            String response = exchange("GET http://www.pornhub.com/view HTTP/1.1\r\nHost: www.pornhub.com\r\n\r\n");
+
+            assertThat(response).startsWith("HTTP/1.1 403 Forbidden").contains("www.pornhub.com");
+            assertThat(origin.getHeads()).isEmpty();
+            assertThat(proxy.getBlocked()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("应该提供指向自己的 PAC 脚本")
+        void shouldServePacScript() throws IOException {
+            String response = exchange("GET /proxy.pac HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n");
+
+            assertThat(response).startsWith("HTTP/1.1 200 OK")
+                .contains("Content-Type: application/x-ns-proxy-autoconfig")
+                .contains("function FindProxyForURL")
+                .contains("PROXY 127.0.0.1:" + proxy.getPort());
+            assertThat(proxy.getPacUrl()).endsWith(":" + proxy.getPort() + "/proxy.pac");
+        }
+
+        @Test
+        @DisplayName("无法连接目标或请求格式错误时应该回复错误")
+        void shouldReportBadGatewayAndBadRequests() throws IOException {
+            int closedPort;
+            try (ServerSocket unused = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+                closedPort = unused.getLocalPort();
+            }
+
+            assertThat(exchange("GET http://127.0.0.1:" + closedPort + "/ HTTP/1.1\r\n\r\n"))
+                .startsWith("HTTP/1.1 502 Bad Gateway");
+            assertThat(exchange("GET /index.html HTTP/1.1\r\nHost: example.com\r\n\r\n"))
+                .startsWith("HTTP/1.1 400 Bad Request");
+            assertThat(exchange("NONSENSE\r\n\r\n")).startsWith("HTTP/1.1 400 Bad Request");
+        }
+    }
+
+    @Nested
+    @DisplayName("CONNECT 隧道测试")
+    class TunnelTest {
+
+        @Test
+        @DisplayName("允许的 CONNECT 请求应该建立隧道并完整转发数据")
+        void shouldRelayAllowedTunnels() throws IOException {
+            long bytes = 4L * 1024 * 1024;
+
+            assertThat(FakeHttpOrigin.downloadThroughTunnel(proxy.getPort(), "127.0.0.1", origin.getPort(), bytes))
+                .isEqualTo(bytes);
+            assertThat(proxy.getRelayedBytes()).isGreaterThan(bytes);
+        }
+
+        @Test
+        @DisplayName("被屏蔽的 CONNECT 请求应该回复 403")
+        void shouldRejectBlockedTunnels() throws IOException {
+            String response = exchange("CONNECT www.pornhub.com:443 HTTP/1.1\r\nHost: www.pornhub.com:443\r\n\r\n");
+
+            assertThat(response).startsWith("HTTP/1.1 403 Forbidden");
+            assertThat(proxy.getBlocked()).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("用户规则应该只在学习模式下屏蔽")
+        void shouldFollowFocusMode() throws IOException {
+            assertThat(FakeHttpOrigin.downloadThroughTunnel(proxy.getPort(), "localhost", origin.getPort(), 1024))
+                .isEqualTo(1024);
+
+            focus.set(true);
+            assertThatThrownBy(() -> FakeHttpOrigin.downloadThroughTunnel(proxy.getPort(), "localhost",
+                origin.getPort(), 1024))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("403");
+        }
+
+        @Test
+        @DisplayName("单个选择器线程应该同时转发数百个隧道，缓冲区在连接之间复用")
+        void shouldServeHundredsOfConcurrentTunnels() throws Exception {
+            int tunnels = 300;
+            int bytes = 64 * 1024;
+            for (int wave = 0; wave < 2; wave++) {
+                List<Socket> sockets = new ArrayList<>();
+                try {
+                    // 先建立全部隧道并发出请求，再逐个读取，所有连接同时处于打开状态
+                    for (int i = 0; i < tunnels; i++) {
+                        Socket socket = new Socket(InetAddress.getLoopbackAddress(), proxy.getPort());
+                        socket.setSoTimeout(10_000);
+                        sockets.add(socket);
+                        socket.getOutputStream().write(("CONNECT 127.0.0.1:" + origin.getPort() + " HTTP/1.1\r\n\r\n"
+                            + "GET /bytes/" + bytes + " HTTP/1.1\r\nHost: 127.0.0.1\r\n\r\n")
+                            .getBytes(StandardCharsets.ISO_8859_1));
+                    }
+                    await(() -> proxy.getActiveConnections() == tunnels);
+                    for (Socket socket : sockets) {
+                        InputStream in = socket.getInputStream();
+                        assertThat(FakeHttpOrigin.readHead(in)).startsWith("HTTP/1.1 200 Connection Established");
+                        assertThat(FakeHttpOrigin.readHead(in)).startsWith("HTTP/1.1 200 OK");
+                        assertThat(in.readAllBytes()).hasSize(bytes);
+                    }
+                } finally {
+                    for (Socket socket : sockets) {
+                        socket.close();
+                    }
+                }
+                await(() -> proxy.getActiveConnections() == 0);
+            }
+
+            assertThat(proxy.getConnections()).isEqualTo(2L * tunnels);
+            // 第二批连接全部使用第一批归还的缓冲区
+            assertThat(pool.getAllocations()).isLessThanOrEqualTo(2L * tunnels);
+            assertThat(pool.getAcquisitions()).isEqualTo(4L * tunnels);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.tsymq.net;
+
+import com.tsymq.browser.TabSnapshot;
+import com.tsymq.rule.Verdict;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 本地判定服务测试
+ */
+@DisplayName("VerdictServer 测试")
+class VerdictServerTest {
+
+    // 模拟学习模式开关，判定随之变化
+    private final AtomicBoolean focus = new AtomicBoolean(true);
+    private VerdictServer server;
+
+    private Verdict evaluate(TabSnapshot tab) {
+        if (tab.getTitle().contains("Lecture")) {
+            return Verdict.ALLOW;
+        }
+        if (tab.getUrl().contains("pornhub")) {
+            return Verdict.HARDCODED_BLOCKED;
+        }
+        return focus.get() && tab.getUrl().contains("video.example") ? Verdict.USER_BLOCKED : Verdict.ALLOW;
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = VerdictServer.loopback(0, this::evaluate, 1024).start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private Socket rawSocket() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    @Nested
+    @DisplayName("查询测试")
+    class QueryTest {
+
+        @Test
+        @DisplayName("单个查询应该返回当前模式下的判定")
+        void shouldAnswerSingleQueries() throws IOException {
+            try (VerdictClient client = VerdictClient.connect(server.getPort(), 5000)) {
+                assertThat(client.query("https://www.pornhub.com/")).isEqualTo(Verdict.HARDCODED_BLOCKED);
+                assertThat(client.query("https://video.example/watch")).isEqualTo(Verdict.USER_BLOCKED);
+                assertThat(client.query("https://video.example/watch", "Lecture 3 - Algorithms"))
+                    .isEqualTo(Verdict.ALLOW);
+
+                // 同一连接上，模式变化后的查询使用新的判定
+                focus.set(false);
+                assertThat(client.query("https://video.example/watch")).isEqualTo(Verdict.ALLOW);
+            }
+            assertThat(server.getConnections()).isEqualTo(1);
+            assertThat(server.getQueries()).isEqualTo(4);
+        }
+
+        @Test
+        @DisplayName("批量查询应该按顺序返回每个 URL 的判定")
+        void shouldAnswerBatchQueries() throws IOException {
+            try (VerdictClient client = VerdictClient.connect(server.getPort(), 5000)) {
+                assertThat(client.queryBatch(List.of("https://docs.example/", "https://www.pornhub.com/",
+                    "https://video.example/a")))
+                    .containsExactly(Verdict.ALLOW, Verdict.HARDCODED_BLOCKED, Verdict.USER_BLOCKED);
+                assertThat(client.queryBatch(List.of())).isEmpty();
+            }
+            assertThat(server.getRequests()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("原始协议应该支持 PING、CRLF 和错误回复")
+        void shouldSpeakLineProtocol() throws IOException {
+            try (Socket socket = rawSocket()) {
+                OutputStream out = socket.getOutputStream();
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+                out.write("PING\r\nQ https://www.pornhub.com/\r\nHELLO\nQ \n".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+
+                assertThat(in.readLine()).isEqualTo("PONG");
+                assertThat(in.readLine()).isEqualTo("HARDCODED_BLOCKED");
+                assertThat(in.readLine()).startsWith("ERR");
+                assertThat(in.readLine()).isEqualTo("ERR missing url");
+            }
+        }
+
+        @Test
+        @DisplayName("分多次到达的请求行应该拼接后处理")
+        void shouldReassembleSplitLines() throws Exception {
+            try (Socket socket = rawSocket()) {
+                socket.setTcpNoDelay(true);
+                OutputStream out = socket.getOutputStream();
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+                out.write("Q https://www.porn".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                Thread.sleep(50);
+                out.write("hub.com/\nQ https://docs".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                Thread.sleep(50);
+                out.write(".example/\n".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+
+                assertThat(in.readLine()).isEqualTo("HARDCODED_BLOCKED");
+                assertThat(in.readLine()).isEqualTo("ALLOW");
+            }
+        }
+
+        @Test
+        @DisplayName("超过上限的请求行应该回复错误并关闭连接")
+        void shouldRejectOverlongLines() throws IOException {
+            try (Socket socket = rawSocket()) {
+                OutputStream out = socket.getOutputStream();
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+
+                out.write(("Q https://example.com/" + "a".repeat(2000) + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+
+                assertThat(in.readLine()).isEqualTo("ERR line too long");
+                assertThat(in.readLine()).isNull();
+            }
+        }
+    }
+
+    @Nested
+    @DisplayName("流水线与并发测试")
+    class PipelineTest {
+
+        @Test
+        @DisplayName("流水线发送的查询应该按顺序回复，积压时暂停读取而不丢失请求")
+        void shouldAnswerPipelinedQueriesInOrder() throws Exception {
+            int count = 50_000;
+            try (VerdictClient client = VerdictClient.connect(server.getPort(), 10_000)) {
+                // 发送方不读取回复，服务端的回复积压后会暂停读取
+                CompletableFuture<Void> sending = CompletableFuture.runAsync(() -> {
+                    try {
+                        for (int i = 0; i < count; i++) {
+                            client.sendQuery(i % 3 == 0 ? "https://www.pornhub.com/" + i : "https://docs.example/" + i, "");
+                        }
+                        client.flush();
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+                for (int i = 0; i < count; i++) {
+                    assertThat(client.readVerdict())
+                        .isEqualTo(i % 3 == 0 ? Verdict.HARDCODED_BLOCKED : Verdict.ALLOW);
+                }
+                sending.join();
+            }
+            assertThat(server.getQueries()).isEqualTo(count);
+        }
+
+        @Test
+        @DisplayName("多个连接应该同时得到服务")
+        void shouldServeManyConnections() throws Exception {
+            List<CompletableFuture<Integer>> clients = new ArrayList<>();
+            for (int c = 0; c < 16; c++) {
+                clients.add(CompletableFuture.supplyAsync(() -> {
+                    try (VerdictClient client = VerdictClient.connect(server.getPort(), 5000)) {
+                        int blocked = 0;
+                        for (int i = 0; i < 200; i++) {
+                            if (client.query(i % 2 == 0 ? "https://www.pornhub.com/" : "https://docs.example/").isBlocked()) {
+                                blocked++;
+                            }
+                        }
+                        return blocked;
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }));
+            }
+            for (CompletableFuture<Integer> client : clients) {
+                assertThat(client.get()).isEqualTo(100);
+            }
+            assertThat(server.getConnections()).isEqualTo(16);
+        }
+
+        @Test
+        @DisplayName("每秒一万次查询的负载下延迟应该保持在亚毫秒级")
+        void shouldKeepLatencyLowUnderLoad() throws IOException {
+            List<String> urls = VerdictLoadGenerator.sampleUrls(1024);
+            // 预热 JIT，稳态下才反映服务本身的延迟
+            VerdictLoadGenerator.run(server.getPort(), urls, 10_000, 1_000, 1);
+
+            VerdictLoadGenerator.Report single = VerdictLoadGenerator.run(server.getPort(), urls, 10_000, 1_000, 1);
+            VerdictLoadGenerator.Report batch = VerdictLoadGenerator.run(server.getPort(), urls, 1_000, 1_000, 16);
+            System.out.println("single: " + single);
+            System.out.println("batch:  " + batch);
+
+            assertThat(single.getRequests()).isEqualTo(10_000);
+            assertThat(batch.getRequests()).isEqualTo(1_000);
+            // 目标是 p99 < 1ms；测试机与其他测试并行时留出余量，避免偶发调度延迟导致失败
+            assertThat(single.percentileMicros(0.5)).isLessThan(1_000);
+            assertThat(single.percentileMicros(0.99)).isLessThan(20_000);
+        }
+    }
+}
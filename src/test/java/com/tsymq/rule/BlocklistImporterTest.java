@@ -0,0 +1,95 @@
+package com.tsymq.rule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 屏蔽列表导入器测试
+ */
+@DisplayName("BlocklistImporter 测试")
+class BlocklistImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final BlocklistImporter importer = new BlocklistImporter();
+
+    @Test
+    @DisplayName("应该解析hosts、纯域名和adblock混合格式")
+    void shouldParseMixedFormats() {
+        String content = "# hosts 注释\n"
+                + "127.0.0.1 localhost\n"
+                + "0.0.0.0 ads.example.com tracker.example.com # 行内注释\n"
+                + "0.0.0.0 0.0.0.0\n"
+                + "\n"
+                + "plain-domain.org\r\n"
+                + "[Adblock Plus 2.0]\n"
+                + "! adblock 注释\n"
+                + "||adblock.net^\n"
+                + "||thirdparty.io^$third-party\n"
+                + "@@||allowed.com^\n"
+                + "||path.com/ads^\n"
+                + "*.wildcard.cn\n";
+
+        DomainTrie.Builder builder = new DomainTrie.Builder();
+        BlocklistImporter.ImportResult result = importer.importBuffer(wrap(content), builder);
+        DomainTrie trie = builder.build();
+
+        assertThat(trie.getDomains()).containsExactlyInAnyOrder(
+            "ads.example.com", "tracker.example.com", "plain-domain.org",
+            "adblock.net", "thirdparty.io", "wildcard.cn");
+        assertThat(result.getLines()).isEqualTo(13);
+        assertThat(result.getAdded()).isEqualTo(6);
+        assertThat(trie.matchesUrl("https://cdn.ads.example.com/x.js")).isTrue();
+        assertThat(trie.matchesUrl("https://allowed.com")).isFalse();
+    }
+
+    @Test
+    @DisplayName("重复条目应该被去重并计数")
+    void shouldCountDuplicates() {
+        DomainTrie.Builder builder = new DomainTrie.Builder();
+        BlocklistImporter.ImportResult result = importer.importBuffer(
+            wrap("a.com\n0.0.0.0 A.COM\n||a.com^\nb.com"), builder);
+
+        assertThat(result.getAdded()).isEqualTo(2);
+        assertThat(result.getDuplicates()).isEqualTo(2);
+        assertThat(builder.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("应该通过内存映射导入大文件")
+    void shouldImportLargeFileViaMmap() throws IOException {
+        Path file = tempDir.resolve("hosts");
+        int count = 200_000;
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (int i = 0; i < count; i++) {
+                writer.write("0.0.0.0 host" + i + ".blocked-" + (i % 97) + ".com");
+                writer.newLine();
+            }
+        }
+
+        DomainTrie.Builder builder = new DomainTrie.Builder();
+        BlocklistImporter.ImportResult result = importer.importFile(file, builder);
+        DomainTrie trie = builder.build();
+
+        assertThat(result.getLines()).isEqualTo(count);
+        assertThat(trie.size()).isEqualTo(count);
+        assertThat(result.getLinesPerSecond()).isPositive();
+        assertThat(trie.matchesUrl("https://host12345.blocked-26.com/")).isTrue();
+        assertThat(trie.matchesUrl("https://host12345.blocked-27.com/")).isFalse();
+    }
+
+    private static ByteBuffer wrap(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,120 @@
+package com.tsymq.rule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 布隆过滤器及前置过滤域名集合测试
+ */
+@DisplayName("BloomFilter 测试")
+class BloomFilterTest {
+
+    @Test
+    @DisplayName("已插入的元素不应该被判定为不存在")
+    void shouldHaveNoFalseNegatives() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("site" + i + ".com");
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(filter.mightContain("site" + i + ".com")).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("实际误判率应该接近目标值")
+    void falsePositiveRateShouldBeNearTarget() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.add("site" + i + ".com");
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("other" + i + ".org")) {
+                falsePositives++;
+            }
+        }
+        assertThat((double) falsePositives / probes).isLessThan(0.02);
+    }
+
+    @Test
+    @DisplayName("查询应该忽略大小写并支持区间")
+    void shouldMatchIgnoringCaseWithinRange() {
+        BloomFilter filter = new BloomFilter(16, 0.01);
+        filter.add("youtube.com");
+
+        String url = "https://WWW.YouTube.com/watch";
+        assertThat(filter.mightContain(url, 12, 23)).isTrue();
+    }
+
+    @Test
+    @DisplayName("非法误判率应该抛出异常")
+    void shouldRejectInvalidRate() {
+        assertThatThrownBy(() -> new BloomFilter(10, 0))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new BloomFilter(10, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("前置过滤后的匹配结果应该与精确结构一致")
+    void prefilteredSetShouldAgreeWithDelegate() {
+        List<String> domains = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            domains.add("blocked" + i + ".net");
+        }
+        domains.add("youtube.com");
+        DomainTrie trie = DomainTrie.compile(domains);
+        PrefilteredDomainSet set = PrefilteredDomainSet.wrap(trie, 0.01);
+
+        assertThat(set.matchesUrl("https://m.youtube.com/feed")).isTrue();
+        assertThat(set.matchesUrl("https://blocked42.net")).isTrue();
+        assertThat(set.matchesUrl("https://notyoutube.com")).isFalse();
+        for (int i = 0; i < 1000; i++) {
+            String url = "https://allowed" + i + ".org/page";
+            assertThat(set.matchesUrl(url)).isEqualTo(trie.matchesUrl(url));
+        }
+        assertThat(set.size()).isEqualTo(trie.size());
+    }
+
+    @Test
+    @DisplayName("应该统计查询、过滤和误判次数")
+    void shouldExposeStatistics() {
+        PrefilteredDomainSet set = PrefilteredDomainSet.wrap(DomainTrie.compile(List.of("youtube.com")), 0.01);
+        for (int i = 0; i < 100; i++) {
+            set.matchesUrl("https://allowed" + i + ".org");
+        }
+        set.matchesUrl("https://youtube.com");
+
+        BloomFilter filter = set.getFilter();
+        assertThat(filter.getQueries()).isEqualTo(101);
+        assertThat(filter.getNegatives() + filter.getFalsePositives()).isEqualTo(100);
+        assertThat(filter.getNegativeRate()).isGreaterThan(0.9);
+    }
+
+    @Test
+    @DisplayName("映射文件应该能遍历出全部域名并构建过滤器")
+    void shouldWrapMappedFile(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("set.bin");
+        DomainSetFile.write(file, List.of("youtube.com", "you.com", "m.facebook.com"), 1L);
+        DomainSetFile mapped = DomainSetFile.open(file);
+
+        List<String> decoded = new ArrayList<>();
+        mapped.forEachDomain(decoded::add);
+        assertThat(decoded).containsExactlyInAnyOrder("youtube.com", "you.com", "m.facebook.com");
+
+        PrefilteredDomainSet set = PrefilteredDomainSet.wrap(mapped, 0.01);
+        assertThat(set.matchesUrl("https://www.youtube.com")).isTrue();
+        assertThat(set.matchesUrl("https://facebook.com")).isFalse();
+    }
+}
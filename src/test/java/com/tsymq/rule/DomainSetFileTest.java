@@ -0,0 +1,164 @@
+package com.tsymq.rule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 二进制域名文件测试
+ */
+@DisplayName("DomainSetFile 测试")
+class DomainSetFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Nested
+    @DisplayName("读写测试")
+    class ReadWriteTest {
+
+        @Test
+        @DisplayName("写入后映射应该能按后缀查询")
+        void shouldMatchAfterRoundTrip() throws IOException {
+            Path file = tempDir.resolve("set.bin");
+            DomainSetFile.write(file, Arrays.asList("youtube.com", "x.com", "Bilibili.com", "x.com"), 42L);
+
+            DomainSetFile set = DomainSetFile.open(file);
+
+            assertThat(set.size()).isEqualTo(3);
+            assertThat(set.getSourceFingerprint()).isEqualTo(42L);
+            assertThat(set.matchesUrl("https://www.youtube.com/watch")).isTrue();
+            assertThat(set.matchesUrl("https://WWW.BILIBILI.COM")).isTrue();
+            assertThat(set.matchesUrl("https://x.com")).isTrue();
+            assertThat(set.matchesUrl("https://netflix.com/box.com")).isFalse();
+            assertThat(set.matchesUrl("https://com")).isFalse();
+        }
+
+        @Test
+        @DisplayName("跨多个块的查询结果应该与字典树一致")
+        void shouldAgreeWithTrieAcrossBlocks() throws IOException {
+            List<String> domains = new ArrayList<>();
+            for (int i = 0; i < 5000; i++) {
+                domains.add("site" + i + ".tld" + (i % 7) + ".net");
+            }
+            Path file = tempDir.resolve("large.bin");
+            DomainSetFile.write(file, domains, 1L);
+            DomainSetFile set = DomainSetFile.open(file);
+            DomainTrie trie = DomainTrie.compile(domains);
+
+            for (int i = 0; i < 6000; i += 7) {
+                String url = "https://www.site" + i + ".tld" + (i % 5) + ".net/page";
+                assertThat(set.matchesUrl(url)).as(url).isEqualTo(trie.matchesUrl(url));
+            }
+        }
+
+        @Test
+        @DisplayName("文件中保存的过滤器应该与重新构建的一致，误判率不同时不使用")
+        void shouldLoadStoredFilter() throws IOException {
+            List<String> domains = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                domains.add("site" + i + ".example.org");
+            }
+            Path file = tempDir.resolve("filter.bin");
+            DomainSetFile.write(file, domains, 1L, 0.01);
+            DomainSetFile set = DomainSetFile.open(file);
+
+            BloomFilter rebuilt = new BloomFilter(set.size(), 0.01);
+            domains.forEach(rebuilt::add);
+            BloomFilter stored = set.loadFilter(0.01);
+            assertThat(stored).isNotNull();
+            assertThat(stored.getBits()).isEqualTo(rebuilt.getBits());
+            assertThat(stored.getHashCount()).isEqualTo(rebuilt.getHashCount());
+            assertThat(set.loadFilter(0.001)).isNull();
+
+            // 包装映射文件时直接使用保存的过滤器
+            PrefilteredDomainSet prefiltered = PrefilteredDomainSet.wrap(set, 0.01);
+            assertThat(prefiltered.getFilter().getBits()).isEqualTo(rebuilt.getBits());
+            assertThat(prefiltered.matchesUrl("https://www.site7.example.org/")).isTrue();
+            assertThat(prefiltered.matchesUrl("https://example.org/")).isFalse();
+        }
+
+        @Test
+        @DisplayName("校验和不匹配时应该拒绝加载")
+        void shouldRejectCorruptFile() throws IOException {
+            Path file = tempDir.resolve("corrupt.bin");
+            DomainSetFile.write(file, Arrays.asList("a.com", "b.com"), 7L);
+            byte[] bytes = Files.readAllBytes(file);
+            bytes[bytes.length - 1] ^= 0x5A;
+            Files.write(file, bytes, StandardOpenOption.TRUNCATE_EXISTING);
+
+            assertThatThrownBy(() -> DomainSetFile.open(file))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Checksum");
+            assertThat(DomainSetFile.readFingerprint(file)).isEqualTo(7L);
+        }
+
+        @Test
+        @DisplayName("非二进制文件应该返回null指纹")
+        void shouldReturnNullFingerprintForForeignFile() throws IOException {
+            Path file = tempDir.resolve("text.bin");
+            Files.writeString(file, "not a domain set");
+
+            assertThat(DomainSetFile.readFingerprint(file)).isNull();
+            assertThat(DomainSetFile.readFingerprint(tempDir.resolve("missing.bin"))).isNull();
+        }
+    }
+
+    @Nested
+    @DisplayName("BlocklistStore 测试")
+    class BlocklistStoreTest {
+
+        @Test
+        @DisplayName("源文件未变化时应该复用二进制文件")
+        void shouldReuseCompiledFileWhenSourcesUnchanged() throws IOException {
+            Path sources = Files.createDirectory(tempDir.resolve("blocklists"));
+            Path compiled = tempDir.resolve("blocklists.bin");
+            Files.writeString(sources.resolve("hosts"), "0.0.0.0 ads.example.com\n");
+            BlocklistStore store = new BlocklistStore(sources, compiled);
+
+            DomainSet first = store.load();
+            FileTime writtenAt = Files.getLastModifiedTime(compiled);
+            DomainSet second = store.load();
+
+            assertThat(first.matchesUrl("https://ads.example.com")).isTrue();
+            assertThat(second).isInstanceOf(DomainSetFile.class);
+            assertThat(Files.getLastModifiedTime(compiled)).isEqualTo(writtenAt);
+        }
+
+        @Test
+        @DisplayName("源文件变化时应该重新生成")
+        void shouldRebuildWhenSourcesChange() throws IOException {
+            Path sources = Files.createDirectory(tempDir.resolve("lists"));
+            Path compiled = tempDir.resolve("lists.bin");
+            Files.writeString(sources.resolve("a.txt"), "first.com\n");
+            BlocklistStore store = new BlocklistStore(sources, compiled);
+            store.load();
+
+            Files.writeString(sources.resolve("b.txt"), "||second.com^\n");
+            DomainSet reloaded = store.load();
+
+            assertThat(reloaded.matchesUrl("https://second.com")).isTrue();
+            assertThat(reloaded.matchesUrl("https://first.com")).isTrue();
+        }
+
+        @Test
+        @DisplayName("没有源目录时应该返回空集合")
+        void shouldReturnEmptyWithoutSources() throws IOException {
+            BlocklistStore store = new BlocklistStore(tempDir.resolve("none"), tempDir.resolve("none.bin"));
+
+            assertThat(store.load().isEmpty()).isTrue();
+        }
+    }
+}
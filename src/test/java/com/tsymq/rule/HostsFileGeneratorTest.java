@@ -0,0 +1,174 @@
+package com.tsymq.rule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * hosts 文件生成器测试
+ */
+@DisplayName("HostsFileGenerator 测试")
+class HostsFileGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private HostsFileGenerator generator(Path target) {
+        return new HostsFileGenerator(target, "0.0.0.0", true, 1024 * 1024);
+    }
+
+    private static RuleSnapshot snapshot(String... blockedRules) {
+        return RuleSnapshot.of(Arrays.asList(blockedRules), List.of());
+    }
+
+    private static List<String> entries(Path file) throws IOException {
+        try (Stream<String> lines = Files.lines(file)) {
+            return lines.filter(line -> !line.startsWith("#")).collect(Collectors.toList());
+        }
+    }
+
+    @Nested
+    @DisplayName("渲染测试")
+    class RenderTest {
+
+        @Test
+        @DisplayName("普通模式应该只写入硬编码规则中的域名")
+        void shouldRenderHardcodedDomainsInNormalMode() throws IOException {
+            Path target = tempDir.resolve("hosts");
+            HostsFileGenerator generator = generator(target);
+
+            assertThat(generator.generate(snapshot("youtube.com"), false)).isTrue();
+
+            List<String> entries = entries(target);
+            assertThat(entries).contains("0.0.0.0 laoli.one", "0.0.0.0 www.laoli.one")
+                .doesNotContain("0.0.0.0 youtube.com")
+                // 不是域名形式的硬编码关键词无法写成 hosts 行
+                .noneMatch(line -> line.equals("0.0.0.0 javbus"));
+            assertThat(Files.readString(target)).contains("# mode: NORMAL");
+        }
+
+        @Test
+        @DisplayName("学习模式应该加入用户域名规则和导入的列表，关键词规则不写入")
+        void shouldRenderUserAndImportedDomainsInFocusMode() throws IOException {
+            Path target = tempDir.resolve("hosts");
+            RuleSnapshot rules = snapshot("youtube.com", "https://www.bilibili.com/", "keyword:shorts")
+                .withImportedDomains(DomainTrie.compile(List.of("tracker.example", "youtube.com")));
+
+            generator(target).generate(rules, true);
+
+            List<String> entries = entries(target);
+            assertThat(entries).contains("0.0.0.0 youtube.com", "0.0.0.0 www.youtube.com",
+                    "0.0.0.0 www.bilibili.com", "0.0.0.0 tracker.example", "0.0.0.0 www.tracker.example")
+                .doesNotContain("0.0.0.0 www.www.bilibili.com")
+                .noneMatch(line -> line.contains("shorts"));
+            // 导入列表中与用户规则重复的域名只写一次
+            assertThat(entries).filteredOn("0.0.0.0 youtube.com"::equals).hasSize(1);
+        }
+    }
+
+    @Nested
+    @DisplayName("写入测试")
+    class WriteTest {
+
+        @Test
+        @DisplayName("输入未变化时不应该写文件，普通模式下用户规则的变化不影响文件")
+        void shouldSkipUnchangedRenders() throws IOException {
+            Path target = tempDir.resolve("hosts");
+            HostsFileGenerator generator = generator(target);
+            RuleSnapshot rules = snapshot("youtube.com");
+            generator.generate(rules, true);
+            FileTime written = FileTime.fromMillis(1_000);
+            Files.setLastModifiedTime(target, written);
+
+            // 同一份域名集合（只改了白名单）直接跳过
+            assertThat(generator.generate(rules.withWhiteRules(List.of("Lecture")), true)).isFalse();
+            assertThat(generator.getChecks()).isEqualTo(1);
+
+            // 只增加关键词规则会重新编译集合，但域名相同，不写文件
+            assertThat(generator.generate(rules.withBlockedRule("keyword:shorts"), true)).isFalse();
+            assertThat(generator.getChecks()).isEqualTo(2);
+            assertThat(generator.getWrites()).isEqualTo(1);
+            assertThat(Files.getLastModifiedTime(target)).isEqualTo(written);
+
+            // 模式切换后内容变化
+            assertThat(generator.generate(rules, false)).isTrue();
+            assertThat(entries(target)).doesNotContain("0.0.0.0 youtube.com");
+            assertThat(generator.generate(rules.withBlockedRule("bilibili.com"), false)).isFalse();
+            assertThat(generator.generate(rules.withBlockedRule("bilibili.com"), true)).isTrue();
+            assertThat(entries(target)).contains("0.0.0.0 bilibili.com");
+        }
+
+        @Test
+        @DisplayName("应该通过临时文件原子替换目标文件，并且其他用户可读")
+        void shouldReplaceTargetAtomically() throws IOException {
+            Path target = tempDir.resolve("hosts");
+            Files.writeString(target, "old content\n");
+            HostsFileGenerator generator = generator(target);
+
+            generator.generate(snapshot("youtube.com"), true);
+
+            assertThat(Files.readString(target)).doesNotContain("old content").contains("0.0.0.0 youtube.com");
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertThat(files).containsExactly(target);
+            }
+            if (Files.getFileStore(target).supportsFileAttributeView("posix")) {
+                assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(target))).isEqualTo("rw-r--r--");
+            }
+        }
+
+        @Test
+        @DisplayName("替换失败时应该保留原目标并清理临时文件")
+        void shouldKeepTargetWhenReplaceFails() throws IOException {
+            // 目标是非空目录，重命名必然失败
+            Path target = Files.createDirectory(tempDir.resolve("hosts"));
+            Files.writeString(target.resolve("keep"), "x");
+            HostsFileGenerator generator = generator(target);
+
+            assertThatThrownBy(() -> generator.generate(snapshot("youtube.com"), true)).isInstanceOf(IOException.class);
+
+            assertThat(target.resolve("keep")).exists();
+            try (Stream<Path> files = Files.list(tempDir)) {
+                assertThat(files).containsExactly(target);
+            }
+        }
+
+        @Test
+        @DisplayName("一百万个域名的列表应该在一秒内写完")
+        void shouldWriteMillionEntriesWithinASecond() throws IOException {
+            List<String> domains = new ArrayList<>(1_000_000);
+            for (int i = 0; i < 1_000_000; i++) {
+                domains.add("host" + i + ".list" + (i % 1000) + ".example");
+            }
+            Path blocklist = tempDir.resolve("imported.bin");
+            DomainSetFile.write(blocklist, domains, 1L);
+            RuleSnapshot rules = snapshot("youtube.com").withImportedDomains(DomainSetFile.open(blocklist));
+            Path target = tempDir.resolve("hosts");
+            HostsFileGenerator generator = new HostsFileGenerator(target, "0.0.0.0", false, 1024 * 1024);
+            // 预热 JIT
+            new HostsFileGenerator(tempDir.resolve("warmup"), "0.0.0.0", false, 1024 * 1024).generate(rules, true);
+
+            long start = System.nanoTime();
+            assertThat(generator.generate(rules, true)).isTrue();
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.println("Rendered " + generator.getEntries() + " hosts entries in " + elapsedMillis + " ms");
+
+            assertThat(generator.getEntries()).isGreaterThan(1_000_000);
+            assertThat(Files.size(target)).isGreaterThan(30L * 1_000_000);
+            assertThat(elapsedMillis).isLessThan(1_000);
+        }
+    }
+}
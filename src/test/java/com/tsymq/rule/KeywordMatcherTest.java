@@ -0,0 +1,129 @@
+package com.tsymq.rule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Aho-Corasick 关键词匹配器测试
+ */
+@DisplayName("KeywordMatcher 测试")
+class KeywordMatcherTest {
+
+    @Nested
+    @DisplayName("基本匹配测试")
+    class BasicMatchTest {
+
+        @Test
+        @DisplayName("应该匹配包含任意关键词的文本")
+        void shouldMatchAnyKeyword() {
+            KeywordMatcher matcher = KeywordMatcher.compile(Arrays.asList("he", "she", "his", "hers"));
+
+            assertThat(matcher.matches("ushers")).isTrue();
+            assertThat(matcher.matches("this")).isTrue();
+            assertThat(matcher.matches("abc")).isFalse();
+        }
+
+        @Test
+        @DisplayName("失败指针应该正确处理重叠前缀")
+        void shouldFollowFailureLinks() {
+            KeywordMatcher matcher = KeywordMatcher.compile(Arrays.asList("abcd", "bce"));
+
+            assertThat(matcher.matches("xabce")).isTrue();
+            assertThat(matcher.matches("abcabcd")).isTrue();
+            assertThat(matcher.matches("abcbc")).isFalse();
+        }
+
+        @Test
+        @DisplayName("默认应该区分大小写")
+        void shouldBeCaseSensitiveByDefault() {
+            KeywordMatcher matcher = KeywordMatcher.compile(Collections.singletonList("Facebook"));
+
+            assertThat(matcher.matches("https://Facebook.com")).isTrue();
+            assertThat(matcher.matches("https://facebook.com")).isFalse();
+        }
+
+        @Test
+        @DisplayName("ignoreCase 模式应该忽略大小写")
+        void shouldIgnoreCaseWhenRequested() {
+            KeywordMatcher matcher = KeywordMatcher.compile(Collections.singletonList("PornHub"), true);
+
+            assertThat(matcher.getKeywords()).containsExactly("pornhub");
+            assertThat(matcher.matches("https://WWW.PORNHUB.COM")).isTrue();
+        }
+
+        @Test
+        @DisplayName("应该支持非ASCII关键词")
+        void shouldSupportNonAsciiKeywords() {
+            KeywordMatcher matcher = KeywordMatcher.compile(Arrays.asList("视频", "直播"));
+
+            assertThat(matcher.matches("某某直播间")).isTrue();
+            assertThat(matcher.matches("学习资料")).isFalse();
+        }
+    }
+
+    @Nested
+    @DisplayName("边界条件测试")
+    class EdgeCaseTest {
+
+        @Test
+        @DisplayName("空关键词和null应该被忽略")
+        void shouldIgnoreEmptyKeywords() {
+            KeywordMatcher matcher = KeywordMatcher.compile(Arrays.asList("", null, "abc"));
+
+            assertThat(matcher.size()).isEqualTo(1);
+            assertThat(matcher.matches("xyz")).isFalse();
+        }
+
+        @Test
+        @DisplayName("空匹配器不应该命中任何文本")
+        void emptyMatcherShouldNeverMatch() {
+            KeywordMatcher matcher = KeywordMatcher.compile(null);
+
+            assertThat(matcher.isEmpty()).isTrue();
+            assertThat(matcher.matches("anything")).isFalse();
+            assertThat(matcher.matches(null)).isFalse();
+        }
+
+        @Test
+        @DisplayName("重复关键词应该去重")
+        void shouldDeduplicateKeywords() {
+            KeywordMatcher matcher = KeywordMatcher.compile(Arrays.asList("abc", "ABC", "abc"), true);
+
+            assertThat(matcher.size()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("结果应该与逐个 contains 检查一致")
+    void shouldAgreeWithNaiveContains() {
+        Random random = new Random(42);
+        List<String> keywords = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            keywords.add(randomWord(random, 2 + random.nextInt(5)));
+        }
+        KeywordMatcher matcher = KeywordMatcher.compile(keywords);
+
+        for (int i = 0; i < 2000; i++) {
+            String text = randomWord(random, 10 + random.nextInt(30));
+            boolean expected = keywords.stream().anyMatch(text::contains);
+            assertThat(matcher.matches(text)).as(text).isEqualTo(expected);
+        }
+    }
+
+    private static String randomWord(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('a' + random.nextInt(6)));
+        }
+        return sb.toString();
+    }
+}
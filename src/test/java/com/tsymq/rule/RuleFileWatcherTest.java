@@ -0,0 +1,93 @@
+package com.tsymq.rule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 规则文件监听器测试
+ */
+@DisplayName("RuleFileWatcher 测试")
+class RuleFileWatcherTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("文件修改后应该触发回调")
+    void shouldNotifyOnModification() throws Exception {
+        Path file = tempDir.resolve("rules.txt");
+        Files.write(file, List.of("a.com"));
+        CountDownLatch latch = new CountDownLatch(1);
+
+        try (RuleFileWatcher watcher = new RuleFileWatcher(50)) {
+            watcher.watch(file, latch::countDown);
+            Files.write(file, List.of("a.com", "b.com"));
+
+            assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("连续写入应该合并为少量回调")
+    void shouldDebounceBursts() throws Exception {
+        Path file = tempDir.resolve("rules.txt");
+        AtomicInteger reloads = new AtomicInteger();
+
+        try (RuleFileWatcher watcher = new RuleFileWatcher(300)) {
+            watcher.watch(file, reloads::incrementAndGet);
+            for (int i = 0; i < 20; i++) {
+                Files.write(file, List.of("site" + i + ".com"));
+            }
+
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (reloads.get() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            Thread.sleep(700);
+            assertThat(reloads.get()).isBetween(1, 3);
+        }
+    }
+
+    @Test
+    @DisplayName("同目录下的其他文件不应该触发回调")
+    void shouldIgnoreUnrelatedFiles() throws Exception {
+        Path file = tempDir.resolve("rules.txt");
+        Path other = tempDir.resolve("other.txt");
+        CountDownLatch watched = new CountDownLatch(1);
+        AtomicInteger reloads = new AtomicInteger();
+
+        try (RuleFileWatcher watcher = new RuleFileWatcher(50)) {
+            watcher.watch(file, () -> {
+                reloads.incrementAndGet();
+                watched.countDown();
+            });
+            Files.write(other, List.of("x"));
+            Thread.sleep(300);
+            assertThat(reloads.get()).isZero();
+
+            Files.write(file, List.of("a.com"));
+            assertThat(watched.await(10, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    @DisplayName("关闭后不能再注册文件")
+    void shouldRejectWatchAfterClose() throws IOException {
+        RuleFileWatcher watcher = new RuleFileWatcher(50);
+        watcher.close();
+
+        assertThatThrownBy(() -> watcher.watch(tempDir.resolve("rules.txt"), () -> { }))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,142 @@
+package com.tsymq.rule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 规则追加日志测试
+ */
+@DisplayName("RuleJournal 测试")
+class RuleJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    @DisplayName("编辑应该追加到日志并在重放后生效")
+    void shouldAppendAndReplay() throws IOException {
+        Path base = tempDir.resolve("rules.txt");
+        Files.write(base, List.of("a.com", "b.com"));
+
+        try (RuleJournal journal = new RuleJournal(base, 1 << 20)) {
+            journal.recordAdd("c.com");
+            journal.recordRemove("a.com");
+            journal.flush();
+
+            assertThat(Files.readAllLines(journal.getJournalFile())).containsExactly("+c.com", "-a.com");
+            assertThat(Files.readAllLines(base)).containsExactly("a.com", "b.com");
+            assertThat(journal.load()).containsExactly("b.com", "c.com");
+        }
+    }
+
+    @Test
+    @DisplayName("未写完的最后一行应该在重放时被忽略")
+    void shouldIgnoreTornTail() throws IOException {
+        Path base = tempDir.resolve("rules.txt");
+        Path journalFile = tempDir.resolve("rules.txt.journal");
+        Files.write(journalFile, "+a.com\n+b.c".getBytes(StandardCharsets.UTF_8));
+
+        assertThat(RuleJournal.replay(base, journalFile)).containsExactly("a.com");
+    }
+
+    @Test
+    @DisplayName("超过阈值时应该压缩进基础文件")
+    void shouldCompactWhenThresholdExceeded() throws IOException {
+        Path base = tempDir.resolve("rules.txt");
+        try (RuleJournal journal = new RuleJournal(base, 64)) {
+            for (int i = 0; i < 20; i++) {
+                journal.recordAdd("site" + i + ".com");
+            }
+            journal.flush();
+
+            assertThat(journal.getCompactions()).isGreaterThan(0);
+            assertThat(Files.size(journal.getJournalFile())).isLessThanOrEqualTo(64);
+            assertThat(journal.load()).hasSize(20);
+        }
+    }
+
+    @Test
+    @DisplayName("外部修改基础文件后应该丢弃未压缩的日志，压缩不应该覆盖外部修改")
+    void shouldPreferExternallyModifiedBase() throws IOException {
+        Path base = tempDir.resolve("rules.txt");
+        Files.write(base, List.of("a.com", "b.com"));
+
+        try (RuleJournal journal = new RuleJournal(base, 1 << 20)) {
+            assertThat(journal.load()).containsExactly("a.com", "b.com");
+            journal.recordAdd("c.com");
+            journal.flush();
+
+            // 外部删除 b.com，日志中的 +c.com 尚未压缩
+            Files.write(base, List.of("a.com"));
+            // 重新加载之前的压缩不应该用旧列表覆盖外部修改
+            journal.requestCompaction();
+            journal.flush();
+            assertThat(Files.readAllLines(base)).containsExactly("a.com");
+
+            assertThat(journal.reload()).containsExactly("a.com");
+            assertThat(Files.size(journal.getJournalFile())).isZero();
+
+            journal.recordAdd("d.com");
+            journal.requestCompaction();
+            journal.flush();
+            assertThat(Files.readAllLines(base)).containsExactly("a.com", "d.com");
+            // 压缩自身的写入不算外部修改
+            journal.recordAdd("e.com");
+            journal.flush();
+            assertThat(journal.reload()).containsExactly("a.com", "d.com", "e.com");
+        }
+    }
+
+    @Test
+    @DisplayName("批量编辑应该在一次写入中落盘")
+    void shouldWriteBulkEditsTogether() throws IOException {
+        Path base = tempDir.resolve("rules.txt");
+        List<String> rules = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rules.add("bulk" + i + ".com");
+        }
+
+        try (RuleJournal journal = new RuleJournal(base, 1 << 20)) {
+            journal.recordAddAll(rules);
+            journal.flush();
+
+            assertThat(Files.readAllLines(journal.getJournalFile())).hasSize(1000);
+            assertThat(journal.load()).containsExactlyElementsOf(rules);
+        }
+    }
+
+    @Test
+    @DisplayName("关闭时应该写完剩余操作，之后的编辑被丢弃")
+    void closeShouldDrainPendingEdits() throws IOException {
+        Path base = tempDir.resolve("rules.txt");
+        RuleJournal journal = new RuleJournal(base, 1 << 20);
+        journal.recordAdd("a.com");
+        journal.close();
+        journal.recordAdd("b.com");
+
+        assertThat(RuleJournal.replay(base, journal.getJournalFile())).containsExactly("a.com");
+    }
+
+    @Test
+    @DisplayName("包含换行的规则应该被拒绝")
+    void shouldRejectMultiLineRules() throws IOException {
+        Path base = tempDir.resolve("rules.txt");
+        try (RuleJournal journal = new RuleJournal(base, 1 << 20)) {
+            journal.recordAdd("a.com\n+evil.com");
+            journal.recordAdd(" ");
+            journal.flush();
+
+            assertThat(journal.load()).isEmpty();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.tsymq.rule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * 规则快照测试
+ */
+@DisplayName("RuleSnapshot 测试")
+class RuleSnapshotTest {
+
+    @Test
+    @DisplayName("空快照不应该命中任何规则")
+    void emptySnapshotShouldMatchNothing() {
+        RuleSnapshot snapshot = RuleSnapshot.empty();
+
+        assertThat(snapshot.isBlocked("https://example.com")).isFalse();
+        assertThat(snapshot.isWhite("Example")).isFalse();
+        assertThat(snapshot.isBlocked(null)).isFalse();
+    }
+
+    @Test
+    @DisplayName("编辑应该生成新快照且不影响旧快照")
+    void editsShouldProduceNewSnapshot() {
+        RuleSnapshot original = RuleSnapshot.of(Collections.singletonList("youtube"), Collections.emptyList());
+        RuleSnapshot edited = original.withBlockedRule("bilibili");
+
+        assertThat(edited).isNotSameAs(original);
+        assertThat(original.isBlocked("https://bilibili.com")).isFalse();
+        assertThat(edited.isBlocked("https://bilibili.com")).isTrue();
+        assertThat(edited.isBlocked("https://youtube.com")).isTrue();
+    }
+
+    @Test
+    @DisplayName("每个新快照的代号应该递增")
+    void generationShouldIncrease() {
+        RuleSnapshot first = RuleSnapshot.empty();
+        RuleSnapshot second = first.withWhiteRules(Arrays.asList("文档", "教程"));
+        RuleSnapshot third = second.withBlockedRules(Collections.singletonList("weibo"));
+
+        assertThat(second.getGeneration()).isGreaterThan(first.getGeneration());
+        assertThat(third.getGeneration()).isGreaterThan(second.getGeneration());
+        assertThat(third.isWhite("Java 教程")).isTrue();
+    }
+
+    @Test
+    @DisplayName("规则集合应该不可修改")
+    void rulesShouldBeUnmodifiable() {
+        RuleSnapshot snapshot = RuleSnapshot.of(Collections.singletonList("a"), Collections.singletonList("b"));
+
+        assertThatThrownBy(() -> snapshot.getBlockedRules().add("c"))
+            .isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> snapshot.getWhiteRules().add("c"))
+            .isInstanceOf(UnsupportedOperationException.class);
+    }
+}
@@ -0,0 +1,62 @@
+package com.tsymq.rule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * URL判定缓存测试
+ */
+@DisplayName("VerdictCache 测试")
+class VerdictCacheTest {
+
+    @Test
+    @DisplayName("相同URL和代号应该命中缓存")
+    void shouldHitForSameUrlAndGeneration() {
+        VerdictCache cache = new VerdictCache(16);
+        cache.put("https://example.com", 1, Verdict.USER_BLOCKED);
+
+        assertThat(cache.get("https://example.com", 1)).isEqualTo(Verdict.USER_BLOCKED);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getMisses()).isZero();
+    }
+
+    @Test
+    @DisplayName("代号变化后应该视为未命中")
+    void shouldMissWhenGenerationChanges() {
+        VerdictCache cache = new VerdictCache(16);
+        cache.put("https://example.com", 1, Verdict.ALLOW);
+
+        assertThat(cache.get("https://example.com", 2)).isNull();
+        assertThat(cache.getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("容量应该有界并按CLOCK淘汰")
+    void shouldStayBoundedAndEvict() {
+        VerdictCache cache = new VerdictCache(8);
+        for (int i = 0; i < 1000; i++) {
+            cache.put("https://site" + i + ".com", 1, Verdict.ALLOW);
+        }
+
+        assertThat(cache.capacity()).isEqualTo(8);
+        assertThat(cache.getEvictions()).isGreaterThan(0);
+    }
+
+    @Test
+    @DisplayName("最近访问过的条目应该在淘汰中存活")
+    void recentlyUsedEntryShouldSurvive() {
+        // 容量为4时只有一个组，所有URL竞争同一组
+        VerdictCache cache = new VerdictCache(4);
+        for (int i = 0; i < 4; i++) {
+            cache.put("url" + i, 1, Verdict.ALLOW);
+        }
+        cache.get("url0", 1);
+
+        cache.put("url4", 1, Verdict.ALLOW);
+
+        assertThat(cache.get("url0", 1)).isEqualTo(Verdict.ALLOW);
+        assertThat(cache.get("url1", 1)).isNull();
+    }
+}